@@ -0,0 +1,102 @@
+package me.itsmas.whatsanalysis.benchmark;
+
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis.MemberMessageCountResult;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis.WordFrequencyResult;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks executing analyses
+ * on an already parsed chat
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AnalysisBenchmark
+{
+    /**
+     * The amount of messages in the chat
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int messages;
+
+    /**
+     * The amount of members in the chat
+     */
+    @Param({"2", "50"})
+    public int members;
+
+    /**
+     * The amount of words kept by the word frequency analysis
+     */
+    @Param({"20"})
+    public int limit;
+
+    /**
+     * The chat analysed
+     */
+    private Chat chat;
+
+    /**
+     * The word frequency analysis
+     */
+    private WordFrequencyAnalysis wordFrequency;
+
+    /**
+     * The member message count analysis
+     */
+    private final MemberMessageCountAnalysis messageCount = new MemberMessageCountAnalysis();
+
+    /**
+     * Parses the chat
+     *
+     * @throws IOException If the export could not be written
+     */
+    @Setup
+    public void setup() throws IOException
+    {
+        chat = UtilChat.parseChat(BenchmarkChats.createExport(messages, members));
+        wordFrequency = new WordFrequencyAnalysis(limit);
+    }
+
+    /**
+     * Counts the uses of each word
+     *
+     * @return The result
+     */
+    @Benchmark
+    public WordFrequencyResult wordFrequency()
+    {
+        return wordFrequency.execute(chat);
+    }
+
+    /**
+     * Counts the messages of each member
+     *
+     * @return The result
+     */
+    @Benchmark
+    public MemberMessageCountResult memberMessageCount()
+    {
+        return messageCount.execute(chat);
+    }
+}
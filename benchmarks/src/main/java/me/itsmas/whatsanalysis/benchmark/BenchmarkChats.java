@@ -0,0 +1,94 @@
+package me.itsmas.whatsanalysis.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Creates the exports benchmarks run over
+ *
+ * Exports are generated from a fixed seed so
+ * that every run measures the same input
+ */
+final class BenchmarkChats
+{
+    private BenchmarkChats() {}
+
+    /**
+     * The seed exports are generated from
+     */
+    private static final long SEED = 0;
+
+    /**
+     * The words messages are made from
+     */
+    private static final String[] WORDS = {
+        "hello", "world", "it's", "don't", "lol", "ok", "yes", "no", "123",
+        "(maybe)", "\"quoted\"", "wow!!", "a-b", "see", "you", "tomorrow"
+    };
+
+    /**
+     * Creates the lines of an export
+     *
+     * @param messages The amount of messages
+     * @param members The amount of members
+     *
+     * @return The lines
+     */
+    static String[] createLines(int messages, int members)
+    {
+        Random random = new Random(SEED);
+        String[] lines = new String[messages];
+
+        for (int i = 0; i < messages; i++)
+        {
+            StringBuilder line = new StringBuilder();
+
+            int minute = i % (60 * 24 * 28);
+
+            line.append(String.format("%02d/01/2020, %02d:%02d - ", 1 + minute / 1440, (minute / 60) % 24, minute % 60));
+            line.append("Member ").append(random.nextInt(members)).append(": ");
+
+            if (random.nextInt(20) == 0)
+            {
+                line.append("<Media omitted>");
+            }
+            else
+            {
+                int length = 1 + random.nextInt(12);
+
+                for (int w = 0; w < length; w++)
+                {
+                    // Some messages continue over several lines
+                    line.append(WORDS[random.nextInt(WORDS.length)]).append(w % 5 == 4 ? '\n' : ' ');
+                }
+            }
+
+            lines[i] = line.toString();
+        }
+
+        return lines;
+    }
+
+    /**
+     * Writes an export to a temporary file
+     *
+     * @param messages The amount of messages
+     * @param members The amount of members
+     *
+     * @return The file, deleted on exit
+     *
+     * @throws IOException If the file could not be written
+     */
+    static File createExport(int messages, int members) throws IOException
+    {
+        File file = File.createTempFile("benchmark", ".txt");
+        file.deleteOnExit();
+
+        Files.write(file.toPath(), String.join("\n", createLines(messages, members)).getBytes(StandardCharsets.UTF_8));
+
+        return file;
+    }
+}
@@ -0,0 +1,36 @@
+package me.itsmas.whatsanalysis.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation
+ * profiler, passing arguments on to JMH
+ */
+public final class Benchmarks
+{
+    private Benchmarks() {}
+
+    /**
+     * Runs the benchmarks selected by the arguments
+     *
+     * @param args The JMH arguments
+     *
+     * @throws CommandLineOptionException If the arguments are invalid
+     * @throws RunnerException If the benchmarks could not be run
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException
+    {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(options).run();
+    }
+}
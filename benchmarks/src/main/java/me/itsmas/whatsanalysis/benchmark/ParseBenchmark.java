@@ -0,0 +1,110 @@
+package me.itsmas.whatsanalysis.benchmark;
+
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import me.itsmas.whatsanalysis.util.UtilMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing exports, both whole
+ * files and each line on its own
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParseBenchmark
+{
+    /**
+     * The amount of messages in the export
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int messages;
+
+    /**
+     * The amount of members in the export
+     */
+    @Param({"2", "50"})
+    public int members;
+
+    /**
+     * The export file
+     */
+    private File export;
+
+    /**
+     * The lines of the export, including
+     * the continuations of messages
+     */
+    private String[] lines;
+
+    /**
+     * The index of the next line to parse
+     */
+    private int next = 0;
+
+    /**
+     * The members lines are parsed with
+     */
+    private final Set<ChatMember> chatMembers = new HashSet<>();
+
+    /**
+     * Writes the export
+     *
+     * @throws IOException If the export could not be written
+     */
+    @Setup
+    public void setup() throws IOException
+    {
+        export = BenchmarkChats.createExport(messages, members);
+        lines = String.join("\n", BenchmarkChats.createLines(messages, members)).split("\n");
+    }
+
+    /**
+     * Parses the whole export file
+     *
+     * @return The chat
+     */
+    @Benchmark
+    public Chat parseChat()
+    {
+        return UtilChat.parseChat(export);
+    }
+
+    /**
+     * Parses the next line of the export
+     * into a message builder, cycling
+     * through the lines
+     *
+     * @return The builder, if the line starts a message
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Optional<?> parseMessageBuilder()
+    {
+        String line = lines[next];
+        next = next + 1 == lines.length ? 0 : next + 1;
+
+        return UtilMessage.parseMessageBuilder(line, chatMembers);
+    }
+}
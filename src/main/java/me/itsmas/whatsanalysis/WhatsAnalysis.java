@@ -1,24 +1,106 @@
 package me.itsmas.whatsanalysis;
 
+import me.itsmas.whatsanalysis.analysis.AnalysisResults;
+import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
 import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.util.BatchJob;
+import me.itsmas.whatsanalysis.util.BatchListener;
+import me.itsmas.whatsanalysis.util.ChatCache;
+import me.itsmas.whatsanalysis.util.IncrementalChat;
+import me.itsmas.whatsanalysis.util.ParseOptions;
+import me.itsmas.whatsanalysis.util.UtilBatch;
 import me.itsmas.whatsanalysis.util.UtilChat;
+import me.itsmas.whatsanalysis.util.UtilSnapshot;
 
 import java.io.File;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Main library class
  */
 public final class WhatsAnalysis
 {
+    /**
+     * The process wide cache of parsed chats,
+     * null unless enabled
+     */
+    private static volatile ChatCache chatCache;
+
     private WhatsAnalysis() {}
 
+    /**
+     * Starts caching chats parsed from files, holding
+     * them strongly, replacing any cache already enabled
+     *
+     * @see #enableChatCache(long, boolean)
+     *
+     * @param maxBytes The most estimated bytes of chats to keep
+     *
+     * @return The cache
+     */
+    public static ChatCache enableChatCache(long maxBytes)
+    {
+        return enableChatCache(maxBytes, false);
+    }
+
+    /**
+     * Starts caching chats parsed from files,
+     * replacing any cache already enabled
+     *
+     * {@link #parseChat(File)} and {@link #parseChat(File, ParseOptions)}
+     * then return the same chat for a file until it changes
+     * or is evicted, so chats they return must not be extended
+     *
+     * @see ChatCache
+     *
+     * @param maxBytes The most estimated bytes of chats to keep
+     * @param softReferences Whether the garbage collector may drop chats
+     *
+     * @return The cache
+     */
+    public static ChatCache enableChatCache(long maxBytes, boolean softReferences)
+    {
+        ChatCache cache = new ChatCache(maxBytes, softReferences);
+        chatCache = cache;
+
+        return cache;
+    }
+
+    /**
+     * Stops caching parsed chats,
+     * dropping those already cached
+     */
+    public static void disableChatCache()
+    {
+        chatCache = null;
+    }
+
+    /**
+     * Fetches the cache of parsed chats
+     *
+     * @see #chatCache
+     *
+     * @return An optional of the cache, present if enabled
+     */
+    public static Optional<ChatCache> getChatCache()
+    {
+        return Optional.ofNullable(chatCache);
+    }
+
     /**
      * Attempts to parse a {@link Chat} from a {@link File}
      * Delegates to {@link UtilChat#parseChat(File)} and
      * wraps in a nullable {@link Optional<Chat>} object
      *
+     * The file may be a zipped export, which
+     * is parsed without being extracted
+     *
      * @see UtilChat#parseChat(File)
      *
      * @param file The file
@@ -27,7 +109,112 @@ public final class WhatsAnalysis
      */
     public static Optional<Chat> parseChat(File file)
     {
-        return Optional.ofNullable(UtilChat.parseChat(file));
+        return parseChat(file, ParseOptions.DEFAULT);
+    }
+
+    /**
+     * Attempts to parse a {@link Chat} from a {@link File}
+     * with the given {@link ParseOptions}, fetching it
+     * from the chat cache instead if it is enabled
+     *
+     * @see UtilChat#parseChat(File, ParseOptions)
+     * @see #enableChatCache(long, boolean)
+     *
+     * @param file The file
+     * @param options The parse options
+     *
+     * @return An optional of the resulting chat
+     */
+    public static Optional<Chat> parseChat(File file, ParseOptions options)
+    {
+        ChatCache cache = chatCache;
+
+        if (cache != null)
+        {
+            return Optional.ofNullable(cache.parseChat(file, options));
+        }
+
+        return Optional.ofNullable(UtilChat.parseChat(file, options));
+    }
+
+    /**
+     * Attempts to parse a {@link Chat} from an {@link InputStream}
+     * of either an export or a zipped export, without
+     * writing anything to disk
+     *
+     * @see UtilChat#parseChat(InputStream)
+     *
+     * @param in The stream, which is not closed
+     *
+     * @return An optional of the resulting chat
+     */
+    public static Optional<Chat> parseChat(InputStream in)
+    {
+        return Optional.ofNullable(UtilChat.parseChat(in));
+    }
+
+    /**
+     * Attempts to parse a {@link Chat} from a {@link ReadableByteChannel}
+     * of either an export or a zipped export
+     *
+     * @see UtilChat#parseChat(ReadableByteChannel, ParseOptions)
+     *
+     * @param channel The channel, which is not closed
+     *
+     * @return An optional of the resulting chat
+     */
+    public static Optional<Chat> parseChat(ReadableByteChannel channel)
+    {
+        return Optional.ofNullable(UtilChat.parseChat(channel, ParseOptions.DEFAULT));
+    }
+
+    /**
+     * Attempts to parse a {@link Chat} from a {@link File}
+     * using all cores of the common {@link ForkJoinPool}
+     * Delegates to {@link UtilChat#parseChatParallel(File)}
+     *
+     * @see UtilChat#parseChatParallel(File)
+     *
+     * @param file The file
+     *
+     * @return An optional of the resulting chat
+     */
+    public static Optional<Chat> parseChatParallel(File file)
+    {
+        return Optional.ofNullable(UtilChat.parseChatParallel(file));
+    }
+
+    /**
+     * Attempts to parse a {@link Chat} from a {@link File},
+     * loading a snapshot from the cache directory instead
+     * if the file has not changed since it was taken
+     *
+     * @see UtilSnapshot#parseChatCached(File, File)
+     *
+     * @param file The file
+     * @param cacheDirectory The directory holding snapshots
+     *
+     * @return An optional of the resulting chat
+     */
+    public static Optional<Chat> parseChatCached(File file, File cacheDirectory)
+    {
+        return Optional.ofNullable(UtilSnapshot.parseChatCached(file, cacheDirectory));
+    }
+
+    /**
+     * Attempts to parse a {@link Chat} from a {@link File}
+     * which will be appended to, so that it can later
+     * be refreshed by parsing only the appended messages
+     *
+     * @see UtilChat#parseChatIncremental(File)
+     *
+     * @param file The file
+     *
+     * @return An optional of the resulting incremental chat
+     */
+    public static Optional<IncrementalChat> parseChatIncremental(File file)
+    {
+        return Optional.ofNullable(UtilChat.parseChatIncremental(file));
     }
 
     /**
@@ -43,4 +230,53 @@ public final class WhatsAnalysis
     {
         return CompletableFuture.supplyAsync(() -> parseChat(file));
     }
+
+    /**
+     * Attempts to parse a {@link Chat} from a
+     * {@link File} asynchronously on an {@link Executor}
+     *
+     * @see #parseChat(File)
+     *
+     * @param file The file
+     * @param executor The executor to parse on
+     * @return A {@link CompletableFuture} holding the result of the parse
+     */
+    public static CompletableFuture<Optional<Chat>> parseChatAsync(File file, Executor executor)
+    {
+        return CompletableFuture.supplyAsync(() -> parseChat(file), executor);
+    }
+
+    /**
+     * Analyses a chat export while it is parsed,
+     * without keeping every message in memory
+     *
+     * @see UtilChat#analyseChat(File, Collection)
+     *
+     * @param file The export file
+     * @param analyses The analyses, all of which must be accumulating
+     *
+     * @return An optional of the results of all analyses
+     */
+    public static Optional<AnalysisResults> analyseChat(File file, Collection<? extends ChatAnalysis<?>> analyses)
+    {
+        return Optional.ofNullable(UtilChat.analyseChat(file, analyses));
+    }
+
+    /**
+     * Starts analysing every export in a directory,
+     * passing each outcome to a {@link BatchListener}
+     * as soon as its export is done
+     *
+     * @see UtilBatch#analyseExports(File, Collection, BatchListener)
+     *
+     * @param directory The directory
+     * @param analyses The analyses to execute on each export
+     * @param listener The listener notified of each outcome
+     *
+     * @return An optional of the running batch
+     */
+    public static Optional<BatchJob> analyseExports(File directory, Collection<? extends ChatAnalysis<?>> analyses, BatchListener listener)
+    {
+        return Optional.ofNullable(UtilBatch.analyseExports(directory, analyses, listener));
+    }
 }
@@ -0,0 +1,85 @@
+package me.itsmas.whatsanalysis.analysis;
+
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+
+/**
+ * A {@link ChatAnalysis} which looks at each
+ * message in turn, building up an accumulator
+ * which is turned into the result at the end
+ *
+ * Analyses of this form can be fused together so
+ * any number of them run in a single pass over a chat
+ *
+ * @see AnalysisExecutor
+ *
+ * @param <A> The accumulator type
+ * @param <T> The object type returned by the analysis
+ */
+public interface AccumulatingAnalysis<A, T> extends ChatAnalysis<T>
+{
+    /**
+     * Creates an empty accumulator
+     *
+     * @param chat The chat being analysed
+     *
+     * @return The accumulator
+     */
+    A createAccumulator(Chat chat);
+
+    /**
+     * Adds a message to an accumulator
+     *
+     * @param accumulator The accumulator
+     * @param message The message
+     */
+    void accumulate(A accumulator, ChatMessage message);
+
+    /**
+     * Turns an accumulator holding
+     * every message into the result
+     *
+     * Accumulators may keep being added to
+     * after finishing, as messages are appended
+     * to a chat, so results should not share
+     * the accumulator's mutable state
+     *
+     * @param chat The chat being analysed
+     * @param accumulator The accumulator
+     *
+     * @return The analysis result
+     */
+    T finish(Chat chat, A accumulator);
+
+    /**
+     * Determines whether the analysis should be fused
+     * with others into a single pass over a chat
+     *
+     * Analyses which can be worked out more cheaply
+     * from what the chat already holds than by looking
+     * at each message return false, and are executed
+     * on their own instead
+     *
+     * @param chat The chat being analysed
+     *
+     * @return Whether to fuse the analysis
+     */
+    default boolean isFusible(Chat chat)
+    {
+        return true;
+    }
+
+    /**
+     * Executes the analysis by accumulating
+     * every message of the chat in order
+     *
+     * @see AnalysisExecutor#accumulate(Chat, AccumulatingAnalysis)
+     *
+     * @param chat The chat to analyse
+     */
+    @Override
+    default T execute(Chat chat)
+    {
+        return AnalysisExecutor.accumulate(chat, this);
+    }
+}
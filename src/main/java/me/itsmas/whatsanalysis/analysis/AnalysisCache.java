@@ -0,0 +1,232 @@
+package me.itsmas.whatsanalysis.analysis;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the results of analyses on one chat,
+ * keyed by {@link ChatAnalysis#getCacheKey()}
+ *
+ * At most a fixed amount of results are kept, with
+ * the least recently used evicted first. Threads
+ * asking for a result which is being computed wait
+ * for it rather than computing it again, and results
+ * which fail are not kept
+ *
+ * Instances are thread safe
+ *
+ * @see me.itsmas.whatsanalysis.chat.Chat#enableResultCache(int)
+ */
+public final class AnalysisCache
+{
+    /**
+     * The results by key, least recently used first
+     */
+    private final Map<Object, CompletableFuture<Object>> results;
+
+    /**
+     * The amount of results found in the cache
+     */
+    private long hits = 0;
+
+    /**
+     * The amount of results computed
+     */
+    private long misses = 0;
+
+    /**
+     * Constructor taking the most results to keep
+     *
+     * @param maxEntries The most results to keep
+     */
+    public AnalysisCache(int maxEntries)
+    {
+        if (maxEntries < 1)
+        {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+
+        this.results = new LinkedHashMap<Object, CompletableFuture<Object>>(16, 0.75F, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CompletableFuture<Object>> eldest)
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Fetches the result of an analysis,
+     * computing it if it is not cached
+     *
+     * Analyses without a cache key are always computed
+     *
+     * @param analysis The analysis
+     * @param compute Computes the result of the analysis
+     *
+     * @return The result
+     */
+    public <T> T get(ChatAnalysis<T> analysis, Supplier<T> compute)
+    {
+        return get(analysis.getCacheKey(), compute);
+    }
+
+    /**
+     * Fetches the result of an analysis executed in
+     * parallel, computing it if it is not cached
+     *
+     * Approximate analyses may merge ranges of messages
+     * into a different result than executing sequentially,
+     * and ranges depend on the parallelism of the pool,
+     * so these results are kept apart from sequential
+     * results and from those of other parallelisms
+     *
+     * @see #get(ChatAnalysis, Supplier)
+     *
+     * @param analysis The analysis
+     * @param parallelism The parallelism of the pool executing it
+     * @param compute Computes the result of the analysis
+     *
+     * @return The result
+     */
+    public <T> T getParallel(ChatAnalysis<T> analysis, int parallelism, Supplier<T> compute)
+    {
+        Object key = analysis.getCacheKey();
+
+        return get(key == null ? null : Arrays.asList(AnalysisCache.class, parallelism, key), compute);
+    }
+
+    /**
+     * Fetches a result by key,
+     * computing it if it is not cached
+     *
+     * @param key The key, or null to always compute the result
+     * @param compute Computes the result
+     *
+     * @return The result
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T get(Object key, Supplier<T> compute)
+    {
+        if (key == null)
+        {
+            return compute.get();
+        }
+
+        CompletableFuture<Object> result;
+        boolean computing = false;
+
+        synchronized (this)
+        {
+            result = results.get(key);
+
+            if (result == null)
+            {
+                result = new CompletableFuture<>();
+                results.put(key, result);
+
+                computing = true;
+                misses++;
+            }
+            else
+            {
+                hits++;
+            }
+        }
+
+        if (computing)
+        {
+            try
+            {
+                T computed = compute.get();
+                result.complete(computed);
+
+                return computed;
+            }
+            catch (RuntimeException | Error ex)
+            {
+                synchronized (this)
+                {
+                    results.remove(key, result);
+                }
+
+                result.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+
+        try
+        {
+            return (T) result.join();
+        }
+        catch (CompletionException ex)
+        {
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Drops every cached result, for when
+     * the chat they were computed on changes
+     *
+     * Results still being computed are handed to
+     * the threads waiting for them, but not kept
+     */
+    public synchronized void invalidate()
+    {
+        results.clear();
+    }
+
+    /**
+     * Fetches the amount of results cached
+     *
+     * @return The result count
+     */
+    public synchronized int size()
+    {
+        return results.size();
+    }
+
+    /**
+     * Fetches the amount of results
+     * found in the cache so far
+     *
+     * @see #hits
+     *
+     * @return The hit count
+     */
+    public synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+    /**
+     * Fetches the amount of results
+     * computed by the cache so far
+     *
+     * @see #misses
+     *
+     * @return The miss count
+     */
+    public synchronized long getMissCount()
+    {
+        return misses;
+    }
+}
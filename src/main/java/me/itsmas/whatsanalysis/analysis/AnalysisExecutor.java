@@ -0,0 +1,521 @@
+package me.itsmas.whatsanalysis.analysis;
+
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.metrics.AnalysisMetrics;
+import me.itsmas.whatsanalysis.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Executes several {@link ChatAnalysis} at once
+ *
+ * Every {@link AccumulatingAnalysis} is fused into a
+ * single pass over the chat messages, so the messages
+ * are only walked once however many analyses there are.
+ * Other analyses are executed one after another as normal
+ *
+ * When executing in parallel, every {@link MergeableAnalysis}
+ * is fused in the same way over ranges of messages which are
+ * accumulated on a {@link ForkJoinPool} and then combined
+ */
+public final class AnalysisExecutor
+{
+    private AnalysisExecutor() {}
+
+    /**
+     * The smallest amount of messages worth
+     * accumulating as their own range
+     */
+    private static final int MIN_RANGE_SIZE = 4096;
+
+    /**
+     * The amount of ranges to create per thread,
+     * giving the pool room to balance uneven ranges
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * The amount of messages each fused analysis
+     * accumulates before the next takes its turn
+     */
+    static final int BLOCK_SIZE = 1024;
+
+    /**
+     * The amount of messages accumulated by the analysis
+     * each thread is executing on its own, while recording
+     */
+    private static final ThreadLocal<long[]> visited = new ThreadLocal<>();
+
+    /**
+     * Executes a single analysis on a chat
+     *
+     * Publishes {@link AnalysisMetrics} if metrics are enabled
+     *
+     * @param chat The chat to analyse
+     * @param analysis The analysis
+     *
+     * @return The analysis result
+     */
+    public static <T> T execute(Chat chat, ChatAnalysis<T> analysis)
+    {
+        if (!Metrics.isEnabled())
+        {
+            return analysis.execute(chat);
+        }
+
+        long[] previous = visited.get();
+        long[] count = { -1 };
+
+        visited.set(count);
+
+        long start = System.nanoTime();
+        T result;
+
+        try
+        {
+            result = analysis.execute(chat);
+        }
+        finally
+        {
+            visited.set(previous);
+        }
+
+        Metrics.getListener().onAnalysis(new AnalysisMetrics(analysis, count[0], System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * Executes an {@link AccumulatingAnalysis} by
+     * accumulating every message of the chat in order,
+     * counting them for the metrics of the execution
+     *
+     * @see AccumulatingAnalysis#execute(Chat)
+     *
+     * @param chat The chat to analyse
+     * @param analysis The analysis
+     *
+     * @return The analysis result
+     */
+    static <A, T> T accumulate(Chat chat, AccumulatingAnalysis<A, T> analysis)
+    {
+        A accumulator = analysis.createAccumulator(chat);
+        long accumulated = 0;
+
+        for (ChatMessage message : chat.getMessages())
+        {
+            analysis.accumulate(accumulator, message);
+            accumulated++;
+        }
+
+        long[] count = visited.get();
+
+        if (count != null)
+        {
+            count[0] = accumulated;
+        }
+
+        return analysis.finish(chat, accumulator);
+    }
+
+    /**
+     * Executes a collection of analyses on a chat
+     *
+     * Accumulating analyses take turns over blocks of
+     * messages, which keeps each one's state in cache
+     * for a while and lets each be timed separately,
+     * unless they are not {@link AccumulatingAnalysis#isFusible(Chat)}.
+     * Publishes {@link AnalysisMetrics} for every
+     * analysis if metrics are enabled
+     *
+     * @param chat The chat to analyse
+     * @param analyses The analyses
+     *
+     * @return The results of all analyses
+     */
+    public static AnalysisResults execute(Chat chat, Collection<? extends ChatAnalysis<?>> analyses)
+    {
+        Map<ChatAnalysis<?>, Object> results = new IdentityHashMap<>();
+        List<Accumulation<?, ?>> accumulations = new ArrayList<>();
+
+        boolean recording = Metrics.isEnabled();
+
+        for (ChatAnalysis<?> analysis : analyses)
+        {
+            if (results.containsKey(analysis))
+            {
+                continue;
+            }
+
+            if (analysis instanceof AccumulatingAnalysis && ((AccumulatingAnalysis<?, ?>) analysis).isFusible(chat))
+            {
+                accumulations.add(new Accumulation<>(chat, (AccumulatingAnalysis<?, ?>) analysis));
+                results.put(analysis, null);
+            }
+            else
+            {
+                results.put(analysis, execute(chat, analysis));
+            }
+        }
+
+        if (!accumulations.isEmpty())
+        {
+            ChatMessage[] block = new ChatMessage[BLOCK_SIZE];
+            Iterator<ChatMessage> messages = chat.getMessages().iterator();
+
+            while (messages.hasNext())
+            {
+                int size = 0;
+
+                while (size < BLOCK_SIZE && messages.hasNext())
+                {
+                    block[size++] = messages.next();
+                }
+
+                for (Accumulation<?, ?> accumulation : accumulations)
+                {
+                    accumulation.accumulate(block, size, recording);
+                }
+            }
+
+            for (Accumulation<?, ?> accumulation : accumulations)
+            {
+                results.put(accumulation.analysis, accumulation.finish(recording));
+            }
+        }
+
+        return new AnalysisResults(results);
+    }
+
+    /**
+     * Executes a single analysis on a chat in parallel
+     *
+     * @see #executeParallel(Chat, Collection, ForkJoinPool)
+     *
+     * @param chat The chat to analyse
+     * @param analysis The analysis
+     * @param pool The pool to execute on
+     *
+     * @return The analysis result
+     */
+    public static <T> T executeParallel(Chat chat, ChatAnalysis<T> analysis, ForkJoinPool pool)
+    {
+        return executeParallel(chat, Collections.singletonList(analysis), pool).get(analysis);
+    }
+
+    /**
+     * Executes a collection of analyses on a chat in parallel
+     *
+     * Every {@link MergeableAnalysis} is accumulated over
+     * ranges of messages on the pool, fused into a single
+     * pass per range. Other analyses are executed as in
+     * {@link #execute(Chat, Collection)}
+     *
+     * @param chat The chat to analyse
+     * @param analyses The analyses
+     * @param pool The pool to execute on
+     *
+     * @return The results of all analyses
+     */
+    public static AnalysisResults executeParallel(Chat chat, Collection<? extends ChatAnalysis<?>> analyses, ForkJoinPool pool)
+    {
+        List<MergeableAnalysis<?, ?>> mergeables = new ArrayList<>();
+        List<ChatAnalysis<?>> others = new ArrayList<>();
+
+        Set<ChatAnalysis<?>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (ChatAnalysis<?> analysis : analyses)
+        {
+            if (!seen.add(analysis))
+            {
+                continue;
+            }
+
+            if (analysis instanceof MergeableAnalysis && ((MergeableAnalysis<?, ?>) analysis).isFusible(chat))
+            {
+                mergeables.add((MergeableAnalysis<?, ?>) analysis);
+            }
+            else
+            {
+                others.add(analysis);
+            }
+        }
+
+        Map<ChatAnalysis<?>, Object> results = new IdentityHashMap<>();
+
+        if (!mergeables.isEmpty())
+        {
+            List<ChatMessage> messages = chat.getMessages();
+
+            if (!(messages instanceof RandomAccess))
+            {
+                messages = new ArrayList<>(messages);
+            }
+
+            int rangeSize = Math.max(MIN_RANGE_SIZE, messages.size() / (pool.getParallelism() * RANGES_PER_THREAD) + 1);
+
+            long start = System.nanoTime();
+            Object[] accumulators = pool.invoke(new RangeTask(chat, mergeables, messages, 0, messages.size(), rangeSize));
+
+            long accumulated = System.nanoTime();
+
+            for (int i = 0; i < mergeables.size(); i++)
+            {
+                long finishing = System.nanoTime();
+                results.put(mergeables.get(i), finish(chat, mergeables.get(i), accumulators[i]));
+
+                if (Metrics.isEnabled())
+                {
+                    long elapsed = accumulated - start + System.nanoTime() - finishing;
+                    Metrics.getListener().onAnalysis(new AnalysisMetrics(mergeables.get(i), messages.size(), elapsed));
+                }
+            }
+        }
+
+        if (!others.isEmpty())
+        {
+            results.putAll(execute(chat, others).getAll());
+        }
+
+        return new AnalysisResults(results);
+    }
+
+    /**
+     * Finishes a {@link MergeableAnalysis}
+     *
+     * @param chat The chat being analysed
+     * @param analysis The analysis
+     * @param accumulator The analysis accumulator
+     *
+     * @return The analysis result
+     */
+    @SuppressWarnings("unchecked")
+    private static <A, T> T finish(Chat chat, MergeableAnalysis<A, T> analysis, Object accumulator)
+    {
+        return analysis.finish(chat, (A) accumulator);
+    }
+
+    /**
+     * Task accumulating a range of messages for several
+     * {@link MergeableAnalysis}, splitting the range in
+     * half until it is small enough and combining the
+     * accumulators of each half
+     */
+    private static final class RangeTask extends RecursiveTask<Object[]>
+    {
+        /**
+         * The version of the serialized form
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The chat being analysed
+         */
+        private final Chat chat;
+
+        /**
+         * The analyses
+         */
+        private final List<MergeableAnalysis<?, ?>> analyses;
+
+        /**
+         * The chat messages
+         */
+        private final List<ChatMessage> messages;
+
+        /**
+         * The first message index, inclusive
+         */
+        private final int from;
+
+        /**
+         * The last message index, exclusive
+         */
+        private final int to;
+
+        /**
+         * The size at which ranges are no longer split
+         */
+        private final int rangeSize;
+
+        private RangeTask(Chat chat, List<MergeableAnalysis<?, ?>> analyses, List<ChatMessage> messages, int from, int to, int rangeSize)
+        {
+            this.chat = chat;
+            this.analyses = analyses;
+            this.messages = messages;
+            this.from = from;
+            this.to = to;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected Object[] compute()
+        {
+            if (to - from > rangeSize)
+            {
+                int middle = (from + to) >>> 1;
+
+                RangeTask left = new RangeTask(chat, analyses, messages, from, middle, rangeSize);
+                RangeTask right = new RangeTask(chat, analyses, messages, middle, to, rangeSize);
+
+                right.fork();
+
+                Object[] leftAccumulators = left.compute();
+                Object[] rightAccumulators = right.join();
+
+                for (int i = 0; i < analyses.size(); i++)
+                {
+                    leftAccumulators[i] = combine(analyses.get(i), leftAccumulators[i], rightAccumulators[i]);
+                }
+
+                return leftAccumulators;
+            }
+
+            Object[] accumulators = new Object[analyses.size()];
+
+            for (int i = 0; i < accumulators.length; i++)
+            {
+                accumulators[i] = analyses.get(i).createAccumulator(chat);
+            }
+
+            for (int index = from; index < to; index++)
+            {
+                ChatMessage message = messages.get(index);
+
+                for (int i = 0; i < accumulators.length; i++)
+                {
+                    accumulate(analyses.get(i), accumulators[i], message);
+                }
+            }
+
+            return accumulators;
+        }
+
+        /**
+         * Adds a message to an accumulator
+         *
+         * @param analysis The analysis
+         * @param accumulator The accumulator
+         * @param message The message
+         */
+        @SuppressWarnings("unchecked")
+        private static <A> void accumulate(MergeableAnalysis<A, ?> analysis, Object accumulator, ChatMessage message)
+        {
+            analysis.accumulate((A) accumulator, message);
+        }
+
+        /**
+         * Combines two accumulators
+         *
+         * @param analysis The analysis
+         * @param left The accumulator of the earlier messages
+         * @param right The accumulator of the later messages
+         *
+         * @return The combined accumulator
+         */
+        @SuppressWarnings("unchecked")
+        private static <A> Object combine(MergeableAnalysis<A, ?> analysis, Object left, Object right)
+        {
+            return analysis.combine((A) left, (A) right);
+        }
+    }
+
+    /**
+     * An {@link AccumulatingAnalysis} paired with its accumulator
+     *
+     * @param <A> The accumulator type
+     * @param <T> The result type
+     */
+    static final class Accumulation<A, T>
+    {
+        /**
+         * The chat being analysed
+         */
+        private final Chat chat;
+
+        /**
+         * The analysis
+         */
+        final AccumulatingAnalysis<A, T> analysis;
+
+        /**
+         * The analysis accumulator
+         */
+        private final A accumulator;
+
+        /**
+         * The amount of messages accumulated
+         */
+        private long visited = 0;
+
+        /**
+         * The time spent on the analysis, when recording
+         */
+        private long nanos = 0;
+
+        Accumulation(Chat chat, AccumulatingAnalysis<A, T> analysis)
+        {
+            this.chat = chat;
+            this.analysis = analysis;
+            this.accumulator = analysis.createAccumulator(chat);
+        }
+
+        /**
+         * Adds a block of messages to the accumulator
+         *
+         * @param block The messages
+         * @param size The amount of messages in the block
+         * @param recording Whether to time the accumulation
+         */
+        void accumulate(ChatMessage[] block, int size, boolean recording)
+        {
+            long start = recording ? System.nanoTime() : 0;
+
+            for (int i = 0; i < size; i++)
+            {
+                analysis.accumulate(accumulator, block[i]);
+            }
+
+            if (recording)
+            {
+                nanos += System.nanoTime() - start;
+            }
+
+            visited += size;
+        }
+
+        /**
+         * Finishes the analysis, publishing
+         * its metrics if recording
+         *
+         * @param recording Whether to publish metrics
+         *
+         * @return The analysis result
+         */
+        T finish(boolean recording)
+        {
+            if (!recording)
+            {
+                return analysis.finish(chat, accumulator);
+            }
+
+            long start = System.nanoTime();
+            T result = analysis.finish(chat, accumulator);
+
+            nanos += System.nanoTime() - start;
+            Metrics.getListener().onAnalysis(new AnalysisMetrics(analysis, visited, nanos));
+
+            return result;
+        }
+    }
+}
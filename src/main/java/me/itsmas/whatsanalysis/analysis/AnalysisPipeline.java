@@ -0,0 +1,386 @@
+package me.itsmas.whatsanalysis.analysis;
+
+import me.itsmas.whatsanalysis.analysis.AnalysisExecutor.Accumulation;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.metrics.AnalysisMetrics;
+import me.itsmas.whatsanalysis.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Analyses messages as they are published, rather
+ * than once a whole {@link Chat} has been built
+ *
+ * Published messages are gathered into batches
+ * which are handed to consumer threads through
+ * bounded queues, each consumer accumulating its
+ * share of the analyses. Publishing blocks while
+ * any queue is full, so the publisher never runs
+ * far ahead of the slowest consumer, and messages
+ * are dropped as soon as every consumer is done
+ * with them, so the whole chat is never held at once
+ *
+ * Only {@link AccumulatingAnalysis} can be pipelined.
+ * Their accumulators are created on a chat which starts
+ * out with no members, and are finished once the members
+ * found while publishing have been added to it. The chat
+ * never holds any messages, so accumulators must cope
+ * with members they were not created with
+ *
+ * A pipeline is published to from a single thread
+ */
+public final class AnalysisPipeline
+{
+    /**
+     * The amount of pipelines created, for naming threads
+     */
+    private static final AtomicInteger PIPELINES = new AtomicInteger();
+
+    /**
+     * The batch marking the end of the messages
+     */
+    private static final ChatMessage[] END = new ChatMessage[0];
+
+    /**
+     * The longest the publisher waits for space in a
+     * queue before checking whether it has been cancelled
+     */
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    /**
+     * The chat being analysed
+     */
+    private final Chat chat;
+
+    /**
+     * The accumulation of every analysis, in order
+     */
+    private final List<Accumulation<?, ?>> accumulations = new ArrayList<>();
+
+    /**
+     * The queue of each consumer
+     */
+    private final List<BlockingQueue<ChatMessage[]>> queues = new ArrayList<>();
+
+    /**
+     * The consumer threads
+     */
+    private final List<Thread> consumers = new ArrayList<>();
+
+    /**
+     * The first failure of a consumer
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Whether metrics were enabled when the pipeline was created
+     */
+    private final boolean recording = Metrics.isEnabled();
+
+    /**
+     * The amount of messages published at a time
+     */
+    private final int batchSize;
+
+    /**
+     * The batch being filled
+     */
+    private ChatMessage[] batch;
+
+    /**
+     * The amount of messages in the batch being filled
+     */
+    private int size = 0;
+
+    /**
+     * Whether the pipeline has been finished or cancelled
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a pipeline and starts its consumers
+     *
+     * @param chat The chat being analysed, with no messages
+     * @param analyses The analyses, all of which must be accumulating
+     * @param options The pipeline options
+     *
+     * @throws IllegalArgumentException If an analysis is not accumulating
+     */
+    public AnalysisPipeline(Chat chat, Collection<? extends ChatAnalysis<?>> analyses, PipelineOptions options)
+    {
+        this.chat = chat;
+        this.batchSize = options.getBatchSize();
+        this.batch = new ChatMessage[batchSize];
+
+        Map<ChatAnalysis<?>, Boolean> seen = new IdentityHashMap<>();
+
+        for (ChatAnalysis<?> analysis : analyses)
+        {
+            if (!(analysis instanceof AccumulatingAnalysis))
+            {
+                throw new IllegalArgumentException("Only accumulating analyses can be pipelined");
+            }
+
+            if (seen.put(analysis, true) == null)
+            {
+                accumulations.add(new Accumulation<>(chat, (AccumulatingAnalysis<?, ?>) analysis));
+            }
+        }
+
+        int count = Math.min(options.getConsumers(), accumulations.size());
+        String name = "WhatsAnalysis-pipeline-" + PIPELINES.incrementAndGet();
+
+        for (int i = 0; i < count; i++)
+        {
+            List<Accumulation<?, ?>> share = new ArrayList<>();
+
+            for (int index = i; index < accumulations.size(); index += count)
+            {
+                share.add(accumulations.get(index));
+            }
+
+            BlockingQueue<ChatMessage[]> queue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+
+            Thread consumer = new Thread(() -> consume(queue, share), name + "-consumer-" + i);
+            consumer.setDaemon(true);
+
+            queues.add(queue);
+            consumers.add(consumer);
+        }
+
+        consumers.forEach(Thread::start);
+    }
+
+    /**
+     * Publishes a message to the analyses
+     *
+     * Messages must be published in chat order. If an
+     * analysis has failed, its failure is thrown here
+     * as soon as it is noticed
+     *
+     * @param message The message
+     *
+     * @throws CancellationException If the pipeline is closed
+     *                               or the publishing thread was interrupted
+     */
+    public void publish(ChatMessage message)
+    {
+        batch[size++] = message;
+
+        if (size == batchSize)
+        {
+            flush();
+        }
+    }
+
+    /**
+     * Waits for every published message to be
+     * analysed, then adds the members of the
+     * published messages to the chat and
+     * finishes every analysis
+     *
+     * Publishes {@link AnalysisMetrics} for every
+     * analysis if metrics were enabled, and throws
+     * the failure of any analysis which failed
+     *
+     * @param members Every member who sent a published message, by id
+     *
+     * @return The results of all analyses
+     *
+     * @throws CancellationException If the pipeline is closed
+     *                               or the calling thread was interrupted
+     */
+    public AnalysisResults finish(List<ChatMember> members)
+    {
+        if (size > 0)
+        {
+            batch = Arrays.copyOf(batch, size);
+            flush();
+        }
+
+        for (BlockingQueue<ChatMessage[]> queue : queues)
+        {
+            put(queue, END);
+        }
+
+        for (Thread consumer : consumers)
+        {
+            try
+            {
+                consumer.join();
+            }
+            catch (InterruptedException ex)
+            {
+                cancel();
+                Thread.currentThread().interrupt();
+
+                throw new CancellationException("Interrupted while finishing");
+            }
+        }
+
+        closed = true;
+        rethrowFailure();
+
+        int known = chat.getMemberCount();
+
+        if (members.size() > known)
+        {
+            chat.extend(members.subList(known, members.size()), Collections.emptyList());
+        }
+
+        Map<ChatAnalysis<?>, Object> results = new IdentityHashMap<>();
+
+        for (Accumulation<?, ?> accumulation : accumulations)
+        {
+            results.put(accumulation.analysis, accumulation.finish(recording));
+        }
+
+        return new AnalysisResults(results);
+    }
+
+    /**
+     * Stops the consumers without finishing the
+     * analyses, for when publishing cannot carry on
+     *
+     * May be called from any thread. A publisher
+     * waiting for space in a queue is released
+     * and throws a {@link CancellationException}
+     */
+    public void cancel()
+    {
+        closed = true;
+        consumers.forEach(Thread::interrupt);
+
+        // Frees the batches and any publisher waiting on them
+        queues.forEach(BlockingQueue::clear);
+    }
+
+    /**
+     * Hands the batch being filled to every
+     * consumer and starts a new one
+     */
+    private void flush()
+    {
+        rethrowFailure();
+
+        for (BlockingQueue<ChatMessage[]> queue : queues)
+        {
+            put(queue, batch);
+        }
+
+        batch = new ChatMessage[batchSize];
+        size = 0;
+    }
+
+    /**
+     * Adds a batch to a consumer's queue, waiting for
+     * space if it is full until the pipeline is closed
+     *
+     * @param queue The queue
+     * @param messages The batch
+     */
+    private void put(BlockingQueue<ChatMessage[]> queue, ChatMessage[] messages)
+    {
+        try
+        {
+            do
+            {
+                if (closed)
+                {
+                    throw new CancellationException("Pipeline is closed");
+                }
+            }
+            while (!queue.offer(messages, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        }
+        catch (InterruptedException ex)
+        {
+            cancel();
+            Thread.currentThread().interrupt();
+
+            throw new CancellationException("Interrupted while publishing");
+        }
+    }
+
+    /**
+     * Throws the first failure of a consumer, if there was one
+     */
+    private void rethrowFailure()
+    {
+        Throwable cause = failure.get();
+
+        if (cause instanceof RuntimeException)
+        {
+            throw (RuntimeException) cause;
+        }
+
+        if (cause instanceof Error)
+        {
+            throw (Error) cause;
+        }
+
+        if (cause != null)
+        {
+            throw new IllegalStateException("Analysis failed", cause);
+        }
+    }
+
+    /**
+     * Accumulates batches from a queue until the end or
+     * the pipeline is cancelled, carrying on draining the
+     * queue after a failure so the publisher is never
+     * left blocked
+     *
+     * @param queue The queue
+     * @param share The accumulations of the consumer
+     */
+    private void consume(BlockingQueue<ChatMessage[]> queue, List<Accumulation<?, ?>> share)
+    {
+        try
+        {
+            ChatMessage[] messages;
+
+            // An interrupt swallowed by an analysis still stops the consumer
+            while (!closed && (messages = queue.take()) != END)
+            {
+                if (failure.get() != null)
+                {
+                    continue;
+                }
+
+                try
+                {
+                    for (Accumulation<?, ?> accumulation : share)
+                    {
+                        accumulation.accumulate(messages, messages.length, recording);
+                    }
+                }
+                catch (Throwable ex)
+                {
+                    // An analysis interrupted by cancelling has not failed
+                    if (!closed)
+                    {
+                        failure.compareAndSet(null, ex);
+                    }
+                }
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            // Cancelled
+        }
+    }
+}
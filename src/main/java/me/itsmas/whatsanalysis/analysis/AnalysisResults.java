@@ -0,0 +1,53 @@
+package me.itsmas.whatsanalysis.analysis;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The results of executing
+ * several {@link ChatAnalysis} together
+ *
+ * @see AnalysisExecutor
+ */
+public final class AnalysisResults
+{
+    /**
+     * The result of each analysis
+     */
+    private final Map<ChatAnalysis<?>, Object> results;
+
+    AnalysisResults(Map<ChatAnalysis<?>, Object> results)
+    {
+        this.results = results;
+    }
+
+    /**
+     * Fetches the result of an analysis
+     *
+     * @param analysis The analysis, as passed to the executor
+     *
+     * @return The analysis result
+     *
+     * @throws IllegalArgumentException If the analysis was not executed
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(ChatAnalysis<T> analysis)
+    {
+        if (!results.containsKey(analysis))
+        {
+            throw new IllegalArgumentException("Analysis was not executed");
+        }
+
+        return (T) results.get(analysis);
+    }
+
+    /**
+     * Fetches the results of all analyses
+     *
+     * @return Immutable map of analyses to their results
+     */
+    Map<ChatAnalysis<?>, Object> getAll()
+    {
+        return Collections.unmodifiableMap(results);
+    }
+}
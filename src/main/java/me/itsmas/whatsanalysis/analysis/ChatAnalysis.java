@@ -16,4 +16,20 @@ public interface ChatAnalysis<T>
      * @param chat The chat to analyse
      */
     T execute(Chat chat);
+
+    /**
+     * Fetches a key identifying the analysis and
+     * its configuration, for caching its results
+     *
+     * Analyses with equal keys must give equal
+     * results on the same chat
+     *
+     * @see AnalysisCache
+     *
+     * @return The key, or null if results should not be cached
+     */
+    default Object getCacheKey()
+    {
+        return null;
+    }
 }
@@ -0,0 +1,30 @@
+package me.itsmas.whatsanalysis.analysis;
+
+/**
+ * An {@link AccumulatingAnalysis} whose accumulators
+ * can be combined, so a chat can be split into ranges
+ * of messages which are accumulated in parallel and
+ * then merged, without the analysis having any
+ * threading code of its own
+ *
+ * @see AnalysisExecutor
+ *
+ * @param <A> The accumulator type
+ * @param <T> The object type returned by the analysis
+ */
+public interface MergeableAnalysis<A, T> extends AccumulatingAnalysis<A, T>
+{
+    /**
+     * Combines two accumulators
+     *
+     * The left accumulator holds messages from
+     * earlier in the chat than the right one.
+     * Either may be modified and returned
+     *
+     * @param left The accumulator of the earlier messages
+     * @param right The accumulator of the later messages
+     *
+     * @return The combined accumulator
+     */
+    A combine(A left, A right);
+}
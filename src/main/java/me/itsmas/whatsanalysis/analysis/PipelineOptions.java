@@ -0,0 +1,140 @@
+package me.itsmas.whatsanalysis.analysis;
+
+/**
+ * Options for an {@link AnalysisPipeline}
+ *
+ * Options are immutable, each with* method
+ * returns a copy with the option changed
+ *
+ * At most batch size * (queue capacity + 2) * consumers
+ * messages are ever held by a pipeline at once
+ */
+public final class PipelineOptions
+{
+    /**
+     * The default options, which leave a core
+     * for the publisher and give the rest to consumers
+     */
+    public static final PipelineOptions DEFAULT = new PipelineOptions(
+        AnalysisExecutor.BLOCK_SIZE, 4, Math.max(1, Runtime.getRuntime().availableProcessors() - 1)
+    );
+
+    /**
+     * The amount of messages published to consumers at a time
+     */
+    private final int batchSize;
+
+    /**
+     * The most batches queued for each consumer
+     */
+    private final int queueCapacity;
+
+    /**
+     * The most consumer threads
+     */
+    private final int consumers;
+
+    private PipelineOptions(int batchSize, int queueCapacity, int consumers)
+    {
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.consumers = consumers;
+    }
+
+    /**
+     * Fetches the amount of messages
+     * published to consumers at a time
+     *
+     * @see #batchSize
+     *
+     * @return The batch size
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Fetches the most batches queued for each consumer
+     *
+     * @see #queueCapacity
+     *
+     * @return The queue capacity
+     */
+    public int getQueueCapacity()
+    {
+        return queueCapacity;
+    }
+
+    /**
+     * Fetches the most consumer threads
+     *
+     * @see #consumers
+     *
+     * @return The consumer count
+     */
+    public int getConsumers()
+    {
+        return consumers;
+    }
+
+    /**
+     * Creates a copy of these options
+     * with a different batch size
+     *
+     * @param batchSize The amount of messages published at a time
+     *
+     * @return The new options
+     */
+    public PipelineOptions withBatchSize(int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+
+        return new PipelineOptions(batchSize, queueCapacity, consumers);
+    }
+
+    /**
+     * Creates a copy of these options with a
+     * different capacity of each consumer's queue
+     *
+     * Publishing blocks while a consumer's queue is
+     * full, so parsing never runs far ahead of analysis
+     *
+     * @param queueCapacity The most batches queued for each consumer
+     *
+     * @return The new options
+     */
+    public PipelineOptions withQueueCapacity(int queueCapacity)
+    {
+        if (queueCapacity < 1)
+        {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+
+        return new PipelineOptions(batchSize, queueCapacity, consumers);
+    }
+
+    /**
+     * Creates a copy of these options with
+     * a different amount of consumer threads
+     *
+     * Analyses are shared out between consumers,
+     * so there are never more consumers than analyses
+     *
+     * @param consumers The most consumer threads
+     *
+     * @return The new options
+     */
+    public PipelineOptions withConsumers(int consumers)
+    {
+        if (consumers < 1)
+        {
+            throw new IllegalArgumentException("Consumer count must be positive");
+        }
+
+        return new PipelineOptions(batchSize, queueCapacity, consumers);
+    }
+}
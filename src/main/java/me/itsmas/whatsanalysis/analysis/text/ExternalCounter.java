@@ -0,0 +1,664 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Counts words exactly in a bounded amount of heap
+ *
+ * Words are counted in a {@link WordCounter} until its
+ * estimated size passes the heap budget, at which point
+ * its words are sorted and written to a temporary file
+ * as a run, and counting starts again in an empty table.
+ * Reading the counts merges every run and the table in
+ * a single streaming pass, summing the counts of each
+ * word, so only one word per run is ever held at once
+ *
+ * Runs are merged into a single run whenever there are
+ * too many to read at once. They are deleted when the
+ * counter is closed, or when the JVM exits if deleting
+ * them then fails, so counters must always be closed.
+ * A closed counter cannot be used again
+ *
+ * Writing a run which fails is reported as an
+ * {@link UncheckedIOException}, as counting a
+ * token cannot throw checked exceptions
+ *
+ * Instances are not thread safe
+ */
+public final class ExternalCounter implements TokenConsumer, Closeable
+{
+    /**
+     * The estimated heap used by each distinct
+     * word counted in memory, besides its characters
+     */
+    private static final int ENTRY_BYTES = 80;
+
+    /**
+     * The most runs read at once while merging
+     */
+    private static final int MAX_MERGE_RUNS = 64;
+
+    /**
+     * The size of run file buffers
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Orders merge sources by their current word
+     */
+    private static final Comparator<Source> BY_WORD = Comparator.comparing(source -> source.word);
+
+    /**
+     * The most heap to use for words counted in memory
+     */
+    private final long heapBudget;
+
+    /**
+     * The directory runs are written to,
+     * or null for the default temporary directory
+     */
+    private final File directory;
+
+    /**
+     * The runs written so far, oldest first
+     */
+    private final List<File> runs = new ArrayList<>();
+
+    /**
+     * The words counted since the last run was written
+     */
+    private WordCounter counter = new WordCounter();
+
+    /**
+     * The estimated heap used by the counter
+     */
+    private long estimatedBytes = 0;
+
+    /**
+     * Whether the counter has been closed
+     */
+    private boolean closed = false;
+
+    /**
+     * Constructor taking the heap budget, writing
+     * runs to the default temporary directory
+     *
+     * @param heapBudget The most heap to use for words counted in memory, in bytes
+     */
+    public ExternalCounter(long heapBudget)
+    {
+        this(heapBudget, null);
+    }
+
+    /**
+     * Constructor taking the heap budget
+     * and the directory to write runs to
+     *
+     * @param heapBudget The most heap to use for words counted in memory, in bytes
+     * @param directory The directory, or null for the default temporary directory
+     */
+    public ExternalCounter(long heapBudget, File directory)
+    {
+        if (heapBudget < 1)
+        {
+            throw new IllegalArgumentException("Heap budget must be positive");
+        }
+
+        this.heapBudget = heapBudget;
+        this.directory = directory;
+    }
+
+    /**
+     * Counts one use of a token
+     *
+     * @param chars The buffer holding the token
+     * @param offset The index of the first token character
+     * @param length The amount of token characters
+     */
+    @Override
+    public void accept(char[] chars, int offset, int length)
+    {
+        checkOpen();
+
+        int size = counter.size();
+        counter.accept(chars, offset, length);
+
+        if (counter.size() != size)
+        {
+            added(length);
+        }
+    }
+
+    /**
+     * Adds uses of a word
+     *
+     * @param word The word
+     * @param amount The amount of uses to add
+     */
+    public void add(String word, int amount)
+    {
+        checkOpen();
+
+        int size = counter.size();
+        counter.add(word, amount);
+
+        if (counter.size() != size)
+        {
+            added(word.length());
+        }
+    }
+
+    /**
+     * Adds all counts of another counter to this one
+     *
+     * @param other The other counter, which is left unchanged
+     */
+    public void addAll(ExternalCounter other)
+    {
+        try
+        {
+            other.forEach(this::add);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Fetches the amount of runs written so far
+     *
+     * @return The run count
+     */
+    public int getRunCount()
+    {
+        return runs.size();
+    }
+
+    /**
+     * Passes every word and its count to a consumer,
+     * in {@link String#compareTo(String)} order
+     *
+     * @param consumer The consumer
+     *
+     * @throws IOException If a run could not be read
+     */
+    public void forEach(ObjIntConsumer<String> consumer) throws IOException
+    {
+        checkOpen();
+
+        List<Source> sources = new ArrayList<>(runs.size() + 1);
+
+        try
+        {
+            for (File run : runs)
+            {
+                sources.add(new RunSource(run));
+            }
+
+            sources.add(new MemorySource(counter));
+
+            merge(sources, consumer);
+        }
+        finally
+        {
+            closeAll(sources);
+        }
+    }
+
+    /**
+     * Selects the most used words
+     *
+     * Ties are broken by word, in
+     * {@link String#compareTo(String)} order
+     *
+     * @param k The amount of words to select
+     *
+     * @return The selected words, most used first
+     *
+     * @throws IOException If a run could not be read
+     */
+    public List<WordCount> top(int k) throws IOException
+    {
+        if (k <= 0)
+        {
+            return Collections.emptyList();
+        }
+
+        // Min-heap with the worst selected word at the root
+        Comparator<WordCount> worstFirst = Comparator.comparingInt(WordCount::getCount)
+            .thenComparing(WordCount::getWord, Comparator.reverseOrder());
+
+        PriorityQueue<WordCount> heap = new PriorityQueue<>(k, worstFirst);
+
+        forEach((word, count) ->
+        {
+            if (heap.size() < k)
+            {
+                heap.add(new WordCount(word, count));
+            }
+            else if (count > heap.peek().count)
+            {
+                // Words arrive in order, so an equal count never wins
+                heap.poll();
+                heap.add(new WordCount(word, count));
+            }
+        });
+
+        WordCount[] selected = new WordCount[heap.size()];
+
+        for (int i = selected.length - 1; i >= 0; i--)
+        {
+            selected[i] = heap.poll();
+        }
+
+        return Arrays.asList(selected);
+    }
+
+    /**
+     * Deletes every run written, after
+     * which the counter cannot be used
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        counter = new WordCounter();
+
+        deleteRuns();
+    }
+
+    /**
+     * Deletes every run written, falling back
+     * to deleting them when the JVM exits
+     */
+    private void deleteRuns()
+    {
+        for (File run : runs)
+        {
+            if (!run.delete())
+            {
+                run.deleteOnExit();
+            }
+        }
+
+        runs.clear();
+    }
+
+    /**
+     * Checks the counter has not been closed
+     *
+     * @throws IllegalStateException If the counter has been closed
+     */
+    private void checkOpen()
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Counter is closed");
+        }
+    }
+
+    /**
+     * Accounts for a word newly counted in
+     * memory, writing a run if over budget
+     *
+     * @param length The length of the word
+     */
+    private void added(int length)
+    {
+        estimatedBytes += ENTRY_BYTES + 2L * length;
+
+        if (estimatedBytes > heapBudget)
+        {
+            try
+            {
+                spill();
+            }
+            catch (IOException ex)
+            {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Writes the words counted in memory to a
+     * new run and starts counting afresh, merging
+     * the runs if there are too many
+     *
+     * @throws IOException If the run could not be written
+     */
+    private void spill() throws IOException
+    {
+        MemorySource source = new MemorySource(counter);
+
+        // Release the table before anything else is allocated
+        counter = new WordCounter();
+        estimatedBytes = 0;
+
+        runs.add(writeRun(Collections.singletonList(source)));
+
+        if (runs.size() >= MAX_MERGE_RUNS)
+        {
+            List<Source> sources = new ArrayList<>(runs.size());
+            File merged;
+
+            try
+            {
+                for (File run : runs)
+                {
+                    sources.add(new RunSource(run));
+                }
+
+                merged = writeRun(sources);
+            }
+            finally
+            {
+                closeAll(sources);
+            }
+
+            deleteRuns();
+            runs.add(merged);
+        }
+    }
+
+    /**
+     * Merges sources into a new run
+     *
+     * @param sources The sources
+     *
+     * @return The run file
+     *
+     * @throws IOException If the run could not be written
+     */
+    private File writeRun(List<Source> sources) throws IOException
+    {
+        File run = File.createTempFile("whatsanalysis-run", ".tmp", directory);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE)))
+        {
+            merge(sources, (word, count) ->
+            {
+                try
+                {
+                    byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    out.writeInt(count);
+                }
+                catch (IOException ex)
+                {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+        catch (UncheckedIOException ex)
+        {
+            run.delete();
+            throw ex.getCause();
+        }
+
+        return run;
+    }
+
+    /**
+     * Merges sorted sources, passing each
+     * word once with its summed count
+     *
+     * @param sources The sources
+     * @param consumer The consumer
+     *
+     * @throws IOException If a source could not be read
+     */
+    private static void merge(List<Source> sources, ObjIntConsumer<String> consumer) throws IOException
+    {
+        PriorityQueue<Source> queue = new PriorityQueue<>(Math.max(1, sources.size()), BY_WORD);
+
+        for (Source source : sources)
+        {
+            if (source.advance())
+            {
+                queue.add(source);
+            }
+        }
+
+        while (!queue.isEmpty())
+        {
+            Source source = queue.poll();
+
+            String word = source.word;
+            int count = source.count;
+
+            if (source.advance())
+            {
+                queue.add(source);
+            }
+
+            while (!queue.isEmpty() && queue.peek().word.equals(word))
+            {
+                Source same = queue.poll();
+                count += same.count;
+
+                if (same.advance())
+                {
+                    queue.add(same);
+                }
+            }
+
+            consumer.accept(word, count);
+        }
+    }
+
+    /**
+     * Closes sources, ignoring failures
+     *
+     * @param sources The sources
+     */
+    private static void closeAll(List<Source> sources)
+    {
+        for (Source source : sources)
+        {
+            try
+            {
+                source.close();
+            }
+            catch (IOException ignored)
+            {
+                // Only read from, so nothing is lost
+            }
+        }
+    }
+
+    /**
+     * A word and its count
+     */
+    public static final class WordCount
+    {
+        /**
+         * The word
+         */
+        private final String word;
+
+        /**
+         * The amount of uses of the word
+         */
+        private final int count;
+
+        private WordCount(String word, int count)
+        {
+            this.word = word;
+            this.count = count;
+        }
+
+        /**
+         * Fetches the word
+         *
+         * @see #word
+         *
+         * @return The word
+         */
+        public String getWord()
+        {
+            return word;
+        }
+
+        /**
+         * Fetches the amount of uses of the word
+         *
+         * @see #count
+         *
+         * @return The count
+         */
+        public int getCount()
+        {
+            return count;
+        }
+    }
+
+    /**
+     * Words with counts in sorted order, read one at a time
+     */
+    private abstract static class Source implements Closeable
+    {
+        /**
+         * The current word
+         */
+        String word;
+
+        /**
+         * The count of the current word
+         */
+        int count;
+
+        /**
+         * Moves on to the next word
+         *
+         * @return Whether there was another word
+         *
+         * @throws IOException If the source could not be read
+         */
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() throws IOException
+        {
+        }
+    }
+
+    /**
+     * The words of a {@link WordCounter}, sorted
+     */
+    private static final class MemorySource extends Source
+    {
+        /**
+         * The counter
+         */
+        private final WordCounter counter;
+
+        /**
+         * The counted words, sorted
+         */
+        private final String[] words;
+
+        /**
+         * The index of the next word
+         */
+        private int next = 0;
+
+        private MemorySource(WordCounter counter)
+        {
+            this.counter = counter;
+            this.words = new String[counter.size()];
+
+            int size = 0;
+
+            for (int slot = 0; slot < counter.capacity(); slot++)
+            {
+                if (counter.wordAt(slot) != null)
+                {
+                    words[size++] = counter.wordAt(slot);
+                }
+            }
+
+            Arrays.sort(words);
+        }
+
+        @Override
+        boolean advance()
+        {
+            if (next == words.length)
+            {
+                return false;
+            }
+
+            word = words[next++];
+            count = counter.get(word);
+
+            return true;
+        }
+    }
+
+    /**
+     * The words of a run file
+     */
+    private static final class RunSource extends Source
+    {
+        /**
+         * The stream reading the run
+         */
+        private final DataInputStream in;
+
+        private RunSource(File run) throws IOException
+        {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), BUFFER_SIZE));
+        }
+
+        @Override
+        boolean advance() throws IOException
+        {
+            int length;
+
+            try
+            {
+                length = in.readInt();
+            }
+            catch (EOFException ex)
+            {
+                return false;
+            }
+
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+
+            word = new String(bytes, StandardCharsets.UTF_8);
+            count = in.readInt();
+
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+import java.util.Arrays;
+
+/**
+ * Joins consecutive tokens into n-grams
+ *
+ * Each token completes an n-gram of itself and
+ * the tokens before it, which is passed on as the
+ * tokens separated by single spaces. N-grams never
+ * span a {@link #reset()}, which should be called
+ * between messages
+ *
+ * Instances are not thread safe
+ */
+public final class NGramConsumer implements TokenConsumer
+{
+    /**
+     * The amount of tokens in each n-gram
+     */
+    private final int n;
+
+    /**
+     * The consumer of the n-grams
+     */
+    private final TokenConsumer consumer;
+
+    /**
+     * The buffer n-grams are built in, holding
+     * the previous tokens followed by a space each
+     */
+    private char[] buffer = new char[64];
+
+    /**
+     * The length in the buffer of each previous token
+     */
+    private final int[] lengths;
+
+    /**
+     * The amount of previous tokens in the buffer
+     */
+    private int previous = 0;
+
+    /**
+     * Constructor taking the n-gram size
+     * and the consumer of the n-grams
+     *
+     * @param n The amount of tokens in each n-gram
+     * @param consumer The consumer
+     */
+    public NGramConsumer(int n, TokenConsumer consumer)
+    {
+        if (n < 1)
+        {
+            throw new IllegalArgumentException("N-grams must hold at least one token");
+        }
+
+        this.n = n;
+        this.consumer = consumer;
+        this.lengths = new int[n - 1];
+    }
+
+    /**
+     * Accepts a token, passing on the n-gram it completes
+     *
+     * @param chars The buffer holding the token
+     * @param offset The index of the first token character
+     * @param length The amount of token characters
+     */
+    @Override
+    public void accept(char[] chars, int offset, int length)
+    {
+        if (n == 1)
+        {
+            consumer.accept(chars, offset, length);
+            return;
+        }
+
+        int used = 0;
+
+        for (int i = 0; i < previous; i++)
+        {
+            used += lengths[i] + 1;
+        }
+
+        if (used + length >= buffer.length)
+        {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, used + length + 1));
+        }
+
+        System.arraycopy(chars, offset, buffer, used, length);
+
+        if (previous == n - 1)
+        {
+            consumer.accept(buffer, 0, used + length);
+
+            // Drop the oldest token
+            int dropped = lengths[0] + 1;
+
+            System.arraycopy(buffer, dropped, buffer, 0, used + length - dropped);
+            System.arraycopy(lengths, 1, lengths, 0, previous - 1);
+
+            used -= dropped;
+            previous--;
+        }
+
+        buffer[used + length] = ' ';
+        lengths[previous++] = length;
+    }
+
+    /**
+     * Forgets the previous tokens, so the next
+     * token starts a new run of n-grams
+     */
+    public void reset()
+    {
+        previous = 0;
+    }
+}
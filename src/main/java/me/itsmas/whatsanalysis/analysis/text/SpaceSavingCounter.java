@@ -0,0 +1,476 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Approximate word counter with a fixed amount
+ * of memory, using the Space-Saving algorithm
+ *
+ * At most {@link #capacity()} words are tracked. When
+ * an untracked word is seen and every counter is in
+ * use, the word with the lowest count is evicted and
+ * the new word takes over its counter, inheriting its
+ * count as the new word's error.
+ *
+ * With m counters over N words in total:
+ * - every word used more than N / m times is tracked
+ * - a tracked word's count is never below its true count,
+ *   and is above it by at most its error, itself at most N / m
+ *
+ * As with {@link WordCounter}, tokens are hashed straight
+ * from their characters so tracked words are counted
+ * without creating objects
+ *
+ * Instances are not thread safe
+ */
+public final class SpaceSavingCounter implements TokenConsumer
+{
+    /**
+     * The word of each counter
+     */
+    private final String[] words;
+
+    /**
+     * The hash of each counter's word
+     */
+    private final int[] hashes;
+
+    /**
+     * The count of each counter
+     */
+    private final int[] counts;
+
+    /**
+     * The most each counter's count may exceed its word's true count
+     */
+    private final int[] errors;
+
+    /**
+     * Min-heap of counters by count
+     */
+    private final int[] heap;
+
+    /**
+     * The heap position of each counter
+     */
+    private final int[] heapPositions;
+
+    /**
+     * Open addressing table of counter index + 1 by word hash, 0 if empty
+     */
+    private final int[] table;
+
+    /**
+     * The amount of counters in use
+     */
+    private int size = 0;
+
+    /**
+     * The total amount of words counted
+     */
+    private long total = 0;
+
+    /**
+     * Constructor taking the amount of counters
+     *
+     * @param capacity The amount of counters
+     */
+    public SpaceSavingCounter(int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.words = new String[capacity];
+        this.hashes = new int[capacity];
+        this.counts = new int[capacity];
+        this.errors = new int[capacity];
+        this.heap = new int[capacity];
+        this.heapPositions = new int[capacity];
+        this.table = new int[Integer.highestOneBit(capacity) * 4];
+    }
+
+    @Override
+    public void accept(char[] chars, int offset, int length)
+    {
+        int hash = 0;
+
+        for (int i = 0; i < length; i++)
+        {
+            hash = 31 * hash + chars[offset + i];
+        }
+
+        int mask = table.length - 1;
+        int slot = WordHashing.mix(hash) & mask;
+
+        int entry;
+
+        while ((entry = table[slot]) != 0)
+        {
+            int counter = entry - 1;
+
+            if (hashes[counter] == hash && WordHashing.equals(words[counter], chars, offset, length))
+            {
+                total++;
+                counts[counter]++;
+                siftDown(heapPositions[counter]);
+
+                return;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        add(new String(chars, offset, length), hash, 1, 0);
+    }
+
+    /**
+     * Adds uses of a word
+     *
+     * @param word The word
+     * @param amount The amount of uses to add
+     */
+    public void add(String word, int amount)
+    {
+        int counter = find(word, word.hashCode());
+
+        if (counter != -1)
+        {
+            total += amount;
+            counts[counter] += amount;
+            siftDown(heapPositions[counter]);
+
+            return;
+        }
+
+        add(word, word.hashCode(), amount, 0);
+    }
+
+    /**
+     * Adds an untracked word, evicting the
+     * lowest counter if all are in use
+     *
+     * @param word The word
+     * @param hash The word hash
+     * @param amount The amount of uses
+     * @param error The error of the amount
+     */
+    private void add(String word, int hash, int amount, int error)
+    {
+        total += amount;
+
+        int counter;
+
+        if (size < words.length)
+        {
+            counter = size;
+            heap[size] = counter;
+            heapPositions[counter] = size;
+            size++;
+
+            counts[counter] = 0;
+            errors[counter] = 0;
+        }
+        else
+        {
+            counter = heap[0];
+            remove(words[counter], hashes[counter]);
+
+            // The new word may have been one of the evicted word's uses
+            errors[counter] = counts[counter];
+        }
+
+        words[counter] = word;
+        hashes[counter] = hash;
+        counts[counter] += amount;
+        errors[counter] += error;
+
+        insert(counter);
+
+        siftUp(heapPositions[counter]);
+        siftDown(heapPositions[counter]);
+    }
+
+    /**
+     * Merges two counters into a new one with the
+     * capacity of the first, keeping the highest counts
+     *
+     * A word tracked by only one counter may have been
+     * evicted from the other with up to its lowest count,
+     * so that count is added to both its count and error.
+     * The resulting error stays within the sum of both bounds
+     *
+     * @param left The first counter
+     * @param right The second counter
+     *
+     * @return The merged counter
+     */
+    public static SpaceSavingCounter merge(SpaceSavingCounter left, SpaceSavingCounter right)
+    {
+        int leftMin = left.size == left.words.length ? left.counts[left.heap[0]] : 0;
+        int rightMin = right.size == right.words.length ? right.counts[right.heap[0]] : 0;
+
+        // Count and error of each word
+        Map<String, int[]> merged = new HashMap<>();
+
+        for (int i = 0; i < left.size; i++)
+        {
+            merged.put(left.words[i], new int[] {left.counts[i] + rightMin, left.errors[i] + rightMin});
+        }
+
+        for (int i = 0; i < right.size; i++)
+        {
+            int[] existing = merged.get(right.words[i]);
+
+            if (existing != null)
+            {
+                existing[0] += right.counts[i] - rightMin;
+                existing[1] += right.errors[i] - rightMin;
+            }
+            else
+            {
+                merged.put(right.words[i], new int[] {right.counts[i] + leftMin, right.errors[i] + leftMin});
+            }
+        }
+
+        String[] mergedWords = merged.keySet().toArray(new String[0]);
+
+        int[] keep = TopK.select(mergedWords.length, index -> true, index -> merged.get(mergedWords[index])[0], left.words.length);
+
+        SpaceSavingCounter result = new SpaceSavingCounter(left.words.length);
+
+        for (int index : keep)
+        {
+            int[] countAndError = merged.get(mergedWords[index]);
+            result.add(mergedWords[index], mergedWords[index].hashCode(), countAndError[0], countAndError[1]);
+        }
+
+        result.total = left.total + right.total;
+
+        return result;
+    }
+
+    /**
+     * Fetches the amount of counters
+     *
+     * @return The capacity
+     */
+    public int capacity()
+    {
+        return words.length;
+    }
+
+    /**
+     * Fetches the amount of counters in use
+     *
+     * @return The amount of tracked words
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Fetches the total amount of words counted,
+     * the N in the error bound N / m
+     *
+     * @return The total
+     */
+    public long total()
+    {
+        return total;
+    }
+
+    /**
+     * Fetches the word of a counter
+     *
+     * @param counter The counter, below {@link #size()}
+     *
+     * @return The word
+     */
+    public String wordAt(int counter)
+    {
+        return words[counter];
+    }
+
+    /**
+     * Fetches the count of a counter, which
+     * is at least the word's true count
+     *
+     * @param counter The counter, below {@link #size()}
+     *
+     * @return The count
+     */
+    public int countAt(int counter)
+    {
+        return counts[counter];
+    }
+
+    /**
+     * Fetches the most a counter's count
+     * may exceed its word's true count
+     *
+     * @param counter The counter, below {@link #size()}
+     *
+     * @return The error
+     */
+    public int errorAt(int counter)
+    {
+        return errors[counter];
+    }
+
+    /**
+     * Finds the counter of a word
+     *
+     * @param word The word
+     * @param hash The word hash
+     *
+     * @return The counter, or -1 if the word is not tracked
+     */
+    private int find(String word, int hash)
+    {
+        int mask = table.length - 1;
+        int slot = WordHashing.mix(hash) & mask;
+
+        int entry;
+
+        while ((entry = table[slot]) != 0)
+        {
+            if (hashes[entry - 1] == hash && words[entry - 1].equals(word))
+            {
+                return entry - 1;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Inserts a counter into the table
+     *
+     * @param counter The counter
+     */
+    private void insert(int counter)
+    {
+        int mask = table.length - 1;
+        int slot = WordHashing.mix(hashes[counter]) & mask;
+
+        while (table[slot] != 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot] = counter + 1;
+    }
+
+    /**
+     * Removes a word from the table, shifting back
+     * the entries after it so probing still works
+     *
+     * @param word The word
+     * @param hash The word hash
+     */
+    private void remove(String word, int hash)
+    {
+        int mask = table.length - 1;
+        int slot = WordHashing.mix(hash) & mask;
+
+        while (!words[table[slot] - 1].equals(word))
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        int gap = slot;
+        slot = (slot + 1) & mask;
+
+        while (table[slot] != 0)
+        {
+            int home = WordHashing.mix(hashes[table[slot] - 1]) & mask;
+
+            // Move the entry into the gap if its home slot is not between the gap and it
+            if (((slot - home) & mask) >= ((slot - gap) & mask))
+            {
+                table[gap] = table[slot];
+                gap = slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        table[gap] = 0;
+    }
+
+    /**
+     * Moves a heap entry up towards the root
+     *
+     * @param position The position of the entry
+     */
+    private void siftUp(int position)
+    {
+        while (position > 0)
+        {
+            int parent = (position - 1) >>> 1;
+
+            if (counts[heap[parent]] <= counts[heap[position]])
+            {
+                return;
+            }
+
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    /**
+     * Moves a heap entry down away from the root
+     *
+     * @param position The position of the entry
+     */
+    private void siftDown(int position)
+    {
+        while (true)
+        {
+            int lowest = position;
+            int left = position * 2 + 1;
+            int right = left + 1;
+
+            if (left < size && counts[heap[left]] < counts[heap[lowest]])
+            {
+                lowest = left;
+            }
+
+            if (right < size && counts[heap[right]] < counts[heap[lowest]])
+            {
+                lowest = right;
+            }
+
+            if (lowest == position)
+            {
+                return;
+            }
+
+            swap(position, lowest);
+            position = lowest;
+        }
+    }
+
+    /**
+     * Swaps two heap entries
+     *
+     * @param a The first position
+     * @param b The second position
+     */
+    private void swap(int a, int b)
+    {
+        int counter = heap[a];
+        heap[a] = heap[b];
+        heap[b] = counter;
+
+        heapPositions[heap[a]] = a;
+        heapPositions[heap[b]] = b;
+    }
+}
@@ -0,0 +1,21 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+/**
+ * Receives the tokens found by a {@link WordTokenizer}
+ */
+@FunctionalInterface
+public interface TokenConsumer
+{
+    /**
+     * Accepts a token
+     *
+     * The characters are only valid for the
+     * duration of the call, as the buffer
+     * holding them is reused for the next token
+     *
+     * @param chars The buffer holding the token
+     * @param offset The index of the first token character
+     * @param length The amount of token characters
+     */
+    void accept(char[] chars, int offset, int length);
+}
@@ -0,0 +1,393 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * The tokens of every message of a chat,
+ * encoded as ids of a shared {@link WordDictionary}
+ *
+ * The ids of all messages are held one after another
+ * in a single array, with the tokens of message i
+ * running from {@link #getStart(int)} to
+ * {@link #getEnd(int)}. Analyses reading a layer
+ * count, join and filter on ints, so the chat is
+ * tokenized once however many of them run
+ *
+ * The layer keeps the tokenizers it was built with,
+ * so anything matching text against it, such as a
+ * search query, can split the text the same way
+ *
+ * Media messages have no tokens. A layer is never
+ * changed once built, so it can be read by any
+ * number of threads at once
+ *
+ * @see Tokenizer
+ */
+public final class TokenLayer
+{
+    /**
+     * The smallest amount of messages
+     * tokenized by a single task
+     */
+    private static final int MIN_RANGE_SIZE = 4096;
+
+    /**
+     * The amount of ranges to split
+     * messages into per thread
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * Creates the tokenizers the layer was built with
+     */
+    private final Supplier<? extends Tokenizer> tokenizers;
+
+    /**
+     * The dictionary of every token
+     */
+    private final WordDictionary dictionary;
+
+    /**
+     * The token ids of every message, in order
+     */
+    private final int[] tokens;
+
+    /**
+     * The index of the first token of each
+     * message, followed by the token count
+     */
+    private final int[] offsets;
+
+    private TokenLayer(Supplier<? extends Tokenizer> tokenizers, Builder builder)
+    {
+        this.tokenizers = tokenizers;
+        this.dictionary = builder.dictionary;
+        this.tokens = Arrays.copyOf(builder.tokens, builder.size);
+        this.offsets = Arrays.copyOf(builder.offsets, builder.messages + 1);
+    }
+
+    /**
+     * Tokenizes messages into a layer
+     *
+     * Tokenizers are not thread safe, so are
+     * created as needed rather than shared
+     *
+     * @param messages The messages
+     * @param tokenizers Creates the tokenizer to use
+     *
+     * @return The layer
+     */
+    public static TokenLayer build(List<ChatMessage> messages, Supplier<? extends Tokenizer> tokenizers)
+    {
+        return new TokenLayer(tokenizers, new Builder(messages, 0, messages.size(), tokenizers.get()));
+    }
+
+    /**
+     * Tokenizes messages into a layer in parallel
+     *
+     * Ranges of messages are tokenized separately then
+     * joined in order, giving the same ids as {@link
+     * #build(List, Supplier)}
+     *
+     * @param messages The messages
+     * @param tokenizers Creates the tokenizer of each range
+     * @param pool The pool to tokenize on
+     *
+     * @return The layer
+     */
+    public static TokenLayer build(List<ChatMessage> messages, Supplier<? extends Tokenizer> tokenizers, ForkJoinPool pool)
+    {
+        int rangeSize = Math.max(MIN_RANGE_SIZE, messages.size() / (pool.getParallelism() * RANGES_PER_THREAD) + 1);
+
+        return new TokenLayer(tokenizers, pool.invoke(new RangeTask(messages, 0, messages.size(), rangeSize, tokenizers)));
+    }
+
+    /**
+     * Creates a tokenizer splitting text
+     * the same way as the layer's messages
+     *
+     * @return The tokenizer
+     */
+    public Tokenizer newTokenizer()
+    {
+        return tokenizers.get();
+    }
+
+    /**
+     * Fetches the dictionary of every token
+     *
+     * The dictionary must not be added to
+     *
+     * @see #dictionary
+     *
+     * @return The dictionary
+     */
+    public WordDictionary getDictionary()
+    {
+        return dictionary;
+    }
+
+    /**
+     * Fetches the amount of messages in the layer
+     *
+     * @return The message count
+     */
+    public int getMessageCount()
+    {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Fetches the amount of tokens of every message
+     *
+     * @return The token count
+     */
+    public int getTokenCount()
+    {
+        return tokens.length;
+    }
+
+    /**
+     * Fetches the index of a message's first token
+     *
+     * @param message The ordinal of the message
+     *
+     * @return The index, inclusive
+     */
+    public int getStart(int message)
+    {
+        return offsets[message];
+    }
+
+    /**
+     * Fetches the index after a message's last token
+     *
+     * @param message The ordinal of the message
+     *
+     * @return The index, exclusive
+     */
+    public int getEnd(int message)
+    {
+        return offsets[message + 1];
+    }
+
+    /**
+     * Fetches the id of a token
+     *
+     * @param index The index of the token
+     *
+     * @return The id in the dictionary
+     */
+    public int getToken(int index)
+    {
+        return tokens[index];
+    }
+
+    /**
+     * Fetches the ids of a message's tokens
+     *
+     * @param message The ordinal of the message
+     *
+     * @return A copy of the ids, in order
+     */
+    public int[] getTokens(int message)
+    {
+        return Arrays.copyOfRange(tokens, offsets[message], offsets[message + 1]);
+    }
+
+    /**
+     * Counts the uses of every token
+     *
+     * @return The amount of uses of each id
+     */
+    public int[] countTokens()
+    {
+        int[] counts = new int[dictionary.size()];
+
+        for (int token : tokens)
+        {
+            counts[token]++;
+        }
+
+        return counts;
+    }
+
+    /**
+     * Gathers the token ids of a range
+     * of messages into growing arrays
+     */
+    private static final class Builder implements TokenConsumer
+    {
+        /**
+         * The dictionary of every token
+         */
+        private final WordDictionary dictionary = new WordDictionary();
+
+        /**
+         * The token ids so far
+         */
+        private int[] tokens = new int[1024];
+
+        /**
+         * The amount of token ids so far
+         */
+        private int size = 0;
+
+        /**
+         * The index of the first token of each message
+         * so far, followed by the token count
+         */
+        private int[] offsets;
+
+        /**
+         * The amount of messages so far
+         */
+        private int messages = 0;
+
+        /**
+         * Tokenizes a range of messages
+         *
+         * @param messages The chat messages
+         * @param from The first message ordinal, inclusive
+         * @param to The last message ordinal, exclusive
+         * @param tokenizer The tokenizer
+         */
+        private Builder(List<ChatMessage> messages, int from, int to, Tokenizer tokenizer)
+        {
+            offsets = new int[to - from + 1];
+
+            for (int ordinal = from; ordinal < to; ordinal++)
+            {
+                ChatMessage message = messages.get(ordinal);
+                offsets[this.messages++] = size;
+
+                if (!message.isMediaMessage())
+                {
+                    tokenizer.tokenize(message.getContent(), this);
+                }
+            }
+
+            offsets[this.messages] = size;
+        }
+
+        @Override
+        public void accept(char[] chars, int offset, int length)
+        {
+            if (size == tokens.length)
+            {
+                tokens = Arrays.copyOf(tokens, size * 2);
+            }
+
+            tokens[size++] = dictionary.add(chars, offset, length);
+        }
+
+        /**
+         * Adds the tokens of the following range to this
+         * one, mapping its ids into this dictionary
+         *
+         * @param next The tokens of the following range
+         */
+        private void addAll(Builder next)
+        {
+            int[] ids = new int[next.dictionary.size()];
+
+            for (int nextId = 0; nextId < ids.length; nextId++)
+            {
+                ids[nextId] = dictionary.add(next.dictionary.getWord(nextId));
+            }
+
+            if (size + next.size > tokens.length)
+            {
+                tokens = Arrays.copyOf(tokens, size + next.size);
+            }
+
+            for (int i = 0; i < next.size; i++)
+            {
+                tokens[size + i] = ids[next.tokens[i]];
+            }
+
+            offsets = Arrays.copyOf(offsets, messages + next.messages + 1);
+
+            for (int i = 1; i <= next.messages; i++)
+            {
+                offsets[messages + i] = size + next.offsets[i];
+            }
+
+            size += next.size;
+            messages += next.messages;
+        }
+    }
+
+    /**
+     * Task tokenizing a range of messages,
+     * splitting it in two if it is too large
+     */
+    private static final class RangeTask extends RecursiveTask<Builder>
+    {
+        /**
+         * The version of the serialized form
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The chat messages
+         */
+        private final List<ChatMessage> messages;
+
+        /**
+         * The first message ordinal, inclusive
+         */
+        private final int from;
+
+        /**
+         * The last message ordinal, exclusive
+         */
+        private final int to;
+
+        /**
+         * The size at which ranges are no longer split
+         */
+        private final int rangeSize;
+
+        /**
+         * Creates the tokenizer of each range
+         */
+        private final Supplier<? extends Tokenizer> tokenizers;
+
+        private RangeTask(List<ChatMessage> messages, int from, int to, int rangeSize, Supplier<? extends Tokenizer> tokenizers)
+        {
+            this.messages = messages;
+            this.from = from;
+            this.to = to;
+            this.rangeSize = rangeSize;
+            this.tokenizers = tokenizers;
+        }
+
+        @Override
+        protected Builder compute()
+        {
+            if (to - from > rangeSize)
+            {
+                int middle = (from + to) >>> 1;
+
+                RangeTask left = new RangeTask(messages, from, middle, rangeSize, tokenizers);
+                RangeTask right = new RangeTask(messages, middle, to, rangeSize, tokenizers);
+
+                right.fork();
+
+                Builder builder = left.compute();
+                builder.addAll(right.join());
+
+                return builder;
+            }
+
+            return new Builder(messages, from, to, tokenizers.get());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+/**
+ * Splits message content into tokens
+ *
+ * @see WordTokenizer
+ * @see UnicodeTokenizer
+ */
+public interface Tokenizer
+{
+    /**
+     * Tokenizes content, passing each token to a consumer
+     *
+     * @param content The content
+     * @param consumer The consumer
+     */
+    void tokenize(CharSequence content, TokenConsumer consumer);
+}
@@ -0,0 +1,195 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Selects the highest scoring of a set of candidates
+ * using a bounded min-heap, in O(n log k) time and
+ * O(k) space rather than sorting every candidate
+ *
+ * Candidates are identified by index, and ties are
+ * broken by index unless a tie-break is given, so the
+ * selection is deterministic. The heap never holds
+ * more than the amount of candidates, however large k is
+ */
+public final class TopK
+{
+    private TopK() {}
+
+    /**
+     * Selects the top candidates by score
+     *
+     * @param candidates The amount of candidate indices
+     * @param include Which candidate indices to consider
+     * @param score The score of a candidate index
+     * @param k The amount of candidates to select
+     *
+     * @return The selected indices, highest score first
+     */
+    public static int[] select(int candidates, IntPredicate include, IntUnaryOperator score, int k)
+    {
+        return select(candidates, include, score, k, Integer::compare);
+    }
+
+    /**
+     * Selects the top candidates by score,
+     * breaking ties between equal scores
+     *
+     * @param candidates The amount of candidate indices
+     * @param include Which candidate indices to consider
+     * @param score The score of a candidate index
+     * @param k The amount of candidates to select
+     * @param tieBreak Compares two candidate indices, negative if the first ranks higher
+     *
+     * @return The selected indices, highest score first
+     */
+    public static int[] select(int candidates, IntPredicate include, IntUnaryOperator score, int k, IntBinaryOperator tieBreak)
+    {
+        if (k <= 0)
+        {
+            return new int[0];
+        }
+
+        // Min-heap with the worst selected candidate at the root
+        int capacity = Math.min(k, candidates);
+
+        int[] heap = new int[capacity];
+        int[] heapScores = new int[capacity];
+        int size = 0;
+
+        for (int index = 0; index < candidates; index++)
+        {
+            if (!include.test(index))
+            {
+                continue;
+            }
+
+            int candidateScore = score.applyAsInt(index);
+
+            if (size < k)
+            {
+                heap[size] = index;
+                heapScores[size] = candidateScore;
+                siftUp(heap, heapScores, size++, tieBreak);
+            }
+            else if (isWorse(heapScores[0], heap[0], candidateScore, index, tieBreak))
+            {
+                heap[0] = index;
+                heapScores[0] = candidateScore;
+                siftDown(heap, heapScores, 0, size, tieBreak);
+            }
+        }
+
+        // Pop the worst each time, filling from the back
+        int[] selected = new int[size];
+
+        for (int i = size - 1; i >= 0; i--)
+        {
+            selected[i] = heap[0];
+
+            heap[0] = heap[i];
+            heapScores[0] = heapScores[i];
+            siftDown(heap, heapScores, 0, i, tieBreak);
+        }
+
+        return selected;
+    }
+
+    /**
+     * Determines whether a candidate ranks below another
+     *
+     * @param score The candidate's score
+     * @param index The candidate's index
+     * @param otherScore The other candidate's score
+     * @param otherIndex The other candidate's index
+     * @param tieBreak Compares candidates with equal scores
+     *
+     * @return Whether the candidate ranks below the other
+     */
+    private static boolean isWorse(int score, int index, int otherScore, int otherIndex, IntBinaryOperator tieBreak)
+    {
+        return score < otherScore || (score == otherScore && tieBreak.applyAsInt(index, otherIndex) > 0);
+    }
+
+    /**
+     * Moves a heap entry up towards the root
+     *
+     * @param heap The heap indices
+     * @param scores The heap scores
+     * @param position The position of the entry
+     * @param tieBreak Compares candidates with equal scores
+     */
+    private static void siftUp(int[] heap, int[] scores, int position, IntBinaryOperator tieBreak)
+    {
+        while (position > 0)
+        {
+            int parent = (position - 1) >>> 1;
+
+            if (!isWorse(scores[position], heap[position], scores[parent], heap[parent], tieBreak))
+            {
+                return;
+            }
+
+            swap(heap, scores, position, parent);
+            position = parent;
+        }
+    }
+
+    /**
+     * Moves a heap entry down away from the root
+     *
+     * @param heap The heap indices
+     * @param scores The heap scores
+     * @param position The position of the entry
+     * @param size The heap size
+     * @param tieBreak Compares candidates with equal scores
+     */
+    private static void siftDown(int[] heap, int[] scores, int position, int size, IntBinaryOperator tieBreak)
+    {
+        while (true)
+        {
+            int worst = position;
+            int left = position * 2 + 1;
+            int right = left + 1;
+
+            if (left < size && isWorse(scores[left], heap[left], scores[worst], heap[worst], tieBreak))
+            {
+                worst = left;
+            }
+
+            if (right < size && isWorse(scores[right], heap[right], scores[worst], heap[worst], tieBreak))
+            {
+                worst = right;
+            }
+
+            if (worst == position)
+            {
+                return;
+            }
+
+            swap(heap, scores, position, worst);
+            position = worst;
+        }
+    }
+
+    /**
+     * Swaps two heap entries
+     *
+     * @param heap The heap indices
+     * @param scores The heap scores
+     * @param a The first position
+     * @param b The second position
+     */
+    private static void swap(int[] heap, int[] scores, int a, int b)
+    {
+        int index = heap[a];
+        heap[a] = heap[b];
+        heap[b] = index;
+
+        int score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,263 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+import java.util.Locale;
+
+/**
+ * Splits message content into lower case words
+ * of any script, and emoji
+ *
+ * A word is a run of letters, digits and combining
+ * marks of any script, which may hold apostrophes
+ * between its characters. Everything else separates
+ * words, so punctuation next to a word is never part
+ * of it. Words are lower cased in the root locale
+ *
+ * Each emoji is a token of its own, including any
+ * skin tone, variation selector or zero width joined
+ * emoji which follow it, so family and flag sequences
+ * stay whole. Emoji are recognised by code point block,
+ * as the Java 8 character data does not mark them
+ *
+ * Instances are not thread safe
+ */
+public final class UnicodeTokenizer implements Tokenizer
+{
+    /**
+     * The zero width joiner, which joins emoji into one
+     */
+    private static final int ZERO_WIDTH_JOINER = 0x200D;
+
+    /**
+     * The buffer tokens are copied into
+     */
+    private char[] buffer = new char[64];
+
+    /**
+     * Tokenizes content, passing each word
+     * and emoji to a consumer
+     *
+     * @param content The content
+     * @param consumer The consumer
+     */
+    @Override
+    public void tokenize(CharSequence content, TokenConsumer consumer)
+    {
+        int length = content.length();
+        int i = 0;
+
+        while (i < length)
+        {
+            int c = Character.codePointAt(content, i);
+
+            if (isEmoji(c))
+            {
+                int end = emojiEnd(content, i);
+
+                emit(content, i, end, false, consumer);
+                i = end;
+            }
+            else if (isWordPart(c))
+            {
+                int start = i;
+                int end = i;
+
+                while (i < length)
+                {
+                    int next = Character.codePointAt(content, i);
+
+                    if (isWordPart(next))
+                    {
+                        i += Character.charCount(next);
+                        end = i;
+                    }
+                    else if (isApostrophe(next))
+                    {
+                        // Only kept if another word character follows
+                        i++;
+                    }
+                    else
+                    {
+                        break;
+                    }
+                }
+
+                emit(content, start, end, true, consumer);
+            }
+            else
+            {
+                i += Character.charCount(c);
+            }
+        }
+    }
+
+    /**
+     * Passes a token to a consumer
+     *
+     * @param content The content
+     * @param start The start of the token, inclusive
+     * @param end The end of the token, exclusive
+     * @param lowerCase Whether to lower case the token
+     * @param consumer The consumer
+     */
+    private void emit(CharSequence content, int start, int end, boolean lowerCase, TokenConsumer consumer)
+    {
+        int length = end - start;
+        char[] chars = buffer(length);
+
+        for (int i = 0; i < length; i++)
+        {
+            char c = content.charAt(start + i);
+
+            if (lowerCase && c >= 0x80)
+            {
+                String lowered = content.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+
+                chars = buffer(lowered.length());
+                lowered.getChars(0, lowered.length(), chars, 0);
+
+                consumer.accept(chars, 0, lowered.length());
+                return;
+            }
+
+            chars[i] = lowerCase && c <= 'Z' && c >= 'A' ? (char) (c | 0x20) : c;
+        }
+
+        consumer.accept(chars, 0, length);
+    }
+
+    /**
+     * Finds the end of the emoji sequence
+     * starting at an index
+     *
+     * @param content The content
+     * @param start The index of the first emoji
+     *
+     * @return The end of the sequence, exclusive
+     */
+    private static int emojiEnd(CharSequence content, int start)
+    {
+        int length = content.length();
+        int first = Character.codePointAt(content, start);
+        int i = start + Character.charCount(first);
+
+        if (isRegionalIndicator(first) && i < length && isRegionalIndicator(Character.codePointAt(content, i)))
+        {
+            // Flags are pairs of regional indicators
+            return i + 2;
+        }
+
+        while (i < length)
+        {
+            int c = Character.codePointAt(content, i);
+
+            if (isEmojiModifier(c))
+            {
+                i += Character.charCount(c);
+            }
+            else if (c == ZERO_WIDTH_JOINER && i + 1 < length && isEmoji(Character.codePointAt(content, i + 1)))
+            {
+                i += 1 + Character.charCount(Character.codePointAt(content, i + 1));
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        return i;
+    }
+
+    /**
+     * Fetches the token buffer, growing
+     * it to hold a certain amount of characters
+     *
+     * @param length The amount of characters
+     *
+     * @return The buffer
+     */
+    private char[] buffer(int length)
+    {
+        if (buffer.length < length)
+        {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Determines whether a code point can be part
+     * of a word, i.e. is a letter, digit or mark
+     *
+     * @param c The code point
+     *
+     * @return Whether the code point is a word part
+     */
+    private static boolean isWordPart(int c)
+    {
+        if (Character.isLetterOrDigit(c))
+        {
+            return true;
+        }
+
+        int type = Character.getType(c);
+
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    /**
+     * Determines whether a code point is an apostrophe
+     *
+     * @param c The code point
+     *
+     * @return Whether the code point is an apostrophe
+     */
+    private static boolean isApostrophe(int c)
+    {
+        return c == '\'' || c == '\u2019';
+    }
+
+    /**
+     * Determines whether a code point starts an emoji
+     *
+     * @param c The code point
+     *
+     * @return Whether the code point is an emoji
+     */
+    private static boolean isEmoji(int c)
+    {
+        return (c >= 0x1F000 && c <= 0x1FAFF)
+            || (c >= 0x2600 && c <= 0x27BF)
+            || (c >= 0x2300 && c <= 0x23FF)
+            || (c >= 0x2B00 && c <= 0x2BFF)
+            || c == 0x00A9 || c == 0x00AE || c == 0x203C || c == 0x2049
+            || c == 0x2122 || c == 0x2139 || c == 0x3030 || c == 0x303D;
+    }
+
+    /**
+     * Determines whether a code point is a flag half
+     *
+     * @param c The code point
+     *
+     * @return Whether the code point is a regional indicator
+     */
+    private static boolean isRegionalIndicator(int c)
+    {
+        return c >= 0x1F1E6 && c <= 0x1F1FF;
+    }
+
+    /**
+     * Determines whether a code point modifies the
+     * emoji before it, and so belongs to its token
+     *
+     * @param c The code point
+     *
+     * @return Whether the code point is an emoji modifier
+     */
+    private static boolean isEmojiModifier(int c)
+    {
+        return c == 0xFE0F || c == 0xFE0E || c == 0x20E3
+            || (c >= 0x1F3FB && c <= 0x1F3FF)
+            || (c >= 0xE0020 && c <= 0xE007F);
+    }
+}
@@ -0,0 +1,278 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+/**
+ * Open addressing hash table counting words
+ *
+ * Counts are held as primitive ints, and words are
+ * hashed straight from the characters of a token, so
+ * incrementing a word already in the table creates no
+ * objects at all. A key {@link String} is only created
+ * the first time a word is seen
+ *
+ * Entries are iterated by slot, from 0 up to
+ * {@link #capacity()}, skipping empty slots
+ *
+ * Instances are not thread safe
+ */
+public final class WordCounter implements TokenConsumer
+{
+    /**
+     * The initial amount of slots
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The highest proportion of slots
+     * to fill before growing the table
+     */
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * The word in each slot, or null if empty
+     */
+    private String[] words;
+
+    /**
+     * The hash of the word in each slot
+     */
+    private int[] hashes;
+
+    /**
+     * The count of the word in each slot
+     */
+    private int[] counts;
+
+    /**
+     * The amount of distinct words counted
+     */
+    private int size = 0;
+
+    /**
+     * The size at which the table grows
+     */
+    private int threshold;
+
+    public WordCounter()
+    {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Counts one use of a token
+     *
+     * @param chars The buffer holding the token
+     * @param offset The index of the first token character
+     * @param length The amount of token characters
+     */
+    @Override
+    public void accept(char[] chars, int offset, int length)
+    {
+        int hash = 0;
+
+        for (int i = 0; i < length; i++)
+        {
+            hash = 31 * hash + chars[offset + i];
+        }
+
+        int mask = words.length - 1;
+        int slot = WordHashing.mix(hash) & mask;
+
+        String word;
+
+        while ((word = words[slot]) != null)
+        {
+            if (hashes[slot] == hash && WordHashing.equals(word, chars, offset, length))
+            {
+                counts[slot]++;
+                return;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        insert(slot, new String(chars, offset, length), hash, 1);
+    }
+
+    /**
+     * Adds uses of a word
+     *
+     * @param word The word
+     * @param amount The amount of uses to add
+     */
+    public void add(String word, int amount)
+    {
+        // Matches the hash worked out from token characters
+        int hash = word.hashCode();
+
+        int mask = words.length - 1;
+        int slot = WordHashing.mix(hash) & mask;
+
+        String existing;
+
+        while ((existing = words[slot]) != null)
+        {
+            if (hashes[slot] == hash && existing.equals(word))
+            {
+                counts[slot] += amount;
+                return;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        insert(slot, word, hash, amount);
+    }
+
+    /**
+     * Adds all counts of another counter to this one
+     *
+     * @param other The other counter
+     */
+    public void addAll(WordCounter other)
+    {
+        for (int slot = 0; slot < other.words.length; slot++)
+        {
+            if (other.words[slot] != null)
+            {
+                add(other.words[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Fetches the amount of distinct words counted
+     *
+     * @return The word count
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Fetches the amount of slots in the table
+     *
+     * @return The capacity
+     */
+    public int capacity()
+    {
+        return words.length;
+    }
+
+    /**
+     * Fetches the word in a slot
+     *
+     * @param slot The slot
+     *
+     * @return The word, or null if the slot is empty
+     */
+    public String wordAt(int slot)
+    {
+        return words[slot];
+    }
+
+    /**
+     * Fetches the count of the word in a slot
+     *
+     * @param slot The slot
+     *
+     * @return The count, or 0 if the slot is empty
+     */
+    public int countAt(int slot)
+    {
+        return counts[slot];
+    }
+
+    /**
+     * Fetches the count of a word
+     *
+     * @param word The word
+     *
+     * @return The count, or 0 if the word has not been counted
+     */
+    public int get(String word)
+    {
+        int hash = word.hashCode();
+
+        int mask = words.length - 1;
+        int slot = WordHashing.mix(hash) & mask;
+
+        String existing;
+
+        while ((existing = words[slot]) != null)
+        {
+            if (hashes[slot] == hash && existing.equals(word))
+            {
+                return counts[slot];
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Inserts a new word into an empty slot
+     *
+     * @param slot The slot
+     * @param word The word
+     * @param hash The word hash
+     * @param count The word count
+     */
+    private void insert(int slot, String word, int hash, int count)
+    {
+        words[slot] = word;
+        hashes[slot] = hash;
+        counts[slot] = count;
+
+        if (++size > threshold)
+        {
+            rehash();
+        }
+    }
+
+    /**
+     * Doubles the amount of slots and re-inserts every word
+     */
+    private void rehash()
+    {
+        String[] oldWords = words;
+        int[] oldHashes = hashes;
+        int[] oldCounts = counts;
+
+        allocate(oldWords.length * 2);
+
+        int mask = words.length - 1;
+
+        for (int i = 0; i < oldWords.length; i++)
+        {
+            if (oldWords[i] != null)
+            {
+                int slot = WordHashing.mix(oldHashes[i]) & mask;
+
+                while (words[slot] != null)
+                {
+                    slot = (slot + 1) & mask;
+                }
+
+                words[slot] = oldWords[i];
+                hashes[slot] = oldHashes[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Allocates empty slots
+     *
+     * @param capacity The amount of slots, a power of two
+     */
+    private void allocate(int capacity)
+    {
+        words = new String[capacity];
+        hashes = new int[capacity];
+        counts = new int[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,278 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary assigning each distinct word an int id
+ *
+ * Ids are given out in the order words are first
+ * added, running from 0 up to {@link #size()}. As
+ * with {@link WordCounter}, words are hashed straight
+ * from the characters of a token, so looking up a
+ * word already in the dictionary creates no objects
+ *
+ * Instances are not thread safe while being added to
+ */
+public final class WordDictionary
+{
+    /**
+     * The initial amount of slots
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The highest proportion of slots
+     * to fill before growing the table
+     */
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * The id + 1 of the word in each slot, or 0 if empty
+     */
+    private int[] table = new int[INITIAL_CAPACITY];
+
+    /**
+     * The words by id
+     */
+    private String[] words = new String[INITIAL_CAPACITY];
+
+    /**
+     * The hash of each word by id
+     */
+    private int[] hashes = new int[INITIAL_CAPACITY];
+
+    /**
+     * The amount of words in the dictionary
+     */
+    private int size = 0;
+
+    /**
+     * Fetches the id of a token, adding it if it is new
+     *
+     * @param chars The buffer holding the token
+     * @param offset The index of the first token character
+     * @param length The amount of token characters
+     *
+     * @return The id
+     */
+    public int add(char[] chars, int offset, int length)
+    {
+        int hash = hash(chars, offset, length);
+        int slot = find(chars, offset, length, hash);
+
+        if (table[slot] != 0)
+        {
+            return table[slot] - 1;
+        }
+
+        return insert(slot, new String(chars, offset, length), hash);
+    }
+
+    /**
+     * Fetches the id of a word, adding it if it is new
+     *
+     * @param word The word
+     *
+     * @return The id
+     */
+    public int add(String word)
+    {
+        int hash = word.hashCode();
+        int slot = find(word, hash);
+
+        if (table[slot] != 0)
+        {
+            return table[slot] - 1;
+        }
+
+        return insert(slot, word, hash);
+    }
+
+    /**
+     * Fetches the id of a token
+     *
+     * @param chars The buffer holding the token
+     * @param offset The index of the first token character
+     * @param length The amount of token characters
+     *
+     * @return The id, or -1 if the token is not in the dictionary
+     */
+    public int get(char[] chars, int offset, int length)
+    {
+        return table[find(chars, offset, length, hash(chars, offset, length))] - 1;
+    }
+
+    /**
+     * Fetches the id of a word
+     *
+     * @param word The word
+     *
+     * @return The id, or -1 if the word is not in the dictionary
+     */
+    public int get(String word)
+    {
+        return table[find(word, word.hashCode())] - 1;
+    }
+
+    /**
+     * Fetches the word with an id
+     *
+     * @param id The id
+     *
+     * @return The word
+     */
+    public String getWord(int id)
+    {
+        if (id < 0 || id >= size)
+        {
+            throw new IndexOutOfBoundsException("Id: " + id + ", Size: " + size);
+        }
+
+        return words[id];
+    }
+
+    /**
+     * Fetches the amount of words in the dictionary
+     *
+     * @return The word count
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Finds the slot of a token, or the
+     * empty slot it would be inserted into
+     *
+     * @param chars The buffer holding the token
+     * @param offset The index of the first token character
+     * @param length The amount of token characters
+     * @param hash The token hash
+     *
+     * @return The slot
+     */
+    private int find(char[] chars, int offset, int length, int hash)
+    {
+        int mask = table.length - 1;
+        int slot = WordHashing.mix(hash) & mask;
+
+        int entry;
+
+        while ((entry = table[slot]) != 0)
+        {
+            if (hashes[entry - 1] == hash && WordHashing.equals(words[entry - 1], chars, offset, length))
+            {
+                break;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Finds the slot of a word, or the
+     * empty slot it would be inserted into
+     *
+     * @param word The word
+     * @param hash The word hash
+     *
+     * @return The slot
+     */
+    private int find(String word, int hash)
+    {
+        int mask = table.length - 1;
+        int slot = WordHashing.mix(hash) & mask;
+
+        int entry;
+
+        while ((entry = table[slot]) != 0)
+        {
+            if (hashes[entry - 1] == hash && words[entry - 1].equals(word))
+            {
+                break;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Inserts a new word into an empty slot
+     *
+     * @param slot The slot
+     * @param word The word
+     * @param hash The word hash
+     *
+     * @return The id given to the word
+     */
+    private int insert(int slot, String word, int hash)
+    {
+        int id = size++;
+
+        if (id == words.length)
+        {
+            words = Arrays.copyOf(words, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+
+        words[id] = word;
+        hashes[id] = hash;
+        table[slot] = id + 1;
+
+        if (size > table.length * LOAD_FACTOR)
+        {
+            rehash();
+        }
+
+        return id;
+    }
+
+    /**
+     * Doubles the amount of slots and re-inserts every word
+     */
+    private void rehash()
+    {
+        table = new int[table.length * 2];
+
+        int mask = table.length - 1;
+
+        for (int id = 0; id < size; id++)
+        {
+            int slot = WordHashing.mix(hashes[id]) & mask;
+
+            while (table[slot] != 0)
+            {
+                slot = (slot + 1) & mask;
+            }
+
+            table[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Works out the hash of a token, matching
+     * {@link String#hashCode()} of the same characters
+     *
+     * @param chars The buffer holding the token
+     * @param offset The index of the first token character
+     * @param length The amount of token characters
+     *
+     * @return The hash
+     */
+    private static int hash(char[] chars, int offset, int length)
+    {
+        int hash = 0;
+
+        for (int i = 0; i < length; i++)
+        {
+            hash = 31 * hash + chars[offset + i];
+        }
+
+        return hash;
+    }
+}
@@ -0,0 +1,56 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+/**
+ * Helpers shared by the open addressing
+ * tables which look words up by hash
+ *
+ * @see WordDictionary
+ * @see WordCounter
+ * @see SpaceSavingCounter
+ */
+final class WordHashing
+{
+    private WordHashing() {}
+
+    /**
+     * Spreads the bits of a hash so that similar
+     * words do not cluster in neighbouring slots
+     *
+     * @param hash The hash
+     *
+     * @return The mixed hash
+     */
+    static int mix(int hash)
+    {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    /**
+     * Compares a word to a range of characters
+     *
+     * @param word The word
+     * @param chars The characters
+     * @param offset The index of the first character
+     * @param length The amount of characters
+     *
+     * @return Whether the word holds exactly those characters
+     */
+    static boolean equals(String word, char[] chars, int offset, int length)
+    {
+        if (word.length() != length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++)
+        {
+            if (word.charAt(i) != chars[offset + i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,212 @@
+package me.itsmas.whatsanalysis.analysis.text;
+
+import java.util.Locale;
+
+/**
+ * Splits message content into lower case words
+ *
+ * Content is split on spaces and new lines, then
+ * each piece has any characters other than letters
+ * and apostrophes trimmed from its ends. A piece is
+ * a word if what is left is made up of only letters
+ * and apostrophes.
+ *
+ * Pieces are checked in a single scan, with ASCII
+ * letters lower cased as they are copied into a
+ * reused buffer, so no objects are created per word.
+ * Pieces holding other characters are lower cased with
+ * {@link String#toLowerCase()} first, exactly as before
+ *
+ * Instances are not thread safe
+ */
+public final class WordTokenizer implements Tokenizer
+{
+    /**
+     * The buffer tokens are copied into
+     */
+    private char[] buffer = new char[64];
+
+    /**
+     * Whether 'I' does not lower case to 'i'
+     * in the default locale
+     */
+    private final boolean dotlessI;
+
+    public WordTokenizer()
+    {
+        String language = Locale.getDefault().getLanguage();
+
+        this.dotlessI = language.equals("tr") || language.equals("az");
+    }
+
+    /**
+     * Tokenizes content, passing each word to a consumer
+     *
+     * @param content The content
+     * @param consumer The consumer
+     */
+    @Override
+    public void tokenize(CharSequence content, TokenConsumer consumer)
+    {
+        int length = content.length();
+        int start = 0;
+
+        for (int i = 0; i <= length; i++)
+        {
+            if (i == length || isSeparator(content.charAt(i)))
+            {
+                if (i > start)
+                {
+                    handlePiece(content, start, i, consumer);
+                }
+
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Handles a piece of content between separators
+     *
+     * @param content The content
+     * @param start The start of the piece, inclusive
+     * @param end The end of the piece, exclusive
+     * @param consumer The consumer
+     */
+    private void handlePiece(CharSequence content, int start, int end, TokenConsumer consumer)
+    {
+        int first = -1;
+        int last = -1;
+
+        for (int i = start; i < end; i++)
+        {
+            char c = content.charAt(i);
+
+            if (c >= 0x80 || (dotlessI && c == 'I'))
+            {
+                handleLowerCased(content.subSequence(start, end).toString().toLowerCase(), consumer);
+                return;
+            }
+
+            if (isWordChar(c))
+            {
+                if (first == -1)
+                {
+                    first = i;
+                }
+
+                last = i;
+            }
+        }
+
+        if (first == -1)
+        {
+            return;
+        }
+
+        int length = last - first + 1;
+        char[] chars = buffer(length);
+
+        for (int i = 0; i < length; i++)
+        {
+            char c = content.charAt(first + i);
+
+            if (!isWordChar(c))
+            {
+                // Only leading and trailing characters may be trimmed
+                return;
+            }
+
+            chars[i] = c <= 'Z' && c >= 'A' ? (char) (c | 0x20) : c;
+        }
+
+        consumer.accept(chars, 0, length);
+    }
+
+    /**
+     * Handles a piece which has already been lower cased
+     *
+     * @param piece The lower cased piece
+     * @param consumer The consumer
+     */
+    private void handleLowerCased(String piece, TokenConsumer consumer)
+    {
+        int first = 0;
+        int last = piece.length() - 1;
+
+        while (first <= last && !isWordChar(piece.charAt(first)))
+        {
+            first++;
+        }
+
+        while (last >= first && !isWordChar(piece.charAt(last)))
+        {
+            last--;
+        }
+
+        if (first > last)
+        {
+            return;
+        }
+
+        int length = last - first + 1;
+        char[] chars = buffer(length);
+
+        for (int i = 0; i < length; i++)
+        {
+            char c = piece.charAt(first + i);
+
+            if (!isWordChar(c))
+            {
+                return;
+            }
+
+            chars[i] = c;
+        }
+
+        consumer.accept(chars, 0, length);
+    }
+
+    /**
+     * Fetches the token buffer, growing
+     * it to hold a certain amount of characters
+     *
+     * @param length The amount of characters
+     *
+     * @return The buffer
+     */
+    private char[] buffer(int length)
+    {
+        if (buffer.length < length)
+        {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Determines whether a character separates pieces
+     *
+     * @param c The character
+     *
+     * @return Whether the character is a separator
+     */
+    private static boolean isSeparator(char c)
+    {
+        return c == ' ' || c == '\n';
+    }
+
+    /**
+     * Determines whether a character can be part
+     * of a word, i.e. is an ASCII letter or apostrophe
+     *
+     * @param c The character
+     *
+     * @return Whether the character is a word character
+     */
+    private static boolean isWordChar(char c)
+    {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '\'';
+    }
+}
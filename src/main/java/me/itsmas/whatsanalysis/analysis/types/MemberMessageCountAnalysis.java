@@ -1,16 +1,17 @@
 package me.itsmas.whatsanalysis.analysis.types;
 
-import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
+import me.itsmas.whatsanalysis.analysis.MergeableAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis.MessageCountAccumulator;
 import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis.MemberMessageCountResult;
 import me.itsmas.whatsanalysis.chat.Chat;
 import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * Analysis type for finding the
@@ -23,7 +24,7 @@ import java.util.stream.Collectors;
  * map will be sorted by message counts
  * descending
  */
-public class MemberMessageCountAnalysis implements ChatAnalysis<MemberMessageCountResult>
+public class MemberMessageCountAnalysis implements MergeableAnalysis<MessageCountAccumulator, MemberMessageCountResult>
 {
     /**
      * The default comparator to use
@@ -58,19 +59,107 @@ public class MemberMessageCountAnalysis implements ChatAnalysis<MemberMessageCou
         this.comparator = comparator;
     }
 
+    /**
+     * Fetches a key made up of the analysis
+     * type and its comparator
+     *
+     * Comparators are compared by equality, so
+     * separately created lambdas never share results
+     *
+     * @return The cache key
+     */
+    @Override
+    public Object getCacheKey()
+    {
+        return Arrays.asList(getClass(), comparator);
+    }
+
+    /**
+     * Executes the analysis using the message
+     * counts already kept by the chat,
+     * rather than walking every message
+     *
+     * @see Chat#getMessageCount(ChatMember)
+     *
+     * @param chat The chat to analyse
+     */
     @Override
     public MemberMessageCountResult execute(Chat chat)
     {
-        Map<ChatMember, Integer> sortedMap = chat.getMembers().stream()
-            .sorted(Comparator.comparing(ChatMember::getMessageCount, comparator))
-            .collect(Collectors.toMap(
-                Function.identity(),
-                ChatMember::getMessageCount,
-                (v1, v2) -> v1,
-                LinkedHashMap::new
-            ));
-
-        return new MemberMessageCountResult(sortedMap);
+        int[] messageCounts = new int[chat.getMemberCount()];
+
+        for (ChatMember member : chat.getMembers())
+        {
+            messageCounts[member.getId()] = chat.getMessageCount(member);
+        }
+
+        return new MemberMessageCountResult(chat, messageCounts);
+    }
+
+    @Override
+    public MessageCountAccumulator createAccumulator(Chat chat)
+    {
+        return new MessageCountAccumulator(chat.getMemberCount());
+    }
+
+    @Override
+    public void accumulate(MessageCountAccumulator accumulator, ChatMessage message)
+    {
+        accumulator.count(message.getSender().getId(), 1);
+    }
+
+    @Override
+    public MessageCountAccumulator combine(MessageCountAccumulator left, MessageCountAccumulator right)
+    {
+        for (int id = 0; id < right.messageCounts.length; id++)
+        {
+            left.count(id, right.messageCounts[id]);
+        }
+
+        return left;
+    }
+
+    @Override
+    public MemberMessageCountResult finish(Chat chat, MessageCountAccumulator accumulator)
+    {
+        // Copied as the accumulator may be added to after finishing
+        return new MemberMessageCountResult(chat, Arrays.copyOf(accumulator.messageCounts, chat.getMemberCount()));
+    }
+
+    /**
+     * Accumulator of message counts
+     * for a {@link MemberMessageCountAnalysis}
+     */
+    public static final class MessageCountAccumulator
+    {
+        /**
+         * The message counts indexed by member id
+         *
+         * Grown if members join while messages
+         * are appended to a chat
+         */
+        private int[] messageCounts;
+
+        private MessageCountAccumulator(int memberCount)
+        {
+            this.messageCounts = new int[memberCount];
+        }
+
+        /**
+         * Adds to the message count of a member
+         *
+         * @param id The member id
+         * @param amount The amount to add
+         */
+        private void count(int id, int amount)
+        {
+            if (id >= messageCounts.length)
+            {
+                messageCounts = Arrays.copyOf(messageCounts, id + 1);
+            }
+
+            messageCounts[id] += amount;
+        }
     }
 
     /**
@@ -78,14 +167,26 @@ public class MemberMessageCountAnalysis implements ChatAnalysis<MemberMessageCou
      */
     public class MemberMessageCountResult
     {
+        /**
+         * The chat the analysis was executed on
+         */
+        private final Chat chat;
+
+        /**
+         * The message counts indexed by member id
+         */
+        private final int[] messageCounts;
+
         /**
          * The map of {@link ChatMember} objects
-         * to their respective message count
+         * to their respective message count,
+         * sorted when first requested
          */
-        private final Map<ChatMember, Integer> messageCounts;
+        private Map<ChatMember, Integer> sorted;
 
-        private MemberMessageCountResult(Map<ChatMember, Integer> messageCounts)
+        private MemberMessageCountResult(Chat chat, int[] messageCounts)
         {
+            this.chat = chat;
             this.messageCounts = messageCounts;
         }
 
@@ -94,11 +195,18 @@ public class MemberMessageCountAnalysis implements ChatAnalysis<MemberMessageCou
          *
          * @param member The member
          *
-         * @return The member's message count
+         * @return The member's message count, or 0 if not a member of the chat
          */
         public int getMessageCount(ChatMember member)
         {
-            return messageCounts.get(member);
+            int id = member.getId();
+
+            if (id < 0 || id >= chat.getMemberCount() || chat.getMember(id) != member)
+            {
+                return 0;
+            }
+
+            return id < messageCounts.length ? messageCounts[id] : 0;
         }
 
         /**
@@ -107,9 +215,31 @@ public class MemberMessageCountAnalysis implements ChatAnalysis<MemberMessageCou
          *
          * @return Immutable sorted map of members to message counts
          */
-        public Map<ChatMember, Integer> getSorted()
+        public synchronized Map<ChatMember, Integer> getSorted()
         {
-            return Collections.unmodifiableMap(messageCounts);
+            if (sorted == null)
+            {
+                Integer[] ids = new Integer[messageCounts.length];
+
+                for (int id = 0; id < ids.length; id++)
+                {
+                    ids[id] = id;
+                }
+
+                // Stable, so ties stay in member id order
+                Arrays.sort(ids, Comparator.comparing(id -> messageCounts[id], comparator));
+
+                Map<ChatMember, Integer> map = new LinkedHashMap<>();
+
+                for (Integer id : ids)
+                {
+                    map.put(chat.getMember(id), messageCounts[id]);
+                }
+
+                sorted = Collections.unmodifiableMap(map);
+            }
+
+            return sorted;
         }
     }
 }
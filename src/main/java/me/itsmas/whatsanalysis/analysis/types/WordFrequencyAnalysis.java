@@ -1,30 +1,60 @@
 package me.itsmas.whatsanalysis.analysis.types;
 
-import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
+import me.itsmas.whatsanalysis.analysis.MergeableAnalysis;
+import me.itsmas.whatsanalysis.analysis.text.ExternalCounter;
+import me.itsmas.whatsanalysis.analysis.text.ExternalCounter.WordCount;
+import me.itsmas.whatsanalysis.analysis.text.NGramConsumer;
+import me.itsmas.whatsanalysis.analysis.text.SpaceSavingCounter;
+import me.itsmas.whatsanalysis.analysis.text.TokenConsumer;
+import me.itsmas.whatsanalysis.analysis.text.TokenLayer;
+import me.itsmas.whatsanalysis.analysis.text.TopK;
+import me.itsmas.whatsanalysis.analysis.text.WordCounter;
+import me.itsmas.whatsanalysis.analysis.text.WordDictionary;
+import me.itsmas.whatsanalysis.analysis.text.WordTokenizer;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis.WordCountAccumulator;
 import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis.WordFrequencyResult;
 import me.itsmas.whatsanalysis.chat.Chat;
 import me.itsmas.whatsanalysis.chat.ChatMessage;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 /**
  * Analysis type for top X
  * used words in a chat
+ *
+ * Words are counted exactly by default. If an amount
+ * of counters is specified in the options, words
+ * are instead counted approximately in fixed memory
+ * using a {@link SpaceSavingCounter}, and each result
+ * carries the most its uses may be overestimated by
+ *
+ * Given a heap budget, words are still counted exactly
+ * but spill to disk once the budget is used up, for
+ * corpora whose vocabulary does not fit in memory.
+ * The same goes for n-grams of consecutive words
+ * within a message, whose vocabulary grows far faster
+ *
+ * Created with {@link WordFrequencyOptions#withFromTokens(boolean)},
+ * single words are instead counted from the chat's
+ * {@link TokenLayer}, rather than by tokenizing every
+ * message again. The layer's tokenizer then decides
+ * what a word is, as it does for searches
+ *
+ * Words with equal uses are ordered by word, in
+ * {@link String#compareTo(String)} order, however
+ * they were counted
+ *
+ * @see WordFrequencyOptions
+ * @see ExternalCounter
+ * @see Chat#getTokens()
  */
-public class WordFrequencyAnalysis implements ChatAnalysis<WordFrequencyResult>
+public class WordFrequencyAnalysis implements MergeableAnalysis<WordCountAccumulator, WordFrequencyResult>
 {
-    /**
-     * The default size to limit the result to
-     */
-    private static final int DEFAULT_LIMIT = 1000;
-
     /**
      * The amount of entries to
      * limit the resulting map to
@@ -32,15 +62,39 @@ public class WordFrequencyAnalysis implements ChatAnalysis<WordFrequencyResult>
     private final int limit;
 
     /**
-     * Constructor which delegates to {@link #WordFrequencyAnalysis(int)}
-     * using the default limit
+     * The amount of counters for approximate
+     * counting, or 0 to count exactly
+     */
+    private final int counters;
+
+    /**
+     * The amount of words in each counted n-gram
+     */
+    private final int n;
+
+    /**
+     * The most heap each accumulator uses for
+     * words before spilling to disk, or 0 to
+     * keep every word in memory
+     */
+    private final long heapBudget;
+
+    /**
+     * Whether words are counted
+     * from the chat's token layer
+     */
+    private final boolean fromTokens;
+
+    /**
+     * Constructor which delegates to
+     * {@link #WordFrequencyAnalysis(WordFrequencyOptions)}
+     * using the default options
      *
-     * @see #DEFAULT_LIMIT
-     * @see #WordFrequencyAnalysis(int)
+     * @see WordFrequencyOptions#DEFAULT
      */
     public WordFrequencyAnalysis()
     {
-        this(DEFAULT_LIMIT);
+        this(WordFrequencyOptions.DEFAULT);
     }
 
     /**
@@ -49,97 +103,300 @@ public class WordFrequencyAnalysis implements ChatAnalysis<WordFrequencyResult>
      * map size to
      *
      * @param limit The limit
+     *
+     * @throws IllegalArgumentException If the limit is not positive
      */
     public WordFrequencyAnalysis(int limit)
     {
-        this.limit = limit;
+        this(WordFrequencyOptions.DEFAULT.withLimit(limit));
+    }
+
+    /**
+     * Constructor taking the options
+     * to count words with
+     *
+     * @param options The options
+     */
+    public WordFrequencyAnalysis(WordFrequencyOptions options)
+    {
+        this.limit = options.getLimit();
+        this.counters = options.getCounters();
+        this.n = options.getN();
+        this.heapBudget = options.getHeapBudget();
+        this.fromTokens = options.isFromTokens();
+    }
+
+    /**
+     * Fetches a key made up of the analysis
+     * type and every option it was created with
+     *
+     * @return The cache key
+     */
+    @Override
+    public Object getCacheKey()
+    {
+        return Arrays.asList(getClass(), limit, counters, n, heapBudget, fromTokens);
     }
 
     @Override
     public WordFrequencyResult execute(Chat chat)
     {
-        Map<String, Integer> wordFrequency = new HashMap<>();
+        if (fromTokens)
+        {
+            return new WordFrequencyResult(sortCounts(chat.getTokens()));
+        }
+
+        return MergeableAnalysis.super.execute(chat);
+    }
+
+    /**
+     * Determines whether the analysis should be fused
+     * with others, which it should not be if it
+     * counts the chat's token layer instead
+     *
+     * @param chat The chat being analysed
+     *
+     * @return Whether to fuse the analysis
+     */
+    @Override
+    public boolean isFusible(Chat chat)
+    {
+        return !fromTokens;
+    }
+
+    @Override
+    public WordCountAccumulator createAccumulator(Chat chat)
+    {
+        if (heapBudget > 0)
+        {
+            return new WordCountAccumulator(null, null, new ExternalCounter(heapBudget), n);
+        }
+
+        return counters == 0 ?
+            new WordCountAccumulator(new WordCounter(), null, null, n) :
+            new WordCountAccumulator(null, new SpaceSavingCounter(counters), null, n);
+    }
+
+    @Override
+    public void accumulate(WordCountAccumulator accumulator, ChatMessage message)
+    {
+        if (!message.isMediaMessage())
+        {
+            accumulator.addWords(message.getContent());
+        }
+    }
+
+    @Override
+    public WordCountAccumulator combine(WordCountAccumulator left, WordCountAccumulator right)
+    {
+        if (left.externalCounter != null)
+        {
+            left.externalCounter.addAll(right.externalCounter);
+            right.externalCounter.close();
+
+            return left;
+        }
+
+        if (left.counter == null)
+        {
+            return new WordCountAccumulator(null, SpaceSavingCounter.merge(left.approximateCounter, right.approximateCounter), null, n);
+        }
+
+        // Word order does not matter, so merge into the larger counter
+        WordCountAccumulator larger = left.counter.size() >= right.counter.size() ? left : right;
+        WordCountAccumulator smaller = larger == left ? right : left;
+
+        larger.counter.addAll(smaller.counter);
+        return larger;
+    }
+
+    @Override
+    public WordFrequencyResult finish(Chat chat, WordCountAccumulator accumulator)
+    {
+        if (accumulator.externalCounter != null)
+        {
+            return new WordFrequencyResult(sortCounts(accumulator.externalCounter));
+        }
 
-        chat.getMessages().stream()
-            .filter(msg -> !msg.isMediaMessage())
-            .forEach(msg -> handleMessage(msg, wordFrequency));
+        if (accumulator.counter == null)
+        {
+            return new WordFrequencyResult(sortCounts(accumulator.approximateCounter));
+        }
 
-        return new WordFrequencyResult(sortMap(wordFrequency));
+        return new WordFrequencyResult(sortCounts(accumulator.counter));
     }
 
     /**
-     * Sorts a {@link Map} of strings to
-     * integers in descending order
+     * Selects the most used words of a
+     * {@link WordCounter} in descending order
      *
-     * @param topWords The map to sort
+     * @param counter The counter to sort
      *
      * @return Map of positions to {@link WordFrequencyData} objects
      */
-    private Map<Integer, WordFrequencyData> sortMap(Map<String, Integer> topWords)
+    private Map<Integer, WordFrequencyData> sortCounts(WordCounter counter)
     {
-        AtomicInteger atomicInt = new AtomicInteger();
+        int[] slots = TopK.select(counter.capacity(), slot -> counter.wordAt(slot) != null, counter::countAt, limit,
+            (a, b) -> counter.wordAt(a).compareTo(counter.wordAt(b)));
 
-        return topWords.entrySet().stream()
-            .sorted(Comparator.comparing(Entry::getValue, Comparator.reverseOrder()))
-            .limit(limit)
-            .collect(Collectors.toMap(
-                entry -> atomicInt.incrementAndGet(),
-                entry -> new WordFrequencyData(entry.getKey(), entry.getValue()),
-                (v1, v2) -> v1,
-                LinkedHashMap::new
-            ));
+        Map<Integer, WordFrequencyData> topWords = new LinkedHashMap<>();
+
+        for (int slot : slots)
+        {
+            topWords.put(topWords.size() + 1, new WordFrequencyData(counter.wordAt(slot), counter.countAt(slot), 0));
+        }
+
+        return topWords;
     }
 
     /**
-     * Handles a chat message by
-     * adding its words to the map
+     * Counts the words of a {@link TokenLayer}
+     * and selects the most used in descending order
      *
-     * @param message The message
-     * @param topWords The top words map
+     * @param tokens The token layer to count
+     *
+     * @return Map of positions to {@link WordFrequencyData} objects
      */
-    private void handleMessage(ChatMessage message, Map<String, Integer> topWords)
+    private Map<Integer, WordFrequencyData> sortCounts(TokenLayer tokens)
     {
-        String[] split = message.getContent().toLowerCase().split("[ \n]");
+        int[] counts = tokens.countTokens();
+        WordDictionary dictionary = tokens.getDictionary();
 
-        for (String word : split)
+        int[] ids = TopK.select(counts.length, id -> counts[id] > 0, id -> counts[id], limit,
+            (a, b) -> dictionary.getWord(a).compareTo(dictionary.getWord(b)));
+
+        Map<Integer, WordFrequencyData> topWords = new LinkedHashMap<>();
+
+        for (int id : ids)
         {
-            String normalized = normalizeWord(word);
+            topWords.put(topWords.size() + 1, new WordFrequencyData(dictionary.getWord(id), counts[id], 0));
+        }
+
+        return topWords;
+    }
 
-            if (isWord(normalized))
+    /**
+     * Selects the most used words of an
+     * {@link ExternalCounter} in descending order,
+     * then closes it to delete its runs
+     *
+     * @param counter The counter to sort
+     *
+     * @return Map of positions to {@link WordFrequencyData} objects
+     */
+    private Map<Integer, WordFrequencyData> sortCounts(ExternalCounter counter)
+    {
+        Map<Integer, WordFrequencyData> topWords = new LinkedHashMap<>();
+
+        try
+        {
+            for (WordCount count : counter.top(limit))
             {
-                topWords.put(normalized, topWords.getOrDefault(normalized, 0) + 1);
+                topWords.put(topWords.size() + 1, new WordFrequencyData(count.getWord(), count.getCount(), 0));
             }
         }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        finally
+        {
+            counter.close();
+        }
+
+        return topWords;
     }
 
     /**
-     * determines whether a normalized string is a word
+     * Selects the most used words of a
+     * {@link SpaceSavingCounter} in descending order
      *
-     * @param normalized The normalized string
+     * @param counter The counter to sort
      *
-     * @return Whether the string is a word
+     * @return Map of positions to {@link WordFrequencyData} objects
      */
-    private boolean isWord(String normalized)
+    private Map<Integer, WordFrequencyData> sortCounts(SpaceSavingCounter counter)
     {
-        return !normalized.isEmpty() && normalized.matches("[a-zA-Z']+");
+        int[] indices = TopK.select(counter.size(), index -> true, counter::countAt, limit,
+            (a, b) -> counter.wordAt(a).compareTo(counter.wordAt(b)));
+
+        Map<Integer, WordFrequencyData> topWords = new LinkedHashMap<>();
+
+        for (int index : indices)
+        {
+            topWords.put(topWords.size() + 1, new WordFrequencyData(counter.wordAt(index), counter.countAt(index), counter.errorAt(index)));
+        }
+
+        return topWords;
     }
 
     /**
-     * Normalises a string
-     *
-     * Will strip all non letter and apostrophe
-     * characters from the start and end
-     * of a string. Checks should be performed
-     * after this to make sure the resulting
-     * string contains only characters
-     *
-     * @param word The word to normalize
-     *
-     * @return The normalized string
+     * Accumulator of word counts
+     * for a {@link WordFrequencyAnalysis}
      */
-    private String normalizeWord(String word)
+    public static final class WordCountAccumulator
     {
-        return word.replaceAll("^[^a-zA-Z']+|[^a-zA-Z']+$", "");
+        /**
+         * The tokenizer splitting content into words
+         */
+        private final WordTokenizer tokenizer = new WordTokenizer();
+
+        /**
+         * The exact amount of uses of each word,
+         * null if counting approximately
+         */
+        private final WordCounter counter;
+
+        /**
+         * The approximate amount of uses of
+         * each word, null if counting exactly
+         */
+        private final SpaceSavingCounter approximateCounter;
+
+        /**
+         * The exact amount of uses of each word,
+         * spilling to disk, null if counting in memory
+         */
+        private final ExternalCounter externalCounter;
+
+        /**
+         * The joiner of words into n-grams,
+         * null if counting single words
+         */
+        private final NGramConsumer nGrams;
+
+        /**
+         * The consumer of the words of each message
+         */
+        private final TokenConsumer consumer;
+
+        private WordCountAccumulator(WordCounter counter, SpaceSavingCounter approximateCounter, ExternalCounter externalCounter, int n)
+        {
+            this.counter = counter;
+            this.approximateCounter = approximateCounter;
+            this.externalCounter = externalCounter;
+
+            TokenConsumer target = counter != null ? counter : approximateCounter != null ? approximateCounter : externalCounter;
+
+            this.nGrams = n > 1 ? new NGramConsumer(n, target) : null;
+            this.consumer = nGrams != null ? nGrams : target;
+        }
+
+        /**
+         * Adds the words of a message's content
+         *
+         * @param content The content
+         */
+        private void addWords(String content)
+        {
+            if (nGrams != null)
+            {
+                // N-grams do not span messages
+                nGrams.reset();
+            }
+
+            tokenizer.tokenize(content, consumer);
+        }
     }
 
     /**
@@ -198,10 +455,17 @@ public class WordFrequencyAnalysis implements ChatAnalysis<WordFrequencyResult>
          */
         public final int uses;
 
-        private WordFrequencyData(String word, int uses)
+        /**
+         * The most the word's uses may exceed
+         * its true uses, 0 if counted exactly
+         */
+        public final int error;
+
+        private WordFrequencyData(String word, int uses, int error)
         {
             this.word = word;
             this.uses = uses;
+            this.error = error;
         }
     }
 }
@@ -0,0 +1,269 @@
+package me.itsmas.whatsanalysis.analysis.types;
+
+import me.itsmas.whatsanalysis.analysis.text.ExternalCounter;
+import me.itsmas.whatsanalysis.analysis.text.SpaceSavingCounter;
+import me.itsmas.whatsanalysis.chat.Chat;
+
+/**
+ * Options for a {@link WordFrequencyAnalysis}
+ *
+ * Options are immutable, each with* method
+ * returns a copy with the option changed
+ *
+ * Words are counted exactly in memory by default.
+ * Approximate counting and a heap budget are two
+ * ways of bounding memory, so only one may be set,
+ * and counting the token layer uses neither nor
+ * counts n-grams. Setting an option which cannot
+ * be combined with one already set is rejected
+ */
+public final class WordFrequencyOptions
+{
+    /**
+     * The default options, which count the top
+     * 1000 single words exactly in memory
+     */
+    public static final WordFrequencyOptions DEFAULT = new WordFrequencyOptions(1000, 0, 1, 0, false);
+
+    /**
+     * The amount of entries to
+     * limit the resulting map to
+     */
+    private final int limit;
+
+    /**
+     * The amount of counters for approximate
+     * counting, or 0 to count exactly
+     */
+    private final int counters;
+
+    /**
+     * The amount of words in each counted n-gram
+     */
+    private final int n;
+
+    /**
+     * The most heap each accumulator uses for
+     * words before spilling to disk, or 0 to
+     * keep every word in memory
+     */
+    private final long heapBudget;
+
+    /**
+     * Whether words are counted
+     * from the chat's token layer
+     */
+    private final boolean fromTokens;
+
+    private WordFrequencyOptions(int limit, int counters, int n, long heapBudget, boolean fromTokens)
+    {
+        this.limit = limit;
+        this.counters = counters;
+        this.n = n;
+        this.heapBudget = heapBudget;
+        this.fromTokens = fromTokens;
+    }
+
+    /**
+     * Fetches the amount of entries
+     * to limit the resulting map to
+     *
+     * @see #limit
+     *
+     * @return The limit
+     */
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * Fetches the amount of counters
+     * for approximate counting
+     *
+     * @see #counters
+     *
+     * @return The amount of counters, or 0 if counting exactly
+     */
+    public int getCounters()
+    {
+        return counters;
+    }
+
+    /**
+     * Fetches the amount of words
+     * in each counted n-gram
+     *
+     * @see #n
+     *
+     * @return The amount of words, 1 for single words
+     */
+    public int getN()
+    {
+        return n;
+    }
+
+    /**
+     * Fetches the most heap each accumulator
+     * uses for words before spilling to disk
+     *
+     * @see #heapBudget
+     *
+     * @return The heap budget in bytes, or 0 if every word is kept in memory
+     */
+    public long getHeapBudget()
+    {
+        return heapBudget;
+    }
+
+    /**
+     * Fetches whether words are counted
+     * from the chat's token layer
+     *
+     * @see #fromTokens
+     *
+     * @return Whether to count the chat's token layer
+     */
+    public boolean isFromTokens()
+    {
+        return fromTokens;
+    }
+
+    /**
+     * Creates a copy of these options with a
+     * different limit of the resulting map size
+     *
+     * @param limit The amount of entries to limit the result to
+     *
+     * @return The new options
+     */
+    public WordFrequencyOptions withLimit(int limit)
+    {
+        if (limit < 1)
+        {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+
+        return new WordFrequencyOptions(limit, counters, n, heapBudget, fromTokens);
+    }
+
+    /**
+     * Creates a copy of these options with
+     * a different amount of counters to
+     * count words approximately with
+     *
+     * With m counters over N words in total, every
+     * word used more than N / m times is found, and
+     * its uses are overestimated by at most N / m.
+     * The amount of counters should be well above the
+     * limit for the lower positions to be accurate
+     *
+     * @param counters The amount of counters, or 0 to count exactly
+     *
+     * @return The new options
+     *
+     * @see SpaceSavingCounter
+     */
+    public WordFrequencyOptions withCounters(int counters)
+    {
+        if (counters < 0)
+        {
+            throw new IllegalArgumentException("Counters must not be negative");
+        }
+
+        if (counters > 0 && (heapBudget > 0 || fromTokens))
+        {
+            throw new IllegalArgumentException("Approximate counting cannot be combined with a heap budget or the token layer");
+        }
+
+        return new WordFrequencyOptions(limit, counters, n, heapBudget, fromTokens);
+    }
+
+    /**
+     * Creates a copy of these options with a
+     * different amount of words in each n-gram
+     *
+     * N-grams are made of consecutive words within
+     * a message, and may be counted exactly, within
+     * a heap budget or approximately
+     *
+     * @param n The amount of words in each n-gram, 1 for single words
+     *
+     * @return The new options
+     */
+    public WordFrequencyOptions withN(int n)
+    {
+        if (n < 1)
+        {
+            throw new IllegalArgumentException("N-grams must hold at least one word");
+        }
+
+        if (n > 1 && fromTokens)
+        {
+            throw new IllegalArgumentException("N-grams cannot be counted from the token layer");
+        }
+
+        return new WordFrequencyOptions(limit, counters, n, heapBudget, fromTokens);
+    }
+
+    /**
+     * Creates a copy of these options with a
+     * different heap budget for counting exactly
+     *
+     * Each accumulator holds at most roughly the budget
+     * in words, writing the rest to temporary files
+     * which are merged when finishing. Accumulators
+     * combined in parallel each have their own budget
+     *
+     * The files are deleted once the result is finished,
+     * so such accumulators cannot be finished twice or
+     * added to afterwards, as an incremental chat would
+     *
+     * @param heapBudget The heap budget in bytes, or 0 to keep every word in memory
+     *
+     * @return The new options
+     *
+     * @see ExternalCounter
+     */
+    public WordFrequencyOptions withHeapBudget(long heapBudget)
+    {
+        if (heapBudget < 0)
+        {
+            throw new IllegalArgumentException("Heap budget must not be negative");
+        }
+
+        if (heapBudget > 0 && (counters > 0 || fromTokens))
+        {
+            throw new IllegalArgumentException("A heap budget cannot be combined with approximate counting or the token layer");
+        }
+
+        return new WordFrequencyOptions(limit, counters, n, heapBudget, fromTokens);
+    }
+
+    /**
+     * Creates a copy of these options with
+     * words counted from the chat's token
+     * layer or by tokenizing every message
+     *
+     * Counting the layer tokenizes the chat once for
+     * every such analysis and search, building the layer
+     * if needed. Such analyses are run on their own
+     * rather than fused with others, as they read no
+     * messages, and count single words exactly in memory
+     *
+     * @param fromTokens Whether to count the chat's token layer
+     *
+     * @return The new options
+     *
+     * @see Chat#getTokens()
+     */
+    public WordFrequencyOptions withFromTokens(boolean fromTokens)
+    {
+        if (fromTokens && (counters > 0 || n > 1 || heapBudget > 0))
+        {
+            throw new IllegalArgumentException("The token layer is only counted exactly in memory for single words");
+        }
+
+        return new WordFrequencyOptions(limit, counters, n, heapBudget, fromTokens);
+    }
+}
@@ -1,11 +1,29 @@
 package me.itsmas.whatsanalysis.chat;
 
+import me.itsmas.whatsanalysis.analysis.AnalysisCache;
+import me.itsmas.whatsanalysis.analysis.AnalysisExecutor;
+import me.itsmas.whatsanalysis.analysis.AnalysisResults;
 import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
+import me.itsmas.whatsanalysis.analysis.MergeableAnalysis;
+import me.itsmas.whatsanalysis.analysis.text.TokenLayer;
+import me.itsmas.whatsanalysis.analysis.text.Tokenizer;
+import me.itsmas.whatsanalysis.analysis.text.WordTokenizer;
+import me.itsmas.whatsanalysis.search.ChatIndex;
+import me.itsmas.whatsanalysis.search.SearchQuery;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 /**
  * Class holding data about a chat
@@ -13,26 +31,365 @@ import java.util.concurrent.CompletableFuture;
 public class Chat
 {
     /**
-     * The chat members
+     * The estimated heap used by each member
+     */
+    private static final int MEMBER_BYTES = 128;
+
+    /**
+     * The chat members, copied from those the chat
+     * was created with and shared with its slices
      */
     private final Set<ChatMember> members;
 
+    /**
+     * The chat members indexed by id, replaced
+     * once the messages of new members are added
+     */
+    private volatile ChatMember[] membersById;
+
     /**
      * The chat messages
      */
     private final List<ChatMessage> messages;
 
+    /**
+     * The columns holding the chat messages,
+     * if this is a columnar chat
+     */
+    private final MessageColumns columns;
+
+    /**
+     * The index of the chat's words,
+     * built when first searched
+     */
+    private volatile ChatIndex index;
+
+    /**
+     * The index of the times messages
+     * were sent, built when first sliced
+     */
+    private volatile TimeIndex timeIndex;
+
+    /**
+     * The tokens of the chat's messages,
+     * built when first requested
+     */
+    private volatile TokenLayer tokens;
+
+    /**
+     * The cache of analysis results,
+     * null unless enabled
+     */
+    private volatile AnalysisCache resultCache;
+
+    /**
+     * Whether the chat is shared,
+     * so must not be extended
+     */
+    private volatile boolean readOnly = false;
+
+    /**
+     * Constructor for a chat of message objects,
+     * which are attached to their senders
+     *
+     * @param members The chat members
+     * @param messages The messages
+     *
+     * @throws IllegalArgumentException If a member has no id,
+     *         or the ids do not run from 0 to the member count
+     *
+     * @see ChatMember#assignIds(Collection)
+     */
     public Chat(Set<ChatMember> members, List<ChatMessage> messages)
     {
-        this.members = members;
+        this.members = new LinkedHashSet<>(members);
+        this.membersById = indexMembers(this.members);
+        this.messages = messages;
+        this.columns = null;
+    }
+
+    /**
+     * Constructor for a columnar chat, whose
+     * messages are held in {@link MessageColumns}
+     * rather than as separate objects
+     *
+     * The chat holds copies of the members bound
+     * to the columns, which fetch their messages
+     * from them, so the members given are left
+     * unchanged and may be used by other chats
+     *
+     * @param members The chat members
+     * @param columns The columns holding the messages
+     *
+     * @throws IllegalArgumentException If a member has no id,
+     *         or the ids do not run from 0 to the member count
+     *
+     * @see ChatMember#assignIds(Collection)
+     */
+    public Chat(Set<ChatMember> members, MessageColumns columns)
+    {
+        this.columns = columns;
+        this.members = new LinkedHashSet<>(bindMembers(members));
+        this.membersById = indexMembers(this.members);
+        this.messages = new ColumnarMessageList(this, columns, null);
+    }
+
+    /**
+     * Constructor for a slice of a chat,
+     * sharing the chat's members
+     *
+     * Slices are read only, as extending
+     * one would change the chat's members
+     *
+     * @param chat The chat being sliced
+     * @param messages The messages of the slice
+     */
+    Chat(Chat chat, List<ChatMessage> messages)
+    {
+        this.members = chat.members;
+        this.membersById = chat.membersById;
         this.messages = messages;
+        this.columns = null;
+        this.readOnly = true;
+    }
+
+    /**
+     * Extends the chat with messages appended to its export
+     *
+     * New members must continue on from the existing
+     * member ids, and new messages are attached to their
+     * senders. A columnar chat holds bound copies of new
+     * members, as it does when created. New members can be looked up by id only
+     * once their messages are added. The chat must not be
+     * read while it is being extended, and a chat of
+     * message objects must have been created with a
+     * modifiable message list
+     *
+     * @param newMembers The members who joined in the appended messages
+     * @param newMessages The appended messages
+     *
+     * @throws IllegalStateException If the chat is read only
+     * @throws IllegalArgumentException If a new member has no id,
+     *         or the ids do not continue on from the existing ones
+     */
+    public void extend(List<ChatMember> newMembers, List<ChatMessage> newMessages)
+    {
+        if (readOnly)
+        {
+            throw new IllegalStateException("Read only chats cannot be extended");
+        }
+
+        ChatMember[] current = membersById;
+        ChatMember[] extended = Arrays.copyOf(current, current.length + newMembers.size());
+
+        List<ChatMember> joined = columns != null ? bindMembers(newMembers) : newMembers;
+
+        placeMembers(joined, extended, current.length);
+        members.addAll(joined);
+
+        for (ChatMessage message : newMessages)
+        {
+            if (columns != null)
+            {
+                columns.add(message.getTime().getTime(), message.getSender().getId(), message.getContent());
+            }
+            else
+            {
+                messages.add(message);
+                message.getSender().addMessage(message);
+            }
+        }
+
+        membersById = extended;
+
+        // Dropped once the messages are in, so nothing built
+        // while they were being added is kept. Rebuilt when
+        // next searched, sliced or tokenized
+        index = null;
+        timeIndex = null;
+        tokens = null;
+
+        AnalysisCache cache = resultCache;
+
+        if (cache != null)
+        {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Stops the chat from being extended, for
+     * chats shared between several callers
+     *
+     * Read only chats also keep their result cache
+     * and token layer once created, as other callers
+     * may be relying on them
+     *
+     * @see #extend(List, List)
+     * @see #enableResultCache(int)
+     * @see #buildTokens(Supplier)
+     */
+    public void makeReadOnly()
+    {
+        readOnly = true;
+    }
+
+    /**
+     * Determines whether the chat can be extended
+     *
+     * @see #readOnly
+     *
+     * @return Whether the chat is read only
+     */
+    public boolean isReadOnly()
+    {
+        return readOnly;
+    }
+
+    /**
+     * Indexes a set of members by id
+     *
+     * @param members The members
+     *
+     * @return Array of the members by id
+     */
+    private static ChatMember[] indexMembers(Set<ChatMember> members)
+    {
+        ChatMember[] membersById = new ChatMember[members.size()];
+
+        placeMembers(members, membersById, 0);
+
+        return membersById;
+    }
+
+    /**
+     * Places members into an array by id
+     *
+     * @param members The members
+     * @param membersById The array of members by id
+     * @param from The lowest id the members may have
+     */
+    private static void placeMembers(Collection<ChatMember> members, ChatMember[] membersById, int from)
+    {
+        for (ChatMember member : members)
+        {
+            checkRegistered(member);
+
+            int id = member.getId();
+
+            if (id < from || id >= membersById.length || membersById[id] != null)
+            {
+                throw new IllegalArgumentException("Member ids must be unique and run from 0 to the member count");
+            }
+
+            membersById[id] = member;
+        }
+    }
+
+    /**
+     * Creates copies of members bound to
+     * the columns of this columnar chat
+     *
+     * @param members The members
+     *
+     * @return The bound copies, in the same order
+     */
+    private List<ChatMember> bindMembers(Collection<ChatMember> members)
+    {
+        List<ChatMember> bound = new ArrayList<>(members.size());
+
+        for (ChatMember member : members)
+        {
+            checkRegistered(member);
+            bound.add(member.bind(this, columns));
+        }
+
+        return bound;
+    }
+
+    /**
+     * Makes sure a member has an id
+     *
+     * @param member The member
+     *
+     * @throws IllegalArgumentException If the member was created without an id
+     */
+    private static void checkRegistered(ChatMember member)
+    {
+        if (!member.isRegistered())
+        {
+            throw new IllegalArgumentException("Members created without an id must be given one by ChatMember#assignIds");
+        }
+    }
+
+    /**
+     * Starts caching the results of single analyses
+     * executed on the chat, replacing any cache
+     * already enabled
+     *
+     * Results are cached by {@link ChatAnalysis#getCacheKey()}
+     * until the chat is extended. Several analyses executed
+     * together are fused as normal rather than cached
+     *
+     * A read only chat keeps the cache already enabled,
+     * which is returned instead, so every caller sharing
+     * the chat shares one cache
+     *
+     * @see AnalysisCache
+     *
+     * @param maxEntries The most results to keep
+     *
+     * @return The cache
+     */
+    public synchronized AnalysisCache enableResultCache(int maxEntries)
+    {
+        AnalysisCache cache = resultCache;
+
+        if (cache == null || !readOnly)
+        {
+            resultCache = cache = new AnalysisCache(maxEntries);
+        }
+
+        return cache;
+    }
+
+    /**
+     * Stops caching analysis results,
+     * dropping those already cached
+     *
+     * @throws IllegalStateException If the chat is read only
+     */
+    public synchronized void disableResultCache()
+    {
+        if (readOnly)
+        {
+            throw new IllegalStateException("Read only chats keep their result cache");
+        }
+
+        resultCache = null;
+    }
+
+    /**
+     * Fetches the cache of analysis results
+     *
+     * @see #resultCache
+     *
+     * @return An optional of the cache, present if enabled
+     */
+    public Optional<AnalysisCache> getResultCache()
+    {
+        return Optional.ofNullable(resultCache);
     }
 
     /**
      * Executes a {@link ChatAnalysis}
      * and returns the result
      *
-     * @see ChatAnalysis#execute(Chat)
+     * The result is fetched from the result
+     * cache instead if it is enabled
+     *
+     * @see AnalysisExecutor#execute(Chat, ChatAnalysis)
+     * @see #enableResultCache(int)
      *
      * @param analysis The analysis
      *
@@ -40,7 +397,104 @@ public class Chat
      */
     public <T> T executeAnalysis(ChatAnalysis<T> analysis)
     {
-        return analysis.execute(this);
+        AnalysisCache cache = resultCache;
+
+        if (cache != null)
+        {
+            return cache.get(analysis, () -> AnalysisExecutor.execute(this, analysis));
+        }
+
+        return AnalysisExecutor.execute(this, analysis);
+    }
+
+    /**
+     * Executes several {@link ChatAnalysis} together
+     * and returns all of their results
+     *
+     * @see AnalysisExecutor#execute(Chat, Collection)
+     *
+     * @param analyses The analyses
+     *
+     * @return The analysis results
+     */
+    public AnalysisResults executeAnalyses(Collection<? extends ChatAnalysis<?>> analyses)
+    {
+        return AnalysisExecutor.execute(this, analyses);
+    }
+
+    /**
+     * Executes several {@link ChatAnalysis} together
+     * and returns all of their results
+     *
+     * @see #executeAnalyses(Collection)
+     *
+     * @param analyses The analyses
+     *
+     * @return The analysis results
+     */
+    public AnalysisResults executeAnalyses(ChatAnalysis<?>... analyses)
+    {
+        return executeAnalyses(Arrays.asList(analyses));
+    }
+
+    /**
+     * Executes a {@link ChatAnalysis} in parallel
+     * on the common {@link ForkJoinPool}
+     *
+     * @see #executeAnalysisParallel(ChatAnalysis, ForkJoinPool)
+     *
+     * @param analysis The analysis
+     *
+     * @return The analysis result
+     */
+    public <T> T executeAnalysisParallel(ChatAnalysis<T> analysis)
+    {
+        return executeAnalysisParallel(analysis, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Executes a {@link ChatAnalysis} in parallel
+     *
+     * Only a {@link MergeableAnalysis} can be split
+     * across threads, other analyses are executed
+     * on the calling thread as normal. The result
+     * is fetched from the result cache if it is enabled,
+     * apart from results of sequential execution
+     *
+     * @see AnalysisCache#getParallel(ChatAnalysis, int, Supplier)
+     * @see AnalysisExecutor#executeParallel(Chat, ChatAnalysis, ForkJoinPool)
+     *
+     * @param analysis The analysis
+     * @param pool The pool to execute on
+     *
+     * @return The analysis result
+     */
+    public <T> T executeAnalysisParallel(ChatAnalysis<T> analysis, ForkJoinPool pool)
+    {
+        AnalysisCache cache = resultCache;
+
+        if (cache != null)
+        {
+            return cache.getParallel(analysis, pool.getParallelism(), () -> AnalysisExecutor.executeParallel(this, analysis, pool));
+        }
+
+        return AnalysisExecutor.executeParallel(this, analysis, pool);
+    }
+
+    /**
+     * Executes several {@link ChatAnalysis} together in parallel
+     * and returns all of their results
+     *
+     * @see AnalysisExecutor#executeParallel(Chat, Collection, ForkJoinPool)
+     *
+     * @param analyses The analyses
+     * @param pool The pool to execute on
+     *
+     * @return The analysis results
+     */
+    public AnalysisResults executeAnalysesParallel(Collection<? extends ChatAnalysis<?>> analyses, ForkJoinPool pool)
+    {
+        return AnalysisExecutor.executeParallel(this, analyses, pool);
     }
 
     /**
@@ -58,6 +512,300 @@ public class Chat
         return CompletableFuture.supplyAsync(() -> executeAnalysis(analysis));
     }
 
+    /**
+     * Executes a {@link ChatAnalysis} asynchronously
+     * on an {@link Executor} and returns the result
+     *
+     * @see #executeAnalysisAsync(ChatAnalysis)
+     *
+     * @param analysis The analysis
+     * @param executor The executor to run the analysis on
+     *
+     * @return A {@link CompletableFuture} holding the analysis result
+     */
+    public <T> CompletableFuture<T> executeAnalysisAsync(ChatAnalysis<T> analysis, Executor executor)
+    {
+        return CompletableFuture.supplyAsync(() -> executeAnalysis(analysis), executor);
+    }
+
+    /**
+     * Creates a view of the messages
+     * sent within a period of time
+     *
+     * The view is a chat which any {@link ChatAnalysis}
+     * can be executed on, touching only the messages
+     * in the period. Messages are found by binary search
+     * on an index of message times built on first use,
+     * which also sorts them by time if the export
+     * is not in time order
+     *
+     * @param from The start of the period, inclusive
+     * @param to The end of the period, exclusive
+     *
+     * @return The chat of messages within the period
+     */
+    public Chat slice(Date from, Date to)
+    {
+        return slice(from.getTime(), to.getTime());
+    }
+
+    /**
+     * Creates a view of the messages
+     * sent within a period of time
+     *
+     * @see #slice(Date, Date)
+     *
+     * @param from The start of the period in epoch milliseconds, inclusive
+     * @param to The end of the period in epoch milliseconds, exclusive
+     *
+     * @return The chat of messages within the period
+     */
+    Chat slice(long from, long to)
+    {
+        TimeIndex times = getTimeIndex();
+
+        if (times.isSorted())
+        {
+            int start = times.lowerBound(from, 0, times.size());
+            int end = Math.max(start, times.lowerBound(to, start, times.size()));
+
+            return new ChatSlice(this, start, end, null);
+        }
+
+        return new ChatSlice(this, 0, 0, times.find(from, to));
+    }
+
+    /**
+     * Fetches the index of the times messages were
+     * sent, building it the first time it is requested
+     *
+     * @return The index
+     */
+    TimeIndex getTimeIndex()
+    {
+        TimeIndex current = timeIndex;
+
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                current = timeIndex;
+
+                if (current == null)
+                {
+                    timeIndex = current = TimeIndex.build(messages, columns);
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Searches the chat's messages, indexing
+     * its words first if it has not been searched
+     *
+     * @see SearchQuery
+     *
+     * @param query The query
+     *
+     * @return The matching messages, in order
+     */
+    public List<ChatMessage> search(SearchQuery query)
+    {
+        return getIndex().searchMessages(query);
+    }
+
+    /**
+     * Fetches the index of the chat's words,
+     * building it the first time it is requested
+     *
+     * @return The index
+     */
+    public ChatIndex getIndex()
+    {
+        ChatIndex current = index;
+
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                current = index;
+
+                if (current == null)
+                {
+                    index = current = ChatIndex.build(this);
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Fetches the index of the chat's words,
+     * building it in parallel if it has not been
+     * built yet, to be used by later searches
+     *
+     * @see #getIndex()
+     *
+     * @param pool The pool to index on
+     *
+     * @return The index
+     */
+    public ChatIndex buildIndex(ForkJoinPool pool)
+    {
+        ChatIndex current = index;
+
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                current = index;
+
+                if (current == null)
+                {
+                    index = current = ChatIndex.build(this, pool);
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Fetches the tokens of the chat's messages,
+     * tokenizing them with a {@link WordTokenizer}
+     * the first time they are requested
+     *
+     * The search index is built from these tokens,
+     * so searches and analyses reading the tokens
+     * agree on what a word is
+     *
+     * @see TokenLayer
+     *
+     * @return The token layer
+     */
+    public TokenLayer getTokens()
+    {
+        TokenLayer current = tokens;
+
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                current = tokens;
+
+                if (current == null)
+                {
+                    tokens = current = TokenLayer.build(messages, WordTokenizer::new);
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Fetches the tokens of the chat's messages,
+     * tokenizing them in parallel with a {@link
+     * WordTokenizer} if they have not been yet
+     *
+     * @see #getTokens()
+     *
+     * @param pool The pool to tokenize on
+     *
+     * @return The token layer
+     */
+    public TokenLayer getTokens(ForkJoinPool pool)
+    {
+        TokenLayer current = tokens;
+
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                current = tokens;
+
+                if (current == null)
+                {
+                    tokens = current = TokenLayer.build(messages, WordTokenizer::new, pool);
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Tokenizes the chat's messages with a tokenizer,
+     * replacing the token layer used from then on
+     *
+     * The search index and any cached analysis
+     * results are dropped, as they depend on
+     * how the chat was tokenized
+     *
+     * @see #getTokens()
+     *
+     * @param tokenizers Creates the tokenizer to use
+     *
+     * @return The token layer
+     *
+     * @throws IllegalStateException If the chat is read only
+     */
+    public TokenLayer buildTokens(Supplier<? extends Tokenizer> tokenizers)
+    {
+        if (readOnly)
+        {
+            throw new IllegalStateException("Read only chats cannot be tokenized again");
+        }
+
+        TokenLayer built = TokenLayer.build(messages, tokenizers);
+
+        synchronized (this)
+        {
+            tokens = built;
+            index = null;
+        }
+
+        AnalysisCache cache = resultCache;
+
+        if (cache != null)
+        {
+            // Results counted from tokens may change
+            cache.invalidate();
+        }
+
+        return built;
+    }
+
+    /**
+     * Estimates the heap retained by the
+     * chat's messages and members
+     *
+     * Caches built on the chat, such as its
+     * search index, are not counted. Visits
+     * every message unless the chat is columnar
+     *
+     * @return The estimated size in bytes
+     */
+    public long estimateRetainedBytes()
+    {
+        long bytes = (long) MEMBER_BYTES * membersById.length;
+
+        if (columns != null)
+        {
+            return bytes + columns.estimateBytes();
+        }
+
+        for (ChatMessage message : messages)
+        {
+            bytes += message.estimateBytes();
+        }
+
+        return bytes;
+    }
+
     /**
      * Fetches the chat members
      *
@@ -70,6 +818,61 @@ public class Chat
         return Collections.unmodifiableSet(members);
     }
 
+    /**
+     * Fetches a chat member by id
+     *
+     * @see ChatMember#getId()
+     *
+     * @param id The member id
+     *
+     * @return The member
+     */
+    public ChatMember getMember(int id)
+    {
+        return membersById[id];
+    }
+
+    /**
+     * Fetches the amount of members in the chat,
+     * which is also the upper bound of member ids
+     *
+     * @see #members
+     *
+     * @return The member count
+     */
+    public int getMemberCount()
+    {
+        return membersById.length;
+    }
+
+    /**
+     * Fetches the amount of messages
+     * in the chat sent by a member
+     *
+     * @param member The member
+     *
+     * @return The message count
+     */
+    public int getMessageCount(ChatMember member)
+    {
+        return member.getMessageCount();
+    }
+
+    /**
+     * Fetches the columns holding the chat messages
+     *
+     * Analyses can read these directly to avoid
+     * creating a {@link ChatMessage} per message
+     *
+     * @see #columns
+     *
+     * @return An optional of the columns, present for columnar chats
+     */
+    public Optional<MessageColumns> getColumns()
+    {
+        return Optional.ofNullable(columns);
+    }
+
     /**
      * Fetches the chat messages ordered by time sent
      *
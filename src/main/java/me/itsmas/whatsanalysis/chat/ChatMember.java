@@ -1,6 +1,7 @@
 package me.itsmas.whatsanalysis.chat;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -9,6 +10,16 @@ import java.util.List;
  */
 public class ChatMember
 {
+    /**
+     * The id of members not yet registered with a chat
+     */
+    static final int UNREGISTERED = -1;
+
+    /**
+     * The id of the member, unique and dense within its chat
+     */
+    private int id;
+
     /**
      * The name of the member
      */
@@ -19,12 +30,138 @@ public class ChatMember
      */
     private final List<ChatMessage> messages;
 
+    /**
+     * The columns holding the member's messages,
+     * if the member belongs to a columnar chat
+     */
+    private MessageColumns columns = null;
+
+    /**
+     * The chat the member belongs to,
+     * if it is a columnar chat
+     */
+    private Chat chat = null;
+
+    public ChatMember(int id, String name)
+    {
+        if (id < 0)
+        {
+            throw new IllegalArgumentException("Member ids must not be negative");
+        }
+
+        this.id = id;
+        this.name = name;
+        this.messages = new ArrayList<>();
+    }
+
+    /**
+     * Constructor for a member without an id, which
+     * must be given one by {@link #assignIds(Collection)}
+     * before it joins a chat
+     *
+     * @param name The name of the member
+     *
+     * @deprecated Members should be given their id up front,
+     * so it is known before they join a chat
+     *
+     * @see #ChatMember(int, String)
+     */
+    @Deprecated
     public ChatMember(String name)
     {
+        this.id = UNREGISTERED;
         this.name = name;
         this.messages = new ArrayList<>();
     }
 
+    /**
+     * Fetches the id of the member
+     *
+     * Ids run from zero up to the amount of members in
+     * the chat, so they can be used to index arrays
+     *
+     * @see #id
+     *
+     * @return The member's id, or -1 if it has not joined a chat
+     */
+    public int getId()
+    {
+        return id;
+    }
+
+    /**
+     * Determines whether the member has an id
+     *
+     * @return Whether the member is registered
+     */
+    boolean isRegistered()
+    {
+        return id != UNREGISTERED;
+    }
+
+    /**
+     * Gives a member created without an id its id
+     *
+     * @param id The id
+     */
+    private void register(int id)
+    {
+        if (this.id != UNREGISTERED)
+        {
+            throw new IllegalStateException("Member already has an id");
+        }
+
+        this.id = id;
+    }
+
+    /**
+     * Gives the members created without an id
+     * the lowest ids not taken by the others,
+     * in the order the members are given
+     *
+     * @param members Every member of a chat
+     *
+     * @throws IllegalArgumentException If the members with ids
+     *         do not have unique ids below the member count
+     */
+    public static void assignIds(Collection<ChatMember> members)
+    {
+        boolean[] taken = new boolean[members.size()];
+
+        for (ChatMember member : members)
+        {
+            if (!member.isRegistered())
+            {
+                continue;
+            }
+
+            if (member.id >= taken.length || taken[member.id])
+            {
+                throw new IllegalArgumentException("Member ids must be unique and run from 0 to the member count");
+            }
+
+            taken[member.id] = true;
+        }
+
+        int free = 0;
+
+        for (ChatMember member : members)
+        {
+            if (member.isRegistered())
+            {
+                continue;
+            }
+
+            while (taken[free])
+            {
+                free++;
+            }
+
+            member.register(free);
+            taken[free] = true;
+        }
+    }
+
     /**
      * Fetches the name of the member
      *
@@ -46,9 +183,34 @@ public class ChatMember
      */
     public void addMessage(ChatMessage message)
     {
+        if (columns != null)
+        {
+            throw new IllegalStateException("Messages of columnar chats are held by the chat");
+        }
+
         messages.add(message);
     }
 
+    /**
+     * Creates a copy of this member bound to the
+     * columns of a columnar chat, which hold its
+     * messages, leaving this member unchanged
+     *
+     * @param chat The chat
+     * @param columns The columns
+     *
+     * @return The bound copy
+     */
+    ChatMember bind(Chat chat, MessageColumns columns)
+    {
+        ChatMember bound = new ChatMember(id, name);
+
+        bound.chat = chat;
+        bound.columns = columns;
+
+        return bound;
+    }
+
     /**
      * Fetches the member's messages
      *
@@ -58,6 +220,11 @@ public class ChatMember
      */
     public List<ChatMessage> getMessages()
     {
+        if (columns != null)
+        {
+            return new ColumnarMessageList(chat, columns, columns.getSenderIndices(id));
+        }
+
         return Collections.unmodifiableList(messages);
     }
 
@@ -70,6 +237,11 @@ public class ChatMember
      */
     public int getMessageCount()
     {
-        return getMessages().size();
+        if (columns != null)
+        {
+            return columns.getSenderCount(id);
+        }
+
+        return messages.size();
     }
 }
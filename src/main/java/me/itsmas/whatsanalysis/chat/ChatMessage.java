@@ -19,6 +19,20 @@ public class ChatMessage
      */
     private static final String defaultFormat = "%s - %s: %s";
 
+    /**
+     * The content of a media message
+     *
+     * Parsers give every media message this same
+     * instance rather than a copy of their own
+     */
+    public static final String MEDIA_CONTENT = "<Media omitted>";
+
+    /**
+     * The estimated heap used by a message besides its
+     * content, including its time and its list entries
+     */
+    static final int MESSAGE_BYTES = 112;
+
     /**
      * The time the message was sent
      */
@@ -41,6 +55,29 @@ public class ChatMessage
         this.content = content;
     }
 
+    /**
+     * Constructor for subclasses which
+     * fetch their data from elsewhere
+     * and override all getters
+     */
+    ChatMessage()
+    {
+        this(null, null, null);
+    }
+
+    /**
+     * Constructor for subclasses which fetch
+     * only their content from elsewhere
+     * and override {@link #getContent()}
+     *
+     * @param time The time the message was sent
+     * @param sender The message's sender
+     */
+    ChatMessage(Date time, ChatMember sender)
+    {
+        this(time, sender, null);
+    }
+
     /**
      * Fetches the message time
      *
@@ -60,7 +97,7 @@ public class ChatMessage
      */
     public String getTimeDisplay()
     {
-        return dateDisplay.format(time);
+        return dateDisplay.format(getTime());
     }
 
     /**
@@ -88,7 +125,7 @@ public class ChatMessage
      */
     public boolean isMediaMessage()
     {
-        return getContent().equals("<Media omitted>");
+        return getContent().equals(MEDIA_CONTENT);
     }
 
     /**
@@ -114,4 +151,15 @@ public class ChatMessage
     {
         return content;
     }
+
+    /**
+     * Estimates the heap retained by the message
+     *
+     * @return The estimated size in bytes
+     */
+    long estimateBytes()
+    {
+        // Media messages share a single content string
+        return isMediaMessage() ? MESSAGE_BYTES : MESSAGE_BYTES + 2L * getContent().length();
+    }
 }
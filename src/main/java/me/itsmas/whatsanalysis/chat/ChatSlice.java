@@ -0,0 +1,143 @@
+package me.itsmas.whatsanalysis.chat;
+
+import java.util.List;
+
+/**
+ * A view of the messages of a {@link Chat}
+ * sent within a period of time
+ *
+ * Slices share the members of the chat they
+ * were taken from, whose own message lists
+ * still cover the whole chat, so per member
+ * counts should be fetched from the slice
+ *
+ * @see Chat#slice(java.util.Date, java.util.Date)
+ */
+final class ChatSlice extends Chat
+{
+    /**
+     * The whole chat the slice was taken from
+     */
+    private final Chat chat;
+
+    /**
+     * The messages of the slice
+     */
+    private final SliceMessageList slice;
+
+    /**
+     * The amount of messages sent by each
+     * member by id, counted when first requested
+     */
+    private volatile int[] messageCounts;
+
+    /**
+     * Constructor taking a range or set of
+     * ordinals of messages of the whole chat
+     *
+     * @param chat The whole chat
+     * @param start The first message ordinal, inclusive
+     * @param end The last message ordinal, exclusive
+     * @param ordinals The message ordinals, or null to take the range
+     */
+    ChatSlice(Chat chat, int start, int end, int[] ordinals)
+    {
+        this(chat, new SliceMessageList(chat.getMessages(), start, end, ordinals));
+    }
+
+    private ChatSlice(Chat chat, SliceMessageList slice)
+    {
+        super(chat, slice);
+
+        this.chat = chat;
+        this.slice = slice;
+    }
+
+    @Override
+    Chat slice(long from, long to)
+    {
+        TimeIndex times = chat.getTimeIndex();
+
+        if (times.isSorted() && slice.size() > 0 && isRange())
+        {
+            int first = slice.getOrdinal(0);
+            int last = first + slice.size();
+
+            int start = times.lowerBound(from, first, last);
+            int end = Math.max(start, times.lowerBound(to, start, last));
+
+            return new ChatSlice(chat, start, end, null);
+        }
+
+        int[] ordinals = new int[slice.size()];
+
+        for (int i = 0; i < ordinals.length; i++)
+        {
+            ordinals[i] = slice.getOrdinal(i);
+        }
+
+        return new ChatSlice(chat, 0, 0, times.filter(from, to, ordinals));
+    }
+
+    @Override
+    public void extend(List<ChatMember> newMembers, List<ChatMessage> newMessages)
+    {
+        throw new IllegalStateException("Slices of a chat can not be extended");
+    }
+
+    @Override
+    public ChatMember getMember(int id)
+    {
+        return chat.getMember(id);
+    }
+
+    @Override
+    public int getMemberCount()
+    {
+        return chat.getMemberCount();
+    }
+
+    /**
+     * Fetches the amount of messages in
+     * the slice sent by a member, counting
+     * every member's messages on first use
+     *
+     * @param member The member
+     *
+     * @return The message count
+     */
+    @Override
+    public int getMessageCount(ChatMember member)
+    {
+        int[] counts = messageCounts;
+
+        if (counts == null)
+        {
+            counts = new int[chat.getMemberCount()];
+
+            MessageColumns columns = chat.getColumns().orElse(null);
+
+            for (int i = 0; i < slice.size(); i++)
+            {
+                // Columns give the sender without creating a message view
+                int sender = columns != null ? columns.getSender(slice.getOrdinal(i)) : slice.get(i).getSender().getId();
+                counts[sender]++;
+            }
+
+            messageCounts = counts;
+        }
+
+        return member.getId() < counts.length ? counts[member.getId()] : 0;
+    }
+
+    /**
+     * Determines whether the slice is a range of
+     * messages rather than a set of ordinals
+     *
+     * @return Whether the slice is a range
+     */
+    private boolean isRange()
+    {
+        return slice.getOrdinal(slice.size() - 1) - slice.getOrdinal(0) == slice.size() - 1;
+    }
+}
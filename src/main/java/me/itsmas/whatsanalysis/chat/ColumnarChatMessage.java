@@ -0,0 +1,59 @@
+package me.itsmas.whatsanalysis.chat;
+
+import java.util.Date;
+
+/**
+ * View of a single message held by {@link MessageColumns}
+ *
+ * Views are created on demand and hold no data
+ * of their own, so two views of the same message
+ * are equal in content but not the same object
+ */
+final class ColumnarChatMessage extends ChatMessage
+{
+    /**
+     * The chat the message belongs to
+     */
+    private final Chat chat;
+
+    /**
+     * The columns holding the message
+     */
+    private final MessageColumns columns;
+
+    /**
+     * The index of the message in the columns
+     */
+    private final int index;
+
+    ColumnarChatMessage(Chat chat, MessageColumns columns, int index)
+    {
+        this.chat = chat;
+        this.columns = columns;
+        this.index = index;
+    }
+
+    @Override
+    public Date getTime()
+    {
+        return new Date(columns.getTime(index));
+    }
+
+    @Override
+    public ChatMember getSender()
+    {
+        return chat.getMember(columns.getSender(index));
+    }
+
+    @Override
+    public String getContent()
+    {
+        return columns.getContent(index);
+    }
+
+    @Override
+    public boolean isMediaMessage()
+    {
+        return columns.isMediaMessage(index);
+    }
+}
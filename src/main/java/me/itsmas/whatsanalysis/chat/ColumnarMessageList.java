@@ -0,0 +1,56 @@
+package me.itsmas.whatsanalysis.chat;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of {@link ChatMessage} views
+ * over messages held by {@link MessageColumns}
+ */
+final class ColumnarMessageList extends AbstractList<ChatMessage> implements RandomAccess
+{
+    /**
+     * The chat the messages belong to
+     */
+    private final Chat chat;
+
+    /**
+     * The columns holding the messages
+     */
+    private final MessageColumns columns;
+
+    /**
+     * The column index of each message in the list,
+     * or null if the list holds every message in order
+     */
+    private final int[] indices;
+
+    ColumnarMessageList(Chat chat, MessageColumns columns, int[] indices)
+    {
+        this.chat = chat;
+        this.columns = columns;
+        this.indices = indices;
+    }
+
+    @Override
+    public ChatMessage get(int index)
+    {
+        if (index < 0 || index >= size())
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        if (indices == null)
+        {
+            return new ColumnarChatMessage(chat, columns, index);
+        }
+
+        return new ColumnarChatMessage(chat, columns, indices[index]);
+    }
+
+    @Override
+    public int size()
+    {
+        return indices == null ? columns.size() : indices.length;
+    }
+}
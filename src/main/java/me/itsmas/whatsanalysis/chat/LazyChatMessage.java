@@ -0,0 +1,62 @@
+package me.itsmas.whatsanalysis.chat;
+
+import java.util.Date;
+
+/**
+ * A message whose content stays in its {@link MessageSource}
+ * until requested, and is decoded afresh each time
+ *
+ * @see MessageSource#createMessage(Date, ChatMember, int, int)
+ */
+final class LazyChatMessage extends ChatMessage
+{
+    /**
+     * The source holding the content
+     */
+    private final MessageSource source;
+
+    /**
+     * The byte offset of the content in the source
+     */
+    private final int offset;
+
+    /**
+     * The length of the content in bytes
+     */
+    private final int length;
+
+    LazyChatMessage(Date time, ChatMember sender, MessageSource source, int offset, int length)
+    {
+        super(time, sender);
+
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public String getContent()
+    {
+        return source.decode(offset, length);
+    }
+
+    @Override
+    public boolean isMediaMessage()
+    {
+        // Only content of the same length needs decoding
+        return length == MEDIA_CONTENT.length() && super.isMediaMessage();
+    }
+
+    /**
+     * Estimates the heap retained by the message,
+     * counting its share of the source as well
+     * in case the source is held on the heap
+     *
+     * @return The estimated size in bytes
+     */
+    @Override
+    long estimateBytes()
+    {
+        return MESSAGE_BYTES + length;
+    }
+}
@@ -0,0 +1,566 @@
+package me.itsmas.whatsanalysis.chat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Columnar storage of chat messages
+ *
+ * Rather than one object per message, times are kept
+ * in a long array, senders in an int array of member
+ * ids and contents as UTF-8 in shared byte pages,
+ * referenced by an offset and length per message.
+ * {@link ChatMessage} objects are only created on
+ * demand when messages are requested
+ *
+ * Unpaired surrogates, which UTF-8 cannot hold, are
+ * encoded in their three byte form as in WTF-8, so
+ * every content decodes back to the characters added
+ *
+ * Columns are appended to while parsing and
+ * should be treated as read only afterwards
+ */
+public final class MessageColumns
+{
+    /**
+     * The size of a content page
+     *
+     * Contents never span pages, so longer
+     * contents are given a page of their own
+     */
+    private static final int PAGE_SIZE = 1 << 20;
+
+    /**
+     * The initial capacity of the per message columns
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The content of a media message
+     */
+    private static final byte[] MEDIA_CONTENT = ChatMessage.MEDIA_CONTENT.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The amount of messages stored
+     */
+    private int size = 0;
+
+    /**
+     * The time each message was sent, in epoch milliseconds
+     */
+    private long[] times = new long[INITIAL_CAPACITY];
+
+    /**
+     * The member id of each message's sender
+     */
+    private int[] senders = new int[INITIAL_CAPACITY];
+
+    /**
+     * The start of each message's content, as
+     * the page index in the upper 32 bits and
+     * the offset within the page in the lower
+     */
+    private long[] contentStarts = new long[INITIAL_CAPACITY];
+
+    /**
+     * The length in bytes of each message's content
+     */
+    private int[] contentLengths = new int[INITIAL_CAPACITY];
+
+    /**
+     * The content pages
+     */
+    private byte[][] pages = new byte[0][];
+
+    /**
+     * The amount of bytes used in the last page
+     */
+    private int pageUsed = 0;
+
+    /**
+     * The amount of messages sent by each member, by member id
+     */
+    private int[] senderCounts = new int[0];
+
+    /**
+     * The message indices of each member, by member id,
+     * created the first time they are requested
+     */
+    private int[][] senderIndices = null;
+
+    /**
+     * Adds a message
+     *
+     * @param time The time the message was sent, in epoch milliseconds
+     * @param sender The member id of the sender
+     * @param content The message content
+     */
+    public void add(long time, int sender, CharSequence content)
+    {
+        ensureCapacity(size + 1);
+
+        int length = encodedLength(content);
+        long start = allocate(length);
+
+        encode(content, pages[(int) (start >>> 32)], (int) start);
+
+        times[size] = time;
+        senders[size] = sender;
+        contentStarts[size] = start;
+        contentLengths[size] = length;
+
+        countSender(sender, 1);
+        size++;
+    }
+
+    /**
+     * Adds a message with content already encoded as UTF-8
+     *
+     * The remaining bytes of the buffer
+     * are consumed as the content
+     *
+     * @param time The time the message was sent, in epoch milliseconds
+     * @param sender The member id of the sender
+     * @param content The UTF-8 encoded message content
+     */
+    public void add(long time, int sender, ByteBuffer content)
+    {
+        ensureCapacity(size + 1);
+
+        int length = content.remaining();
+        long start = allocate(length);
+
+        content.get(pages[(int) (start >>> 32)], (int) start, length);
+
+        times[size] = time;
+        senders[size] = sender;
+        contentStarts[size] = start;
+        contentLengths[size] = length;
+
+        countSender(sender, 1);
+        size++;
+    }
+
+    /**
+     * Adds all messages of another set of
+     * columns, mapping their sender ids
+     *
+     * @param other The columns to add
+     * @param senderMap The id in these columns of each sender id in the other
+     */
+    public void addAll(MessageColumns other, int[] senderMap)
+    {
+        ensureCapacity(size + other.size);
+
+        for (int i = 0; i < other.size; i++)
+        {
+            int length = other.contentLengths[i];
+            long otherStart = other.contentStarts[i];
+            long start = allocate(length);
+
+            System.arraycopy(
+                other.pages[(int) (otherStart >>> 32)], (int) otherStart,
+                pages[(int) (start >>> 32)], (int) start,
+                length
+            );
+
+            int sender = senderMap[other.senders[i]];
+
+            times[size] = other.times[i];
+            senders[size] = sender;
+            contentStarts[size] = start;
+            contentLengths[size] = length;
+
+            countSender(sender, 1);
+            size++;
+        }
+    }
+
+    /**
+     * Fetches the amount of messages stored
+     *
+     * @return The message count
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Fetches the time a message was sent
+     *
+     * @param index The message index
+     *
+     * @return The time in epoch milliseconds
+     */
+    public long getTime(int index)
+    {
+        checkIndex(index);
+        return times[index];
+    }
+
+    /**
+     * Fetches the member id of a message's sender
+     *
+     * @param index The message index
+     *
+     * @return The sender id
+     */
+    public int getSender(int index)
+    {
+        checkIndex(index);
+        return senders[index];
+    }
+
+    /**
+     * Decodes the content of a message
+     *
+     * @param index The message index
+     *
+     * @return The content
+     */
+    public String getContent(int index)
+    {
+        checkIndex(index);
+
+        long start = contentStarts[index];
+        byte[] page = pages[(int) (start >>> 32)];
+
+        String content = new String(page, (int) start, contentLengths[index], StandardCharsets.UTF_8);
+
+        // Encoded surrogates decode as replacement characters
+        return content.indexOf('\uFFFD') == -1 ? content : decode(page, (int) start, contentLengths[index]);
+    }
+
+    /**
+     * Fetches the UTF-8 encoded content of a
+     * message without decoding or copying it
+     *
+     * @param index The message index
+     *
+     * @return A read only buffer over the content
+     */
+    public ByteBuffer getContentBytes(int index)
+    {
+        checkIndex(index);
+
+        long start = contentStarts[index];
+
+        return ByteBuffer.wrap(pages[(int) (start >>> 32)], (int) start, contentLengths[index]).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Determines whether a message is a media
+     * message without decoding its content
+     *
+     * @see ChatMessage#isMediaMessage()
+     *
+     * @param index The message index
+     *
+     * @return Whether the message is a media message
+     */
+    public boolean isMediaMessage(int index)
+    {
+        checkIndex(index);
+
+        if (contentLengths[index] != MEDIA_CONTENT.length)
+        {
+            return false;
+        }
+
+        long start = contentStarts[index];
+        byte[] page = pages[(int) (start >>> 32)];
+
+        for (int i = 0; i < MEDIA_CONTENT.length; i++)
+        {
+            if (page[(int) start + i] != MEDIA_CONTENT[i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Fetches the amount of messages sent by a member
+     *
+     * @param sender The member id
+     *
+     * @return The message count
+     */
+    public int getSenderCount(int sender)
+    {
+        return sender < senderCounts.length ? senderCounts[sender] : 0;
+    }
+
+    /**
+     * Fetches the indices of the messages sent by a member
+     *
+     * The indices of all members are worked out
+     * together the first time this is called
+     *
+     * @param sender The member id
+     *
+     * @return The message indices, in order
+     */
+    synchronized int[] getSenderIndices(int sender)
+    {
+        if (senderIndices == null)
+        {
+            int[][] indices = new int[senderCounts.length][];
+
+            for (int id = 0; id < indices.length; id++)
+            {
+                indices[id] = new int[senderCounts[id]];
+            }
+
+            int[] filled = new int[senderCounts.length];
+
+            for (int i = 0; i < size; i++)
+            {
+                int id = senders[i];
+                indices[id][filled[id]++] = i;
+            }
+
+            senderIndices = indices;
+        }
+
+        return sender < senderIndices.length ? senderIndices[sender] : new int[0];
+    }
+
+    /**
+     * Estimates the heap retained by the columns
+     *
+     * @return The estimated size in bytes
+     */
+    public long estimateBytes()
+    {
+        long bytes = (long) times.length * (Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES);
+
+        for (byte[] page : pages)
+        {
+            bytes += page.length;
+        }
+
+        return bytes + (long) senderCounts.length * Integer.BYTES;
+    }
+
+    /**
+     * Trims the columns down to their size
+     * once no more messages will be added
+     */
+    public void trim()
+    {
+        times = Arrays.copyOf(times, size);
+        senders = Arrays.copyOf(senders, size);
+        contentStarts = Arrays.copyOf(contentStarts, size);
+        contentLengths = Arrays.copyOf(contentLengths, size);
+
+        if (pages.length > 0 && pages[pages.length - 1].length > pageUsed)
+        {
+            pages[pages.length - 1] = Arrays.copyOf(pages[pages.length - 1], pageUsed);
+        }
+    }
+
+    /**
+     * Adds to the message count of a sender
+     *
+     * @param sender The member id
+     * @param amount The amount to add
+     */
+    private void countSender(int sender, int amount)
+    {
+        if (sender >= senderCounts.length)
+        {
+            senderCounts = Arrays.copyOf(senderCounts, Math.max(sender + 1, senderCounts.length * 2));
+        }
+
+        senderCounts[sender] += amount;
+        clearSenderIndices();
+    }
+
+    /**
+     * Discards the message indices of each member,
+     * holding the same lock as {@link #getSenderIndices(int)}
+     * so they are never discarded while being worked out
+     */
+    private synchronized void clearSenderIndices()
+    {
+        senderIndices = null;
+    }
+
+    /**
+     * Makes sure the per message columns
+     * can hold a certain amount of messages
+     *
+     * @param capacity The required capacity
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > times.length)
+        {
+            int newCapacity = Math.max(capacity, times.length + (times.length >> 1));
+
+            times = Arrays.copyOf(times, newCapacity);
+            senders = Arrays.copyOf(senders, newCapacity);
+            contentStarts = Arrays.copyOf(contentStarts, newCapacity);
+            contentLengths = Arrays.copyOf(contentLengths, newCapacity);
+        }
+    }
+
+    /**
+     * Allocates space for a message's content
+     *
+     * @param length The content length in bytes
+     *
+     * @return The content start
+     *
+     * @see #contentStarts
+     */
+    private long allocate(int length)
+    {
+        if (pages.length == 0 || pageUsed + length > pages[pages.length - 1].length)
+        {
+            if (pages.length > 0 && pageUsed < pages[pages.length - 1].length)
+            {
+                // Release the unused tail of the full page
+                pages[pages.length - 1] = Arrays.copyOf(pages[pages.length - 1], pageUsed);
+            }
+
+            pages = Arrays.copyOf(pages, pages.length + 1);
+            pages[pages.length - 1] = new byte[Math.max(PAGE_SIZE, length)];
+            pageUsed = 0;
+        }
+
+        long start = ((long) (pages.length - 1) << 32) | pageUsed;
+        pageUsed += length;
+
+        return start;
+    }
+
+    /**
+     * Checks a message index is within bounds
+     *
+     * @param index The message index
+     */
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Works out the UTF-8 length of a character sequence,
+     * with unpaired surrogates taking three bytes
+     *
+     * @param content The characters
+     *
+     * @return The length in bytes
+     */
+    private static int encodedLength(CharSequence content)
+    {
+        int length = 0;
+
+        for (int i = 0; i < content.length(); i++)
+        {
+            char c = content.charAt(i);
+
+            if (c < 0x80)
+            {
+                length++;
+            }
+            else if (c < 0x800)
+            {
+                length += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < content.length() && Character.isLowSurrogate(content.charAt(i + 1)))
+            {
+                length += 4;
+                i++;
+            }
+            else
+            {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Encodes a character sequence as UTF-8, with unpaired
+     * surrogates encoded like any other character
+     *
+     * @param content The characters
+     * @param page The page to write to
+     * @param offset The offset within the page
+     */
+    private static void encode(CharSequence content, byte[] page, int offset)
+    {
+        for (int i = 0; i < content.length(); i++)
+        {
+            char c = content.charAt(i);
+
+            if (c < 0x80)
+            {
+                page[offset++] = (byte) c;
+            }
+            else if (c < 0x800)
+            {
+                page[offset++] = (byte) (0xC0 | (c >> 6));
+                page[offset++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < content.length() && Character.isLowSurrogate(content.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, content.charAt(++i));
+
+                page[offset++] = (byte) (0xF0 | (codePoint >> 18));
+                page[offset++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                page[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                page[offset++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+            else
+            {
+                page[offset++] = (byte) (0xE0 | (c >> 12));
+                page[offset++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                page[offset++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Decodes UTF-8 content holding encoded surrogates,
+     * which the UTF-8 charset would replace
+     *
+     * @param page The page holding the content
+     * @param offset The offset of the content within the page
+     * @param length The length of the content in bytes
+     *
+     * @return The content
+     */
+    private static String decode(byte[] page, int offset, int length)
+    {
+        StringBuilder content = new StringBuilder(length);
+
+        int end = offset + length;
+        int from = offset;
+
+        for (int i = offset; i + 2 < end; i++)
+        {
+            if (page[i] == (byte) 0xED && (page[i + 1] & 0xE0) == 0xA0 && (page[i + 2] & 0xC0) == 0x80)
+            {
+                content.append(new String(page, from, i - from, StandardCharsets.UTF_8));
+                content.append((char) (0xD000 | (page[i + 1] & 0x3F) << 6 | page[i + 2] & 0x3F));
+
+                i += 2;
+                from = i + 1;
+            }
+        }
+
+        return content.append(new String(page, from, end - from, StandardCharsets.UTF_8)).toString();
+    }
+}
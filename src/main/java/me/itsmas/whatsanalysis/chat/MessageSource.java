@@ -0,0 +1,139 @@
+package me.itsmas.whatsanalysis.chat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * The raw UTF-8 text of a chat export, shared
+ * by the lazy messages parsed from it
+ *
+ * Rather than copying its content into a {@link String},
+ * a lazy message keeps only the byte range of its content
+ * in the source, decoding it each time it is requested.
+ * The source is usually a memory-mapped file, so the
+ * bytes are paged in by the operating system on demand
+ *
+ * A source is kept alive, mapping and all, for
+ * as long as any message created from it is
+ */
+public final class MessageSource
+{
+    /**
+     * The export text
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructor taking the export text
+     *
+     * The buffer is read from its start up to its
+     * limit and must not be changed afterwards
+     *
+     * @param buffer The UTF-8 encoded export text
+     */
+    public MessageSource(ByteBuffer buffer)
+    {
+        ByteBuffer view = buffer.duplicate();
+        view.position(0);
+
+        this.buffer = view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Fetches a read only view of the export text
+     *
+     * @return The buffer, positioned at its start
+     */
+    public ByteBuffer getBuffer()
+    {
+        return buffer.duplicate();
+    }
+
+    /**
+     * Fetches the size of the export text
+     *
+     * @return The size in bytes
+     */
+    public int size()
+    {
+        return buffer.limit();
+    }
+
+    /**
+     * Creates a message whose content is
+     * decoded from the source when requested
+     *
+     * The range may span several lines, whose
+     * terminators are turned into '\n' on decoding
+     *
+     * @param time The time the message was sent
+     * @param sender The message's sender
+     * @param offset The byte offset of the content
+     * @param length The length of the content in bytes
+     *
+     * @return The message
+     */
+    public ChatMessage createMessage(Date time, ChatMember sender, int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset > buffer.limit() - length)
+        {
+            throw new IndexOutOfBoundsException("Offset: " + offset + ", Length: " + length + ", Size: " + buffer.limit());
+        }
+
+        return new LazyChatMessage(time, sender, this, offset, length);
+    }
+
+    /**
+     * Decodes a range of the source, turning
+     * line terminators into '\n' as for content
+     *
+     * @param offset The byte offset of the range
+     * @param length The length of the range in bytes
+     *
+     * @return The decoded text
+     */
+    public String decode(int offset, int length)
+    {
+        byte[] bytes = new byte[length];
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+
+        return new String(bytes, 0, normaliseLineEnds(bytes), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Turns "\r\n" and '\r' line terminators into
+     * '\n' in place, matching how eagerly parsed
+     * messages join their lines
+     *
+     * @param bytes The bytes
+     *
+     * @return The length of the normalised bytes
+     */
+    private static int normaliseLineEnds(byte[] bytes)
+    {
+        int length = 0;
+
+        for (int i = 0; i < bytes.length; i++)
+        {
+            byte b = bytes[i];
+
+            if (b == '\r')
+            {
+                b = '\n';
+
+                if (i + 1 < bytes.length && bytes[i + 1] == '\n')
+                {
+                    i++;
+                }
+            }
+
+            bytes[length++] = b;
+        }
+
+        return length;
+    }
+}
@@ -0,0 +1,71 @@
+package me.itsmas.whatsanalysis.chat;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable view of some of the messages of a chat,
+ * either a range of them or a set of ordinals
+ */
+final class SliceMessageList extends AbstractList<ChatMessage> implements RandomAccess
+{
+    /**
+     * The messages of the whole chat
+     */
+    private final List<ChatMessage> messages;
+
+    /**
+     * The first message ordinal, inclusive
+     */
+    private final int start;
+
+    /**
+     * The last message ordinal, exclusive
+     */
+    private final int end;
+
+    /**
+     * The ordinal of each message in the view,
+     * or null if it holds the range in order
+     */
+    private final int[] ordinals;
+
+    SliceMessageList(List<ChatMessage> messages, int start, int end, int[] ordinals)
+    {
+        this.messages = messages;
+        this.start = start;
+        this.end = end;
+        this.ordinals = ordinals;
+    }
+
+    @Override
+    public ChatMessage get(int index)
+    {
+        if (index < 0 || index >= size())
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        return messages.get(getOrdinal(index));
+    }
+
+    @Override
+    public int size()
+    {
+        return ordinals == null ? end - start : ordinals.length;
+    }
+
+    /**
+     * Fetches the ordinal in the whole
+     * chat of a message in the view
+     *
+     * @param index The index in the view
+     *
+     * @return The ordinal
+     */
+    int getOrdinal(int index)
+    {
+        return ordinals == null ? start + index : ordinals[index];
+    }
+}
@@ -0,0 +1,276 @@
+package me.itsmas.whatsanalysis.chat;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of the times messages of a chat were sent,
+ * for finding the messages within a period of time
+ *
+ * Times are held as epoch milliseconds in a primitive
+ * array, or read straight from the time column of a
+ * columnar chat. Messages are normally in time order,
+ * so periods are found by binary search, but exports
+ * are not guaranteed to be, so the order is checked
+ * when the index is built. Messages out of order are
+ * then also sorted by time once, so their periods
+ * can still be found by binary search
+ */
+final class TimeIndex
+{
+    /**
+     * The time of each message, or null
+     * if they are read from columns
+     */
+    private final long[] times;
+
+    /**
+     * The columns holding the messages,
+     * or null if the chat is not columnar
+     */
+    private final MessageColumns columns;
+
+    /**
+     * The amount of messages indexed
+     */
+    private final int size;
+
+    /**
+     * Whether the messages are in time order
+     */
+    private final boolean sorted;
+
+    /**
+     * The message ordinals in time order, with messages
+     * sent at the same time in chat order, or null
+     * if the messages are in time order already
+     */
+    private final int[] byTime;
+
+    private TimeIndex(long[] times, MessageColumns columns, int size)
+    {
+        this.times = times;
+        this.columns = columns;
+        this.size = size;
+
+        boolean inOrder = true;
+
+        for (int i = 1; i < size && inOrder; i++)
+        {
+            inOrder = getTime(i - 1) <= getTime(i);
+        }
+
+        this.sorted = inOrder;
+        this.byTime = inOrder ? null : sortByTime();
+    }
+
+    /**
+     * Builds the index of a chat's messages
+     *
+     * @param messages The messages
+     * @param columns The columns holding the messages, or null
+     *
+     * @return The index
+     */
+    static TimeIndex build(List<ChatMessage> messages, MessageColumns columns)
+    {
+        if (columns != null)
+        {
+            return new TimeIndex(null, columns, columns.size());
+        }
+
+        long[] times = new long[messages.size()];
+
+        for (int i = 0; i < times.length; i++)
+        {
+            times[i] = messages.get(i).getTime().getTime();
+        }
+
+        return new TimeIndex(times, null, times.length);
+    }
+
+    /**
+     * Fetches the amount of messages indexed
+     *
+     * @return The size
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Determines whether the messages are in time order
+     *
+     * @return Whether the messages are sorted
+     */
+    boolean isSorted()
+    {
+        return sorted;
+    }
+
+    /**
+     * Fetches the time a message was sent
+     *
+     * @param ordinal The message ordinal
+     *
+     * @return The time in epoch milliseconds
+     */
+    long getTime(int ordinal)
+    {
+        return times != null ? times[ordinal] : columns.getTime(ordinal);
+    }
+
+    /**
+     * Finds the first message within a range
+     * sent at or after a time, by binary search
+     *
+     * The messages must be sorted
+     *
+     * @param time The time in epoch milliseconds
+     * @param from The first message ordinal, inclusive
+     * @param to The last message ordinal, exclusive
+     *
+     * @return The ordinal, or the end of the range if there is none
+     */
+    int lowerBound(long time, int from, int to)
+    {
+        int low = from;
+        int high = to;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (getTime(middle) < time)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Finds every message sent within a period
+     * of time, by binary search on the messages
+     * in time order
+     *
+     * The messages must not be sorted
+     *
+     * @param from The start of the period in epoch milliseconds, inclusive
+     * @param to The end of the period in epoch milliseconds, exclusive
+     *
+     * @return The ordinals of the messages within the period, in order
+     */
+    int[] find(long from, long to)
+    {
+        int start = lowerBoundByTime(from);
+        int end = Math.max(start, lowerBoundByTime(to));
+
+        int[] matching = Arrays.copyOfRange(byTime, start, end);
+        Arrays.sort(matching);
+
+        return matching;
+    }
+
+    /**
+     * Finds the first position in time order
+     * of a message sent at or after a time
+     *
+     * @param time The time in epoch milliseconds
+     *
+     * @return The position, or the size if there is none
+     */
+    private int lowerBoundByTime(long time)
+    {
+        int low = 0;
+        int high = size;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (getTime(byTime[middle]) < time)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Sorts the message ordinals by time with a
+     * merge sort, which keeps messages sent at the
+     * same time in chat order
+     *
+     * @return The ordinals in time order
+     */
+    private int[] sortByTime()
+    {
+        int[] ordinals = new int[size];
+        int[] buffer = new int[size];
+
+        Arrays.setAll(ordinals, ordinal -> ordinal);
+
+        for (int width = 1; width < size; width <<= 1)
+        {
+            for (int left = 0; left < size; left += width << 1)
+            {
+                int middle = Math.min(left + width, size);
+                int right = Math.min(left + (width << 1), size);
+
+                int i = left;
+                int j = middle;
+
+                for (int k = left; k < right; k++)
+                {
+                    buffer[k] = j >= right || (i < middle && getTime(ordinals[i]) <= getTime(ordinals[j])) ? ordinals[i++] : ordinals[j++];
+                }
+            }
+
+            int[] swap = ordinals;
+            ordinals = buffer;
+            buffer = swap;
+        }
+
+        return ordinals;
+    }
+
+    /**
+     * Finds the messages of a range
+     * sent within a period of time
+     *
+     * @param from The start of the period in epoch milliseconds, inclusive
+     * @param to The end of the period in epoch milliseconds, exclusive
+     * @param ordinals The message ordinals to look at, in order
+     *
+     * @return The ordinals of the messages within the period
+     */
+    int[] filter(long from, long to, int[] ordinals)
+    {
+        int[] matching = new int[ordinals.length];
+        int count = 0;
+
+        for (int ordinal : ordinals)
+        {
+            long time = getTime(ordinal);
+
+            if (time >= from && time < to)
+            {
+                matching[count++] = ordinal;
+            }
+        }
+
+        return Arrays.copyOf(matching, count);
+    }
+}
@@ -0,0 +1,80 @@
+package me.itsmas.whatsanalysis.metrics;
+
+import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
+
+/**
+ * The metrics of executing a {@link ChatAnalysis}
+ */
+public final class AnalysisMetrics
+{
+    /**
+     * The analysis executed
+     */
+    private final ChatAnalysis<?> analysis;
+
+    /**
+     * The amount of messages passed to the analysis
+     */
+    private final long messagesVisited;
+
+    /**
+     * The time taken by the analysis
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Constructor taking the metrics of an analysis
+     *
+     * @param analysis The analysis executed
+     * @param messagesVisited The amount of messages passed to the analysis
+     * @param elapsedNanos The time taken by the analysis
+     */
+    public AnalysisMetrics(ChatAnalysis<?> analysis, long messagesVisited, long elapsedNanos)
+    {
+        this.analysis = analysis;
+        this.messagesVisited = messagesVisited;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Fetches the analysis executed
+     *
+     * @see #analysis
+     *
+     * @return The analysis
+     */
+    public ChatAnalysis<?> getAnalysis()
+    {
+        return analysis;
+    }
+
+    /**
+     * Fetches the amount of messages
+     * passed to the analysis one by one
+     *
+     * @see #messagesVisited
+     *
+     * @return The amount of messages, or -1 if the
+     *         analysis read the whole chat some other way
+     */
+    public long getMessagesVisited()
+    {
+        return messagesVisited;
+    }
+
+    /**
+     * Fetches the time taken by the analysis
+     *
+     * Analyses accumulated in parallel share their
+     * pass over the messages, so each reports the
+     * time of the whole pass plus its own finishing
+     *
+     * @see #elapsedNanos
+     *
+     * @return The time in nanoseconds
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,49 @@
+package me.itsmas.whatsanalysis.metrics;
+
+/**
+ * Registry of the {@link MetricsListener}
+ * parses and analyses publish to
+ *
+ * By default there is no listener, and only a
+ * single check is made per parse or analysis
+ */
+public final class Metrics
+{
+    private Metrics() {}
+
+    /**
+     * The registered listener
+     */
+    private static volatile MetricsListener listener = MetricsListener.NONE;
+
+    /**
+     * Registers the listener metrics are
+     * published to, replacing any other
+     *
+     * @param listener The listener, or {@link MetricsListener#NONE} to stop recording
+     */
+    public static void setListener(MetricsListener listener)
+    {
+        Metrics.listener = listener == null ? MetricsListener.NONE : listener;
+    }
+
+    /**
+     * Fetches the registered listener
+     *
+     * @return The listener
+     */
+    public static MetricsListener getListener()
+    {
+        return listener;
+    }
+
+    /**
+     * Determines whether metrics are being recorded
+     *
+     * @return Whether a listener is registered
+     */
+    public static boolean isEnabled()
+    {
+        return listener != MetricsListener.NONE;
+    }
+}
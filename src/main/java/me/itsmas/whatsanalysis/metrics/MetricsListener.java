@@ -0,0 +1,33 @@
+package me.itsmas.whatsanalysis.metrics;
+
+/**
+ * Receives the metrics of each parse and analysis
+ *
+ * Methods are called on the thread which did the
+ * work, possibly at the same time, so implementations
+ * must be thread safe and should return quickly
+ *
+ * @see Metrics#setListener(MetricsListener)
+ */
+public interface MetricsListener
+{
+    /**
+     * The listener ignoring all metrics, which
+     * stops them being recorded at all
+     */
+    MetricsListener NONE = new MetricsListener() {};
+
+    /**
+     * Called when a chat has been parsed
+     *
+     * @param metrics The parse metrics
+     */
+    default void onParse(ParseMetrics metrics) {}
+
+    /**
+     * Called when an analysis has been executed
+     *
+     * @param metrics The analysis metrics
+     */
+    default void onAnalysis(AnalysisMetrics metrics) {}
+}
@@ -0,0 +1,236 @@
+package me.itsmas.whatsanalysis.metrics;
+
+import me.itsmas.whatsanalysis.chat.Chat;
+
+/**
+ * The metrics of parsing a {@link Chat}
+ */
+public final class ParseMetrics
+{
+    /**
+     * The amount of bytes read
+     */
+    private final long bytes;
+
+    /**
+     * The amount of lines read
+     */
+    private final long lines;
+
+    /**
+     * The amount of lines starting a message
+     */
+    private final long headers;
+
+    /**
+     * The amount of lines continuing a message
+     */
+    private final long continuationLines;
+
+    /**
+     * The amount of system lines skipped,
+     * such as the group being created
+     */
+    private final long ignoredLines;
+
+    /**
+     * The amount of headers whose date could not
+     * be scanned directly, so was resolved leniently,
+     * either for having out of range fields or for
+     * being outside the years which are scanned
+     */
+    private final long lenientDates;
+
+    /**
+     * The amount of headers whose date had out of
+     * range fields, such as the 31st of February,
+     * which were rolled over into a real date
+     */
+    private final long dateParseFailures;
+
+    /**
+     * The amount of members found
+     */
+    private final int membersCreated;
+
+    /**
+     * The time spent reading lines
+     */
+    private final long ioNanos;
+
+    /**
+     * The time spent parsing lines
+     */
+    private final long parseNanos;
+
+    /**
+     * The time spent building the chat
+     * once every line was parsed
+     */
+    private final long buildNanos;
+
+    /**
+     * Constructor taking the metrics of a parse
+     *
+     * @param bytes The amount of bytes read
+     * @param lines The amount of lines read
+     * @param headers The amount of lines starting a message
+     * @param continuationLines The amount of lines continuing a message
+     * @param ignoredLines The amount of system lines skipped
+     * @param lenientDates The amount of headers whose date was resolved leniently
+     * @param dateParseFailures The amount of headers whose date had out of range fields
+     * @param membersCreated The amount of members found
+     * @param ioNanos The time spent reading lines
+     * @param parseNanos The time spent parsing lines
+     * @param buildNanos The time spent building the chat
+     */
+    public ParseMetrics(long bytes, long lines, long headers, long continuationLines, long ignoredLines,
+                        long lenientDates, long dateParseFailures, int membersCreated, long ioNanos, long parseNanos, long buildNanos)
+    {
+        this.bytes = bytes;
+        this.lines = lines;
+        this.headers = headers;
+        this.continuationLines = continuationLines;
+        this.ignoredLines = ignoredLines;
+        this.lenientDates = lenientDates;
+        this.dateParseFailures = dateParseFailures;
+        this.membersCreated = membersCreated;
+        this.ioNanos = ioNanos;
+        this.parseNanos = parseNanos;
+        this.buildNanos = buildNanos;
+    }
+
+    /**
+     * Fetches the amount of bytes read
+     *
+     * @see #bytes
+     *
+     * @return The amount of bytes, or -1 if parsed from a reader
+     */
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * Fetches the amount of lines read
+     *
+     * @see #lines
+     *
+     * @return The amount of lines
+     */
+    public long getLines()
+    {
+        return lines;
+    }
+
+    /**
+     * Fetches the amount of lines starting a message
+     *
+     * @see #headers
+     *
+     * @return The amount of lines
+     */
+    public long getHeaders()
+    {
+        return headers;
+    }
+
+    /**
+     * Fetches the amount of lines continuing a message
+     *
+     * @see #continuationLines
+     *
+     * @return The amount of lines
+     */
+    public long getContinuationLines()
+    {
+        return continuationLines;
+    }
+
+    /**
+     * Fetches the amount of system lines skipped
+     *
+     * @see #ignoredLines
+     *
+     * @return The amount of lines
+     */
+    public long getIgnoredLines()
+    {
+        return ignoredLines;
+    }
+
+    /**
+     * Fetches the amount of headers whose date
+     * could not be scanned directly
+     *
+     * @see #lenientDates
+     *
+     * @return The amount of headers
+     */
+    public long getLenientDates()
+    {
+        return lenientDates;
+    }
+
+    /**
+     * Fetches the amount of headers whose
+     * date had out of range fields
+     *
+     * @see #dateParseFailures
+     *
+     * @return The amount of headers
+     */
+    public long getDateParseFailures()
+    {
+        return dateParseFailures;
+    }
+
+    /**
+     * Fetches the amount of members found
+     *
+     * @see #membersCreated
+     *
+     * @return The amount of members
+     */
+    public int getMembersCreated()
+    {
+        return membersCreated;
+    }
+
+    /**
+     * Fetches the time spent reading lines
+     *
+     * @see #ioNanos
+     *
+     * @return The time in nanoseconds
+     */
+    public long getIoNanos()
+    {
+        return ioNanos;
+    }
+
+    /**
+     * Fetches the time spent parsing lines
+     *
+     * @see #parseNanos
+     *
+     * @return The time in nanoseconds
+     */
+    public long getParseNanos()
+    {
+        return parseNanos;
+    }
+
+    /**
+     * Fetches the time spent building the chat
+     *
+     * @see #buildNanos
+     *
+     * @return The time in nanoseconds
+     */
+    public long getBuildNanos()
+    {
+        return buildNanos;
+    }
+}
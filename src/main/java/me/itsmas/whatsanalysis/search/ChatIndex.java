@@ -0,0 +1,279 @@
+package me.itsmas.whatsanalysis.search;
+
+import me.itsmas.whatsanalysis.analysis.text.TokenLayer;
+import me.itsmas.whatsanalysis.analysis.text.Tokenizer;
+import me.itsmas.whatsanalysis.analysis.text.WordDictionary;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.chat.MessageColumns;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Inverted index of the words of a {@link Chat}
+ *
+ * The index is built from the chat's {@link TokenLayer},
+ * so shares its words with every analysis reading the
+ * layer, and each word maps to a {@link PostingList}
+ * of the ordinals of the messages holding it. Queries
+ * are split into words by the layer's tokenizer
+ *
+ * The index is read only once built, so it
+ * can be searched from any amount of threads
+ *
+ * @see SearchQuery
+ */
+public final class ChatIndex
+{
+    /**
+     * The chat which was indexed
+     */
+    private final Chat chat;
+
+    /**
+     * The chat messages
+     */
+    private final List<ChatMessage> messages;
+
+    /**
+     * The columns holding the messages,
+     * or null if the chat is not columnar
+     */
+    private final MessageColumns columns;
+
+    /**
+     * The tokens the index was built from
+     */
+    private final TokenLayer tokens;
+
+    /**
+     * The indexed words
+     */
+    private final WordDictionary dictionary;
+
+    /**
+     * The posting list of each word by id
+     */
+    private final PostingList[] postings;
+
+    private ChatIndex(Chat chat, TokenLayer tokens)
+    {
+        this.chat = chat;
+        this.messages = chat.getMessages();
+        this.columns = chat.getColumns().orElse(null);
+        this.tokens = tokens;
+        this.dictionary = tokens.getDictionary();
+        this.postings = new PostingList[dictionary.size()];
+
+        for (int id = 0; id < postings.length; id++)
+        {
+            postings[id] = new PostingList();
+        }
+
+        for (int ordinal = 0; ordinal < tokens.getMessageCount(); ordinal++)
+        {
+            for (int i = tokens.getStart(ordinal); i < tokens.getEnd(ordinal); i++)
+            {
+                postings[tokens.getToken(i)].add(ordinal);
+            }
+        }
+
+        for (PostingList list : postings)
+        {
+            list.trim();
+        }
+    }
+
+    /**
+     * Indexes the messages of a {@link Chat}
+     *
+     * @see Chat#getTokens()
+     *
+     * @param chat The chat
+     *
+     * @return The index
+     */
+    public static ChatIndex build(Chat chat)
+    {
+        return new ChatIndex(chat, chat.getTokens());
+    }
+
+    /**
+     * Indexes the messages of a {@link Chat},
+     * tokenizing them in parallel if they
+     * have not been tokenized yet
+     *
+     * Tokenizing is most of the work, so the posting
+     * lists are then filled from the token ids in order
+     *
+     * @see Chat#getTokens(ForkJoinPool)
+     *
+     * @param chat The chat
+     * @param pool The pool to tokenize on
+     *
+     * @return The index
+     */
+    public static ChatIndex build(Chat chat, ForkJoinPool pool)
+    {
+        return new ChatIndex(chat, chat.getTokens(pool));
+    }
+
+    /**
+     * Searches the chat
+     *
+     * @param query The query
+     *
+     * @return The ordinals of the matching messages, in order
+     */
+    public int[] search(SearchQuery query)
+    {
+        return query.evaluate(this);
+    }
+
+    /**
+     * Searches the chat
+     *
+     * @param query The query
+     *
+     * @return The matching messages, in order
+     */
+    public List<ChatMessage> searchMessages(SearchQuery query)
+    {
+        int[] ordinals = search(query);
+        List<ChatMessage> found = new ArrayList<>(ordinals.length);
+
+        for (int ordinal : ordinals)
+        {
+            found.add(messages.get(ordinal));
+        }
+
+        return found;
+    }
+
+    /**
+     * Fetches the ordinals of the messages holding a word
+     *
+     * @param word The word, as produced by the tokenizer
+     *
+     * @return The ordinals in increasing order
+     */
+    public int[] getPostings(String word)
+    {
+        int id = dictionary.get(word);
+
+        return id == -1 ? new int[0] : postings[id].toArray();
+    }
+
+    /**
+     * Fetches the amount of messages holding a word
+     *
+     * @param word The word, as produced by the tokenizer
+     *
+     * @return The message count
+     */
+    public int getMessageCount(String word)
+    {
+        int id = dictionary.get(word);
+
+        return id == -1 ? 0 : postings[id].size();
+    }
+
+    /**
+     * Fetches the amount of distinct words indexed
+     *
+     * @return The word count
+     */
+    public int getWordCount()
+    {
+        return dictionary.size();
+    }
+
+    /**
+     * Fetches the chat which was indexed
+     *
+     * @return The chat
+     */
+    public Chat getChat()
+    {
+        return chat;
+    }
+
+    /**
+     * Fetches the amount of memory used
+     * by the encoded posting lists
+     *
+     * @return The amount of bytes
+     */
+    public long getPostingBytes()
+    {
+        long bytes = 0;
+
+        for (PostingList list : postings)
+        {
+            bytes += list.byteSize();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Fetches the indexed words
+     *
+     * @return The dictionary
+     */
+    WordDictionary getDictionary()
+    {
+        return dictionary;
+    }
+
+    /**
+     * Creates a tokenizer splitting text
+     * the same way as the indexed messages
+     *
+     * @see TokenLayer#newTokenizer()
+     *
+     * @return The tokenizer
+     */
+    Tokenizer newTokenizer()
+    {
+        return tokens.newTokenizer();
+    }
+
+    /**
+     * Fetches the member id of a message's sender
+     *
+     * @param ordinal The message ordinal
+     *
+     * @return The sender id
+     */
+    int getSender(int ordinal)
+    {
+        return columns != null ? columns.getSender(ordinal) : messages.get(ordinal).getSender().getId();
+    }
+
+    /**
+     * Fetches the time a message was sent
+     *
+     * @param ordinal The message ordinal
+     *
+     * @return The time in epoch milliseconds
+     */
+    long getTime(int ordinal)
+    {
+        return columns != null ? columns.getTime(ordinal) : messages.get(ordinal).getTime().getTime();
+    }
+
+    /**
+     * Fetches the content of a message
+     *
+     * @param ordinal The message ordinal
+     *
+     * @return The content
+     */
+    String getContent(int ordinal)
+    {
+        return columns != null ? columns.getContent(ordinal) : messages.get(ordinal).getContent();
+    }
+}
\ No newline at end of file
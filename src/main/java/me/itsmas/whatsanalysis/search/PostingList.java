@@ -0,0 +1,186 @@
+package me.itsmas.whatsanalysis.search;
+
+import java.util.Arrays;
+
+/**
+ * Compressed list of the message ordinals holding a word
+ *
+ * Ordinals are added in increasing order and stored as
+ * the gap from the previous one, encoded as a varint of
+ * 7 bits per byte, so a word used in most messages takes
+ * around one byte per message rather than four
+ */
+final class PostingList
+{
+    /**
+     * The encoded gaps
+     */
+    private byte[] bytes = new byte[4];
+
+    /**
+     * The amount of bytes used
+     */
+    private int length = 0;
+
+    /**
+     * The amount of ordinals in the list
+     */
+    private int size = 0;
+
+    /**
+     * The last ordinal added, or -1 if none have been
+     */
+    private int last = -1;
+
+    /**
+     * Adds an ordinal, ignoring it if it is the last one added
+     *
+     * @param ordinal The ordinal, no lower than the last one added
+     */
+    void add(int ordinal)
+    {
+        if (ordinal == last)
+        {
+            return;
+        }
+
+        write(ordinal - last);
+
+        last = ordinal;
+        size++;
+    }
+
+    /**
+     * Adds all ordinals of another list, each
+     * higher than every ordinal of this list
+     *
+     * @param other The other list
+     */
+    void addAll(PostingList other)
+    {
+        if (other.size == 0)
+        {
+            return;
+        }
+
+        // The first gap of the other list is from -1
+        int position = 0;
+        int gap = 0;
+
+        for (int shift = 0; ; shift += 7)
+        {
+            byte b = other.bytes[position++];
+            gap |= (b & 0x7F) << shift;
+
+            if (b >= 0)
+            {
+                break;
+            }
+        }
+
+        write(gap - 1 - last);
+
+        int remaining = other.length - position;
+        ensureCapacity(length + remaining);
+
+        System.arraycopy(other.bytes, position, bytes, length, remaining);
+
+        length += remaining;
+        size += other.size;
+        last = other.last;
+    }
+
+    /**
+     * Fetches the amount of ordinals in the list
+     *
+     * @return The size
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Decodes the ordinals
+     *
+     * @return The ordinals in increasing order
+     */
+    int[] toArray()
+    {
+        int[] ordinals = new int[size];
+
+        int position = 0;
+        int ordinal = -1;
+
+        for (int i = 0; i < size; i++)
+        {
+            int gap = 0;
+
+            for (int shift = 0; ; shift += 7)
+            {
+                byte b = bytes[position++];
+                gap |= (b & 0x7F) << shift;
+
+                if (b >= 0)
+                {
+                    break;
+                }
+            }
+
+            ordinal += gap;
+            ordinals[i] = ordinal;
+        }
+
+        return ordinals;
+    }
+
+    /**
+     * Trims the encoded bytes down to
+     * their size once nothing more is added
+     */
+    void trim()
+    {
+        bytes = Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Fetches the amount of memory used by the encoded gaps
+     *
+     * @return The amount of bytes
+     */
+    int byteSize()
+    {
+        return bytes.length;
+    }
+
+    /**
+     * Writes a gap as a varint
+     *
+     * @param gap The gap, above 0
+     */
+    private void write(int gap)
+    {
+        ensureCapacity(length + 5);
+
+        while ((gap & ~0x7F) != 0)
+        {
+            bytes[length++] = (byte) (gap | 0x80);
+            gap >>>= 7;
+        }
+
+        bytes[length++] = (byte) gap;
+    }
+
+    /**
+     * Makes sure a certain amount of bytes can be held
+     *
+     * @param capacity The amount of bytes
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > bytes.length)
+        {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+}
@@ -0,0 +1,520 @@
+package me.itsmas.whatsanalysis.search;
+
+import me.itsmas.whatsanalysis.analysis.text.TokenConsumer;
+import me.itsmas.whatsanalysis.analysis.text.Tokenizer;
+import me.itsmas.whatsanalysis.analysis.text.WordDictionary;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A query searching a {@link ChatIndex}
+ *
+ * Queries are built from words and phrases, which
+ * are split into words by the same tokenizer as
+ * the index's messages when they are evaluated,
+ * combined with AND and OR, and
+ * filtered by sender and time. They are evaluated
+ * on the index's posting lists, with only phrases
+ * needing the content of candidate messages
+ *
+ * Queries are immutable so can be reused
+ *
+ * @see ChatIndex#search(SearchQuery)
+ */
+public abstract class SearchQuery
+{
+    SearchQuery() {}
+
+    /**
+     * Creates a query for messages holding a word
+     *
+     * If the word is split into several
+     * words, they must appear as a phrase
+     *
+     * @param word The word
+     *
+     * @return The query
+     */
+    public static SearchQuery term(String word)
+    {
+        return phrase(word);
+    }
+
+    /**
+     * Creates a query for messages holding
+     * the words of a phrase next to each other
+     *
+     * Characters trimmed by the tokenizer, such
+     * as punctuation, are ignored when matching
+     *
+     * @param phrase The phrase
+     *
+     * @return The query
+     */
+    public static SearchQuery phrase(String phrase)
+    {
+        return new PhraseQuery(phrase);
+    }
+
+    /**
+     * Creates a query for messages matching every query
+     *
+     * @param queries The queries
+     *
+     * @return The query
+     */
+    public static SearchQuery and(SearchQuery... queries)
+    {
+        return new AndQuery(queries.clone());
+    }
+
+    /**
+     * Creates a query for messages matching any query
+     *
+     * @param queries The queries
+     *
+     * @return The query
+     */
+    public static SearchQuery or(SearchQuery... queries)
+    {
+        return new OrQuery(queries.clone());
+    }
+
+    /**
+     * Creates a query for the messages
+     * matching this query sent by a member
+     *
+     * @param sender The member
+     *
+     * @return The query
+     */
+    public SearchQuery from(ChatMember sender)
+    {
+        return new SenderQuery(this, sender.getId());
+    }
+
+    /**
+     * Creates a query for the messages matching
+     * this query sent within a period of time
+     *
+     * @param from The start of the period, inclusive
+     * @param to The end of the period, exclusive
+     *
+     * @return The query
+     */
+    public SearchQuery between(Date from, Date to)
+    {
+        return new TimeQuery(this, from.getTime(), to.getTime());
+    }
+
+    /**
+     * Evaluates the query on an index
+     *
+     * @param index The index
+     *
+     * @return The ordinals of the matching messages, in increasing order
+     */
+    abstract int[] evaluate(ChatIndex index);
+
+    /**
+     * Works out the ordinals in both of two sorted arrays
+     *
+     * @param left The first ordinals
+     * @param right The second ordinals
+     *
+     * @return The ordinals in both, in increasing order
+     */
+    static int[] intersect(int[] left, int[] right)
+    {
+        int[] both = new int[Math.min(left.length, right.length)];
+        int size = 0;
+
+        int l = 0;
+        int r = 0;
+
+        while (l < left.length && r < right.length)
+        {
+            if (left[l] < right[r])
+            {
+                l++;
+            }
+            else if (left[l] > right[r])
+            {
+                r++;
+            }
+            else
+            {
+                both[size++] = left[l];
+
+                l++;
+                r++;
+            }
+        }
+
+        return Arrays.copyOf(both, size);
+    }
+
+    /**
+     * Works out the ordinals in either of two sorted arrays
+     *
+     * @param left The first ordinals
+     * @param right The second ordinals
+     *
+     * @return The ordinals in either, in increasing order
+     */
+    static int[] union(int[] left, int[] right)
+    {
+        int[] either = new int[left.length + right.length];
+        int size = 0;
+
+        int l = 0;
+        int r = 0;
+
+        while (l < left.length || r < right.length)
+        {
+            if (r == right.length || (l < left.length && left[l] < right[r]))
+            {
+                either[size++] = left[l++];
+            }
+            else if (l == left.length || right[r] < left[l])
+            {
+                either[size++] = right[r++];
+            }
+            else
+            {
+                either[size++] = left[l];
+
+                l++;
+                r++;
+            }
+        }
+
+        return Arrays.copyOf(either, size);
+    }
+
+    /**
+     * Query for messages holding words next to each other
+     */
+    private static final class PhraseQuery extends SearchQuery
+    {
+        /**
+         * The phrase
+         */
+        private final String phrase;
+
+        private PhraseQuery(String phrase)
+        {
+            this.phrase = phrase;
+        }
+
+        @Override
+        int[] evaluate(ChatIndex index)
+        {
+            Tokenizer tokenizer = index.newTokenizer();
+
+            List<String> split = new ArrayList<>();
+            tokenizer.tokenize(phrase, (chars, offset, length) -> split.add(new String(chars, offset, length)));
+
+            String[] words = split.toArray(new String[0]);
+
+            if (words.length == 0)
+            {
+                return new int[0];
+            }
+
+            // Intersect the rarest words first to keep candidates few
+            String[] byRarity = words.clone();
+            Arrays.sort(byRarity, Comparator.comparingInt(index::getMessageCount));
+
+            int[] candidates = index.getPostings(byRarity[0]);
+
+            for (int i = 1; i < byRarity.length && candidates.length > 0; i++)
+            {
+                candidates = intersect(candidates, index.getPostings(byRarity[i]));
+            }
+
+            if (words.length == 1)
+            {
+                return candidates;
+            }
+
+            return verify(index, tokenizer, words, candidates);
+        }
+
+        /**
+         * Keeps the candidates holding the words
+         * of the phrase next to each other
+         *
+         * @param index The index
+         * @param tokenizer The index's tokenizer
+         * @param words The words of the phrase
+         * @param candidates The ordinals of messages holding every word
+         *
+         * @return The ordinals of messages holding the phrase
+         */
+        private static int[] verify(ChatIndex index, Tokenizer tokenizer, String[] words, int[] candidates)
+        {
+            WordDictionary dictionary = index.getDictionary();
+
+            int[] phraseIds = new int[words.length];
+
+            for (int i = 0; i < words.length; i++)
+            {
+                phraseIds[i] = dictionary.get(words[i]);
+            }
+
+            PhraseMatcher matcher = new PhraseMatcher(dictionary, phraseIds);
+
+            int[] matching = new int[candidates.length];
+            int size = 0;
+
+            for (int ordinal : candidates)
+            {
+                matcher.reset();
+                tokenizer.tokenize(index.getContent(ordinal), matcher);
+
+                if (matcher.matched)
+                {
+                    matching[size++] = ordinal;
+                }
+            }
+
+            return Arrays.copyOf(matching, size);
+        }
+    }
+
+    /**
+     * Consumer of the tokens of a message, looking
+     * for a run of word ids matching a phrase
+     */
+    private static final class PhraseMatcher implements TokenConsumer
+    {
+        /**
+         * The indexed words
+         */
+        private final WordDictionary dictionary;
+
+        /**
+         * The word ids of the phrase
+         */
+        private final int[] phraseIds;
+
+        /**
+         * The ids of the most recent tokens, as a ring
+         */
+        private final int[] recent;
+
+        /**
+         * The amount of tokens seen
+         */
+        private int seen;
+
+        /**
+         * Whether the phrase has been found
+         */
+        private boolean matched;
+
+        private PhraseMatcher(WordDictionary dictionary, int[] phraseIds)
+        {
+            this.dictionary = dictionary;
+            this.phraseIds = phraseIds;
+            this.recent = new int[phraseIds.length];
+        }
+
+        /**
+         * Resets the matcher for another message
+         */
+        private void reset()
+        {
+            seen = 0;
+            matched = false;
+        }
+
+        @Override
+        public void accept(char[] chars, int offset, int length)
+        {
+            if (matched)
+            {
+                return;
+            }
+
+            int phraseLength = phraseIds.length;
+
+            recent[seen % phraseLength] = dictionary.get(chars, offset, length);
+            seen++;
+
+            if (seen < phraseLength)
+            {
+                return;
+            }
+
+            // The oldest token is in the slot written next
+            for (int i = 0; i < phraseLength; i++)
+            {
+                if (recent[(seen + i) % phraseLength] != phraseIds[i])
+                {
+                    return;
+                }
+            }
+
+            matched = true;
+        }
+    }
+
+    /**
+     * Query for messages matching every one of several queries
+     */
+    private static final class AndQuery extends SearchQuery
+    {
+        /**
+         * The queries
+         */
+        private final SearchQuery[] queries;
+
+        private AndQuery(SearchQuery[] queries)
+        {
+            this.queries = queries;
+        }
+
+        @Override
+        int[] evaluate(ChatIndex index)
+        {
+            if (queries.length == 0)
+            {
+                return new int[0];
+            }
+
+            int[] matching = queries[0].evaluate(index);
+
+            for (int i = 1; i < queries.length && matching.length > 0; i++)
+            {
+                matching = intersect(matching, queries[i].evaluate(index));
+            }
+
+            return matching;
+        }
+    }
+
+    /**
+     * Query for messages matching any of several queries
+     */
+    private static final class OrQuery extends SearchQuery
+    {
+        /**
+         * The queries
+         */
+        private final SearchQuery[] queries;
+
+        private OrQuery(SearchQuery[] queries)
+        {
+            this.queries = queries;
+        }
+
+        @Override
+        int[] evaluate(ChatIndex index)
+        {
+            int[] matching = new int[0];
+
+            for (SearchQuery query : queries)
+            {
+                matching = union(matching, query.evaluate(index));
+            }
+
+            return matching;
+        }
+    }
+
+    /**
+     * Query keeping the messages of another query sent by a member
+     */
+    private static final class SenderQuery extends SearchQuery
+    {
+        /**
+         * The query to filter
+         */
+        private final SearchQuery query;
+
+        /**
+         * The member id of the sender
+         */
+        private final int sender;
+
+        private SenderQuery(SearchQuery query, int sender)
+        {
+            this.query = query;
+            this.sender = sender;
+        }
+
+        @Override
+        int[] evaluate(ChatIndex index)
+        {
+            int[] candidates = query.evaluate(index);
+            int[] matching = new int[candidates.length];
+            int size = 0;
+
+            for (int ordinal : candidates)
+            {
+                if (index.getSender(ordinal) == sender)
+                {
+                    matching[size++] = ordinal;
+                }
+            }
+
+            return Arrays.copyOf(matching, size);
+        }
+    }
+
+    /**
+     * Query keeping the messages of another
+     * query sent within a period of time
+     */
+    private static final class TimeQuery extends SearchQuery
+    {
+        /**
+         * The query to filter
+         */
+        private final SearchQuery query;
+
+        /**
+         * The start of the period in epoch milliseconds, inclusive
+         */
+        private final long from;
+
+        /**
+         * The end of the period in epoch milliseconds, exclusive
+         */
+        private final long to;
+
+        private TimeQuery(SearchQuery query, long from, long to)
+        {
+            this.query = query;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        int[] evaluate(ChatIndex index)
+        {
+            int[] candidates = query.evaluate(index);
+            int[] matching = new int[candidates.length];
+            int size = 0;
+
+            for (int ordinal : candidates)
+            {
+                long time = index.getTime(ordinal);
+
+                if (time >= from && time < to)
+                {
+                    matching[size++] = ordinal;
+                }
+            }
+
+            return Arrays.copyOf(matching, size);
+        }
+    }
+}
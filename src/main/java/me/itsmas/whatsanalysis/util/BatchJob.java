@@ -0,0 +1,407 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.analysis.AnalysisResults;
+import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
+import me.itsmas.whatsanalysis.chat.Chat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A batch of exports being parsed and analysed concurrently
+ *
+ * Exports are started from a coordinating thread
+ * while fewer than the parallelism are running and
+ * the bytes of the running exports, which their
+ * parsed chats are proportional to, stay within the
+ * limit. Larger exports are started first so that
+ * a long export does not hold up the end of the batch
+ *
+ * Each outcome is passed to the {@link BatchListener}
+ * as soon as the export is done, and the chat is
+ * released before the next export takes its place
+ *
+ * @see UtilBatch
+ */
+public final class BatchJob
+{
+    /**
+     * The amount of coordinating threads started, for naming
+     */
+    private static final AtomicInteger JOBS = new AtomicInteger();
+
+    /**
+     * The exports, in the order they are started
+     */
+    private final List<File> files;
+
+    /**
+     * The sizes of the exports
+     */
+    private final long[] lengths;
+
+    /**
+     * The analyses executed on each export
+     */
+    private final List<ChatAnalysis<?>> analyses;
+
+    /**
+     * The batch options
+     */
+    private final BatchOptions options;
+
+    /**
+     * The listener notified of each outcome
+     */
+    private final BatchListener listener;
+
+    /**
+     * Completed with the summary once every
+     * started export has finished
+     */
+    private final CompletableFuture<BatchSummary> completion = new CompletableFuture<>();
+
+    /**
+     * Guards the running counts and the outcomes
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The amount of exports running
+     */
+    private int running = 0;
+
+    /**
+     * The bytes of the exports running
+     */
+    private long runningBytes = 0;
+
+    /**
+     * The amount of exports analysed
+     */
+    private int succeeded = 0;
+
+    /**
+     * The exports which failed, and why
+     */
+    private final Map<File, Throwable> failures = new LinkedHashMap<>();
+
+    /**
+     * Whether no more exports should be started
+     */
+    private volatile boolean cancelled = false;
+
+    private BatchJob(List<File> files, long[] lengths, List<ChatAnalysis<?>> analyses, BatchOptions options, BatchListener listener)
+    {
+        this.files = files;
+        this.lengths = lengths;
+        this.analyses = analyses;
+        this.options = options;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts analysing a batch of exports
+     *
+     * @param files The export files
+     * @param analyses The analyses to execute on each export
+     * @param options The batch options
+     * @param listener The listener notified of each outcome
+     *
+     * @return The running batch
+     */
+    static BatchJob start(Collection<File> files, Collection<? extends ChatAnalysis<?>> analyses, BatchOptions options, BatchListener listener)
+    {
+        Map<File, Long> sizes = new HashMap<>();
+
+        for (File file : files)
+        {
+            sizes.put(file, file.length());
+        }
+
+        List<File> ordered = new ArrayList<>(files);
+        ordered.sort(Comparator.comparing(sizes::get, Comparator.reverseOrder()));
+
+        long[] lengths = new long[ordered.size()];
+
+        for (int i = 0; i < lengths.length; i++)
+        {
+            lengths[i] = sizes.get(ordered.get(i));
+        }
+
+        BatchJob job = new BatchJob(ordered, lengths, new ArrayList<>(analyses), options, listener);
+
+        Thread coordinator = new Thread(job::run, "WhatsAnalysis-batch-" + JOBS.incrementAndGet());
+        coordinator.setDaemon(true);
+        coordinator.start();
+
+        return job;
+    }
+
+    /**
+     * Stops starting exports, letting
+     * those running finish as normal
+     */
+    public void cancel()
+    {
+        cancelled = true;
+
+        synchronized (lock)
+        {
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Determines whether every started export has finished
+     *
+     * @return Whether the batch is done
+     */
+    public boolean isDone()
+    {
+        return completion.isDone();
+    }
+
+    /**
+     * Fetches a future completed with the
+     * summary once the batch is done
+     *
+     * @return The future
+     */
+    public CompletableFuture<BatchSummary> getCompletion()
+    {
+        return completion;
+    }
+
+    /**
+     * Waits for the batch to be done
+     *
+     * @return The summary of the batch
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public BatchSummary await() throws InterruptedException
+    {
+        try
+        {
+            return completion.get();
+        }
+        catch (ExecutionException ex)
+        {
+            throw new IllegalStateException("Batch failed", ex.getCause());
+        }
+    }
+
+    /**
+     * Starts each export once there is room for
+     * it, then waits for the running exports
+     */
+    private void run()
+    {
+        Executor executor = options.getExecutor();
+        ExecutorService owned = null;
+
+        if (executor == null)
+        {
+            String name = Thread.currentThread().getName();
+            AtomicInteger workers = new AtomicInteger();
+
+            owned = Executors.newFixedThreadPool(options.getParallelism(), runnable ->
+            {
+                Thread thread = new Thread(runnable, name + "-worker-" + workers.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            });
+
+            executor = owned;
+        }
+
+        try
+        {
+            int started = 0;
+
+            for (File file : files)
+            {
+                // An export over the limit runs on its own
+                long bytes = Math.min(Math.max(lengths[started], 1), options.getMaxInFlightBytes());
+
+                if (!reserve(bytes))
+                {
+                    break;
+                }
+
+                started++;
+
+                try
+                {
+                    executor.execute(() -> analyse(file, bytes));
+                }
+                catch (RejectedExecutionException ex)
+                {
+                    failed(file, bytes, ex);
+                }
+            }
+
+            BatchSummary summary;
+
+            synchronized (lock)
+            {
+                while (running > 0)
+                {
+                    lock.wait();
+                }
+
+                summary = new BatchSummary(succeeded, failures, files.size() - started);
+            }
+
+            // Outside the lock, as dependent stages run on this thread
+            completion.complete(summary);
+        }
+        catch (InterruptedException ex)
+        {
+            completion.completeExceptionally(ex);
+        }
+        catch (RuntimeException | Error ex)
+        {
+            completion.completeExceptionally(ex);
+            throw ex;
+        }
+        finally
+        {
+            if (owned != null)
+            {
+                owned.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Waits until there is room to start an export
+     *
+     * @param bytes The bytes of the export
+     *
+     * @return Whether the export may start, or false if cancelled
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private boolean reserve(long bytes) throws InterruptedException
+    {
+        synchronized (lock)
+        {
+            while (!cancelled && running > 0 &&
+                (running >= options.getParallelism() || runningBytes + bytes > options.getMaxInFlightBytes()))
+            {
+                lock.wait();
+            }
+
+            if (cancelled)
+            {
+                return false;
+            }
+
+            running++;
+            runningBytes += bytes;
+
+            return true;
+        }
+    }
+
+    /**
+     * Parses and analyses an export,
+     * passing the outcome to the listener
+     *
+     * @param file The export file
+     * @param bytes The bytes reserved for the export
+     */
+    private void analyse(File file, long bytes)
+    {
+        AnalysisResults results;
+
+        try
+        {
+            Chat chat = UtilChat.readChat(file, options.getParseOptions());
+            results = chat.executeAnalyses(analyses);
+        }
+        catch (Throwable ex)
+        {
+            failed(file, bytes, ex);
+            return;
+        }
+
+        try
+        {
+            listener.onResult(file, results);
+        }
+        catch (Throwable ex)
+        {
+            finish(file, bytes, ex);
+            return;
+        }
+
+        finish(file, bytes, null);
+    }
+
+    /**
+     * Passes a failure to the listener, which
+     * is not allowed to stop the batch by throwing
+     *
+     * @param file The export file
+     * @param bytes The bytes reserved for the export
+     * @param cause Why the export failed
+     */
+    private void failed(File file, long bytes, Throwable cause)
+    {
+        try
+        {
+            listener.onFailure(file, cause);
+        }
+        catch (RuntimeException ex)
+        {
+            // The failure is still recorded below
+        }
+
+        finish(file, bytes, cause);
+    }
+
+    /**
+     * Records the outcome of an export
+     * and makes room for the next
+     *
+     * @param file The export file
+     * @param bytes The bytes reserved for the export
+     * @param cause Why the export failed, or null if it was analysed
+     */
+    private void finish(File file, long bytes, Throwable cause)
+    {
+        synchronized (lock)
+        {
+            if (cause == null)
+            {
+                succeeded++;
+            }
+            else
+            {
+                failures.put(file, cause);
+            }
+
+            running--;
+            runningBytes -= bytes;
+
+            lock.notifyAll();
+        }
+    }
+}
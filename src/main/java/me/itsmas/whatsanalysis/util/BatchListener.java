@@ -0,0 +1,36 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.analysis.AnalysisResults;
+
+import java.io.File;
+
+/**
+ * Receives the outcome of each export of
+ * a batch as soon as it has been analysed
+ *
+ * Methods are called on the threads the exports
+ * were analysed on, possibly at the same time,
+ * so implementations must be thread safe. The
+ * parsed chat is released once they return
+ *
+ * @see BatchJob
+ */
+public interface BatchListener
+{
+    /**
+     * Called when an export has been analysed
+     *
+     * @param file The export file
+     * @param results The results of the analyses
+     */
+    void onResult(File file, AnalysisResults results);
+
+    /**
+     * Called when an export could not be
+     * read, parsed or analysed
+     *
+     * @param file The export file
+     * @param cause Why the export failed
+     */
+    void onFailure(File file, Throwable cause);
+}
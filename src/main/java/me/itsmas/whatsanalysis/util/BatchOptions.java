@@ -0,0 +1,170 @@
+package me.itsmas.whatsanalysis.util;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Options for analysing a batch of exports
+ *
+ * Options are immutable, each with* method
+ * returns a copy with the option changed
+ *
+ * @see BatchJob
+ */
+public final class BatchOptions
+{
+    /**
+     * The default limit of export bytes being parsed at once
+     */
+    public static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 256L << 20;
+
+    /**
+     * The default options, which parse as many exports
+     * at once as there are cores on a pool of their own
+     */
+    public static final BatchOptions DEFAULT = new BatchOptions(
+        null, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_IN_FLIGHT_BYTES, ParseOptions.DEFAULT
+    );
+
+    /**
+     * The executor exports are analysed on,
+     * or null for a pool owned by the batch
+     */
+    private final Executor executor;
+
+    /**
+     * The most exports analysed at once
+     */
+    private final int parallelism;
+
+    /**
+     * The most export bytes being analysed at once
+     */
+    private final long maxInFlightBytes;
+
+    /**
+     * The options each export is parsed with
+     */
+    private final ParseOptions parseOptions;
+
+    private BatchOptions(Executor executor, int parallelism, long maxInFlightBytes, ParseOptions parseOptions)
+    {
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.parseOptions = parseOptions;
+    }
+
+    /**
+     * Fetches the executor exports are analysed on
+     *
+     * @see #executor
+     *
+     * @return The executor, or null for a pool owned by the batch
+     */
+    public Executor getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * Fetches the most exports analysed at once
+     *
+     * @see #parallelism
+     *
+     * @return The parallelism
+     */
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Fetches the most export bytes being analysed at once
+     *
+     * @see #maxInFlightBytes
+     *
+     * @return The byte limit
+     */
+    public long getMaxInFlightBytes()
+    {
+        return maxInFlightBytes;
+    }
+
+    /**
+     * Fetches the options each export is parsed with
+     *
+     * @see #parseOptions
+     *
+     * @return The parse options
+     */
+    public ParseOptions getParseOptions()
+    {
+        return parseOptions;
+    }
+
+    /**
+     * Creates a copy of these options which analyses
+     * exports on an executor, which is not shut down
+     * when the batch finishes
+     *
+     * @param executor The executor
+     *
+     * @return The new options
+     */
+    public BatchOptions withExecutor(Executor executor)
+    {
+        return new BatchOptions(executor, parallelism, maxInFlightBytes, parseOptions);
+    }
+
+    /**
+     * Creates a copy of these options
+     * with a different parallelism
+     *
+     * @param parallelism The most exports analysed at once
+     *
+     * @return The new options
+     */
+    public BatchOptions withParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+
+        return new BatchOptions(executor, parallelism, maxInFlightBytes, parseOptions);
+    }
+
+    /**
+     * Creates a copy of these options with a different
+     * limit of export bytes being analysed at once
+     *
+     * An export larger than the limit is
+     * still analysed, but only on its own
+     *
+     * @param maxInFlightBytes The byte limit
+     *
+     * @return The new options
+     */
+    public BatchOptions withMaxInFlightBytes(long maxInFlightBytes)
+    {
+        if (maxInFlightBytes < 1)
+        {
+            throw new IllegalArgumentException("Byte limit must be positive");
+        }
+
+        return new BatchOptions(executor, parallelism, maxInFlightBytes, parseOptions);
+    }
+
+    /**
+     * Creates a copy of these options with
+     * different options for parsing each export
+     *
+     * @param parseOptions The parse options
+     *
+     * @return The new options
+     */
+    public BatchOptions withParseOptions(ParseOptions parseOptions)
+    {
+        return new BatchOptions(executor, parallelism, maxInFlightBytes, parseOptions);
+    }
+}
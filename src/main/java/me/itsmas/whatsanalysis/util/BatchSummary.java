@@ -0,0 +1,73 @@
+package me.itsmas.whatsanalysis.util;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * What happened to the exports of a finished batch
+ *
+ * @see BatchJob#await()
+ */
+public final class BatchSummary
+{
+    /**
+     * The amount of exports analysed
+     */
+    private final int succeeded;
+
+    /**
+     * The exports which failed, and why
+     */
+    private final Map<File, Throwable> failures;
+
+    /**
+     * The amount of exports not started
+     * because the batch was cancelled
+     */
+    private final int skipped;
+
+    BatchSummary(int succeeded, Map<File, Throwable> failures, int skipped)
+    {
+        this.succeeded = succeeded;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.skipped = skipped;
+    }
+
+    /**
+     * Fetches the amount of exports analysed
+     *
+     * @see #succeeded
+     *
+     * @return The amount of exports
+     */
+    public int getSucceeded()
+    {
+        return succeeded;
+    }
+
+    /**
+     * Fetches the exports which failed
+     *
+     * @see #failures
+     *
+     * @return Immutable map of exports to why they failed
+     */
+    public Map<File, Throwable> getFailures()
+    {
+        return failures;
+    }
+
+    /**
+     * Fetches the amount of exports not
+     * started because the batch was cancelled
+     *
+     * @see #skipped
+     *
+     * @return The amount of exports
+     */
+    public int getSkipped()
+    {
+        return skipped;
+    }
+}
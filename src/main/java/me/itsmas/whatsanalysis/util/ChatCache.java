@@ -0,0 +1,505 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.chat.Chat;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Cache of chats parsed from export files
+ *
+ * Chats are keyed by the canonical path, size and last
+ * modified time of their file along with the parse options,
+ * so a file which changes is parsed again. The least
+ * recently used chats are evicted once the total of their
+ * {@link Chat#estimateRetainedBytes()} passes the budget,
+ * and a chat too large for the budget is never kept.
+ * Chats are estimated when cached, so whatever is built
+ * on them later, such as a search index, token layer or
+ * cached analysis results, is not counted
+ *
+ * Threads parsing a file which is already being parsed
+ * wait for that parse rather than starting another. With
+ * soft references, the garbage collector may also drop
+ * chats under memory pressure, which counts as an eviction
+ *
+ * Cached chats are shared by every caller, so are
+ * made read only. Instances are thread safe
+ */
+public final class ChatCache
+{
+    /**
+     * The most estimated bytes of chats to keep
+     */
+    private final long maxBytes;
+
+    /**
+     * Whether chats are held by soft references
+     */
+    private final boolean softReferences;
+
+    /**
+     * The cached chats, least recently used first
+     */
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    /**
+     * The parses in progress
+     */
+    private final Map<Key, CompletableFuture<Chat>> loading = new HashMap<>();
+
+    /**
+     * The queue of soft entries whose chat was collected
+     */
+    private final ReferenceQueue<Chat> collected = new ReferenceQueue<>();
+
+    /**
+     * The estimated bytes of the cached chats
+     */
+    private long retainedBytes = 0;
+
+    /**
+     * The amount of chats found in the cache
+     * or already being parsed
+     */
+    private long hits = 0;
+
+    /**
+     * The amount of chats parsed
+     */
+    private long misses = 0;
+
+    /**
+     * The amount of chats evicted or collected
+     */
+    private long evictions = 0;
+
+    /**
+     * Constructor taking the byte budget,
+     * holding chats strongly
+     *
+     * @param maxBytes The most estimated bytes of chats to keep
+     */
+    public ChatCache(long maxBytes)
+    {
+        this(maxBytes, false);
+    }
+
+    /**
+     * Constructor taking the byte budget
+     * and how chats are held
+     *
+     * @param maxBytes The most estimated bytes of chats to keep
+     * @param softReferences Whether the garbage collector may drop chats
+     */
+    public ChatCache(long maxBytes, boolean softReferences)
+    {
+        if (maxBytes < 1)
+        {
+            throw new IllegalArgumentException("Max bytes must be positive");
+        }
+
+        this.maxBytes = maxBytes;
+        this.softReferences = softReferences;
+    }
+
+    /**
+     * Fetches the chat parsed from a file,
+     * parsing it if it is not cached
+     *
+     * Files whose canonical path cannot be
+     * found are parsed without being cached
+     *
+     * @see UtilChat#parseChat(File, ParseOptions)
+     *
+     * @param file The file
+     * @param options The parse options
+     *
+     * @return The resulting chat, or null if the file could not be parsed
+     */
+    public Chat parseChat(File file, ParseOptions options)
+    {
+        Key key;
+
+        try
+        {
+            key = new Key(file.getCanonicalPath(), file.length(), file.lastModified(), options);
+        }
+        catch (IOException ex)
+        {
+            return UtilChat.parseChat(file, options);
+        }
+
+        CompletableFuture<Chat> load;
+
+        synchronized (this)
+        {
+            expunge();
+
+            Entry entry = entries.get(key);
+            Chat cached = entry == null ? null : entry.getChat();
+
+            if (cached != null)
+            {
+                hits++;
+                return cached;
+            }
+
+            if (entry != null)
+            {
+                // Collected but not yet enqueued
+                remove(entry);
+            }
+
+            load = loading.get(key);
+
+            if (load != null)
+            {
+                hits++;
+            }
+            else
+            {
+                loading.put(key, new CompletableFuture<>());
+                misses++;
+            }
+        }
+
+        return load != null ? join(load) : load(key, file, options);
+    }
+
+    /**
+     * Drops every cached chat
+     */
+    public synchronized void invalidate()
+    {
+        entries.clear();
+        retainedBytes = 0;
+    }
+
+    /**
+     * Fetches the amount of chats cached
+     *
+     * @return The chat count
+     */
+    public synchronized int size()
+    {
+        expunge();
+        return entries.size();
+    }
+
+    /**
+     * Fetches the estimated bytes of the cached chats
+     *
+     * @see #retainedBytes
+     *
+     * @return The retained bytes
+     */
+    public synchronized long getRetainedBytes()
+    {
+        expunge();
+        return retainedBytes;
+    }
+
+    /**
+     * Fetches the amount of chats found in
+     * the cache or already being parsed so far
+     *
+     * @see #hits
+     *
+     * @return The hit count
+     */
+    public synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+    /**
+     * Fetches the amount of chats parsed so far
+     *
+     * @see #misses
+     *
+     * @return The miss count
+     */
+    public synchronized long getMissCount()
+    {
+        return misses;
+    }
+
+    /**
+     * Fetches the amount of chats evicted for
+     * space or collected by the garbage collector
+     *
+     * @see #evictions
+     *
+     * @return The eviction count
+     */
+    public synchronized long getEvictionCount()
+    {
+        expunge();
+        return evictions;
+    }
+
+    /**
+     * Parses a file and caches the chat,
+     * handing it to any threads waiting for it
+     *
+     * @param key The key of the file
+     * @param file The file
+     * @param options The parse options
+     *
+     * @return The resulting chat, or null if the file could not be parsed
+     */
+    private Chat load(Key key, File file, ParseOptions options)
+    {
+        Chat chat;
+
+        try
+        {
+            chat = UtilChat.parseChat(file, options);
+        }
+        catch (RuntimeException | Error ex)
+        {
+            CompletableFuture<Chat> load;
+
+            synchronized (this)
+            {
+                load = loading.remove(key);
+            }
+
+            load.completeExceptionally(ex);
+            throw ex;
+        }
+
+        // Estimated before the lock, as it visits every message
+        long bytes = chat == null ? 0 : chat.estimateRetainedBytes();
+        CompletableFuture<Chat> load;
+
+        synchronized (this)
+        {
+            load = loading.remove(key);
+
+            if (chat != null && bytes <= maxBytes)
+            {
+                chat.makeReadOnly();
+                add(key, chat, bytes);
+            }
+        }
+
+        load.complete(chat);
+        return chat;
+    }
+
+    /**
+     * Adds a chat to the cache, dropping older versions
+     * of its file and evicting chats until within budget
+     *
+     * @param key The key of the file
+     * @param chat The chat
+     * @param bytes The estimated bytes of the chat
+     */
+    private void add(Key key, Chat chat, long bytes)
+    {
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while (iterator.hasNext())
+        {
+            Entry stale = iterator.next();
+
+            if (stale.key.isSameFile(key))
+            {
+                iterator.remove();
+                retainedBytes -= stale.bytes;
+            }
+        }
+
+        entries.put(key, new Entry(key, chat, bytes, softReferences ? collected : null));
+        retainedBytes += bytes;
+
+        iterator = entries.values().iterator();
+
+        while (retainedBytes > maxBytes)
+        {
+            Entry eldest = iterator.next();
+
+            iterator.remove();
+            retainedBytes -= eldest.bytes;
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes entries whose chat has been collected
+     */
+    private void expunge()
+    {
+        Reference<? extends Chat> reference;
+
+        while ((reference = collected.poll()) != null)
+        {
+            remove((Entry) reference);
+        }
+    }
+
+    /**
+     * Removes an entry whose chat has been
+     * collected, if it is still cached
+     *
+     * @param entry The entry
+     */
+    private void remove(Entry entry)
+    {
+        if (entries.remove(entry.key, entry))
+        {
+            retainedBytes -= entry.bytes;
+            evictions++;
+        }
+    }
+
+    /**
+     * Waits for a parse in progress on another thread
+     *
+     * @param load The parse
+     *
+     * @return The resulting chat, or null if the file could not be parsed
+     */
+    private static Chat join(CompletableFuture<Chat> load)
+    {
+        try
+        {
+            return load.join();
+        }
+        catch (CompletionException ex)
+        {
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Identifies a version of a file parsed with certain options
+     */
+    private static final class Key
+    {
+        /**
+         * The canonical path of the file
+         */
+        private final String path;
+
+        /**
+         * The size of the file in bytes
+         */
+        private final long size;
+
+        /**
+         * The time the file was last modified
+         */
+        private final long lastModified;
+
+        /**
+         * The parse options
+         */
+        private final ParseOptions options;
+
+        private Key(String path, long size, long lastModified, ParseOptions options)
+        {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.options = options;
+        }
+
+        /**
+         * Determines whether another key is of the same
+         * file parsed with the same options, whatever
+         * version of the file it is
+         *
+         * @param other The other key
+         *
+         * @return Whether the keys are of the same file
+         */
+        private boolean isSameFile(Key other)
+        {
+            return path.equals(other.path) && options.equals(other.options);
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof Key))
+            {
+                return false;
+            }
+
+            Key key = (Key) other;
+
+            return isSameFile(key) && size == key.size && lastModified == key.lastModified;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (path.hashCode() * 31 + Long.hashCode(size)) * 31 + Long.hashCode(lastModified);
+        }
+    }
+
+    /**
+     * A cached chat, held softly if the cache
+     * uses soft references and strongly otherwise
+     */
+    private static final class Entry extends SoftReference<Chat>
+    {
+        /**
+         * The key of the chat's file
+         */
+        private final Key key;
+
+        /**
+         * The chat, if held strongly
+         */
+        private final Chat strong;
+
+        /**
+         * The estimated bytes of the chat
+         */
+        private final long bytes;
+
+        private Entry(Key key, Chat chat, long bytes, ReferenceQueue<Chat> queue)
+        {
+            super(chat, queue);
+
+            this.key = key;
+            this.strong = queue == null ? chat : null;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Fetches the chat
+         *
+         * @return The chat, or null if it has been collected
+         */
+        private Chat getChat()
+        {
+            return strong != null ? strong : get();
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.analysis.AnalysisPipeline;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.chat.MessageColumns;
+import me.itsmas.whatsanalysis.chat.MessageSource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Line-by-line state machine for parsing a {@link Chat}
+ *
+ * Lines are fed in one at a time so the raw
+ * chat text never has to be held in memory,
+ * only the messages parsed from it
+ */
+final class ChatParser
+{
+    /**
+     * The chat members found so far
+     */
+    private final MemberRegistry members;
+
+    /**
+     * Whether built messages should be
+     * attached to their sender straight away
+     */
+    private final boolean attachMessages;
+
+    /**
+     * The messages built so far, when
+     * storing messages as objects
+     */
+    private final List<ChatMessage> messages;
+
+    /**
+     * The columns messages are built into,
+     * when storing messages in columns
+     */
+    private final MessageColumns columns;
+
+    /**
+     * The builder of the message currently being parsed
+     */
+    private MessageBuilder lastBuilder = null;
+
+    /**
+     * The recorder of what lines are seen,
+     * or null if metrics are not enabled
+     */
+    private ParseRecorder recorder = null;
+
+    /**
+     * The source lines are read from, when
+     * leaving message content in it
+     */
+    private MessageSource source = null;
+
+    /**
+     * The pipeline built messages are published
+     * to instead of being kept, if any
+     */
+    private AnalysisPipeline pipeline = null;
+
+    /**
+     * The reader of the line being parsed,
+     * when reading lines from the source
+     */
+    private LineReader reader = null;
+
+    /**
+     * Whether a line has been skipped since
+     * the current message was started
+     */
+    private boolean skippedLine = false;
+
+    /**
+     * Constructor for a standalone parser which
+     * attaches messages to their senders as they are built
+     *
+     * @param storage How to store parsed messages
+     */
+    ChatParser(MessageStorage storage)
+    {
+        this(storage, true);
+    }
+
+    /**
+     * Constructor taking whether to attach messages
+     * to their senders as they are built
+     *
+     * Parsers of part of a chat should not, leaving
+     * it to whoever merges the parts
+     *
+     * @param storage How to store parsed messages
+     * @param attachMessages Whether to attach messages
+     */
+    ChatParser(MessageStorage storage, boolean attachMessages)
+    {
+        this(storage, attachMessages, new MemberRegistry());
+    }
+
+    /**
+     * Constructor taking the registry of members
+     * found so far, for parsers continuing on
+     * from the end of an earlier parse
+     *
+     * @param storage How to store parsed messages
+     * @param attachMessages Whether to attach messages
+     * @param members The member registry
+     */
+    ChatParser(MessageStorage storage, boolean attachMessages, MemberRegistry members)
+    {
+        this.members = members;
+        this.attachMessages = attachMessages;
+        this.messages = storage != MessageStorage.COLUMNAR ? new ArrayList<>() : null;
+        this.columns = storage == MessageStorage.COLUMNAR ? new MessageColumns() : null;
+    }
+
+    /**
+     * Parses a single line of a chat read from
+     * the source, tracking where message content is
+     *
+     * Only the header line of each message is kept,
+     * the rest of its content is left in the source
+     *
+     * @see #setSource(MessageSource)
+     *
+     * @param line The line
+     * @param reader The reader of the line, at the offsets of the source
+     *
+     * @return Whether the line started a new message
+     */
+    boolean parseLine(String line, LineReader reader)
+    {
+        this.reader = reader;
+        return parseLine(line);
+    }
+
+    /**
+     * Parses a single line of a chat
+     *
+     * @param line The line
+     *
+     * @return Whether the line started a new message
+     */
+    boolean parseLine(String line)
+    {
+        Optional<MessageBuilder> optBuilder = UtilMessage.parseMessageBuilder(line, members::get);
+
+        if (recorder != null)
+        {
+            record(line, optBuilder);
+        }
+
+        // See UtilMessage#parseMessageBuilder()
+        // for an explanation of this weird check
+        if (optBuilder == null)
+        {
+            skippedLine = true;
+            return false;
+        }
+
+        if (optBuilder.isPresent())
+        {
+            if (lastBuilder != null)
+            {
+                addMessage(lastBuilder);
+            }
+
+            lastBuilder = optBuilder.get();
+
+            if (source != null)
+            {
+                int contentStart = line.length() - lastBuilder.getFirstLineLength();
+
+                lastBuilder.setSourceLine((int) reader.getOffset(contentStart), (int) reader.getLineEnd());
+                skippedLine = false;
+            }
+
+            return true;
+        }
+
+        if (lastBuilder != null)
+        {
+            // This line is a continuation of the previous message
+            if (source == null)
+            {
+                lastBuilder.addMessageLine(line);
+                return false;
+            }
+
+            if (skippedLine)
+            {
+                // The content is no longer one range of the source
+                lastBuilder.clearSource(source);
+            }
+
+            lastBuilder.addSourceLine(line, (int) reader.getLineEnd());
+        }
+
+        return false;
+    }
+
+    /**
+     * Parses every line of a reader, timing reading
+     * and parsing separately if recording
+     *
+     * @param reader The reader, which is not closed
+     *
+     * @throws IOException If the reader could not be read
+     */
+    void parseLines(BufferedReader reader) throws IOException
+    {
+        String line;
+
+        if (recorder == null)
+        {
+            while ((line = reader.readLine()) != null)
+            {
+                parseLine(line);
+            }
+
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        while ((line = reader.readLine()) != null)
+        {
+            long read = System.nanoTime();
+            parseLine(line);
+
+            long parsed = System.nanoTime();
+
+            recorder.ioNanos += read - start;
+            recorder.parseNanos += parsed - read;
+
+            start = parsed;
+        }
+
+        recorder.ioNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Records what kind of line was parsed
+     *
+     * @param line The line
+     * @param optBuilder The result of parsing the line
+     */
+    private void record(String line, Optional<MessageBuilder> optBuilder)
+    {
+        recorder.lines++;
+
+        if (optBuilder == null)
+        {
+            recorder.ignoredLines++;
+        }
+        else if (optBuilder.isPresent())
+        {
+            recorder.headers++;
+
+            if (MessageHeader.isLenientTime(line))
+            {
+                recorder.lenientDates++;
+
+                if (MessageHeader.isInvalidTime(line))
+                {
+                    recorder.dateParseFailures++;
+                }
+            }
+        }
+        else if (lastBuilder != null)
+        {
+            recorder.continuationLines++;
+        }
+    }
+
+    /**
+     * Sets the recorder of what lines are seen
+     *
+     * @param recorder The recorder, or null to stop recording
+     */
+    void setRecorder(ParseRecorder recorder)
+    {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Sets the source lines are read from, so that
+     * message content is left in it until requested
+     *
+     * Lines must then be parsed with {@link #parseLine(String, LineReader)}
+     *
+     * @see MessageStorage#LAZY
+     *
+     * @param source The source
+     */
+    void setSource(MessageSource source)
+    {
+        this.source = source;
+    }
+
+    /**
+     * Sets the pipeline built messages are published
+     * to, in which case they are not kept by the parser
+     * or attached to their senders
+     *
+     * @param pipeline The pipeline
+     */
+    void setPipeline(AnalysisPipeline pipeline)
+    {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Builds a message and adds it to the parsed messages
+     *
+     * @param builder The message builder
+     */
+    private void addMessage(MessageBuilder builder)
+    {
+        if (columns != null)
+        {
+            builder.buildInto(columns);
+            return;
+        }
+
+        ChatMessage message = source != null ? builder.build(source) : builder.build();
+
+        if (pipeline != null)
+        {
+            pipeline.publish(message);
+            return;
+        }
+
+        messages.add(message);
+
+        if (attachMessages)
+        {
+            message.getSender().addMessage(message);
+        }
+    }
+
+    /**
+     * Fetches the members found so far
+     *
+     * @return The member registry
+     */
+    MemberRegistry getMembers()
+    {
+        return members;
+    }
+
+    /**
+     * Builds the final message
+     * once all lines have been parsed
+     */
+    void finishMessages()
+    {
+        if (lastBuilder != null && !lastBuilder.isBuilt())
+        {
+            // Add the final message
+            addMessage(lastBuilder);
+        }
+    }
+
+    /**
+     * Fetches the messages parsed, in chat order,
+     * when storing messages as objects
+     *
+     * @return The parsed messages
+     */
+    List<ChatMessage> getMessages()
+    {
+        return messages;
+    }
+
+    /**
+     * Fetches the columns messages were parsed
+     * into, when storing messages in columns
+     *
+     * @return The columns
+     */
+    MessageColumns getColumns()
+    {
+        return columns;
+    }
+
+    /**
+     * Builds the final message and
+     * creates the resulting {@link Chat}
+     *
+     * @return The chat
+     */
+    Chat finish()
+    {
+        finishMessages();
+
+        Set<ChatMember> memberSet = new LinkedHashSet<>(members.getMembers());
+
+        if (columns != null)
+        {
+            columns.trim();
+            return new Chat(memberSet, columns);
+        }
+
+        return new Chat(memberSet, messages);
+    }
+}
@@ -0,0 +1,636 @@
+package me.itsmas.whatsanalysis.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates synthetic exports in the format
+ * {@link UtilChat} parses, for testing and
+ * benchmarking without real chats
+ *
+ * The same settings always generate the same
+ * bytes. Senders and words are drawn from Zipfian
+ * distributions, so a few members and words are
+ * far more common than the rest as in real chats
+ *
+ * Generators are immutable, each with* method
+ * returns a copy with the setting changed
+ */
+public final class ExportGenerator
+{
+    /**
+     * The default generator, which
+     * writes around a megabyte
+     */
+    public static final ExportGenerator DEFAULT = new ExportGenerator(0, 1 << 20, 8, 0.1, 0.05, 0.001, 10_000, 1.0);
+
+    /**
+     * The minutes the messages of an export are
+     * spread over at most, around ten years, which
+     * keeps every header within the fast date range
+     */
+    private static final long MAX_MINUTES = 10 * 365 * 1440;
+
+    /**
+     * The rough size of a message, used to
+     * spread the messages over time
+     */
+    private static final int ESTIMATED_MESSAGE_BYTES = 80;
+
+    /**
+     * The line starting every export
+     */
+    private static final String ENCRYPTION_NOTICE = "Messages and calls are end-to-end encrypted. No one outside of this chat, not even WhatsApp, can read or listen to them.";
+
+    /**
+     * The content of a media message
+     */
+    private static final String MEDIA_OMITTED = "<Media omitted>";
+
+    /**
+     * The names members are generated from
+     */
+    private static final String[] NAMES = {
+        "Sam", "Alex", "Jo", "Chris", "Charlie", "Zo\u00EB", "Jamie", "Robin", "Ali", "Kim", "Taylor", "Ren\u00E9"
+    };
+
+    /**
+     * The syllables words are generated from
+     */
+    private static final String[] SYLLABLES = {
+        "a", "be", "ca", "de", "e", "fo", "go", "ha", "i", "jo", "ka", "lo", "ma", "ne", "o",
+        "pi", "qu", "ra", "se", "ti", "u", "ve", "wa", "xi", "yo", "ze", "th", "st", "ng", "er"
+    };
+
+    /**
+     * The suffixes occasionally added to
+     * words so exports are not all ASCII
+     */
+    private static final String[] SUFFIXES = {
+        "\u00E9", "\u00F1", "\u00FC", "\uD83D\uDE02", "\uD83D\uDC4D", "\u2764\uFE0F"
+    };
+
+    /**
+     * The seed of the random generator
+     */
+    private final long seed;
+
+    /**
+     * The size of the export in bytes, which is
+     * exceeded by less than one message
+     */
+    private final long size;
+
+    /**
+     * The amount of members
+     */
+    private final int members;
+
+    /**
+     * The fraction of messages which
+     * continue over several lines
+     */
+    private final double multiLineRatio;
+
+    /**
+     * The fraction of messages which are media
+     */
+    private final double mediaRatio;
+
+    /**
+     * The fraction of lines which are system
+     * lines rather than messages
+     */
+    private final double systemLineRatio;
+
+    /**
+     * The amount of distinct words
+     */
+    private final int vocabularySize;
+
+    /**
+     * The exponent of the Zipfian distributions,
+     * where higher favours common words more
+     */
+    private final double zipfExponent;
+
+    private ExportGenerator(long seed, long size, int members, double multiLineRatio, double mediaRatio,
+                            double systemLineRatio, int vocabularySize, double zipfExponent)
+    {
+        this.seed = seed;
+        this.size = size;
+        this.members = members;
+        this.multiLineRatio = multiLineRatio;
+        this.mediaRatio = mediaRatio;
+        this.systemLineRatio = systemLineRatio;
+        this.vocabularySize = vocabularySize;
+        this.zipfExponent = zipfExponent;
+    }
+
+    /**
+     * Creates a copy of this generator with a different seed
+     *
+     * @param seed The seed
+     *
+     * @return The new generator
+     */
+    public ExportGenerator withSeed(long seed)
+    {
+        return new ExportGenerator(seed, size, members, multiLineRatio, mediaRatio, systemLineRatio, vocabularySize, zipfExponent);
+    }
+
+    /**
+     * Creates a copy of this generator
+     * writing exports of a different size
+     *
+     * @param size The size in bytes
+     *
+     * @return The new generator
+     */
+    public ExportGenerator withSize(long size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException("Size must not be negative");
+        }
+
+        return new ExportGenerator(seed, size, members, multiLineRatio, mediaRatio, systemLineRatio, vocabularySize, zipfExponent);
+    }
+
+    /**
+     * Creates a copy of this generator
+     * with a different amount of members
+     *
+     * @param members The amount of members
+     *
+     * @return The new generator
+     */
+    public ExportGenerator withMembers(int members)
+    {
+        if (members < 1)
+        {
+            throw new IllegalArgumentException("There must be a member");
+        }
+
+        return new ExportGenerator(seed, size, members, multiLineRatio, mediaRatio, systemLineRatio, vocabularySize, zipfExponent);
+    }
+
+    /**
+     * Creates a copy of this generator with a different
+     * fraction of messages continuing over several lines
+     *
+     * @param multiLineRatio The fraction, between 0 and 1
+     *
+     * @return The new generator
+     */
+    public ExportGenerator withMultiLineRatio(double multiLineRatio)
+    {
+        return new ExportGenerator(seed, size, members, checkRatio(multiLineRatio), mediaRatio, systemLineRatio, vocabularySize, zipfExponent);
+    }
+
+    /**
+     * Creates a copy of this generator with
+     * a different fraction of media messages
+     *
+     * @param mediaRatio The fraction, between 0 and 1
+     *
+     * @return The new generator
+     */
+    public ExportGenerator withMediaRatio(double mediaRatio)
+    {
+        return new ExportGenerator(seed, size, members, multiLineRatio, checkRatio(mediaRatio), systemLineRatio, vocabularySize, zipfExponent);
+    }
+
+    /**
+     * Creates a copy of this generator with
+     * a different fraction of system lines
+     *
+     * @param systemLineRatio The fraction, between 0 and 1
+     *
+     * @return The new generator
+     */
+    public ExportGenerator withSystemLineRatio(double systemLineRatio)
+    {
+        return new ExportGenerator(seed, size, members, multiLineRatio, mediaRatio, checkRatio(systemLineRatio), vocabularySize, zipfExponent);
+    }
+
+    /**
+     * Creates a copy of this generator with
+     * a different amount of distinct words
+     *
+     * @param vocabularySize The amount of words
+     *
+     * @return The new generator
+     */
+    public ExportGenerator withVocabularySize(int vocabularySize)
+    {
+        if (vocabularySize < 1)
+        {
+            throw new IllegalArgumentException("There must be a word");
+        }
+
+        return new ExportGenerator(seed, size, members, multiLineRatio, mediaRatio, systemLineRatio, vocabularySize, zipfExponent);
+    }
+
+    /**
+     * Creates a copy of this generator with a
+     * different exponent of the Zipfian distributions
+     *
+     * @param zipfExponent The exponent, where 0 picks words uniformly
+     *
+     * @return The new generator
+     */
+    public ExportGenerator withZipfExponent(double zipfExponent)
+    {
+        if (zipfExponent < 0)
+        {
+            throw new IllegalArgumentException("Exponent must not be negative");
+        }
+
+        return new ExportGenerator(seed, size, members, multiLineRatio, mediaRatio, systemLineRatio, vocabularySize, zipfExponent);
+    }
+
+    /**
+     * Checks a fraction is between 0 and 1
+     *
+     * @param ratio The fraction
+     *
+     * @return The fraction
+     */
+    private static double checkRatio(double ratio)
+    {
+        if (!(ratio >= 0 && ratio <= 1))
+        {
+            throw new IllegalArgumentException("Ratio must be between 0 and 1");
+        }
+
+        return ratio;
+    }
+
+    /**
+     * Writes an export to a file
+     *
+     * @see #write(OutputStream)
+     *
+     * @param file The file
+     *
+     * @return The amount of messages written
+     *
+     * @throws IOException If the file could not be written
+     */
+    public long write(File file) throws IOException
+    {
+        try (OutputStream out = new FileOutputStream(file))
+        {
+            return write(out);
+        }
+    }
+
+    /**
+     * Writes an export to a stream, which is not closed
+     *
+     * @param out The stream
+     *
+     * @return The amount of messages written
+     *
+     * @throws IOException If the stream could not be written
+     */
+    public long write(OutputStream out) throws IOException
+    {
+        Random random = new Random(seed);
+
+        byte[][] names = createNames();
+        byte[][] words = createWords(random);
+
+        double[] senderWeights = zipfCumulative(members);
+        double[] wordWeights = zipfCumulative(vocabularySize);
+
+        Sink sink = new Sink(out);
+
+        LocalDateTime time = LocalDateTime.of(2020, 1, 1, 0, 0);
+        double advanceChance = Math.min(1, MAX_MINUTES / Math.max(1.0, (double) size / ESTIMATED_MESSAGE_BYTES));
+
+        sink.header(time);
+        sink.text(ENCRYPTION_NOTICE);
+        sink.newLine();
+
+        long messages = 0;
+
+        while (sink.written < size)
+        {
+            if (random.nextDouble() < advanceChance)
+            {
+                time = time.plusMinutes(1 + random.nextInt(3));
+            }
+
+            byte[] sender = names[sample(random, senderWeights)];
+
+            sink.header(time);
+            sink.bytes(sender);
+
+            if (random.nextDouble() < systemLineRatio)
+            {
+                // Ignored by the parser, even with the colons
+                if (random.nextBoolean())
+                {
+                    sink.text(" created group \"Plans: ");
+                    sink.bytes(words[sample(random, wordWeights)]);
+                    sink.text("\"");
+                }
+                else
+                {
+                    sink.text(" changed the subject from \"Plans\" to \"Plans: ");
+                    sink.bytes(words[sample(random, wordWeights)]);
+                    sink.text("\"");
+                }
+
+                sink.newLine();
+                continue;
+            }
+
+            sink.text(": ");
+            messages++;
+
+            if (random.nextDouble() < mediaRatio)
+            {
+                sink.text(MEDIA_OMITTED);
+                sink.newLine();
+                continue;
+            }
+
+            int lines = random.nextDouble() < multiLineRatio ? 2 + random.nextInt(4) : 1;
+
+            for (int line = 0; line < lines; line++)
+            {
+                int length = 1 + random.nextInt(12);
+
+                for (int w = 0; w < length; w++)
+                {
+                    if (w > 0)
+                    {
+                        sink.text(" ");
+                    }
+
+                    sink.bytes(words[sample(random, wordWeights)]);
+                }
+
+                sink.newLine();
+            }
+        }
+
+        sink.flush();
+        return messages;
+    }
+
+    /**
+     * Creates the UTF-8 names of the members
+     *
+     * @return The names, by member
+     */
+    private byte[][] createNames()
+    {
+        byte[][] names = new byte[members][];
+
+        for (int i = 0; i < members; i++)
+        {
+            String name = NAMES[i % NAMES.length];
+
+            if (i >= NAMES.length)
+            {
+                name += " " + (i / NAMES.length + 1);
+            }
+
+            names[i] = name.getBytes(StandardCharsets.UTF_8);
+        }
+
+        return names;
+    }
+
+    /**
+     * Creates the UTF-8 words of the vocabulary
+     *
+     * @param random The random generator
+     *
+     * @return The words, most common first
+     */
+    private byte[][] createWords(Random random)
+    {
+        byte[][] words = new byte[vocabularySize][];
+        StringBuilder word = new StringBuilder();
+
+        for (int i = 0; i < vocabularySize; i++)
+        {
+            word.setLength(0);
+
+            // Common words are short
+            int syllables = 1 + random.nextInt(2 + Math.min(4, 31 - Integer.numberOfLeadingZeros(i + 1) / 2));
+
+            for (int s = 0; s < syllables; s++)
+            {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+
+            if (random.nextInt(40) == 0)
+            {
+                word.append(SUFFIXES[random.nextInt(SUFFIXES.length)]);
+            }
+
+            words[i] = word.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        return words;
+    }
+
+    /**
+     * Works out the cumulative weights of
+     * a Zipfian distribution over ranks
+     *
+     * @param ranks The amount of ranks
+     *
+     * @return The cumulative weights, the last being 1
+     */
+    private double[] zipfCumulative(int ranks)
+    {
+        double[] cumulative = new double[ranks];
+        double total = 0;
+
+        for (int i = 0; i < ranks; i++)
+        {
+            total += 1 / Math.pow(i + 1, zipfExponent);
+            cumulative[i] = total;
+        }
+
+        for (int i = 0; i < ranks; i++)
+        {
+            cumulative[i] /= total;
+        }
+
+        return cumulative;
+    }
+
+    /**
+     * Picks a rank from a distribution
+     *
+     * @param random The random generator
+     * @param cumulative The cumulative weights
+     *
+     * @return The rank
+     */
+    private static int sample(Random random, double[] cumulative)
+    {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+
+        return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+    }
+
+    /**
+     * Buffers the bytes of an export,
+     * counting how many have been written
+     */
+    private static final class Sink
+    {
+        /**
+         * The stream written to
+         */
+        private final OutputStream out;
+
+        /**
+         * The bytes not yet written to the stream
+         */
+        private final byte[] buffer = new byte[1 << 16];
+
+        /**
+         * The amount of bytes in the buffer
+         */
+        private int position = 0;
+
+        /**
+         * The amount of bytes written, including the buffer
+         */
+        private long written = 0;
+
+        private Sink(OutputStream out)
+        {
+            this.out = out;
+        }
+
+        /**
+         * Writes a message header, up to the sender
+         *
+         * @param time The time of the message
+         *
+         * @throws IOException If the stream could not be written
+         */
+        private void header(LocalDateTime time) throws IOException
+        {
+            ensure(MessageHeader.PREFIX_LENGTH);
+
+            digits(time.getDayOfMonth(), 2);
+            buffer[position++] = '/';
+            digits(time.getMonthValue(), 2);
+            buffer[position++] = '/';
+            digits(time.getYear(), 4);
+            buffer[position++] = ',';
+            buffer[position++] = ' ';
+            digits(time.getHour(), 2);
+            buffer[position++] = ':';
+            digits(time.getMinute(), 2);
+            buffer[position++] = ' ';
+            buffer[position++] = '-';
+            buffer[position++] = ' ';
+
+            written += MessageHeader.PREFIX_LENGTH;
+        }
+
+        /**
+         * Writes the digits of a number
+         *
+         * @param value The number
+         * @param count The amount of digits
+         */
+        private void digits(int value, int count)
+        {
+            for (int i = count - 1; i >= 0; i--)
+            {
+                buffer[position + i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+
+            position += count;
+        }
+
+        /**
+         * Writes ASCII text
+         *
+         * @param text The text
+         *
+         * @throws IOException If the stream could not be written
+         */
+        private void text(String text) throws IOException
+        {
+            bytes(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Writes bytes
+         *
+         * @param bytes The bytes
+         *
+         * @throws IOException If the stream could not be written
+         */
+        private void bytes(byte[] bytes) throws IOException
+        {
+            ensure(bytes.length);
+
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+
+            position += bytes.length;
+            written += bytes.length;
+        }
+
+        /**
+         * Ends a line
+         *
+         * @throws IOException If the stream could not be written
+         */
+        private void newLine() throws IOException
+        {
+            ensure(1);
+
+            buffer[position++] = '\n';
+            written++;
+        }
+
+        /**
+         * Makes room in the buffer
+         *
+         * @param length The amount of bytes needed
+         *
+         * @throws IOException If the stream could not be written
+         */
+        private void ensure(int length) throws IOException
+        {
+            if (position + length > buffer.length)
+            {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the buffer to the stream
+         *
+         * @throws IOException If the stream could not be written
+         */
+        private void flush() throws IOException
+        {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
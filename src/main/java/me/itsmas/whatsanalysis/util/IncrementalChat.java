@@ -0,0 +1,493 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.analysis.AccumulatingAnalysis;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link Chat} parsed from a growing export
+ *
+ * Exports which are refreshed by appending new
+ * messages only need their new bytes parsing.
+ * The byte offset of the last message is kept,
+ * as it may still be continued, and on refreshing
+ * the export is parsed from there onwards, extending
+ * the chat and any tracked analyses in place
+ *
+ * To keep refreshing cheap for long histories, only
+ * windows at the start and end of the already parsed
+ * bytes are checksummed to confirm the export was
+ * appended to rather than replaced. The last message
+ * is parsed again and compared too. If anything does
+ * not match, the export is parsed again from scratch
+ *
+ * Instances are not thread safe, and the chat
+ * must not be read while it is being refreshed
+ */
+public final class IncrementalChat
+{
+    /**
+     * The size of the windows of parsed
+     * bytes checksummed when refreshing
+     */
+    private static final int CHECK_WINDOW = 1 << 16;
+
+    /**
+     * The outcome of refreshing an {@link IncrementalChat}
+     */
+    public enum Refresh
+    {
+        /**
+         * The export was appended to, or unchanged, and
+         * the chat was extended with any new messages
+         */
+        EXTENDED,
+
+        /**
+         * The export was replaced, and
+         * a new chat was parsed from it
+         */
+        REPARSED,
+
+        /**
+         * The export could not be read,
+         * and the chat was left as it was
+         */
+        FAILED
+    }
+
+    /**
+     * The export file
+     */
+    private final File file;
+
+    /**
+     * The parse options
+     */
+    private final ParseOptions options;
+
+    /**
+     * The accumulators of tracked analyses
+     */
+    private final Map<AccumulatingAnalysis<?, ?>, Object> accumulators = new IdentityHashMap<>();
+
+    /**
+     * The parsed chat
+     */
+    private Chat chat;
+
+    /**
+     * The members of the chat, which
+     * appended messages are parsed with
+     */
+    private MemberRegistry members;
+
+    /**
+     * The byte offset of the line starting the last
+     * message, or of the start of the file if there
+     * are no messages yet, which parsing resumes from
+     */
+    private long resumeOffset;
+
+    /**
+     * The size of the export when it was last parsed
+     */
+    private long parsedSize;
+
+    /**
+     * The checksum of the windows before the resume offset
+     */
+    private long checksum;
+
+    /**
+     * Whether a refresh failed part way through,
+     * so the export must be parsed from scratch
+     */
+    private boolean failed = false;
+
+    private IncrementalChat(File file, ParseOptions options)
+    {
+        this.file = file;
+        this.options = options;
+    }
+
+    /**
+     * Parses an export from scratch
+     *
+     * @param file The export file
+     * @param options The parse options
+     *
+     * @return The incremental chat
+     *
+     * @throws IOException If the export could not be read
+     */
+    static IncrementalChat parse(File file, ParseOptions options) throws IOException
+    {
+        assert file.exists() : "File does not exist";
+
+        IncrementalChat incremental = new IncrementalChat(file, options);
+        incremental.parseAll();
+
+        return incremental;
+    }
+
+    /**
+     * Fetches the chat, which is a new object
+     * after the export has been parsed again
+     *
+     * @return The chat
+     */
+    public Chat getChat()
+    {
+        return chat;
+    }
+
+    /**
+     * Tracks an analysis so that its result is
+     * kept up to date as messages are appended,
+     * without looking at earlier messages again
+     *
+     * @param analysis The analysis
+     */
+    public void track(AccumulatingAnalysis<?, ?> analysis)
+    {
+        if (!accumulators.containsKey(analysis))
+        {
+            accumulators.put(analysis, accumulateAll(analysis));
+        }
+    }
+
+    /**
+     * Fetches the current result of a tracked analysis
+     *
+     * @see #track(AccumulatingAnalysis)
+     *
+     * @param analysis The analysis
+     * @param <A> The accumulator type
+     * @param <T> The object type returned by the analysis
+     *
+     * @return The result
+     */
+    @SuppressWarnings("unchecked")
+    public <A, T> T getResult(AccumulatingAnalysis<A, T> analysis)
+    {
+        if (!accumulators.containsKey(analysis))
+        {
+            throw new IllegalArgumentException("Analysis is not tracked");
+        }
+
+        return analysis.finish(chat, (A) accumulators.get(analysis));
+    }
+
+    /**
+     * Brings the chat up to date with the export,
+     * parsing only what was appended to it
+     * if it still starts with what was parsed
+     *
+     * @return The outcome
+     */
+    public Refresh refresh()
+    {
+        try
+        {
+            if (extend())
+            {
+                return Refresh.EXTENDED;
+            }
+
+            parseAll();
+
+            for (Map.Entry<AccumulatingAnalysis<?, ?>, Object> entry : accumulators.entrySet())
+            {
+                entry.setValue(accumulateAll(entry.getKey()));
+            }
+
+            return Refresh.REPARSED;
+        }
+        catch (IOException ex)
+        {
+            failed = true;
+            return Refresh.FAILED;
+        }
+    }
+
+    /**
+     * Parses the export from scratch
+     *
+     * Publishes {@link me.itsmas.whatsanalysis.metrics.ParseMetrics}
+     * if metrics are enabled
+     *
+     * @throws IOException If the export could not be read
+     */
+    private void parseAll() throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+
+            ChatParser parser = new ChatParser(options.getStorage());
+            ParseRecorder recorder = ParseRecorder.create();
+
+            parser.setRecorder(recorder);
+            long lastStart = parseFrom(channel, 0, parser, recorder);
+
+            long building = System.nanoTime();
+
+            chat = parser.finish();
+            members = parser.getMembers();
+
+            if (recorder != null)
+            {
+                recorder.buildNanos = System.nanoTime() - building;
+                recorder.publish(size, members.size());
+            }
+
+            resumeOffset = Math.max(lastStart, 0);
+            parsedSize = size;
+            checksum = checksum(channel, resumeOffset);
+            failed = false;
+        }
+    }
+
+    /**
+     * Extends the chat with the bytes appended to the export
+     *
+     * Publishes {@link me.itsmas.whatsanalysis.metrics.ParseMetrics}
+     * of the bytes parsed again if metrics are enabled, whose
+     * build time is that of extending the chat, and which
+     * count only the members found in those bytes
+     *
+     * @return Whether the export had only been appended to
+     *
+     * @throws IOException If the export could not be read
+     */
+    private boolean extend() throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+
+            if (failed || size < parsedSize || checksum(channel, resumeOffset) != checksum)
+            {
+                return false;
+            }
+
+            if (size == parsedSize)
+            {
+                // Appending always grows the export
+                return true;
+            }
+
+            int previousMembers = members.size();
+
+            ChatParser parser = new ChatParser(MessageStorage.OBJECTS, false, members);
+            ParseRecorder recorder = ParseRecorder.create();
+
+            parser.setRecorder(recorder);
+            long lastStart = parseFrom(channel, resumeOffset, parser, recorder);
+
+            parser.finishMessages();
+
+            List<ChatMessage> parsed = parser.getMessages();
+            int previousMessages = chat.getMessageCount();
+
+            if (previousMessages > 0)
+            {
+                // The last message is parsed again, and must not have changed
+                if (parsed.isEmpty() || !isSameMessage(chat.getMessages().get(previousMessages - 1), parsed.get(0)))
+                {
+                    return false;
+                }
+
+                parsed = parsed.subList(1, parsed.size());
+            }
+
+            List<ChatMember> newMembers = members.getMembers().subList(previousMembers, members.size());
+
+            long building = System.nanoTime();
+            chat.extend(newMembers, parsed);
+
+            if (recorder != null)
+            {
+                recorder.buildNanos = System.nanoTime() - building;
+                recorder.publish(size - resumeOffset, newMembers.size());
+            }
+
+            // Accumulate the messages as stored in the chat
+            List<ChatMessage> appended = chat.getMessages().subList(previousMessages, chat.getMessageCount());
+
+            for (Map.Entry<AccumulatingAnalysis<?, ?>, Object> entry : accumulators.entrySet())
+            {
+                accumulate(entry.getKey(), entry.getValue(), appended);
+            }
+
+            if (lastStart != -1)
+            {
+                resumeOffset = lastStart;
+                checksum = checksum(channel, resumeOffset);
+            }
+
+            parsedSize = size;
+            return true;
+        }
+    }
+
+    /**
+     * Parses an export from an offset onwards
+     *
+     * @param channel The export channel
+     * @param offset The offset to parse from
+     * @param parser The parser
+     * @param recorder The recorder to time reading and parsing with, or null
+     *
+     * @return The offset of the line starting the last message, or -1 if none did
+     *
+     * @throws IOException If the export could not be read
+     */
+    private static long parseFrom(FileChannel channel, long offset, ChatParser parser, ParseRecorder recorder) throws IOException
+    {
+        InputStream in = Channels.newInputStream(channel.position(offset));
+        LineReader reader = new LineReader(in, offset);
+
+        long lastStart = -1;
+        long start = recorder != null ? System.nanoTime() : 0;
+        String line;
+
+        while ((line = reader.readLine()) != null)
+        {
+            long read = recorder != null ? System.nanoTime() : 0;
+
+            if (parser.parseLine(line))
+            {
+                lastStart = reader.getLineStart();
+            }
+
+            if (recorder != null)
+            {
+                long parsed = System.nanoTime();
+
+                recorder.ioNanos += read - start;
+                recorder.parseNanos += parsed - read;
+
+                start = parsed;
+            }
+        }
+
+        if (recorder != null)
+        {
+            recorder.ioNanos += System.nanoTime() - start;
+        }
+
+        return lastStart;
+    }
+
+    /**
+     * Works out the checksum of the windows at the
+     * start and end of the bytes before an offset
+     *
+     * @param channel The export channel
+     * @param offset The offset
+     *
+     * @return The checksum
+     *
+     * @throws IOException If the export could not be read
+     */
+    static long checksum(FileChannel channel, long offset) throws IOException
+    {
+        CRC32 crc = new CRC32();
+
+        long headEnd = Math.min(offset, CHECK_WINDOW);
+        long tailStart = Math.max(headEnd, offset - CHECK_WINDOW);
+
+        update(crc, channel, 0, headEnd);
+        update(crc, channel, tailStart, offset);
+
+        return crc.getValue();
+    }
+
+    /**
+     * Adds a range of bytes to a checksum
+     *
+     * @param crc The checksum
+     * @param channel The export channel
+     * @param start The start of the range
+     * @param end The end of the range
+     *
+     * @throws IOException If the export could not be read
+     */
+    private static void update(CRC32 crc, FileChannel channel, long start, long end) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, start + buffer.position()) == -1)
+            {
+                // The export was truncated
+                buffer.put((byte) 0);
+            }
+        }
+
+        crc.update(buffer.array(), 0, buffer.capacity());
+    }
+
+    /**
+     * Determines whether two messages are the same
+     *
+     * @param message The first message
+     * @param other The second message
+     *
+     * @return Whether the time, sender and content match
+     */
+    private static boolean isSameMessage(ChatMessage message, ChatMessage other)
+    {
+        return message.getTime().equals(other.getTime()) &&
+            message.getSender().getId() == other.getSender().getId() &&
+            message.getContent().equals(other.getContent());
+    }
+
+    /**
+     * Creates an accumulator of
+     * every message of the chat
+     *
+     * @param analysis The analysis
+     *
+     * @return The accumulator
+     */
+    private Object accumulateAll(AccumulatingAnalysis<?, ?> analysis)
+    {
+        Object accumulator = analysis.createAccumulator(chat);
+        accumulate(analysis, accumulator, chat.getMessages());
+
+        return accumulator;
+    }
+
+    /**
+     * Adds messages to an accumulator
+     *
+     * @param analysis The analysis
+     * @param accumulator The accumulator
+     * @param messages The messages
+     */
+    @SuppressWarnings("unchecked")
+    private static <A> void accumulate(AccumulatingAnalysis<A, ?> analysis, Object accumulator, List<ChatMessage> messages)
+    {
+        for (ChatMessage message : messages)
+        {
+            analysis.accumulate((A) accumulator, message);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package me.itsmas.whatsanalysis.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 lines from an {@link InputStream}
+ * while keeping track of their byte offsets
+ *
+ * Lines are split like {@link java.io.BufferedReader#readLine()},
+ * on '\n', '\r' or "\r\n", which never occur within
+ * a multi-byte UTF-8 sequence so can be found in the
+ * raw bytes. Malformed UTF-8 is reported as an error
+ */
+final class LineReader
+{
+    /**
+     * The initial size of the buffer
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The stream being read
+     */
+    private final InputStream in;
+
+    /**
+     * The strict decoder for lines which are not ASCII
+     */
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+
+    /**
+     * The bytes read but not yet returned as lines
+     */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * The index of the next unread byte in the buffer
+     */
+    private int position = 0;
+
+    /**
+     * The amount of bytes in the buffer
+     */
+    private int limit = 0;
+
+    /**
+     * The byte offset of the start of the buffer
+     */
+    private long bufferOffset;
+
+    /**
+     * The byte offset of the last line returned
+     */
+    private long lineStart = -1;
+
+    /**
+     * The byte offset of the end of the last
+     * line returned, before its terminator
+     */
+    private long lineEnd = -1;
+
+    /**
+     * The index in the buffer of the last line returned,
+     * whose bytes stay there until the next line is read
+     */
+    private int lineIndex = -1;
+
+    /**
+     * Whether the last line returned was all ASCII,
+     * so its chars and bytes line up one to one
+     */
+    private boolean lineAscii = false;
+
+    /**
+     * Whether the last line ended with '\r', so
+     * a following '\n' belongs to its terminator
+     */
+    private boolean skipLineFeed = false;
+
+    /**
+     * Constructor taking the stream to read
+     * and the byte offset it starts from
+     *
+     * @param in The stream
+     * @param offset The byte offset of the first byte of the stream
+     */
+    LineReader(InputStream in, long offset)
+    {
+        this.in = in;
+        this.bufferOffset = offset;
+    }
+
+    /**
+     * Reads the next line
+     *
+     * @return The line without its terminator, or null at the end of the stream
+     *
+     * @throws IOException If the stream could not be read or is not valid UTF-8
+     */
+    String readLine() throws IOException
+    {
+        return nextLine() ? decode(lineIndex, (int) (lineEnd - lineStart)) : null;
+    }
+
+    /**
+     * Skips over the next line without decoding it,
+     * so it may start part way through a character
+     *
+     * @return Whether there was a line to skip
+     *
+     * @throws IOException If the stream could not be read
+     */
+    boolean skipLine() throws IOException
+    {
+        return nextLine();
+    }
+
+    /**
+     * Finds the next line in the buffer, filling it
+     * as needed, and moves past its terminator
+     *
+     * @return Whether there was another line
+     *
+     * @throws IOException If the stream could not be read
+     */
+    private boolean nextLine() throws IOException
+    {
+        if (skipLineFeed)
+        {
+            if (position == limit && !fill())
+            {
+                return false;
+            }
+
+            if (buffer[position] == '\n')
+            {
+                position++;
+            }
+
+            skipLineFeed = false;
+        }
+
+        int scanned = position;
+
+        while (true)
+        {
+            for (int i = scanned; i < limit; i++)
+            {
+                byte b = buffer[i];
+
+                if (b == '\n' || b == '\r')
+                {
+                    lineStart = bufferOffset + position;
+                    lineEnd = bufferOffset + i;
+                    lineIndex = position;
+                    position = i + 1;
+                    skipLineFeed = b == '\r';
+
+                    return true;
+                }
+            }
+
+            scanned = limit - position;
+
+            if (!fill())
+            {
+                if (position == limit)
+                {
+                    return false;
+                }
+
+                // Final line without a terminator
+                lineStart = bufferOffset + position;
+                lineEnd = bufferOffset + limit;
+                lineIndex = position;
+                position = limit;
+
+                return true;
+            }
+
+            // Filling moves the unread bytes to the start of the buffer
+            scanned += position;
+        }
+    }
+
+    /**
+     * Fetches the byte offset of the last line returned
+     *
+     * @return The offset, or -1 if no line has been read
+     */
+    long getLineStart()
+    {
+        return lineStart;
+    }
+
+    /**
+     * Fetches the byte offset of the end of the
+     * last line returned, before its terminator
+     *
+     * @return The offset, or -1 if no line has been read
+     */
+    long getLineEnd()
+    {
+        return lineEnd;
+    }
+
+    /**
+     * Fetches the byte offset of a char
+     * within the last line returned
+     *
+     * @param index The index of the char in the line
+     *
+     * @return The offset
+     */
+    long getOffset(int index)
+    {
+        if (lineAscii)
+        {
+            return lineStart + index;
+        }
+
+        int i = lineIndex;
+
+        // The line was strictly decoded, so lead bytes can be trusted
+        for (int chars = 0; chars < index; i++)
+        {
+            int b = buffer[i] & 0xFF;
+
+            if (b < 0x80)
+            {
+                chars++;
+            }
+            else if (b >= 0xC0)
+            {
+                // Four byte sequences are decoded as surrogate pairs
+                chars += b >= 0xF0 ? 2 : 1;
+            }
+        }
+
+        while (i < limit && (buffer[i] & 0xC0) == 0x80)
+        {
+            // Skip the rest of the last sequence
+            i++;
+        }
+
+        return lineStart + (i - lineIndex);
+    }
+
+    /**
+     * Reads more bytes into the buffer, moving the unread
+     * bytes to its start and growing it if it is full
+     *
+     * @return Whether any bytes were read
+     *
+     * @throws IOException If the stream could not be read
+     */
+    private boolean fill() throws IOException
+    {
+        if (position > 0)
+        {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+
+            bufferOffset += position;
+            limit -= position;
+            position = 0;
+        }
+
+        if (limit == buffer.length)
+        {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        int read;
+
+        do
+        {
+            read = in.read(buffer, limit, buffer.length - limit);
+        }
+        while (read == 0);
+
+        if (read == -1)
+        {
+            return false;
+        }
+
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Decodes a line of the buffer
+     *
+     * @param offset The index of the first byte
+     * @param length The amount of bytes
+     *
+     * @return The line
+     *
+     * @throws IOException If the bytes are not valid UTF-8
+     */
+    private String decode(int offset, int length) throws IOException
+    {
+        for (int i = offset; i < offset + length; i++)
+        {
+            if (buffer[i] < 0)
+            {
+                lineAscii = false;
+                return decoder.decode(ByteBuffer.wrap(buffer, offset, length)).toString();
+            }
+        }
+
+        lineAscii = true;
+        return new String(buffer, offset, length, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,123 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.chat.ChatMember;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Symbol table of the members of a chat being parsed
+ *
+ * Members are looked up by name in constant time,
+ * and each new member is given the next dense id
+ * so ids follow the order members first appear in
+ *
+ * The registry of one part of a chat parsed in parallel
+ * instead resolves names through members shared by every
+ * part, which are given their ids once all parts are parsed
+ */
+final class MemberRegistry
+{
+    /**
+     * The members by name
+     */
+    private final Map<String, ChatMember> byName = new HashMap<>();
+
+    /**
+     * The members by id
+     */
+    private final List<ChatMember> byId = new ArrayList<>();
+
+    /**
+     * The members shared by every part of
+     * the chat by name, or null if not shared
+     */
+    private final ConcurrentMap<String, ChatMember> shared;
+
+    /**
+     * Constructor for the registry of a whole chat
+     */
+    MemberRegistry()
+    {
+        this(null);
+    }
+
+    /**
+     * Constructor taking the members shared by every
+     * part of a chat parsed in parallel, so that each
+     * name is the same member throughout the chat
+     *
+     * Shared members are created without ids, as ids
+     * follow the order members first appear in the whole
+     * chat, which is only known once every part is parsed
+     *
+     * @see ChatMember#assignIds(java.util.Collection)
+     *
+     * @param shared The shared members by name
+     */
+    MemberRegistry(ConcurrentMap<String, ChatMember> shared)
+    {
+        this.shared = shared;
+    }
+
+    /**
+     * Fetches a member by name, creating
+     * and registering it if not found
+     *
+     * @param name The name of the member
+     *
+     * @return The member
+     */
+    ChatMember get(String name)
+    {
+        ChatMember member = byName.get(name);
+
+        if (member == null)
+        {
+            member = shared != null ? shared.computeIfAbsent(name, MemberRegistry::createShared) : new ChatMember(byId.size(), name);
+
+            byName.put(name, member);
+            byId.add(member);
+        }
+
+        return member;
+    }
+
+    /**
+     * Creates a member shared by every part of a chat
+     *
+     * @param name The name of the member
+     *
+     * @return The member, without an id
+     */
+    @SuppressWarnings("deprecation")
+    private static ChatMember createShared(String name)
+    {
+        return new ChatMember(name);
+    }
+
+    /**
+     * Fetches the amount of registered members
+     *
+     * @return The member count
+     */
+    int size()
+    {
+        return byId.size();
+    }
+
+    /**
+     * Fetches the registered members ordered by id,
+     * or by first appearance if they are shared
+     *
+     * @return Immutable list of members
+     */
+    List<ChatMember> getMembers()
+    {
+        return Collections.unmodifiableList(byId);
+    }
+}
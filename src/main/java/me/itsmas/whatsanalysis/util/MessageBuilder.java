@@ -2,6 +2,8 @@ package me.itsmas.whatsanalysis.util;
 
 import me.itsmas.whatsanalysis.chat.ChatMember;
 import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.chat.MessageColumns;
+import me.itsmas.whatsanalysis.chat.MessageSource;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -16,9 +18,9 @@ import java.util.List;
 final class MessageBuilder
 {
     /**
-     * The time the message was sent
+     * The time the message was sent, in epoch milliseconds
      */
-    private final Date time;
+    private final long time;
 
     /**
      * The message's sender
@@ -35,11 +37,28 @@ final class MessageBuilder
      */
     private boolean built = false;
 
-    MessageBuilder(Date time, ChatMember member)
+    /**
+     * The byte offset of the content in its source,
+     * or -1 if the content is not a single range of one
+     */
+    private int sourceStart = -1;
+
+    /**
+     * The byte offset of the end of the content in its source
+     */
+    private int sourceEnd = -1;
+
+    /**
+     * Whether lines have been added to the content in
+     * its source without being kept in {@link #messageLines}
+     */
+    private boolean sourceLines = false;
+
+    MessageBuilder(long time, ChatMember member)
     {
         this.time = time;
         this.member = member;
-        this.messageLines = new ArrayList<>();
+        this.messageLines = new ArrayList<>(1);
     }
 
     /**
@@ -54,6 +73,74 @@ final class MessageBuilder
         messageLines.add(line);
     }
 
+    /**
+     * Fetches the length of the first line of
+     * the message, i.e. the rest of its header line
+     *
+     * @return The length in chars
+     */
+    int getFirstLineLength()
+    {
+        return messageLines.get(0).length();
+    }
+
+    /**
+     * Sets where the content is in its source,
+     * given the first line has just been added
+     *
+     * @see MessageSource
+     *
+     * @param start The byte offset of the start of the content
+     * @param lineEnd The byte offset of the end of the line
+     */
+    void setSourceLine(int start, int lineEnd)
+    {
+        sourceStart = start;
+        sourceEnd = lineEnd;
+    }
+
+    /**
+     * Adds a line to the message which is
+     * left in the source along with the content,
+     * unless the content is no longer a single range
+     *
+     * @param line The line
+     * @param lineEnd The byte offset of the end of the line
+     */
+    void addSourceLine(String line, int lineEnd)
+    {
+        if (sourceStart == -1)
+        {
+            addMessageLine(line);
+            return;
+        }
+
+        sourceEnd = lineEnd;
+        sourceLines = true;
+    }
+
+    /**
+     * Marks the content as no longer a single range of
+     * its source, for when a line within it was skipped,
+     * decoding the content so far from the source
+     *
+     * @param source The source the lines were read from
+     */
+    void clearSource(MessageSource source)
+    {
+        if (sourceStart == -1)
+        {
+            return;
+        }
+
+        if (sourceLines)
+        {
+            messageLines.set(0, source.decode(sourceStart, sourceEnd - sourceStart));
+        }
+
+        sourceStart = -1;
+    }
+
     /**
      * Fetches whether the message has been built
      *
@@ -69,20 +156,96 @@ final class MessageBuilder
     /**
      * Builds a {@link ChatMessage} object from the builder
      *
+     * The message is not attached to its sender,
+     * this is left to the caller so that messages
+     * can be attached in chat order
+     *
      * @return The message
      */
     ChatMessage build()
     {
-        if (!built)
+        markBuilt();
+
+        return new ChatMessage(new Date(time), member, getContent());
+    }
+
+    /**
+     * Builds a {@link ChatMessage} object whose
+     * content is left in its source until requested
+     *
+     * Media messages, and messages whose content is
+     * not a single range of the source, are built
+     * like {@link #build()} instead
+     *
+     * @param source The source the lines were read from
+     *
+     * @return The message
+     */
+    ChatMessage build(MessageSource source)
+    {
+        if (sourceStart == -1 || isMediaContent())
+        {
+            return build();
+        }
+
+        markBuilt();
+
+        return source.createMessage(new Date(time), member, sourceStart, sourceEnd - sourceStart);
+    }
+
+    /**
+     * Builds the message straight into
+     * {@link MessageColumns} without creating
+     * a {@link ChatMessage} object
+     *
+     * @param columns The columns to add the message to
+     */
+    void buildInto(MessageColumns columns)
+    {
+        markBuilt();
+
+        columns.add(time, member.getId(), getContent());
+    }
+
+    /**
+     * Marks the message as built, making
+     * sure it is only ever built once
+     */
+    private void markBuilt()
+    {
+        if (built)
         {
-            built = true;
+            throw new IllegalArgumentException("ChatMessage already built");
+        }
 
-            ChatMessage message = new ChatMessage(time, member, String.join("\n", messageLines));
-            member.addMessage(message);
+        built = true;
+    }
 
-            return message;
+    /**
+     * Joins the message lines into its content
+     *
+     * @return The content
+     */
+    private String getContent()
+    {
+        if (isMediaContent())
+        {
+            // Share a single instance between all media messages
+            return ChatMessage.MEDIA_CONTENT;
         }
 
-        throw new IllegalArgumentException("ChatMessage already built");
+        return messageLines.size() == 1 ? messageLines.get(0) : String.join("\n", messageLines);
+    }
+
+    /**
+     * Determines whether the message is a media message
+     *
+     * @see ChatMessage#isMediaMessage()
+     *
+     * @return Whether the content is that of a media message
+     */
+    private boolean isMediaContent()
+    {
+        return !sourceLines && messageLines.size() == 1 && messageLines.get(0).equals(ChatMessage.MEDIA_CONTENT);
     }
 }
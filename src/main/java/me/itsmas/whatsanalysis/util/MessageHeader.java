@@ -0,0 +1,418 @@
+package me.itsmas.whatsanalysis.util;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Fixed-position scanner for message headers
+ *
+ * Example header: 01/01/2020, 00:00 - Sam: Hello from the future
+ *
+ * Lines are checked character by character rather than
+ * with a regular expression, and times are worked out
+ * arithmetically rather than with a {@link DateFormat}.
+ * All methods are safe to call from any number of threads
+ *
+ * Times are in the default time zone as it was when
+ * their day was first seen, so a change of default
+ * applies from the next day parsed
+ */
+final class MessageHeader
+{
+    private MessageHeader() {}
+
+    /**
+     * The length of the fixed part of a
+     * header, i.e. "dd/MM/yyyy, HH:mm - "
+     */
+    static final int PREFIX_LENGTH = 20;
+
+    /**
+     * Milliseconds in a minute
+     */
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    /**
+     * Minutes in a day
+     */
+    private static final long MINUTES_PER_DAY = 1440L;
+
+    /**
+     * Date format used for headers holding out of range
+     * fields, which are resolved leniently exactly as
+     * they were before this scanner existed
+     *
+     * Years outside 1970-2037 also go through here, as
+     * {@link java.util.TimeZone} and {@link ZoneRules}
+     * disagree on historic and far future offsets
+     */
+    private static final ThreadLocal<DateFormat> lenientFormat = ThreadLocal.withInitial(() ->
+        new SimpleDateFormat("dd/MM/yyyy, HH:mm")
+    );
+
+    /**
+     * The day of the most recently parsed header
+     *
+     * Consecutive messages are nearly always sent on the same
+     * day, so the day part of the time is cached. The cache
+     * holds an immutable object so racing threads at worst
+     * recompute the day, never see a half written one
+     */
+    private static DayCache lastDay = new DayCache(-1, 0, 0, false, null);
+
+    /**
+     * Finds the separator between the sender
+     * and content of a message header line
+     *
+     * @param line The line
+     *
+     * @return The index of the first ": " after the prefix,
+     *         or -1 if the line is not a message header
+     */
+    static int separatorIndex(String line)
+    {
+        int length = line.length();
+
+        if (length < PREFIX_LENGTH + 2 || !hasPrefix(line))
+        {
+            return -1;
+        }
+
+        int separator = -1;
+
+        for (int i = PREFIX_LENGTH; i < length; i++)
+        {
+            char c = line.charAt(i);
+
+            if (isLineTerminator(c))
+            {
+                // Would not have been matched by the old pattern's '.'
+                return -1;
+            }
+
+            if (separator == -1 && c == ':' && i + 1 < length && line.charAt(i + 1) == ' ')
+            {
+                separator = i;
+            }
+        }
+
+        return separator;
+    }
+
+    /**
+     * Determines whether a line starts
+     * with the fixed "dd/MM/yyyy, HH:mm - " prefix
+     *
+     * @param line The line
+     *
+     * @return Whether the line has the prefix
+     */
+    private static boolean hasPrefix(CharSequence line)
+    {
+        return isDigit(line.charAt(0)) && isDigit(line.charAt(1))
+            && line.charAt(2) == '/'
+            && isDigit(line.charAt(3)) && isDigit(line.charAt(4))
+            && line.charAt(5) == '/'
+            && isDigit(line.charAt(6)) && isDigit(line.charAt(7)) && isDigit(line.charAt(8)) && isDigit(line.charAt(9))
+            && line.charAt(10) == ',' && line.charAt(11) == ' '
+            && isDigit(line.charAt(12)) && isDigit(line.charAt(13))
+            && line.charAt(14) == ':'
+            && isDigit(line.charAt(15)) && isDigit(line.charAt(16))
+            && line.charAt(17) == ' ' && line.charAt(18) == '-' && line.charAt(19) == ' ';
+    }
+
+    /**
+     * Parses the time of a message header
+     *
+     * The line must be a header, as
+     * checked by {@link #separatorIndex(String)}
+     *
+     * @param line The header line
+     *
+     * @return The time in epoch milliseconds
+     */
+    static long parseTime(String line)
+    {
+        int day = twoDigits(line, 0);
+        int month = twoDigits(line, 3);
+        int year = twoDigits(line, 6) * 100 + twoDigits(line, 8);
+        int hour = twoDigits(line, 12);
+        int minute = twoDigits(line, 15);
+
+        // Anything unusual is left to the lenient formatter
+        if (isUnusual(day, month, year, hour, minute))
+        {
+            return parseLenient(line);
+        }
+
+        int key = (year * 100 + month) * 100 + day;
+        DayCache cache = lastDay;
+
+        if (cache.key != key)
+        {
+            cache = DayCache.of(key, year, month, day);
+            lastDay = cache;
+        }
+
+        long localMinutes = cache.localMidnightMinutes + hour * 60 + minute;
+
+        if (cache.fixedOffset)
+        {
+            return localMinutes * MILLIS_PER_MINUTE - cache.offsetSeconds * 1000L;
+        }
+
+        // The offset changes during this day
+        LocalDateTime dateTime = LocalDateTime.of(year, month, day, hour, minute);
+        return localMinutes * MILLIS_PER_MINUTE - offsetOf(cache.zoneRules, dateTime).getTotalSeconds() * 1000L;
+    }
+
+    /**
+     * Determines whether the time of a message header
+     * is resolved leniently rather than scanned directly
+     *
+     * The line must be a header, as
+     * checked by {@link #separatorIndex(String)}
+     *
+     * @see #parseTime(String)
+     *
+     * @param line The header line
+     *
+     * @return Whether the time has unusual fields
+     */
+    static boolean isLenientTime(String line)
+    {
+        return isUnusual(twoDigits(line, 0), twoDigits(line, 3), twoDigits(line, 6) * 100 + twoDigits(line, 8),
+            twoDigits(line, 12), twoDigits(line, 15));
+    }
+
+    /**
+     * Determines whether the time of a message header
+     * has out of range fields, such as the 31st of
+     * February, which the lenient formatter rolls over
+     *
+     * The line must be a header, as
+     * checked by {@link #separatorIndex(String)}
+     *
+     * @see #isLenientTime(String)
+     *
+     * @param line The header line
+     *
+     * @return Whether the time is not a real time
+     */
+    static boolean isInvalidTime(String line)
+    {
+        return isInvalid(twoDigits(line, 0), twoDigits(line, 3), twoDigits(line, 6) * 100 + twoDigits(line, 8),
+            twoDigits(line, 12), twoDigits(line, 15));
+    }
+
+    /**
+     * Determines whether the fields of a time are out of
+     * range, or outside the years the fast path handles
+     *
+     * @param day The day of the month
+     * @param month The month
+     * @param year The year
+     * @param hour The hour
+     * @param minute The minute
+     *
+     * @return Whether the fields are unusual
+     */
+    private static boolean isUnusual(int day, int month, int year, int hour, int minute)
+    {
+        return year < 1970 || year > 2037 || isInvalid(day, month, year, hour, minute);
+    }
+
+    /**
+     * Determines whether the fields of a time are out of range
+     *
+     * @param day The day of the month
+     * @param month The month
+     * @param year The year
+     * @param hour The hour
+     * @param minute The minute
+     *
+     * @return Whether the fields are invalid
+     */
+    private static boolean isInvalid(int day, int month, int year, int hour, int minute)
+    {
+        return month < 1 || month > 12 || day < 1 || hour > 23 || minute > 59
+            || day > LocalDate.of(year, month, 1).lengthOfMonth();
+    }
+
+    /**
+     * Resolves the offset of a local time the same
+     * way {@link java.util.GregorianCalendar} does:
+     * times in a gap use the offset before the gap,
+     * and ambiguous times are taken as standard time
+     *
+     * @param zoneRules The rules of the time zone
+     * @param dateTime The local time
+     *
+     * @return The offset
+     */
+    private static ZoneOffset offsetOf(ZoneRules zoneRules, LocalDateTime dateTime)
+    {
+        List<ZoneOffset> offsets = zoneRules.getValidOffsets(dateTime);
+
+        if (offsets.isEmpty())
+        {
+            return zoneRules.getTransition(dateTime).getOffsetBefore();
+        }
+
+        return offsets.get(offsets.size() - 1);
+    }
+
+    /**
+     * Parses the time of a header leniently
+     * with a {@link SimpleDateFormat}
+     *
+     * @param line The header line
+     *
+     * @return The time in epoch milliseconds
+     */
+    private static long parseLenient(String line)
+    {
+        DateFormat format = lenientFormat.get();
+        format.setTimeZone(TimeZone.getDefault());
+
+        try
+        {
+            return format.parse(line.substring(0, 17)).getTime();
+        }
+        catch (ParseException ex)
+        {
+            // Can not happen for a line with a valid prefix
+            throw new IllegalArgumentException("Invalid message time: " + line, ex);
+        }
+    }
+
+    /**
+     * Reads two decimal digits
+     *
+     * @param line The line
+     * @param index The index of the first digit
+     *
+     * @return The value
+     */
+    private static int twoDigits(String line, int index)
+    {
+        return (line.charAt(index) - '0') * 10 + (line.charAt(index + 1) - '0');
+    }
+
+    /**
+     * Determines whether a character is an ASCII digit
+     *
+     * @param c The character
+     *
+     * @return Whether the character is a digit
+     */
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Determines whether a character is a line terminator
+     * as understood by {@link java.util.regex.Pattern}
+     *
+     * @param c The character
+     *
+     * @return Whether the character is a line terminator
+     */
+    private static boolean isLineTerminator(char c)
+    {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Cached data about a single day
+     */
+    private static final class DayCache
+    {
+        /**
+         * The day, packed as yyyyMMdd
+         */
+        private final int key;
+
+        /**
+         * Local midnight as minutes since the epoch,
+         * not yet adjusted for the zone offset
+         */
+        private final long localMidnightMinutes;
+
+        /**
+         * The zone offset of the day, if fixed
+         */
+        private final int offsetSeconds;
+
+        /**
+         * Whether the zone offset is the same all day
+         */
+        private final boolean fixedOffset;
+
+        /**
+         * The rules of the time zone the day is in
+         */
+        private final ZoneRules zoneRules;
+
+        private DayCache(int key, long localMidnightMinutes, int offsetSeconds, boolean fixedOffset, ZoneRules zoneRules)
+        {
+            this.key = key;
+            this.localMidnightMinutes = localMidnightMinutes;
+            this.offsetSeconds = offsetSeconds;
+            this.fixedOffset = fixedOffset;
+            this.zoneRules = zoneRules;
+        }
+
+        /**
+         * Works out the cached data for a day
+         * in the default time zone
+         *
+         * @param key The packed day
+         * @param year The year
+         * @param month The month
+         * @param day The day of the month
+         *
+         * @return The day cache
+         */
+        private static DayCache of(int key, int year, int month, int day)
+        {
+            long localMidnightMinutes = epochDay(year, month, day) * MINUTES_PER_DAY;
+            ZoneRules zoneRules = ZoneId.systemDefault().getRules();
+
+            ZoneOffset start = offsetOf(zoneRules, LocalDateTime.of(year, month, day, 0, 0));
+            ZoneOffset end = offsetOf(zoneRules, LocalDateTime.of(year, month, day, 23, 59));
+
+            return new DayCache(key, localMidnightMinutes, start.getTotalSeconds(), start.equals(end), zoneRules);
+        }
+
+        /**
+         * Works out the days since the
+         * epoch of a proleptic Gregorian date
+         *
+         * @param year The year
+         * @param month The month
+         * @param day The day of the month
+         *
+         * @return The epoch day
+         */
+        private static long epochDay(int year, int month, int day)
+        {
+            int y = month <= 2 ? year - 1 : year;
+            int era = Math.floorDiv(y, 400);
+            int yearOfEra = y - era * 400;
+            int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+            int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+            return era * 146097L + dayOfEra - 719468;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.chat.MessageColumns;
+import me.itsmas.whatsanalysis.chat.MessageSource;
+
+/**
+ * How the messages of a parsed {@link Chat} are stored
+ */
+public enum MessageStorage
+{
+    /**
+     * Each message is held as its own {@link ChatMessage}
+     * object and is also referenced from its sender
+     */
+    OBJECTS,
+
+    /**
+     * Messages are held in {@link MessageColumns}, with
+     * {@link ChatMessage} views created on demand. Uses
+     * far less memory, but the same message fetched twice
+     * gives two different (though equal) objects
+     */
+    COLUMNAR,
+
+    /**
+     * Each message is held as its own {@link ChatMessage}
+     * object, but its content is left in a shared
+     * {@link MessageSource} over the export (memory-mapped
+     * for files) and only decoded when requested
+     *
+     * Only applies to sequential parses of files and
+     * streams; other parses store messages as {@link #OBJECTS}
+     */
+    LAZY
+}
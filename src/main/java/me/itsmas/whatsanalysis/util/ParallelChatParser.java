@@ -0,0 +1,486 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.chat.MessageColumns;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses a single chat file in parallel
+ *
+ * The file is split into byte ranges, and each split
+ * point is moved forward to the start of the next line
+ * which begins a new message so that no message is
+ * ever cut in half. Every range is then parsed on a
+ * {@link ForkJoinPool} and the results are merged in
+ * order, giving the same {@link Chat} as a sequential parse
+ *
+ * Chunks resolve senders through members shared by every
+ * chunk, so each message is built with its final sender.
+ * Ids are given to the members once every chunk is parsed,
+ * in the order they first appear chunk by chunk, which gives
+ * them the same ids as a sequential parse. Columnar chunks,
+ * which need ids while parsing, instead register members
+ * in their own {@link MemberRegistry} and are appended to
+ * the first chunk's columns with their sender ids mapped
+ * to the merged ids
+ */
+final class ParallelChatParser
+{
+    /**
+     * The smallest amount of bytes worth parsing as its own chunk
+     */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * The largest amount of bytes to give a single chunk
+     */
+    private static final long MAX_CHUNK_SIZE = 1 << 26;
+
+    /**
+     * The amount of chunks to create per thread,
+     * giving the pool room to balance uneven chunks
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The size of read buffers
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * How parsed messages are stored
+     */
+    private final MessageStorage storage;
+
+    /**
+     * The channel of the file being parsed
+     */
+    private final FileChannel channel;
+
+    /**
+     * The size of the file
+     */
+    private final long size;
+
+    /**
+     * The split points, moved to the start
+     * of messages before parsing
+     */
+    private final long[] splits;
+
+    /**
+     * The parser of each chunk
+     */
+    private final ChatParser[] parsers;
+
+    /**
+     * The recorder of each chunk, or null
+     * if metrics were not enabled for it
+     */
+    private final ParseRecorder[] recorders;
+
+    /**
+     * The members shared by every chunk by name,
+     * when storing messages as objects
+     */
+    private final ConcurrentMap<String, ChatMember> sharedMembers;
+
+    /**
+     * The merged members of all chunks, ordered by id
+     */
+    private List<ChatMember> members;
+
+    /**
+     * The merged id of each columnar chunk's members, by chunk and local id
+     */
+    private int[][] senderMaps;
+
+    private ParallelChatParser(MessageStorage storage, FileChannel channel, long size, int parallelism)
+    {
+        this.storage = storage;
+        this.channel = channel;
+        this.size = size;
+
+        long chunks = Math.max(1, Math.min(size / MIN_CHUNK_SIZE, (long) parallelism * CHUNKS_PER_THREAD));
+        chunks = Math.max(chunks, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+
+        this.splits = new long[(int) chunks + 1];
+
+        for (int i = 0; i <= chunks; i++)
+        {
+            splits[i] = size * i / chunks;
+        }
+
+        this.parsers = new ChatParser[(int) chunks];
+        this.recorders = new ParseRecorder[(int) chunks];
+        this.sharedMembers = storage != MessageStorage.COLUMNAR ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link File} in parallel
+     *
+     * Publishes {@link me.itsmas.whatsanalysis.metrics.ParseMetrics}
+     * if metrics are enabled, whose read and parse times
+     * are summed over all chunks, and whose build time
+     * is that of merging the chunks into the chat
+     *
+     * @param file The file
+     * @param pool The pool to parse on
+     * @param options The parse options
+     *
+     * @return The chat
+     *
+     * @throws IOException If the file could not be read
+     */
+    static Chat parse(File file, ForkJoinPool pool, ParseOptions options) throws IOException
+    {
+        assert file.exists() : "File does not exist";
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            ParallelChatParser parser = new ParallelChatParser(options.getStorage(), channel, channel.size(), pool.getParallelism());
+            ParseRecorder recorder = ParseRecorder.create();
+
+            Chat chat;
+
+            try
+            {
+                parser.alignSplits();
+                pool.invoke(parser.new ChunkTask(0, parser.parsers.length));
+
+                long merging = System.nanoTime();
+
+                chat = parser.storage == MessageStorage.COLUMNAR ? parser.createColumnarChat() : parser.createChat();
+
+                if (recorder != null)
+                {
+                    recorder.buildNanos = System.nanoTime() - merging;
+                    parser.publish(recorder);
+                }
+            }
+            catch (UncheckedIOException ex)
+            {
+                throw ex.getCause();
+            }
+
+            return chat;
+        }
+    }
+
+    /**
+     * Publishes the metrics of every chunk combined
+     *
+     * @param recorder The recorder of the whole parse
+     */
+    private void publish(ParseRecorder recorder)
+    {
+        for (ParseRecorder chunk : recorders)
+        {
+            if (chunk != null)
+            {
+                recorder.add(chunk);
+            }
+        }
+
+        recorder.publish(size, members.size());
+    }
+
+    /**
+     * Moves every split point between chunks forward
+     * to the start of a message, so that each is
+     * found once before the chunks are parsed
+     *
+     * @throws IOException If the file could not be read
+     */
+    private void alignSplits() throws IOException
+    {
+        for (int i = 1; i < splits.length - 1; i++)
+        {
+            splits[i] = align(splits[i]);
+        }
+    }
+
+    /**
+     * Creates the merged chat, giving members their
+     * ids in the order they first appear chunk by
+     * chunk and attaching messages to their senders
+     *
+     * @return The chat
+     */
+    private Chat createChat()
+    {
+        Set<ChatMember> merged = new LinkedHashSet<>();
+        int total = 0;
+
+        for (ChatParser parser : parsers)
+        {
+            merged.addAll(parser.getMembers().getMembers());
+            total += parser.getMessages().size();
+        }
+
+        ChatMember.assignIds(merged);
+        members = new ArrayList<>(merged);
+
+        List<ChatMessage> messages = new ArrayList<>(total);
+
+        for (ChatParser parser : parsers)
+        {
+            messages.addAll(parser.getMessages());
+        }
+
+        for (ChatMessage message : messages)
+        {
+            message.getSender().addMessage(message);
+        }
+
+        return new Chat(merged, messages);
+    }
+
+    /**
+     * Merges the member registries of all columnar
+     * chunks in order, which gives members the same
+     * ids as a sequential parse
+     */
+    private void mergeColumnarMembers()
+    {
+        // The first chunk's members already have the right ids
+        MemberRegistry merged = parsers[0].getMembers();
+        senderMaps = new int[parsers.length][];
+
+        for (int i = 1; i < parsers.length; i++)
+        {
+            List<ChatMember> local = parsers[i].getMembers().getMembers();
+            senderMaps[i] = new int[local.size()];
+
+            for (ChatMember member : local)
+            {
+                senderMaps[i][member.getId()] = merged.get(member.getName()).getId();
+            }
+        }
+
+        members = merged.getMembers();
+    }
+
+    /**
+     * Creates the merged chat when storing messages in
+     * columns, appending all chunks to the first one
+     *
+     * @return The chat
+     */
+    private Chat createColumnarChat()
+    {
+        mergeColumnarMembers();
+
+        MessageColumns columns = parsers[0].getColumns();
+
+        for (int i = 1; i < parsers.length; i++)
+        {
+            columns.addAll(parsers[i].getColumns(), senderMaps[i]);
+
+            // Let the chunk's columns be collected
+            parsers[i] = null;
+        }
+
+        columns.trim();
+
+        return new Chat(new LinkedHashSet<>(members), columns);
+    }
+
+    /**
+     * Parses a single chunk
+     *
+     * @param index The chunk index
+     *
+     * @throws IOException If the chunk could not be read
+     */
+    private void parseChunk(int index) throws IOException
+    {
+        long start = splits[index];
+        long end = splits[index + 1];
+
+        MemberRegistry registry = sharedMembers != null ? new MemberRegistry(sharedMembers) : new MemberRegistry();
+        ChatParser parser = new ChatParser(storage, false, registry);
+
+        recorders[index] = ParseRecorder.create();
+        parser.setRecorder(recorders[index]);
+
+        if (start < end)
+        {
+            InputStream in = new RangeInputStream(channel, start, end);
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()), BUFFER_SIZE))
+            {
+                parser.parseLines(reader);
+            }
+        }
+
+        parser.finishMessages();
+        parsers[index] = parser;
+    }
+
+    /**
+     * Moves a split point forward to the start of
+     * the first line at or after it which begins a
+     * new message, or to the end of the file if
+     * there is no such line
+     *
+     * @param position The split point
+     *
+     * @return The aligned split point
+     *
+     * @throws IOException If the file could not be read
+     */
+    private long align(long position) throws IOException
+    {
+        if (position <= 0 || position >= size)
+        {
+            return Math.max(0, Math.min(position, size));
+        }
+
+        // Starting a byte early, the first line is either the
+        // end of the line the split point is part way through,
+        // or the empty end of the line before it, so can not
+        // be a message start
+        LineReader reader = new LineReader(new RangeInputStream(channel, position - 1, size), position - 1);
+        reader.skipLine();
+
+        String line;
+
+        while ((line = reader.readLine()) != null)
+        {
+            if (UtilMessage.isMessageStart(line))
+            {
+                return reader.getLineStart();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Task parsing a range of chunks,
+     * splitting it until single chunks remain
+     */
+    private final class ChunkTask extends RecursiveAction
+    {
+        /**
+         * The version of the serialized form
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The first chunk index, inclusive
+         */
+        private final int from;
+
+        /**
+         * The last chunk index, exclusive
+         */
+        private final int to;
+
+        private ChunkTask(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > 1)
+            {
+                int middle = (from + to) >>> 1;
+
+                invokeAll(new ChunkTask(from, middle), new ChunkTask(middle, to));
+                return;
+            }
+
+            try
+            {
+                parseChunk(from);
+            }
+            catch (IOException ex)
+            {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * {@link InputStream} over a byte range of a {@link FileChannel}
+     *
+     * Uses positional reads so that any number
+     * of streams can read the same channel at once
+     */
+    private static final class RangeInputStream extends InputStream
+    {
+        /**
+         * The channel to read from
+         */
+        private final FileChannel channel;
+
+        /**
+         * The end of the range, exclusive
+         */
+        private final long end;
+
+        /**
+         * The next position to read from
+         */
+        private long position;
+
+        private RangeInputStream(FileChannel channel, long start, long end)
+        {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            byte[] single = new byte[1];
+
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException
+        {
+            if (position >= end)
+            {
+                return -1;
+            }
+
+            int toRead = (int) Math.min(len, end - position);
+            int read = channel.read(ByteBuffer.wrap(bytes, off, toRead), position);
+
+            if (read > 0)
+            {
+                position += read;
+            }
+
+            return read;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.chat.Chat;
+
+/**
+ * Options for parsing a {@link Chat}
+ *
+ * Options are immutable, each with* method
+ * returns a copy with the option changed
+ */
+public final class ParseOptions
+{
+    /**
+     * The default options
+     */
+    public static final ParseOptions DEFAULT = new ParseOptions(MessageStorage.OBJECTS);
+
+    /**
+     * How parsed messages are stored
+     */
+    private final MessageStorage storage;
+
+    private ParseOptions(MessageStorage storage)
+    {
+        this.storage = storage;
+    }
+
+    /**
+     * Fetches how parsed messages are stored
+     *
+     * @see #storage
+     *
+     * @return The message storage
+     */
+    public MessageStorage getStorage()
+    {
+        return storage;
+    }
+
+    /**
+     * Creates a copy of these options
+     * with a different message storage
+     *
+     * @param storage The message storage
+     *
+     * @return The new options
+     */
+    public ParseOptions withStorage(MessageStorage storage)
+    {
+        return new ParseOptions(storage);
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        return other instanceof ParseOptions && ((ParseOptions) other).storage == storage;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return storage.hashCode();
+    }
+}
@@ -0,0 +1,104 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.metrics.Metrics;
+import me.itsmas.whatsanalysis.metrics.ParseMetrics;
+
+/**
+ * Counts what a {@link ChatParser} sees
+ * and times the phases of a parse
+ *
+ * Only created while metrics are enabled,
+ * so parses without a listener do no counting
+ *
+ * @see Metrics
+ */
+final class ParseRecorder
+{
+    /**
+     * The amount of lines read
+     */
+    long lines = 0;
+
+    /**
+     * The amount of lines starting a message
+     */
+    long headers = 0;
+
+    /**
+     * The amount of lines continuing a message
+     */
+    long continuationLines = 0;
+
+    /**
+     * The amount of system lines skipped
+     */
+    long ignoredLines = 0;
+
+    /**
+     * The amount of headers whose date was resolved leniently
+     */
+    long lenientDates = 0;
+
+    /**
+     * The amount of headers whose date had out of range fields
+     */
+    long dateParseFailures = 0;
+
+    /**
+     * The time spent reading lines
+     */
+    long ioNanos = 0;
+
+    /**
+     * The time spent parsing lines
+     */
+    long parseNanos = 0;
+
+    /**
+     * The time spent building the chat
+     */
+    long buildNanos = 0;
+
+    /**
+     * Creates a recorder if metrics are enabled
+     *
+     * @return The recorder, or null if there is no listener
+     */
+    static ParseRecorder create()
+    {
+        return Metrics.isEnabled() ? new ParseRecorder() : null;
+    }
+
+    /**
+     * Adds the counts and times of another
+     * recorder, such as that of a chunk
+     * of a chat parsed in parallel
+     *
+     * @param other The other recorder
+     */
+    void add(ParseRecorder other)
+    {
+        lines += other.lines;
+        headers += other.headers;
+        continuationLines += other.continuationLines;
+        ignoredLines += other.ignoredLines;
+        lenientDates += other.lenientDates;
+        dateParseFailures += other.dateParseFailures;
+        ioNanos += other.ioNanos;
+        parseNanos += other.parseNanos;
+    }
+
+    /**
+     * Publishes the recorded metrics
+     *
+     * @param bytes The amount of bytes read, or -1 if unknown
+     * @param membersCreated The amount of members found
+     */
+    void publish(long bytes, int membersCreated)
+    {
+        Metrics.getListener().onParse(new ParseMetrics(
+            bytes, lines, headers, continuationLines, ignoredLines,
+            lenientDates, dateParseFailures, membersCreated, ioNanos, parseNanos, buildNanos
+        ));
+    }
+}
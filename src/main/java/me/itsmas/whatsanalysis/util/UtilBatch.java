@@ -0,0 +1,112 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Batch analysis utilities
+ */
+public final class UtilBatch
+{
+    private UtilBatch() {}
+
+    /**
+     * The file extension of exports
+     */
+    private static final String EXPORT_EXTENSION = ".txt";
+
+    /**
+     * The file extension of zipped exports
+     */
+    private static final String ZIP_EXTENSION = ".zip";
+
+    /**
+     * Lists the exports in a directory,
+     * including zipped exports
+     *
+     * @param directory The directory
+     *
+     * @return The export files sorted by name, or null if the directory could not be listed
+     */
+    public static List<File> listExports(File directory)
+    {
+        File[] files = directory.listFiles(file -> file.isFile() &&
+            (file.getName().endsWith(EXPORT_EXTENSION) || file.getName().endsWith(ZIP_EXTENSION)));
+
+        if (files == null)
+        {
+            return null;
+        }
+
+        return Arrays.stream(files).sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Starts analysing every export in a
+     * directory using the default options
+     *
+     * @see #analyseExports(File, Collection, BatchOptions, BatchListener)
+     *
+     * @param directory The directory
+     * @param analyses The analyses to execute on each export
+     * @param listener The listener notified of each outcome
+     *
+     * @return The running batch, or null if the directory could not be listed
+     */
+    public static BatchJob analyseExports(File directory, Collection<? extends ChatAnalysis<?>> analyses, BatchListener listener)
+    {
+        return analyseExports(directory, analyses, BatchOptions.DEFAULT, listener);
+    }
+
+    /**
+     * Starts analysing every export in a directory
+     *
+     * @see #listExports(File)
+     * @see #analyseExports(Collection, Collection, BatchOptions, BatchListener)
+     *
+     * @param directory The directory
+     * @param analyses The analyses to execute on each export
+     * @param options The batch options
+     * @param listener The listener notified of each outcome
+     *
+     * @return The running batch, or null if the directory could not be listed
+     */
+    public static BatchJob analyseExports(File directory, Collection<? extends ChatAnalysis<?>> analyses, BatchOptions options, BatchListener listener)
+    {
+        List<File> files = listExports(directory);
+
+        if (files == null)
+        {
+            return null;
+        }
+
+        return analyseExports(files, analyses, options, listener);
+    }
+
+    /**
+     * Starts analysing exports concurrently
+     *
+     * Returns straight away, with each outcome passed to
+     * the listener as its export is done. An export which
+     * cannot be read, parsed or analysed is reported as
+     * a failure without affecting the rest of the batch
+     *
+     * @see BatchJob
+     *
+     * @param files The export files
+     * @param analyses The analyses to execute on each export
+     * @param options The batch options
+     * @param listener The listener notified of each outcome
+     *
+     * @return The running batch
+     */
+    public static BatchJob analyseExports(Collection<File> files, Collection<? extends ChatAnalysis<?>> analyses, BatchOptions options, BatchListener listener)
+    {
+        return BatchJob.start(files, analyses, options, listener);
+    }
+}
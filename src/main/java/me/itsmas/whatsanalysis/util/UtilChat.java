@@ -1,15 +1,27 @@
 package me.itsmas.whatsanalysis.util;
 
+import me.itsmas.whatsanalysis.analysis.AnalysisPipeline;
+import me.itsmas.whatsanalysis.analysis.AnalysisResults;
+import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
+import me.itsmas.whatsanalysis.analysis.PipelineOptions;
 import me.itsmas.whatsanalysis.chat.Chat;
-import me.itsmas.whatsanalysis.chat.ChatMember;
-import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.chat.MessageSource;
+import me.itsmas.whatsanalysis.metrics.ParseMetrics;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * ChatMessage utilities
@@ -20,6 +32,9 @@ public final class UtilChat
 
     /**
      * Parses a {@link Chat} from a {@link File}
+     * using the default options
+     *
+     * @see #parseChat(File, ParseOptions)
      *
      * @param file The file
      *
@@ -27,52 +42,555 @@ public final class UtilChat
      */
     public static Chat parseChat(File file)
     {
-        List<String> lines = UtilFile.readLines(file);
+        return parseChat(file, ParseOptions.DEFAULT);
+    }
 
-        if (lines == null)
+    /**
+     * Parses a {@link Chat} from a {@link File}
+     *
+     * The file is streamed line by line rather
+     * than read into memory up front. Zipped
+     * exports are recognised, and only their
+     * chat is decompressed, straight into the parser
+     *
+     * With {@link MessageStorage#LAZY} storage the file
+     * is memory-mapped instead, and stays mapped while
+     * any of the chat's messages are reachable
+     *
+     * @param file The file
+     * @param options The parse options
+     *
+     * @return The chat
+     */
+    public static Chat parseChat(File file, ParseOptions options)
+    {
+        try
+        {
+            return readChat(file, options);
+        }
+        catch (IOException ex)
         {
             return null;
         }
+    }
 
-        Set<ChatMember> members = new HashSet<>();
-        List<ChatMessage> messages = new ArrayList<>();
-
-        MessageBuilder lastBuilder = null;
+    /**
+     * Parses a {@link Chat} from an {@link InputStream}
+     * using the default options
+     *
+     * @see #parseChat(InputStream, ParseOptions)
+     *
+     * @param in The stream
+     *
+     * @return The chat, or null if the stream could not be read
+     */
+    public static Chat parseChat(InputStream in)
+    {
+        return parseChat(in, ParseOptions.DEFAULT);
+    }
 
-        for (String line : lines)
+    /**
+     * Parses a {@link Chat} from an {@link InputStream}
+     * of either an export or a zipped export
+     *
+     * A zipped export is read no further than the end
+     * of its chat, skipping over the media before it.
+     * The stream is not closed by this method
+     *
+     * With {@link MessageStorage#LAZY} storage the
+     * chat text is read into memory, and is shared
+     * by the content of all of its messages
+     *
+     * @param in The stream
+     * @param options The parse options
+     *
+     * @return The chat, or null if the stream could not be read
+     */
+    public static Chat parseChat(InputStream in, ParseOptions options)
+    {
+        try
         {
-            Optional<MessageBuilder> optBuilder = UtilMessage.parseMessageBuilder(line, members);
+            PushbackInputStream pushback = new PushbackInputStream(in, 4);
 
-            // See UtilMessage#parseMessageBuilder()
-            // for an explanation of this weird check
-            if (optBuilder == null)
+            if (ZipExport.isZip(pushback))
             {
-                continue;
+                return ZipExport.read(pushback, options);
             }
 
-            if (optBuilder.isPresent())
+            return readChat(pushback, options, -1);
+        }
+        catch (IOException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link ReadableByteChannel}
+     * of either an export or a zipped export
+     *
+     * @see #parseChat(InputStream, ParseOptions)
+     *
+     * @param channel The channel, which is not closed
+     * @param options The parse options
+     *
+     * @return The chat, or null if the channel could not be read
+     */
+    public static Chat parseChat(ReadableByteChannel channel, ParseOptions options)
+    {
+        return parseChat(Channels.newInputStream(channel), options);
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link File}
+     * of either an export or a zipped export,
+     * passing on any failure to read it
+     *
+     * @see #parseChat(File, ParseOptions)
+     *
+     * @param file The file
+     * @param options The parse options
+     *
+     * @return The chat
+     *
+     * @throws IOException If the file could not be read
+     */
+    static Chat readChat(File file, ParseOptions options) throws IOException
+    {
+        if (ZipExport.isZip(file))
+        {
+            return ZipExport.read(file, options);
+        }
+
+        long bytes = file.length();
+
+        if (options.getStorage() == MessageStorage.LAZY && bytes <= Integer.MAX_VALUE)
+        {
+            return readChat(new MessageSource(UtilFile.map(file)), options);
+        }
+
+        try (BufferedReader reader = UtilFile.newReader(file))
+        {
+            return readChat(reader, options, bytes);
+        }
+    }
+
+    /**
+     * Parses a {@link Chat} from an {@link InputStream}
+     * of an export, passing on any failure to read it
+     *
+     * @param in The stream, which is not closed
+     * @param options The parse options
+     * @param bytes The amount of bytes to be read, or -1 if unknown
+     *
+     * @return The chat
+     *
+     * @throws IOException If the stream could not be read
+     */
+    static Chat readChat(InputStream in, ParseOptions options, long bytes) throws IOException
+    {
+        if (options.getStorage() != MessageStorage.LAZY || bytes > Integer.MAX_VALUE)
+        {
+            return readChat(UtilFile.newReader(in), options, bytes);
+        }
+
+        // Read straight into the buffer kept by the source,
+        // which is only grown if the size was not known
+        byte[] buffer = new byte[bytes > 0 ? (int) bytes : 8192];
+        int length = 0;
+
+        while (true)
+        {
+            if (length == buffer.length)
             {
-                if (lastBuilder != null)
+                int next = in.read();
+
+                if (next == -1)
                 {
-                    messages.add(lastBuilder.build());
+                    break;
                 }
 
-                lastBuilder = optBuilder.get();
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                buffer[length++] = (byte) next;
+            }
+
+            int read = in.read(buffer, length, buffer.length - length);
+
+            if (read == -1)
+            {
+                break;
+            }
+
+            length += read;
+        }
+
+        return readChat(new MessageSource(ByteBuffer.wrap(buffer, 0, length)), options);
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link MessageSource},
+     * leaving message content in the source
+     *
+     * Publishes {@link ParseMetrics} if metrics are enabled
+     *
+     * @see MessageStorage#LAZY
+     *
+     * @param source The source
+     * @param options The parse options
+     *
+     * @return The chat
+     *
+     * @throws IOException If the source is not valid UTF-8
+     */
+    static Chat readChat(MessageSource source, ParseOptions options) throws IOException
+    {
+        LineReader reader = new LineReader(UtilFile.newInputStream(source.getBuffer()), 0);
+        ChatParser parser = new ChatParser(options.getStorage());
+
+        parser.setSource(source);
+
+        ParseRecorder recorder = ParseRecorder.create();
+        parser.setRecorder(recorder);
+
+        long start = recorder != null ? System.nanoTime() : 0;
+        String line;
+
+        while ((line = reader.readLine()) != null)
+        {
+            if (recorder == null)
+            {
+                parser.parseLine(line, reader);
+                continue;
             }
-            else if (lastBuilder != null)
+
+            long read = System.nanoTime();
+            parser.parseLine(line, reader);
+
+            long parsed = System.nanoTime();
+
+            recorder.ioNanos += read - start;
+            recorder.parseNanos += parsed - read;
+
+            start = parsed;
+        }
+
+        if (recorder == null)
+        {
+            return parser.finish();
+        }
+
+        recorder.ioNanos += System.nanoTime() - start;
+
+        long building = System.nanoTime();
+        Chat chat = parser.finish();
+
+        recorder.buildNanos = System.nanoTime() - building;
+        recorder.publish(source.size(), parser.getMembers().size());
+
+        return chat;
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link Reader}
+     * using the default options
+     *
+     * @see #parseChat(Reader, ParseOptions)
+     *
+     * @param reader The reader
+     *
+     * @return The chat, or null if the reader could not be read
+     */
+    public static Chat parseChat(Reader reader)
+    {
+        return parseChat(reader, ParseOptions.DEFAULT);
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link Reader}
+     *
+     * The reader is consumed line by line
+     * and is not closed by this method
+     *
+     * @param reader The reader
+     * @param options The parse options
+     *
+     * @return The chat, or null if the reader could not be read
+     */
+    public static Chat parseChat(Reader reader, ParseOptions options)
+    {
+        try
+        {
+            return readChat(reader, options, -1);
+        }
+        catch (IOException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link Reader},
+     * passing on any failure to read it
+     *
+     * Publishes {@link ParseMetrics} if metrics are enabled
+     *
+     * @see #parseChat(Reader, ParseOptions)
+     *
+     * @param reader The reader
+     * @param options The parse options
+     * @param bytes The amount of bytes to be read, or -1 if unknown
+     *
+     * @return The chat
+     *
+     * @throws IOException If the reader could not be read
+     */
+    static Chat readChat(Reader reader, ParseOptions options, long bytes) throws IOException
+    {
+        BufferedReader buffered = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        ChatParser parser = new ChatParser(options.getStorage());
+
+        ParseRecorder recorder = ParseRecorder.create();
+
+        parser.setRecorder(recorder);
+        parser.parseLines(buffered);
+
+        if (recorder == null)
+        {
+            return parser.finish();
+        }
+
+        long building = System.nanoTime();
+        Chat chat = parser.finish();
+
+        recorder.buildNanos = System.nanoTime() - building;
+        recorder.publish(bytes, parser.getMembers().size());
+
+        return chat;
+    }
+
+    /**
+     * Analyses a {@link File} while it is parsed
+     * using the default pipeline options
+     *
+     * @see #analyseChat(File, Collection, PipelineOptions)
+     *
+     * @param file The file
+     * @param analyses The analyses, all of which must be accumulating
+     *
+     * @return The results of all analyses, or null if the file could not be read
+     */
+    public static AnalysisResults analyseChat(File file, Collection<? extends ChatAnalysis<?>> analyses)
+    {
+        return analyseChat(file, analyses, PipelineOptions.DEFAULT);
+    }
+
+    /**
+     * Analyses a {@link File} of either an export
+     * or a zipped export while it is parsed
+     *
+     * Each message is published to an {@link AnalysisPipeline}
+     * as soon as it is parsed, and is not kept once analysed,
+     * so no {@link Chat} of every message is ever built
+     *
+     * @param file The file
+     * @param analyses The analyses, all of which must be accumulating
+     * @param options The pipeline options
+     *
+     * @return The results of all analyses, or null if the file could not be read
+     */
+    public static AnalysisResults analyseChat(File file, Collection<? extends ChatAnalysis<?>> analyses, PipelineOptions options)
+    {
+        try
+        {
+            if (ZipExport.isZip(file))
             {
+                return ZipExport.read(file, (in, bytes) -> readAndAnalyse(UtilFile.newReader(in), analyses, options, bytes));
+            }
 
-                // This line is a continuation of the previous message
-                lastBuilder.addMessageLine(line);
+            try (BufferedReader reader = UtilFile.newReader(file))
+            {
+                return readAndAnalyse(reader, analyses, options, file.length());
             }
         }
+        catch (IOException ex)
+        {
+            return null;
+        }
+    }
 
-        if (lastBuilder != null && !lastBuilder.isBuilt())
+    /**
+     * Analyses a {@link Reader} while it is parsed
+     *
+     * @see #analyseChat(File, Collection, PipelineOptions)
+     *
+     * @param reader The reader, which is not closed
+     * @param analyses The analyses, all of which must be accumulating
+     * @param options The pipeline options
+     *
+     * @return The results of all analyses, or null if the reader could not be read
+     */
+    public static AnalysisResults analyseChat(Reader reader, Collection<? extends ChatAnalysis<?>> analyses, PipelineOptions options)
+    {
+        try
+        {
+            return readAndAnalyse(reader, analyses, options, -1);
+        }
+        catch (IOException ex)
         {
-            // Add the final message
-            messages.add(lastBuilder.build());
+            return null;
         }
+    }
 
-        return new Chat(members, messages);
+    /**
+     * Analyses a {@link Reader} while it is parsed,
+     * passing on any failure to read it
+     *
+     * Publishes {@link ParseMetrics} if metrics are enabled,
+     * where the parse time includes handing messages to the
+     * pipeline and the build time is that of finishing it
+     *
+     * @see #analyseChat(Reader, Collection, PipelineOptions)
+     *
+     * @param reader The reader
+     * @param analyses The analyses, all of which must be accumulating
+     * @param options The pipeline options
+     * @param bytes The amount of bytes to be read, or -1 if unknown
+     *
+     * @return The results of all analyses
+     *
+     * @throws IOException If the reader could not be read
+     */
+    static AnalysisResults readAndAnalyse(Reader reader, Collection<? extends ChatAnalysis<?>> analyses, PipelineOptions options, long bytes) throws IOException
+    {
+        BufferedReader buffered = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+
+        ChatParser parser = new ChatParser(MessageStorage.OBJECTS, false);
+        AnalysisPipeline pipeline = new AnalysisPipeline(new Chat(new LinkedHashSet<>(), new ArrayList<>()), analyses, options);
+
+        ParseRecorder recorder = ParseRecorder.create();
+
+        parser.setPipeline(pipeline);
+        parser.setRecorder(recorder);
+
+        try
+        {
+            parser.parseLines(buffered);
+            parser.finishMessages();
+        }
+        catch (IOException | RuntimeException | Error ex)
+        {
+            pipeline.cancel();
+            throw ex;
+        }
+
+        if (recorder == null)
+        {
+            return pipeline.finish(parser.getMembers().getMembers());
+        }
+
+        long finishing = System.nanoTime();
+        AnalysisResults results = pipeline.finish(parser.getMembers().getMembers());
+
+        recorder.buildNanos = System.nanoTime() - finishing;
+        recorder.publish(bytes, parser.getMembers().size());
+
+        return results;
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link File} which
+     * will be appended to, using the default options
+     *
+     * @see #parseChatIncremental(File, ParseOptions)
+     *
+     * @param file The file
+     *
+     * @return The incremental chat
+     */
+    public static IncrementalChat parseChatIncremental(File file)
+    {
+        return parseChatIncremental(file, ParseOptions.DEFAULT);
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link File} which
+     * will be appended to, so that refreshing it
+     * later only parses the appended messages
+     *
+     * @see IncrementalChat#refresh()
+     *
+     * @param file The file
+     * @param options The parse options
+     *
+     * @return The incremental chat
+     */
+    public static IncrementalChat parseChatIncremental(File file, ParseOptions options)
+    {
+        try
+        {
+            return IncrementalChat.parse(file, options);
+        }
+        catch (IOException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link File} in parallel
+     * on the common {@link ForkJoinPool}
+     *
+     * @see #parseChatParallel(File, ForkJoinPool)
+     *
+     * @param file The file
+     *
+     * @return The chat
+     */
+    public static Chat parseChatParallel(File file)
+    {
+        return parseChatParallel(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link File}
+     * in parallel using the default options
+     *
+     * @see #parseChatParallel(File, ForkJoinPool, ParseOptions)
+     *
+     * @param file The file
+     * @param pool The pool to parse on
+     *
+     * @return The chat
+     */
+    public static Chat parseChatParallel(File file, ForkJoinPool pool)
+    {
+        return parseChatParallel(file, pool, ParseOptions.DEFAULT);
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link File} in parallel
+     *
+     * The file is split into chunks at message
+     * boundaries which are parsed concurrently,
+     * giving the same result as {@link #parseChat(File, ParseOptions)}
+     *
+     * Publishes {@link ParseMetrics} if metrics are enabled
+     *
+     * @param file The file
+     * @param pool The pool to parse on
+     * @param options The parse options
+     *
+     * @return The chat
+     */
+    public static Chat parseChatParallel(File file, ForkJoinPool pool, ParseOptions options)
+    {
+        try
+        {
+            return ParallelChatParser.parse(file, pool, options);
+        }
+        catch (IOException ex)
+        {
+            return null;
+        }
     }
 }
@@ -1,8 +1,16 @@
 package me.itsmas.whatsanalysis.util;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 /**
@@ -32,4 +40,105 @@ public final class UtilFile
             return null;
         }
     }
+
+    /**
+     * Opens a {@link BufferedReader} over a {@link File}
+     * for reading it incrementally
+     *
+     * @param file The file
+     *
+     * @return The reader
+     *
+     * @throws IOException If the file could not be opened
+     */
+    public static BufferedReader newReader(File file) throws IOException
+    {
+        assert file.exists() : "File does not exist";
+
+        return Files.newBufferedReader(file.toPath());
+    }
+
+    /**
+     * Opens a {@link BufferedReader} over an {@link InputStream}
+     * which reports malformed UTF-8 rather than replacing it,
+     * as {@link #newReader(File)} does
+     *
+     * @param in The stream
+     *
+     * @return The reader
+     */
+    public static BufferedReader newReader(InputStream in)
+    {
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()));
+    }
+
+    /**
+     * Memory-maps a {@link File} read only
+     *
+     * The mapping stays valid once the file is
+     * closed, until the buffer is garbage collected
+     *
+     * @param file The file, no larger than {@link Integer#MAX_VALUE} bytes
+     *
+     * @return The mapped buffer
+     *
+     * @throws IOException If the file could not be mapped
+     */
+    public static MappedByteBuffer map(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Creates an {@link InputStream} over the
+     * remaining bytes of a {@link ByteBuffer}
+     *
+     * The stream reads from its own view, so
+     * the buffer's position is left untouched
+     *
+     * @param buffer The buffer
+     *
+     * @return The stream
+     */
+    static InputStream newInputStream(ByteBuffer buffer)
+    {
+        ByteBuffer view = buffer.duplicate();
+
+        return new InputStream()
+        {
+            @Override
+            public int read()
+            {
+                return view.hasRemaining() ? view.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length)
+            {
+                if (length == 0)
+                {
+                    return 0;
+                }
+
+                if (!view.hasRemaining())
+                {
+                    return -1;
+                }
+
+                int count = Math.min(length, view.remaining());
+                view.get(bytes, offset, count);
+
+                return count;
+            }
+
+            @Override
+            public int available()
+            {
+                return view.remaining();
+            }
+        };
+    }
 }
@@ -2,14 +2,9 @@ package me.itsmas.whatsanalysis.util;
 
 import me.itsmas.whatsanalysis.chat.ChatMember;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Optional;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Function;
 
 /**
  * ChatMessage utilities
@@ -19,61 +14,55 @@ public final class UtilMessage
     private UtilMessage() {}
 
     /**
-     * The message pattern
-     * Where the magic happens
-     */
-    private static final Pattern messagePattern = Pattern.compile(
-        "(\\d{2}/\\d{2}/\\d{4}, \\d{2}:\\d{2}) - (.*?): (.*)"
-        // Example message: 01/01/2020, 00:00 - Sam: Hello from the future
-    );
-
-    /**
-     * The date format of a message
+     * Attempts to parse a {@link MessageBuilder} object from a {@link String}
+     *
+     * @param line The line to parse
+     * @param members The set of members to look senders up in
+     *
+     * @return An optional of the resulting message builder
      */
-    private static final DateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy, HH:mm");
+    public static Optional<MessageBuilder> parseMessageBuilder(String line, Set<ChatMember> members)
+    {
+        return parseMessageBuilder(line, name -> getMember(name, members));
+    }
 
     /**
      * Attempts to parse a {@link MessageBuilder} object from a {@link String}
      *
+     * @see #parseMessageBuilder(String, Set)
+     *
      * @param line The line to parse
+     * @param memberLookup Function fetching or creating a member by name
      *
      * @return An optional of the resulting message builder
      */
-    public static Optional<MessageBuilder> parseMessageBuilder(String line, Set<ChatMember> members)
+    static Optional<MessageBuilder> parseMessageBuilder(String line, Function<String, ChatMember> memberLookup)
     {
         MessageBuilder builder = null;
 
-        Matcher matcher = messagePattern.matcher(line);
+        int separator = MessageHeader.separatorIndex(line);
 
-        if (matcher.matches())
+        if (separator != -1)
         {
-            try
-            {
-                String time = matcher.group(1);
-                Date date = dateFormat.parse(time);
+            long time = MessageHeader.parseTime(line);
 
-                String senderName = matcher.group(2);
+            String senderName = line.substring(MessageHeader.PREFIX_LENGTH, separator);
 
-                if (shouldIgnore(senderName))
-                {
-                    // Prevents group titles containing
-                    // colons from slipping through the system.
-                    // See end of method for explanation
-                    // on returning null here.
-                    return null;
-                }
+            if (shouldIgnore(senderName))
+            {
+                // Prevents group titles containing
+                // colons from slipping through the system.
+                // See end of method for explanation
+                // on returning null here.
+                return null;
+            }
 
-                ChatMember sender = getMember(senderName, members);
+            ChatMember sender = memberLookup.apply(senderName);
 
-                String content = matcher.group(3);
+            String content = line.substring(separator + 2);
 
-                builder = new MessageBuilder(date, sender);
-                builder.addMessageLine(content);
-            }
-            // Invalid date format, will
-            // never happen when using
-            // a real, unmodified chat file.
-            catch (ParseException ignored) {}
+            builder = new MessageBuilder(time, sender);
+            builder.addMessageLine(content);
         }
 
         if (shouldIgnore(line))
@@ -96,6 +85,24 @@ public final class UtilMessage
         return Optional.ofNullable(builder);
     }
 
+    /**
+     * Determines whether a line starts a new message,
+     * i.e. whether {@link #parseMessageBuilder(String, Set)}
+     * would return a present builder for it
+     *
+     * @param line The line
+     *
+     * @return Whether the line starts a new message
+     */
+    static boolean isMessageStart(String line)
+    {
+        int separator = MessageHeader.separatorIndex(line);
+
+        return separator != -1
+            && !shouldIgnore(line.substring(MessageHeader.PREFIX_LENGTH, separator))
+            && !shouldIgnore(line);
+    }
+
     /**
      * Determines whether to ignore a message
      *
@@ -137,7 +144,7 @@ public final class UtilMessage
      *
      * @return The member
      */
-    private static ChatMember getMember(String name, Set<ChatMember> members)
+    static ChatMember getMember(String name, Set<ChatMember> members)
     {
         for (ChatMember member : members)
         {
@@ -147,7 +154,7 @@ public final class UtilMessage
             }
         }
 
-        ChatMember member = new ChatMember(name);
+        ChatMember member = new ChatMember(members.size(), name);
         members.add(member);
 
         return member;
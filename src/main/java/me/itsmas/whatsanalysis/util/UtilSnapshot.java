@@ -0,0 +1,754 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.chat.MessageColumns;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Binary snapshot utilities
+ *
+ * A snapshot holds a parsed {@link Chat} so it can be
+ * loaded again without parsing its export. It is laid
+ * out as columns which are read straight from a memory
+ * mapped file, all numbers being big endian:
+ *
+ * - int magic, int version
+ * - the source: UTF-8 canonical path, long size,
+ *   long last modified time and long CRC32 of the
+ *   windows at the start and end of its bytes
+ * - int member count, then each member's UTF-8 name
+ * - int message count
+ * - long time of each message, in epoch milliseconds
+ * - int sender id of each message
+ * - the UTF-8 content of each message, back to back
+ * - int content length in bytes of each message
+ *
+ * UTF-8 strings are written as an int byte
+ * length followed by the bytes themselves
+ *
+ * Snapshots are only written if they can be mapped
+ * whole, i.e. are at most {@link Integer#MAX_VALUE} bytes
+ */
+public final class UtilSnapshot
+{
+    private UtilSnapshot() {}
+
+    /**
+     * The first bytes of every snapshot, "WACS"
+     */
+    private static final int MAGIC = 0x57414353;
+
+    /**
+     * The current snapshot format version
+     *
+     * Snapshots of other versions are not loaded
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The file extension of snapshots in a cache directory
+     */
+    private static final String EXTENSION = ".snapshot";
+
+    /**
+     * The size of buffers used when writing snapshots
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes a snapshot of a {@link Chat}
+     *
+     * The snapshot replaces any existing file
+     * only once it has been completely written
+     *
+     * @param chat The chat
+     * @param source The file the chat was parsed from
+     * @param snapshot The file to write the snapshot to
+     *
+     * @return Whether the snapshot was written
+     */
+    public static boolean writeSnapshot(Chat chat, File source, File snapshot)
+    {
+        try
+        {
+            writeSnapshot(chat, SourceKey.of(source, hash(source)), snapshot);
+            return true;
+        }
+        catch (IOException ex)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Loads a {@link Chat} from a snapshot
+     * using the default options
+     *
+     * @see #readSnapshot(File, ParseOptions)
+     *
+     * @param snapshot The snapshot file
+     *
+     * @return The chat, or null if the snapshot could not be read
+     */
+    public static Chat readSnapshot(File snapshot)
+    {
+        return readSnapshot(snapshot, ParseOptions.DEFAULT);
+    }
+
+    /**
+     * Loads a {@link Chat} from a snapshot, regardless
+     * of whether its source has since changed
+     *
+     * The file is memory mapped and its columns copied
+     * into the storage given by the options. No lines
+     * are parsed, so no {@link me.itsmas.whatsanalysis.metrics.ParseMetrics}
+     * are published
+     *
+     * @param snapshot The snapshot file
+     * @param options The options giving the storage to use
+     *
+     * @return The chat, or null if the snapshot could not be read
+     */
+    public static Chat readSnapshot(File snapshot, ParseOptions options)
+    {
+        try
+        {
+            return readSnapshot(snapshot, null, options);
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            // Truncated or corrupt snapshots
+            return null;
+        }
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link File} using
+     * a snapshot cache with the default options
+     *
+     * @see #parseChatCached(File, File, ParseOptions)
+     *
+     * @param file The file
+     * @param cacheDirectory The directory holding snapshots
+     *
+     * @return The chat
+     */
+    public static Chat parseChatCached(File file, File cacheDirectory)
+    {
+        return parseChatCached(file, cacheDirectory, ParseOptions.DEFAULT);
+    }
+
+    /**
+     * Parses a {@link Chat} from a {@link File} using
+     * a snapshot cache
+     *
+     * A snapshot in the cache directory is used if it was
+     * taken of the same canonical path with the same size,
+     * last modified time and hash of the start and end of
+     * its bytes. Otherwise the file is parsed as by
+     * {@link UtilChat#parseChat(File, ParseOptions)} and a
+     * new snapshot is written for next time, unless the
+     * chat is too large for one. Only parsing the file
+     * publishes {@link me.itsmas.whatsanalysis.metrics.ParseMetrics}
+     *
+     * @param file The file
+     * @param cacheDirectory The directory holding snapshots
+     * @param options The parse options
+     *
+     * @return The chat
+     */
+    public static Chat parseChatCached(File file, File cacheDirectory, ParseOptions options)
+    {
+        try
+        {
+            File snapshot = snapshotFile(file, cacheDirectory);
+
+            if (snapshot.isFile())
+            {
+                try
+                {
+                    Chat chat = readSnapshot(snapshot, file, options);
+
+                    if (chat != null)
+                    {
+                        return chat;
+                    }
+                }
+                catch (IOException | RuntimeException ex)
+                {
+                    // Corrupt snapshots are replaced below
+                }
+            }
+
+            // Taken before reading so changes made while parsing are not missed
+            SourceKey key = SourceKey.of(file, hash(file));
+            Chat chat = UtilChat.readChat(file, options);
+
+            if (chat != null)
+            {
+                try
+                {
+                    Files.createDirectories(cacheDirectory.toPath());
+                    writeSnapshot(chat, key, snapshot);
+                }
+                catch (IOException ex)
+                {
+                    // The chat is still usable without a snapshot
+                }
+            }
+
+            return chat;
+        }
+        catch (IOException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Fetches the snapshot file of a source
+     * within a cache directory
+     *
+     * The name is derived from the canonical path,
+     * which is checked again when loading so that
+     * name collisions are never mistaken for hits
+     *
+     * @param source The source file
+     * @param cacheDirectory The cache directory
+     *
+     * @return The snapshot file
+     *
+     * @throws IOException If the canonical path could not be resolved
+     */
+    private static File snapshotFile(File source, File cacheDirectory) throws IOException
+    {
+        String path = source.getCanonicalPath();
+
+        return new File(cacheDirectory, source.getName() + "-" + Integer.toHexString(path.hashCode()) + EXTENSION);
+    }
+
+    /**
+     * Writes a snapshot of a {@link Chat}
+     * to a temporary file then moves it into place
+     *
+     * @param chat The chat
+     * @param key The source of the chat
+     * @param snapshot The file to write the snapshot to
+     *
+     * @throws IOException If the snapshot could not be written
+     *                     or would be too large to map
+     */
+    private static void writeSnapshot(Chat chat, SourceKey key, File snapshot) throws IOException
+    {
+        if (snapshotSize(chat, key) > Integer.MAX_VALUE)
+        {
+            throw new IOException("Snapshot too large to map");
+        }
+
+        Path target = snapshot.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), snapshot.getName(), ".tmp");
+
+        try
+        {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)))
+            {
+                writeTo(chat, key, out);
+            }
+
+            try
+            {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Works out the size a snapshot of a chat would be
+     *
+     * @param chat The chat
+     * @param key The source of the chat
+     *
+     * @return The size in bytes
+     */
+    private static long snapshotSize(Chat chat, SourceKey key)
+    {
+        int count = chat.getMessageCount();
+
+        // Magic, version, path length, size, time, hash and counts
+        long size = 4 + 4 + 4 + 8 + 8 + 8 + 4 + 4 + encodedLength(key.path);
+
+        for (int id = 0; id < chat.getMemberCount(); id++)
+        {
+            size += 4 + encodedLength(chat.getMember(id).getName());
+        }
+
+        // Time, sender and content length of each message
+        size += 16L * count;
+
+        Optional<MessageColumns> optColumns = chat.getColumns();
+
+        if (optColumns.isPresent())
+        {
+            for (int i = 0; i < count; i++)
+            {
+                size += optColumns.get().getContentBytes(i).remaining();
+            }
+        }
+        else
+        {
+            for (ChatMessage message : chat.getMessages())
+            {
+                size += encodedLength(message.getContent());
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Works out the length of a string in UTF-8
+     *
+     * @param string The string
+     *
+     * @return The length in bytes
+     */
+    private static long encodedLength(String string)
+    {
+        long length = 0;
+
+        for (int i = 0; i < string.length(); i++)
+        {
+            char c = string.charAt(i);
+
+            if (c < 0x80)
+            {
+                length++;
+            }
+            else if (c < 0x800)
+            {
+                length += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1)))
+            {
+                length += 4;
+                i++;
+            }
+            else
+            {
+                // Unpaired surrogates are encoded as '?'
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Writes the snapshot format to a stream
+     *
+     * @param chat The chat
+     * @param key The source of the chat
+     * @param out The stream
+     *
+     * @throws IOException If the stream could not be written to
+     */
+    private static void writeTo(Chat chat, SourceKey key, DataOutputStream out) throws IOException
+    {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        writeString(out, key.path);
+        out.writeLong(key.size);
+        out.writeLong(key.lastModified);
+        out.writeLong(key.hash);
+
+        out.writeInt(chat.getMemberCount());
+
+        for (int id = 0; id < chat.getMemberCount(); id++)
+        {
+            writeString(out, chat.getMember(id).getName());
+        }
+
+        Optional<MessageColumns> optColumns = chat.getColumns();
+        int count = chat.getMessageCount();
+
+        out.writeInt(count);
+
+        int[] lengths = new int[count];
+
+        if (optColumns.isPresent())
+        {
+            MessageColumns columns = optColumns.get();
+
+            for (int i = 0; i < count; i++)
+            {
+                out.writeLong(columns.getTime(i));
+            }
+
+            for (int i = 0; i < count; i++)
+            {
+                out.writeInt(columns.getSender(i));
+            }
+
+            byte[] bytes = new byte[0];
+
+            for (int i = 0; i < count; i++)
+            {
+                ByteBuffer content = columns.getContentBytes(i);
+                lengths[i] = content.remaining();
+
+                if (bytes.length < lengths[i])
+                {
+                    bytes = new byte[Math.max(lengths[i], bytes.length * 2)];
+                }
+
+                content.get(bytes, 0, lengths[i]);
+                out.write(bytes, 0, lengths[i]);
+            }
+        }
+        else
+        {
+            List<ChatMessage> messages = chat.getMessages();
+
+            for (ChatMessage message : messages)
+            {
+                out.writeLong(message.getTime().getTime());
+            }
+
+            for (ChatMessage message : messages)
+            {
+                out.writeInt(message.getSender().getId());
+            }
+
+            for (int i = 0; i < count; i++)
+            {
+                byte[] content = messages.get(i).getContent().getBytes(StandardCharsets.UTF_8);
+                lengths[i] = content.length;
+
+                out.write(content);
+            }
+        }
+
+        for (int length : lengths)
+        {
+            out.writeInt(length);
+        }
+    }
+
+    /**
+     * Loads a {@link Chat} from a snapshot
+     *
+     * @param snapshot The snapshot file
+     * @param source The source the snapshot must be up to date with, or null
+     * @param options The options giving the storage to use
+     *
+     * @return The chat, or null if the snapshot is out of date
+     *
+     * @throws IOException If the snapshot could not be read or is invalid
+     */
+    private static Chat readSnapshot(File snapshot, File source, ParseOptions options) throws IOException
+    {
+        ByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ))
+        {
+            if (channel.size() > Integer.MAX_VALUE)
+            {
+                throw new IOException("Snapshot too large to map");
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+        {
+            throw new IOException("Not a snapshot of this version");
+        }
+
+        SourceKey key = new SourceKey(readString(buffer), buffer.getLong(), buffer.getLong(), buffer.getLong());
+
+        if (source != null && !key.matches(source))
+        {
+            return null;
+        }
+
+        MemberRegistry members = new MemberRegistry();
+        int memberCount = buffer.getInt();
+
+        for (int id = 0; id < memberCount; id++)
+        {
+            members.get(readString(buffer));
+        }
+
+        if (members.size() != memberCount)
+        {
+            throw new IOException("Duplicate member names");
+        }
+
+        int count = buffer.getInt();
+
+        if (count < 0 || 16L * count > buffer.remaining())
+        {
+            throw new IOException("Invalid message count");
+        }
+
+        long[] times = new long[count];
+        int[] senders = new int[count];
+        int[] lengths = new int[count];
+
+        buffer.asLongBuffer().get(times);
+        buffer.position(buffer.position() + count * 8);
+
+        buffer.asIntBuffer().get(senders);
+        buffer.position(buffer.position() + count * 4);
+
+        int contentStart = buffer.position();
+        int contentEnd = buffer.limit() - count * 4;
+
+        buffer.position(contentEnd);
+        buffer.asIntBuffer().get(lengths);
+
+        long contentLength = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            if (senders[i] < 0 || senders[i] >= memberCount || lengths[i] < 0)
+            {
+                throw new IOException("Invalid message " + i);
+            }
+
+            contentLength += lengths[i];
+        }
+
+        if (contentLength != contentEnd - contentStart)
+        {
+            throw new IOException("Content length mismatch");
+        }
+
+        buffer.position(contentStart);
+
+        return options.getStorage() == MessageStorage.COLUMNAR ?
+            createColumnarChat(members, times, senders, lengths, buffer) :
+            createChat(members, times, senders, lengths, buffer);
+    }
+
+    /**
+     * Creates a columnar {@link Chat} from snapshot columns
+     *
+     * @param members The members
+     * @param times The message times
+     * @param senders The message sender ids
+     * @param lengths The message content lengths
+     * @param content The buffer positioned at the first message's content
+     *
+     * @return The chat
+     */
+    private static Chat createColumnarChat(MemberRegistry members, long[] times, int[] senders, int[] lengths, ByteBuffer content)
+    {
+        MessageColumns columns = new MessageColumns();
+
+        for (int i = 0; i < times.length; i++)
+        {
+            content.limit(content.position() + lengths[i]);
+            columns.add(times[i], senders[i], content);
+        }
+
+        columns.trim();
+
+        return new Chat(new LinkedHashSet<>(members.getMembers()), columns);
+    }
+
+    /**
+     * Creates a {@link Chat} of {@link ChatMessage}
+     * objects from snapshot columns
+     *
+     * @param members The members
+     * @param times The message times
+     * @param senders The message sender ids
+     * @param lengths The message content lengths
+     * @param content The buffer positioned at the first message's content
+     *
+     * @return The chat
+     */
+    private static Chat createChat(MemberRegistry members, long[] times, int[] senders, int[] lengths, ByteBuffer content)
+    {
+        List<ChatMember> byId = members.getMembers();
+        List<ChatMessage> messages = new ArrayList<>(times.length);
+
+        byte[] bytes = new byte[0];
+
+        for (int i = 0; i < times.length; i++)
+        {
+            if (bytes.length < lengths[i])
+            {
+                bytes = new byte[Math.max(lengths[i], bytes.length * 2)];
+            }
+
+            content.get(bytes, 0, lengths[i]);
+
+            ChatMember sender = byId.get(senders[i]);
+            ChatMessage message = new ChatMessage(new Date(times[i]), sender, new String(bytes, 0, lengths[i], StandardCharsets.UTF_8));
+
+            messages.add(message);
+            sender.addMessage(message);
+        }
+
+        Set<ChatMember> memberSet = new LinkedHashSet<>(byId);
+
+        return new Chat(memberSet, messages);
+    }
+
+    /**
+     * Works out the CRC32 of the windows at
+     * the start and end of a file's bytes
+     *
+     * Only the ends are hashed so that checking
+     * a large source costs the same as a small one,
+     * the size and time catching most other changes
+     *
+     * @see IncrementalChat#checksum(FileChannel, long)
+     *
+     * @param file The file
+     *
+     * @return The hash
+     *
+     * @throws IOException If the file could not be read
+     */
+    private static long hash(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            return IncrementalChat.checksum(channel, channel.size());
+        }
+    }
+
+    /**
+     * Writes a length prefixed UTF-8 string
+     *
+     * @param out The stream
+     * @param string The string
+     *
+     * @throws IOException If the stream could not be written to
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException
+    {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a length prefixed UTF-8 string
+     *
+     * @param buffer The buffer
+     *
+     * @return The string
+     */
+    private static String readString(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Identifies the version of a source
+     * file a snapshot was taken of
+     */
+    private static final class SourceKey
+    {
+        /**
+         * The canonical path of the source
+         */
+        private final String path;
+
+        /**
+         * The size of the source in bytes
+         */
+        private final long size;
+
+        /**
+         * The last modified time of the source
+         */
+        private final long lastModified;
+
+        /**
+         * The CRC32 of the start and end of the source's bytes
+         */
+        private final long hash;
+
+        private SourceKey(String path, long size, long lastModified, long hash)
+        {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        /**
+         * Creates the key of a source file
+         *
+         * @param source The source file
+         * @param hash The CRC32 of the start and end of its bytes
+         *
+         * @return The key
+         *
+         * @throws IOException If the canonical path could not be resolved
+         */
+        private static SourceKey of(File source, long hash) throws IOException
+        {
+            return new SourceKey(source.getCanonicalPath(), source.length(), source.lastModified(), hash);
+        }
+
+        /**
+         * Determines whether a source file is still
+         * the version this key was created from
+         *
+         * The ends of the file are only hashed
+         * if its path, size and time all match
+         *
+         * @param source The source file
+         *
+         * @return Whether the source matches
+         *
+         * @throws IOException If the source could not be read
+         */
+        private boolean matches(File source) throws IOException
+        {
+            return path.equals(source.getCanonicalPath()) &&
+                size == source.length() &&
+                lastModified == source.lastModified() &&
+                hash == hash(source);
+        }
+    }
+}
@@ -0,0 +1,586 @@
+package me.itsmas.whatsanalysis.util;
+
+import me.itsmas.whatsanalysis.chat.Chat;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the chat out of a zipped export
+ *
+ * Exporting a chat with media produces a zip
+ * holding the chat as a text file alongside
+ * every attachment. Only the chat entry is ever
+ * decompressed, straight into the parser, so
+ * nothing is written to disk
+ *
+ * Archives on disk are read through their
+ * central directory, never touching the media.
+ * Streamed archives are walked entry by entry,
+ * skipping the raw bytes of media entries, which
+ * can only be avoided being inflated when their
+ * size is given up front, as it usually is
+ */
+final class ZipExport
+{
+    private ZipExport() {}
+
+    /**
+     * The signature starting a local file header
+     */
+    private static final int LOCAL_HEADER = 0x04034b50;
+
+    /**
+     * The signature which may start a data descriptor
+     */
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+
+    /**
+     * The id of the extra field holding 64-bit sizes
+     */
+    private static final int ZIP64_EXTRA = 0x0001;
+
+    /**
+     * The general purpose flag of encrypted entries
+     */
+    private static final int FLAG_ENCRYPTED = 1;
+
+    /**
+     * The general purpose flag of entries whose
+     * sizes follow their data rather than lead it
+     */
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+
+    /**
+     * The general purpose flag of UTF-8 entry names
+     */
+    private static final int FLAG_UTF8 = 1 << 11;
+
+    /**
+     * The size of the buffer inflated data is read through
+     */
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    /**
+     * Determines whether a file is a zip archive
+     *
+     * @param file The file
+     *
+     * @return Whether the file starts with a local file header
+     *
+     * @throws IOException If the file could not be read
+     */
+    static boolean isZip(File file) throws IOException
+    {
+        try (InputStream in = new FileInputStream(file))
+        {
+            byte[] signature = new byte[4];
+
+            return readFully(in, signature, 4) && littleEndian(signature, 0, 4) == LOCAL_HEADER;
+        }
+    }
+
+    /**
+     * Determines whether a stream is a zip archive,
+     * leaving the stream where it was
+     *
+     * @param in The stream
+     *
+     * @return Whether the stream starts with a local file header
+     *
+     * @throws IOException If the stream could not be read
+     */
+    static boolean isZip(PushbackInputStream in) throws IOException
+    {
+        byte[] signature = new byte[4];
+        int read = 0;
+
+        while (read < 4)
+        {
+            int count = in.read(signature, read, 4 - read);
+
+            if (count == -1)
+            {
+                break;
+            }
+
+            read += count;
+        }
+
+        in.unread(signature, 0, read);
+        return read == 4 && littleEndian(signature, 0, 4) == LOCAL_HEADER;
+    }
+
+    /**
+     * Determines whether an entry holds the chat,
+     * which is a text file at the top of the archive,
+     * named "_chat.txt" or after the chat
+     *
+     * @param name The entry name
+     *
+     * @return Whether the entry is the chat
+     */
+    static boolean isChatEntry(String name)
+    {
+        return name.endsWith(".txt") && name.indexOf('/') == -1;
+    }
+
+    /**
+     * Parses the chat of a zip archive on disk
+     *
+     * @param file The archive
+     * @param options The parse options
+     *
+     * @return The chat
+     *
+     * @throws IOException If the archive could not be read or holds no chat
+     */
+    static Chat read(File file, ParseOptions options) throws IOException
+    {
+        return read(file, (in, bytes) -> UtilChat.readChat(in, options, bytes));
+    }
+
+    /**
+     * Parses the chat of a streamed zip archive,
+     * reading no further than the end of the chat
+     *
+     * @param stream The archive stream, which is not closed
+     * @param options The parse options
+     *
+     * @return The chat
+     *
+     * @throws IOException If the archive could not be read or holds no chat
+     */
+    static Chat read(InputStream stream, ParseOptions options) throws IOException
+    {
+        return read(stream, (in, bytes) -> UtilChat.readChat(in, options, bytes));
+    }
+
+    /**
+     * Reads the chat of a zip archive on disk
+     *
+     * @param file The archive
+     * @param reader The reader of the chat entry
+     *
+     * @return The result of reading the chat
+     *
+     * @throws IOException If the archive could not be read or holds no chat
+     */
+    static <T> T read(File file, EntryReader<T> reader) throws IOException
+    {
+        try (ZipFile zip = new ZipFile(file))
+        {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+
+            while (entries.hasMoreElements())
+            {
+                ZipEntry entry = entries.nextElement();
+
+                if (!entry.isDirectory() && isChatEntry(entry.getName()))
+                {
+                    try (InputStream in = zip.getInputStream(entry))
+                    {
+                        return reader.read(in, entry.getSize());
+                    }
+                }
+            }
+        }
+
+        throw new ZipException("Archive holds no chat");
+    }
+
+    /**
+     * Reads the chat of a streamed zip archive,
+     * reading no further than the end of the chat
+     *
+     * @param stream The archive stream, which is not closed
+     * @param reader The reader of the chat entry
+     *
+     * @return The result of reading the chat
+     *
+     * @throws IOException If the archive could not be read or holds no chat
+     */
+    static <T> T read(InputStream stream, EntryReader<T> reader) throws IOException
+    {
+        PushbackInputStream in = new PushbackInputStream(stream, BUFFER_SIZE);
+        byte[] header = new byte[30];
+
+        while (true)
+        {
+            if (!readFully(in, header, 4) || littleEndian(header, 0, 4) != LOCAL_HEADER)
+            {
+                // The central directory, or the end of the stream
+                throw new ZipException("Archive holds no chat");
+            }
+
+            if (!readFully(in, header, 26))
+            {
+                throw new EOFException("Truncated entry header");
+            }
+
+            int flags = (int) littleEndian(header, 2, 2);
+            int method = (int) littleEndian(header, 4, 2);
+            long compressedSize = littleEndian(header, 14, 4);
+            long size = littleEndian(header, 18, 4);
+
+            byte[] name = new byte[(int) littleEndian(header, 22, 2)];
+            byte[] extra = new byte[(int) littleEndian(header, 24, 2)];
+
+            if (!readFully(in, name, name.length) || !readFully(in, extra, extra.length))
+            {
+                throw new EOFException("Truncated entry header");
+            }
+
+            int zip64 = zip64Field(extra);
+
+            if (zip64 != -1)
+            {
+                if (size == 0xFFFFFFFFL)
+                {
+                    size = littleEndian(extra, zip64, 8);
+                    zip64 += 8;
+                }
+
+                if (compressedSize == 0xFFFFFFFFL)
+                {
+                    compressedSize = littleEndian(extra, zip64, 8);
+                }
+            }
+            else if (size == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL)
+            {
+                throw new ZipException("Missing 64-bit sizes");
+            }
+
+            boolean sized = (flags & FLAG_DATA_DESCRIPTOR) == 0;
+            String entryName = new String(name, (flags & FLAG_UTF8) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+
+            if (isChatEntry(entryName))
+            {
+                if ((flags & FLAG_ENCRYPTED) != 0)
+                {
+                    throw new ZipException("Chat is encrypted");
+                }
+
+                return reader.read(entryStream(in, method, sized, compressedSize), sized ? size : -1);
+            }
+
+            if (sized)
+            {
+                skipFully(in, compressedSize);
+            }
+            else if (method == ZipEntry.DEFLATED)
+            {
+                // The end of the entry can only be found by inflating it
+                skipDeflated(in);
+                skipDataDescriptor(in, zip64 != -1);
+            }
+            else
+            {
+                throw new ZipException("Unsized entry is not deflated: " + entryName);
+            }
+        }
+    }
+
+    /**
+     * Creates a stream of the decompressed bytes of an entry
+     *
+     * @param in The archive stream, at the start of the entry data
+     * @param method The compression method
+     * @param sized Whether the sizes are known
+     * @param compressedSize The compressed size, if known
+     *
+     * @return The entry stream
+     *
+     * @throws IOException If the compression method is not supported
+     */
+    private static InputStream entryStream(InputStream in, int method, boolean sized, long compressedSize) throws IOException
+    {
+        if (method == ZipEntry.DEFLATED)
+        {
+            // Inflating stops at the end of the compressed data by itself
+            return new InflaterInputStream(in, new Inflater(true), BUFFER_SIZE);
+        }
+
+        if (method == ZipEntry.STORED && sized)
+        {
+            return new BoundedInputStream(in, compressedSize);
+        }
+
+        throw new ZipException("Unsupported compression method: " + method);
+    }
+
+    /**
+     * Finds the extra field holding 64-bit sizes
+     *
+     * @param extra The extra fields of an entry
+     *
+     * @return The index of the field data, or -1 if there is none
+     */
+    private static int zip64Field(byte[] extra)
+    {
+        int position = 0;
+
+        while (position + 4 <= extra.length)
+        {
+            int id = (int) littleEndian(extra, position, 2);
+            int length = (int) littleEndian(extra, position + 2, 2);
+
+            if (id == ZIP64_EXTRA)
+            {
+                return position + 4;
+            }
+
+            position += 4 + length;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Skips deflated data of unknown length by inflating it,
+     * pushing back whatever follows the end of the data
+     *
+     * @param in The archive stream, at the start of the entry data
+     *
+     * @throws IOException If the data could not be read or is corrupt
+     */
+    private static void skipDeflated(PushbackInputStream in) throws IOException
+    {
+        Inflater inflater = new Inflater(true);
+        byte[] input = new byte[BUFFER_SIZE];
+        byte[] output = new byte[BUFFER_SIZE];
+
+        int read = 0;
+
+        try
+        {
+            while (!inflater.finished())
+            {
+                if (inflater.needsInput())
+                {
+                    read = in.read(input);
+
+                    if (read == -1)
+                    {
+                        throw new EOFException("Truncated entry");
+                    }
+
+                    inflater.setInput(input, 0, read);
+                }
+
+                if (inflater.inflate(output) == 0 && inflater.needsDictionary())
+                {
+                    throw new ZipException("Unsupported preset dictionary");
+                }
+            }
+
+            // The unread input is at the end of the bytes last read
+            int remaining = inflater.getRemaining();
+
+            if (remaining > 0)
+            {
+                in.unread(input, read - remaining, remaining);
+            }
+        }
+        catch (DataFormatException ex)
+        {
+            throw new ZipException("Corrupt entry: " + ex.getMessage());
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Skips the data descriptor following an unsized entry
+     *
+     * @param in The archive stream, at the end of the entry data
+     * @param zip64 Whether the sizes are 64-bit
+     *
+     * @throws IOException If the descriptor could not be read
+     */
+    private static void skipDataDescriptor(InputStream in, boolean zip64) throws IOException
+    {
+        byte[] first = new byte[4];
+
+        if (!readFully(in, first, 4))
+        {
+            throw new EOFException("Truncated data descriptor");
+        }
+
+        // The signature is optional, otherwise the first field is the checksum
+        int sizes = zip64 ? 16 : 8;
+        skipFully(in, littleEndian(first, 0, 4) == DATA_DESCRIPTOR ? 4 + sizes : sizes);
+    }
+
+    /**
+     * Reads bytes until a buffer is filled
+     *
+     * @param in The stream
+     * @param buffer The buffer
+     * @param length The amount of bytes to read
+     *
+     * @return Whether the bytes were read before the end of the stream
+     *
+     * @throws IOException If the stream could not be read
+     */
+    private static boolean readFully(InputStream in, byte[] buffer, int length) throws IOException
+    {
+        int position = 0;
+
+        while (position < length)
+        {
+            int read = in.read(buffer, position, length - position);
+
+            if (read == -1)
+            {
+                return false;
+            }
+
+            position += read;
+        }
+
+        return true;
+    }
+
+    /**
+     * Skips bytes without looking at them
+     *
+     * @param in The stream
+     * @param count The amount of bytes to skip
+     *
+     * @throws IOException If the stream ended first
+     */
+    private static void skipFully(InputStream in, long count) throws IOException
+    {
+        while (count > 0)
+        {
+            long skipped = in.skip(count);
+
+            if (skipped <= 0)
+            {
+                // Some streams only skip what is buffered
+                if (in.read() == -1)
+                {
+                    throw new EOFException("Truncated entry");
+                }
+
+                skipped = 1;
+            }
+
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Reads a little-endian number
+     *
+     * @param bytes The bytes
+     * @param offset The index of the first byte
+     * @param length The amount of bytes
+     *
+     * @return The unsigned number
+     */
+    private static long littleEndian(byte[] bytes, int offset, int length)
+    {
+        long value = 0;
+
+        for (int i = length - 1; i >= 0; i--)
+        {
+            value = value << 8 | bytes[offset + i] & 0xFF;
+        }
+
+        return value;
+    }
+
+    /**
+     * Reads the chat entry of an archive
+     *
+     * @param <T> The result of reading the chat
+     */
+    interface EntryReader<T>
+    {
+        /**
+         * Reads the chat entry
+         *
+         * @param in The decompressed entry, which need not be closed
+         * @param bytes The uncompressed size of the entry, or -1 if unknown
+         *
+         * @return The result of reading the chat
+         *
+         * @throws IOException If the entry could not be read
+         */
+        T read(InputStream in, long bytes) throws IOException;
+    }
+
+    /**
+     * A stream of a set amount of bytes of another stream
+     */
+    private static final class BoundedInputStream extends InputStream
+    {
+        /**
+         * The stream read from
+         */
+        private final InputStream in;
+
+        /**
+         * The amount of bytes left
+         */
+        private long remaining;
+
+        private BoundedInputStream(InputStream in, long length)
+        {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (remaining == 0)
+            {
+                return -1;
+            }
+
+            int read = in.read();
+
+            if (read != -1)
+            {
+                remaining--;
+            }
+
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException
+        {
+            if (remaining == 0)
+            {
+                return -1;
+            }
+
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+
+            if (read != -1)
+            {
+                remaining -= read;
+            }
+
+            return read;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import me.itsmas.whatsanalysis.analysis.AnalysisResults;
+import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis.MemberMessageCountResult;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis.WordFrequencyData;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis.WordFrequencyResult;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AnalysisExecutionTest
+{
+    private final Chat chat = createChat();
+
+    @Test
+    public void fusedMatchesSeparate()
+    {
+        WordFrequencyAnalysis wordFrequency = new WordFrequencyAnalysis(20);
+        MemberMessageCountAnalysis messageCount = new MemberMessageCountAnalysis();
+        ChatAnalysis<Integer> messageTotal = Chat::getMessageCount;
+
+        AnalysisResults results = chat.executeAnalyses(wordFrequency, messageCount, messageTotal);
+
+        assertEquals(words(chat.executeAnalysis(wordFrequency)), words(results.get(wordFrequency)));
+        assertEquals(counts(chat.executeAnalysis(messageCount)), counts(results.get(messageCount)));
+        assertEquals(chat.getMessageCount(), (int) results.get(messageTotal));
+    }
+
+    @Test
+    public void parallelMatchesSequential()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        WordFrequencyAnalysis wordFrequency = new WordFrequencyAnalysis(100);
+        MemberMessageCountAnalysis messageCount = new MemberMessageCountAnalysis();
+
+        assertEquals(
+            new TreeMap<>(words(chat.executeAnalysis(wordFrequency))),
+            new TreeMap<>(words(chat.executeAnalysisParallel(wordFrequency, pool)))
+        );
+
+        AnalysisResults results = chat.executeAnalysesParallel(Arrays.asList(wordFrequency, messageCount), pool);
+
+        assertEquals(new TreeMap<>(words(chat.executeAnalysis(wordFrequency))), new TreeMap<>(words(results.get(wordFrequency))));
+        assertEquals(counts(chat.executeAnalysis(messageCount)), counts(results.get(messageCount)));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void membersWithoutIdsTakeFreeIds()
+    {
+        ChatMember alex = new ChatMember("Alex");
+        ChatMember sam = new ChatMember(0, "Sam");
+        assertEquals(-1, alex.getId());
+
+        List<ChatMember> members = Arrays.asList(alex, sam);
+        ChatMember.assignIds(members);
+
+        assertEquals(1, alex.getId());
+
+        Chat chat = new Chat(new LinkedHashSet<>(members), new ArrayList<>());
+        assertSame(alex, chat.getMember(1));
+
+        ChatMember jo = new ChatMember(2, "Jo");
+        chat.extend(Collections.singletonList(jo), Arrays.asList(
+            new ChatMessage(new Date(0), jo, "Hi"),
+            new ChatMessage(new Date(1), jo, "Hello"),
+            new ChatMessage(new Date(2), sam, "Hey")
+        ));
+
+        MemberMessageCountResult counts = chat.executeAnalysis(new MemberMessageCountAnalysis());
+
+        assertEquals(2, counts.getMessageCount(jo));
+        assertEquals(0, counts.getMessageCount(alex));
+
+        // Members of other chats have no messages in this one
+        assertEquals(0, counts.getMessageCount(new ChatMember(2, "Jo")));
+        assertEquals(0, counts.getMessageCount(new ChatMember(7, "Chris")));
+        assertEquals(0, counts.getMessageCount(new ChatMember("Chris")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @SuppressWarnings("deprecation")
+    public void membersWithoutIdsAreRejected()
+    {
+        new Chat(new LinkedHashSet<>(Collections.singleton(new ChatMember("Alex"))), new ArrayList<>());
+    }
+
+    static Map<String, Integer> words(WordFrequencyResult result)
+    {
+        Map<String, Integer> words = new LinkedHashMap<>();
+
+        for (WordFrequencyData data : result.getSorted().values())
+        {
+            words.put(data.word, data.uses);
+        }
+
+        return words;
+    }
+
+    static Map<String, Integer> counts(MemberMessageCountResult result)
+    {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+
+        for (Map.Entry<ChatMember, Integer> entry : result.getSorted().entrySet())
+        {
+            counts.put(entry.getKey().getName(), entry.getValue());
+        }
+
+        return counts;
+    }
+
+    static Chat createChat()
+    {
+        Random random = new Random(0);
+
+        String[] names = {"Sam", "Alex", "Jo", "Chris"};
+        String[] words = {"hello", "world", "it's", "don't", "lol", "ok", "yes", "no", "123", "(maybe)", "\"quoted\"", "wow!!", "a-b"};
+
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < 20_000; i++)
+        {
+            text.append(String.format("%02d/01/2020, %02d:%02d - ", 1 + i / 1440, (i / 60) % 24, i % 60));
+            text.append(names[random.nextInt(names.length)]).append(": ");
+
+            if (random.nextInt(20) == 0)
+            {
+                text.append("<Media omitted>\n");
+                continue;
+            }
+
+            int length = random.nextInt(12);
+
+            for (int w = 0; w < length; w++)
+            {
+                text.append(words[random.nextInt(words.length)]).append(w % 5 == 4 ? "\n" : " ");
+            }
+
+            text.append('\n');
+        }
+
+        return UtilChat.parseChat(new StringReader(text.toString()));
+    }
+}
@@ -0,0 +1,269 @@
+import me.itsmas.whatsanalysis.WhatsAnalysis;
+import me.itsmas.whatsanalysis.analysis.AnalysisResults;
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.util.BatchJob;
+import me.itsmas.whatsanalysis.util.BatchListener;
+import me.itsmas.whatsanalysis.util.BatchOptions;
+import me.itsmas.whatsanalysis.util.BatchSummary;
+import me.itsmas.whatsanalysis.util.UtilBatch;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BatchTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final WordFrequencyAnalysis wordFrequency = new WordFrequencyAnalysis(10);
+    private final MemberMessageCountAnalysis messageCount = new MemberMessageCountAnalysis();
+
+    @Test
+    public void resultsMatchSeparateParsing() throws Exception
+    {
+        File directory = folder.newFolder();
+
+        for (int i = 0; i < 8; i++)
+        {
+            writeChat(new File(directory, "chat" + i + ".txt"), 50 * (i + 1));
+        }
+
+        Files.write(new File(directory, "broken.txt").toPath(), new byte[] {'0', '1', '/', (byte) 0xC3, '\n'});
+        Files.write(new File(directory, "notes.md").toPath(), "ignored".getBytes(StandardCharsets.UTF_8));
+
+        Map<File, AnalysisResults> results = new ConcurrentHashMap<>();
+        Map<File, Throwable> failures = new ConcurrentHashMap<>();
+
+        BatchOptions options = BatchOptions.DEFAULT.withParallelism(3).withMaxInFlightBytes(10_000);
+        BatchSummary summary = UtilBatch.analyseExports(directory, Arrays.asList(wordFrequency, messageCount), options, collect(results, failures)).await();
+
+        assertEquals(8, summary.getSucceeded());
+        assertEquals(0, summary.getSkipped());
+        assertEquals(failures, summary.getFailures());
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey(new File(directory, "broken.txt")));
+
+        assertEquals(8, results.size());
+
+        for (Map.Entry<File, AnalysisResults> entry : results.entrySet())
+        {
+            Chat chat = UtilChat.parseChat(entry.getKey());
+
+            assertEquals(AnalysisExecutionTest.words(chat.executeAnalysis(wordFrequency)), AnalysisExecutionTest.words(entry.getValue().get(wordFrequency)));
+            assertEquals(AnalysisExecutionTest.counts(chat.executeAnalysis(messageCount)), AnalysisExecutionTest.counts(entry.getValue().get(messageCount)));
+        }
+    }
+
+    @Test
+    public void inFlightBytesAreLimited() throws Exception
+    {
+        File[] files = new File[6];
+
+        for (int i = 0; i < files.length; i++)
+        {
+            files[i] = writeChat(folder.newFile(), 200);
+        }
+
+        long limit = files[0].length() * 2;
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+
+        BatchListener listener = new BatchListener()
+        {
+            @Override
+            public void onResult(File file, AnalysisResults results)
+            {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+
+                try
+                {
+                    Thread.sleep(20);
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                running.decrementAndGet();
+            }
+
+            @Override
+            public void onFailure(File file, Throwable cause) {}
+        };
+
+        BatchOptions options = BatchOptions.DEFAULT.withExecutor(executor).withParallelism(6).withMaxInFlightBytes(limit);
+        BatchSummary summary = UtilBatch.analyseExports(Arrays.asList(files), Arrays.asList(messageCount), options, listener).await();
+
+        executor.shutdown();
+
+        assertEquals(6, summary.getSucceeded());
+        assertTrue(maxRunning.get() <= 2);
+
+        // An export over the limit still runs on its own
+        maxRunning.set(0);
+        options = options.withMaxInFlightBytes(1);
+        summary = UtilBatch.analyseExports(Arrays.asList(files), Arrays.asList(messageCount), options.withExecutor(null), listener).await();
+
+        assertEquals(6, summary.getSucceeded());
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void cancelledBatchSkipsRemainingExports() throws Exception
+    {
+        File[] files = new File[5];
+
+        for (int i = 0; i < files.length; i++)
+        {
+            files[i] = writeChat(folder.newFile(), 10);
+        }
+
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        BatchListener listener = new BatchListener()
+        {
+            @Override
+            public void onResult(File file, AnalysisResults results)
+            {
+                first.countDown();
+
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onFailure(File file, Throwable cause) {}
+        };
+
+        BatchOptions options = BatchOptions.DEFAULT.withParallelism(1);
+        BatchJob job = UtilBatch.analyseExports(Arrays.asList(files), Arrays.asList(messageCount), options, listener);
+
+        first.await();
+        job.cancel();
+        release.countDown();
+
+        BatchSummary summary = job.await();
+
+        assertTrue(job.isDone());
+        assertEquals(1, summary.getSucceeded());
+        assertEquals(4, summary.getSkipped());
+        assertTrue(summary.getFailures().isEmpty());
+    }
+
+    @Test
+    public void workersAreNamedApart() throws Exception
+    {
+        File[] files = new File[3];
+
+        for (int i = 0; i < files.length; i++)
+        {
+            files[i] = writeChat(folder.newFile(), 20);
+        }
+
+        Set<String> names = ConcurrentHashMap.newKeySet();
+        CountDownLatch together = new CountDownLatch(files.length);
+
+        BatchListener listener = new BatchListener()
+        {
+            @Override
+            public void onResult(File file, AnalysisResults results)
+            {
+                names.add(Thread.currentThread().getName());
+                together.countDown();
+
+                try
+                {
+                    // Keeps each worker busy until all have started
+                    together.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onFailure(File file, Throwable cause) {}
+        };
+
+        BatchOptions options = BatchOptions.DEFAULT.withParallelism(files.length);
+        UtilBatch.analyseExports(Arrays.asList(files), Arrays.asList(messageCount), options, listener).await();
+
+        assertEquals(files.length, names.size());
+    }
+
+    @Test
+    public void missingDirectoryIsNotListed()
+    {
+        File missing = new File(folder.getRoot(), "missing");
+
+        assertNull(UtilBatch.listExports(missing));
+        assertFalse(WhatsAnalysis.analyseExports(missing, Arrays.asList(messageCount), collect(new ConcurrentHashMap<>(), new ConcurrentHashMap<>())).isPresent());
+    }
+
+    private static BatchListener collect(Map<File, AnalysisResults> results, Map<File, Throwable> failures)
+    {
+        return new BatchListener()
+        {
+            @Override
+            public void onResult(File file, AnalysisResults result)
+            {
+                results.put(file, result);
+            }
+
+            @Override
+            public void onFailure(File file, Throwable cause)
+            {
+                failures.put(file, cause);
+            }
+        };
+    }
+
+    private static File writeChat(File file, int messages) throws IOException
+    {
+        String[] names = {"Sam", "Alex", "Jo"};
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < messages; i++)
+        {
+            text.append(String.format("%02d/01/2020, %02d:%02d - ", 1 + i / 1440, (i / 60) % 24, i % 60));
+            text.append(names[(i * 7 + messages) % names.length]).append(": message ").append(i % 13).append(" of ").append(file.getName()).append('\n');
+        }
+
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+
+        return file;
+    }
+}
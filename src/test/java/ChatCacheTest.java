@@ -0,0 +1,220 @@
+import me.itsmas.whatsanalysis.WhatsAnalysis;
+import me.itsmas.whatsanalysis.analysis.text.WordTokenizer;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.util.ChatCache;
+import me.itsmas.whatsanalysis.util.ExportGenerator;
+import me.itsmas.whatsanalysis.util.MessageStorage;
+import me.itsmas.whatsanalysis.util.ParseOptions;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChatCacheTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void unchangedFileIsParsedOnce() throws IOException
+    {
+        File file = export("chat.txt", 64 << 10);
+        ChatCache cache = new ChatCache(64 << 20);
+
+        Chat chat = cache.parseChat(file, ParseOptions.DEFAULT);
+
+        assertSame(chat, cache.parseChat(file, ParseOptions.DEFAULT));
+        assertSame(chat, cache.parseChat(new File(file.getParentFile(), "./chat.txt"), ParseOptions.DEFAULT));
+
+        // Other options give a chat of their own
+        assertNotSame(chat, cache.parseChat(file, ParseOptions.DEFAULT.withStorage(MessageStorage.COLUMNAR)));
+
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.size());
+
+        // Shared by every caller, so cannot be changed
+        assertTrue(chat.isReadOnly());
+
+        try
+        {
+            chat.extend(Collections.emptyList(), Collections.emptyList());
+            fail("Cached chat was extended");
+        }
+        catch (IllegalStateException expected)
+        {
+            // Read only
+        }
+
+        // Callers share one result cache and token layer
+        assertSame(chat.enableResultCache(16), chat.enableResultCache(32));
+
+        try
+        {
+            chat.buildTokens(WordTokenizer::new);
+            fail("Cached chat was tokenized again");
+        }
+        catch (IllegalStateException expected)
+        {
+            // Read only
+        }
+    }
+
+    @Test
+    public void changedFileIsParsedAgain() throws IOException
+    {
+        File file = export("chat.txt", 64 << 10);
+        ChatCache cache = new ChatCache(64 << 20);
+
+        Chat chat = cache.parseChat(file, ParseOptions.DEFAULT);
+        int messages = chat.getMessageCount();
+
+        Files.write(file.toPath(), "01/01/2020, 12:00 - Sam: appended\n".getBytes("UTF-8"), StandardOpenOption.APPEND);
+
+        Chat changed = cache.parseChat(file, ParseOptions.DEFAULT);
+
+        assertNotSame(chat, changed);
+        assertEquals(messages + 1, changed.getMessageCount());
+
+        // The old version was dropped rather than evicted
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+        assertEquals(changed.estimateRetainedBytes(), cache.getRetainedBytes());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedByBytes() throws IOException
+    {
+        File first = export("first.txt", 64 << 10);
+        File second = export("second.txt", 64 << 10);
+        File third = export("third.txt", 64 << 10);
+
+        long bytes = UtilChat.parseChat(first).estimateRetainedBytes();
+        ChatCache cache = new ChatCache(bytes * 5 / 2);
+
+        Chat firstChat = cache.parseChat(first, ParseOptions.DEFAULT);
+        cache.parseChat(second, ParseOptions.DEFAULT);
+
+        // Used again, so the second is evicted instead
+        cache.parseChat(first, ParseOptions.DEFAULT);
+        cache.parseChat(third, ParseOptions.DEFAULT);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getRetainedBytes() <= bytes * 5 / 2);
+
+        assertSame(firstChat, cache.parseChat(first, ParseOptions.DEFAULT));
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void chatLargerThanBudgetIsNotKept() throws IOException
+    {
+        File file = export("chat.txt", 64 << 10);
+        ChatCache cache = new ChatCache(1024, true);
+
+        Chat chat = cache.parseChat(file, ParseOptions.DEFAULT);
+
+        assertEquals(0, cache.size());
+        assertNotSame(chat, cache.parseChat(file, ParseOptions.DEFAULT));
+    }
+
+    @Test
+    public void softCacheKeepsReachableChats() throws IOException
+    {
+        File file = export("chat.txt", 64 << 10);
+        ChatCache cache = new ChatCache(64 << 20, true);
+
+        Chat chat = cache.parseChat(file, ParseOptions.DEFAULT);
+
+        assertSame(chat, cache.parseChat(file, ParseOptions.DEFAULT));
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void concurrentLoadsAreCoalesced() throws Exception
+    {
+        File file = export("chat.txt", 1 << 20);
+        ChatCache cache = new ChatCache(1L << 30);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try
+        {
+            List<Future<Chat>> chats = new ArrayList<>();
+
+            for (int i = 0; i < 4; i++)
+            {
+                chats.add(executor.submit(() -> cache.parseChat(file, ParseOptions.DEFAULT)));
+            }
+
+            Chat chat = chats.get(0).get(30, TimeUnit.SECONDS);
+
+            for (Future<Chat> other : chats)
+            {
+                assertSame(chat, other.get(30, TimeUnit.SECONDS));
+            }
+
+            assertEquals(1, cache.getMissCount());
+            assertEquals(3, cache.getHitCount());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whatsAnalysisUsesEnabledCache() throws IOException
+    {
+        File file = export("chat.txt", 64 << 10);
+
+        try
+        {
+            ChatCache cache = WhatsAnalysis.enableChatCache(64 << 20);
+            Chat chat = WhatsAnalysis.parseChat(file).get();
+
+            assertSame(chat, WhatsAnalysis.parseChat(file).get());
+            assertEquals(1, cache.getHitCount());
+
+            WhatsAnalysis.disableChatCache();
+            assertNotSame(chat, WhatsAnalysis.parseChat(file).get());
+        }
+        finally
+        {
+            WhatsAnalysis.disableChatCache();
+        }
+    }
+
+    private File export(String name, int size) throws IOException
+    {
+        File file = folder.newFile(name);
+
+        try (OutputStream out = new FileOutputStream(file))
+        {
+            ExportGenerator.DEFAULT.withSize(size).write(out);
+        }
+
+        return file;
+    }
+}
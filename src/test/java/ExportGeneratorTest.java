@@ -0,0 +1,94 @@
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.util.ExportGenerator;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExportGeneratorTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExportGenerator generator = ExportGenerator.DEFAULT.withSize(256 << 10).withSystemLineRatio(0.01);
+
+    @Test
+    public void sameSeedWritesSameBytes() throws IOException
+    {
+        assertTrue(Arrays.equals(generate(generator), generate(generator)));
+        assertFalse(Arrays.equals(generate(generator), generate(generator.withSeed(1))));
+    }
+
+    @Test
+    public void exportParsesAsGenerated() throws IOException
+    {
+        File file = folder.newFile();
+        long messages = generator.withMembers(20).write(file);
+
+        assertTrue(file.length() >= 256 << 10);
+        assertTrue(file.length() < (256 << 10) + 1024);
+
+        Chat chat = UtilChat.parseChat(file);
+
+        assertEquals(messages, chat.getMessageCount());
+        assertTrue(chat.getMemberCount() <= 20);
+
+        int media = 0;
+        long previous = Long.MIN_VALUE;
+
+        for (ChatMessage message : chat.getMessages())
+        {
+            assertTrue(message.getTime().getTime() >= previous);
+            previous = message.getTime().getTime();
+
+            if (message.getContent().equals("<Media omitted>"))
+            {
+                media++;
+            }
+        }
+
+        // Around 5% of messages are media
+        assertTrue(media > messages / 40 && media < messages / 10);
+    }
+
+    @Test
+    public void ratiosShapeExport() throws IOException
+    {
+        String plain = new String(generate(generator.withMultiLineRatio(0).withMediaRatio(0).withSystemLineRatio(0)), StandardCharsets.UTF_8);
+        Chat chat = UtilChat.parseChat(new StringReader(plain));
+
+        // One line per message, after the encryption notice
+        assertEquals(plain.split("\n").length - 1, chat.getMessageCount());
+
+        for (ChatMessage message : chat.getMessages())
+        {
+            assertFalse(message.getContent().contains("\n"));
+            assertFalse(message.getContent().equals("<Media omitted>"));
+        }
+
+        String multiLine = new String(generate(generator.withMultiLineRatio(1)), StandardCharsets.UTF_8);
+        Chat multiLineChat = UtilChat.parseChat(new StringReader(multiLine));
+
+        assertTrue(multiLine.split("\n").length > multiLineChat.getMessageCount() * 2);
+    }
+
+    private static byte[] generate(ExportGenerator generator) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.write(out);
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,166 @@
+import me.itsmas.whatsanalysis.analysis.text.ExternalCounter;
+import me.itsmas.whatsanalysis.analysis.text.ExternalCounter.WordCount;
+import me.itsmas.whatsanalysis.analysis.text.NGramConsumer;
+import me.itsmas.whatsanalysis.analysis.text.WordCounter;
+import me.itsmas.whatsanalysis.analysis.text.WordTokenizer;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyOptions;
+import me.itsmas.whatsanalysis.chat.Chat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExternalCounterTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void spilledCountsAreExact() throws IOException
+    {
+        Random random = new Random(0);
+        File directory = folder.newFolder();
+
+        Map<String, Integer> expected = new TreeMap<>();
+
+        try (ExternalCounter counter = new ExternalCounter(16 << 10, directory);
+             ExternalCounter other = new ExternalCounter(16 << 10, directory))
+        {
+            for (int i = 0; i < 200_000; i++)
+            {
+                // Skewed so some words are counted many times
+                String word = "w" + Integer.toString((int) Math.pow(random.nextInt(5000), 2), 36);
+                char[] chars = ("  " + word).toCharArray();
+
+                (i % 3 == 0 ? other : counter).accept(chars, 2, word.length());
+                expected.merge(word, 1, Integer::sum);
+            }
+
+            counter.addAll(other);
+
+            // Enough runs to have been merged along the way
+            assertTrue(counter.getRunCount() > 0);
+            assertTrue(counter.getRunCount() < 64);
+
+            Map<String, Integer> counted = new TreeMap<>();
+            List<String> order = new ArrayList<>();
+
+            counter.forEach((word, count) ->
+            {
+                counted.put(word, count);
+                order.add(word);
+            });
+
+            assertEquals(expected, counted);
+            assertEquals(new ArrayList<>(expected.keySet()), order);
+
+            List<Map.Entry<String, Integer>> sorted = new ArrayList<>(expected.entrySet());
+            sorted.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+
+            List<WordCount> top = counter.top(50);
+            assertEquals(50, top.size());
+
+            for (int i = 0; i < top.size(); i++)
+            {
+                assertEquals(sorted.get(i).getKey(), top.get(i).getWord());
+                assertEquals((int) sorted.get(i).getValue(), top.get(i).getCount());
+            }
+        }
+
+        // Runs are deleted on closing
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void closedCounterCannotBeUsed() throws IOException
+    {
+        ExternalCounter counter = new ExternalCounter(1, folder.newFolder());
+
+        counter.add("word", 1);
+        counter.close();
+
+        try
+        {
+            counter.add("word", 1);
+            fail();
+        }
+        catch (IllegalStateException expected)
+        {
+            // Its runs are gone
+        }
+    }
+
+    @Test
+    public void nGramsStayWithinMessages()
+    {
+        WordTokenizer tokenizer = new WordTokenizer();
+
+        WordCounter bigrams = new WordCounter();
+        NGramConsumer bigramConsumer = new NGramConsumer(2, bigrams);
+
+        WordCounter trigrams = new WordCounter();
+        NGramConsumer trigramConsumer = new NGramConsumer(3, trigrams);
+
+        for (String message : new String[] { "the quick brown fox", "fox the quick" })
+        {
+            bigramConsumer.reset();
+            trigramConsumer.reset();
+
+            tokenizer.tokenize(message, bigramConsumer);
+            tokenizer.tokenize(message, trigramConsumer);
+        }
+
+        assertEquals(4, bigrams.size());
+        assertEquals(2, bigrams.get("the quick"));
+        assertEquals(1, bigrams.get("brown fox"));
+        assertEquals(1, bigrams.get("fox the"));
+        assertEquals(0, bigrams.get("fox fox"));
+
+        assertEquals(3, trigrams.size());
+        assertEquals(1, trigrams.get("the quick brown"));
+        assertEquals(1, trigrams.get("fox the quick"));
+    }
+
+    @Test
+    public void spillingAnalysisMatchesInMemory()
+    {
+        Chat chat = AnalysisExecutionTest.createChat();
+        int runs = countRuns();
+
+        for (int n = 1; n <= 3; n++)
+        {
+            WordFrequencyAnalysis inMemory = new WordFrequencyAnalysis(WordFrequencyOptions.DEFAULT.withLimit(100_000).withN(n));
+            WordFrequencyAnalysis spilling = new WordFrequencyAnalysis(WordFrequencyOptions.DEFAULT.withLimit(100_000).withN(n).withHeapBudget(4 << 10));
+
+            Map<String, Integer> expected = new HashMap<>(AnalysisExecutionTest.words(chat.executeAnalysis(inMemory)));
+
+            assertEquals(expected, new HashMap<>(AnalysisExecutionTest.words(chat.executeAnalysis(spilling))));
+            assertEquals(expected, new HashMap<>(AnalysisExecutionTest.words(chat.executeAnalysisParallel(spilling, new ForkJoinPool(2)))));
+        }
+
+        // Every run was deleted once finished
+        assertEquals(runs, countRuns());
+    }
+
+    private static int countRuns()
+    {
+        String[] runs = new File(System.getProperty("java.io.tmpdir")).list((directory, name) -> name.startsWith("whatsanalysis-run"));
+
+        return runs == null ? 0 : runs.length;
+    }
+}
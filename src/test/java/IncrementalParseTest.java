@@ -0,0 +1,160 @@
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.util.IncrementalChat;
+import me.itsmas.whatsanalysis.util.IncrementalChat.Refresh;
+import me.itsmas.whatsanalysis.util.MessageStorage;
+import me.itsmas.whatsanalysis.util.ParseOptions;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class IncrementalParseTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendedMessagesExtendChat() throws IOException
+    {
+        assertExtends(ParseOptions.DEFAULT, "\n");
+    }
+
+    @Test
+    public void appendedMessagesExtendColumnarChat() throws IOException
+    {
+        assertExtends(ParseOptions.DEFAULT.withStorage(MessageStorage.COLUMNAR), "\r\n");
+    }
+
+    @Test
+    public void replacedExportIsParsedAgain() throws IOException
+    {
+        File file = folder.newFile();
+        write(file, messages(0, 500, "\n"), false);
+
+        IncrementalChat incremental = UtilChat.parseChatIncremental(file);
+        assertNotNull(incremental);
+
+        write(file, messages(1, 800, "\n"), false);
+
+        assertEquals(Refresh.REPARSED, incremental.refresh());
+        assertSameChat(UtilChat.parseChat(file), incremental.getChat());
+
+        // The last message being continued is not a plain append either
+        write(file, "continued line\n", true);
+
+        assertEquals(Refresh.REPARSED, incremental.refresh());
+        assertSameChat(UtilChat.parseChat(file), incremental.getChat());
+    }
+
+    private void assertExtends(ParseOptions options, String newLine) throws IOException
+    {
+        File file = folder.newFile();
+        write(file, messages(0, 2000, newLine), false);
+
+        WordFrequencyAnalysis wordFrequency = new WordFrequencyAnalysis(100);
+        MemberMessageCountAnalysis messageCount = new MemberMessageCountAnalysis();
+
+        IncrementalChat incremental = UtilChat.parseChatIncremental(file, options);
+        assertNotNull(incremental);
+
+        incremental.track(wordFrequency);
+        incremental.track(messageCount);
+
+        Chat chat = incremental.getChat();
+
+        for (int day = 1; day <= 3; day++)
+        {
+            write(file, messages(day, 300, newLine) + "01/0" + (day + 1) + "/2020, 23:59 - Newcomer " + day + ": hi" + newLine, true);
+
+            assertEquals(Refresh.EXTENDED, incremental.refresh());
+            assertSame(chat, incremental.getChat());
+
+            Chat expected = UtilChat.parseChat(file, options);
+            assertSameChat(expected, chat);
+
+            assertEquals(
+                new TreeMap<>(AnalysisExecutionTest.words(expected.executeAnalysis(wordFrequency))),
+                new TreeMap<>(AnalysisExecutionTest.words(incremental.getResult(wordFrequency)))
+            );
+
+            assertEquals(
+                AnalysisExecutionTest.counts(expected.executeAnalysis(messageCount)),
+                AnalysisExecutionTest.counts(incremental.getResult(messageCount))
+            );
+        }
+
+        assertEquals(Refresh.EXTENDED, incremental.refresh());
+        assertSameChat(UtilChat.parseChat(file, options), chat);
+    }
+
+    private void assertSameChat(Chat expected, Chat actual)
+    {
+        List<ChatMessage> expectedMessages = expected.getMessages();
+        List<ChatMessage> actualMessages = actual.getMessages();
+
+        assertEquals(expectedMessages.size(), actualMessages.size());
+
+        for (int i = 0; i < expectedMessages.size(); i++)
+        {
+            assertEquals(expectedMessages.get(i).getTime(), actualMessages.get(i).getTime());
+            assertEquals(expectedMessages.get(i).getSender().getName(), actualMessages.get(i).getSender().getName());
+            assertEquals(expectedMessages.get(i).getContent(), actualMessages.get(i).getContent());
+        }
+
+        assertEquals(expected.getMemberCount(), actual.getMemberCount());
+
+        for (int id = 0; id < expected.getMemberCount(); id++)
+        {
+            assertEquals(expected.getMember(id).getName(), actual.getMember(id).getName());
+            assertEquals(expected.getMember(id).getMessageCount(), actual.getMember(id).getMessageCount());
+        }
+    }
+
+    private String messages(int day, int count, String newLine)
+    {
+        String[] names = {"Sam", "Alex Smith", "Chlo\u00e9"};
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < count; i++)
+        {
+            text.append(String.format("%02d/01/2020, %02d:%02d - ", 1 + day, (i / 60) % 24, i % 60));
+            text.append(names[(i + day) % names.length]).append(": message ").append(i).append(" of day ").append(day).append(newLine);
+
+            if (i % 10 == 0)
+            {
+                text.append("with another line").append(newLine);
+            }
+        }
+
+        return text.toString();
+    }
+
+    private void write(File file, String text, boolean append) throws IOException
+    {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        if (append)
+        {
+            Files.write(file.toPath(), bytes, StandardOpenOption.APPEND);
+        }
+        else
+        {
+            Files.write(file.toPath(), bytes);
+        }
+    }
+}
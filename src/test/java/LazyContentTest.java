@@ -0,0 +1,146 @@
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.util.ExportGenerator;
+import me.itsmas.whatsanalysis.util.MessageStorage;
+import me.itsmas.whatsanalysis.util.ParseOptions;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LazyContentTest
+{
+    private static final ParseOptions LAZY = ParseOptions.DEFAULT.withStorage(MessageStorage.LAZY);
+
+    private static final String CHAT =
+        "01/01/2020, 00:00 - Messages and calls are end-to-end encrypted.\r\n" +
+        "01/01/2020, 00:01 - Z\u00e9lie: caf\u00e9 \ud83d\ude00\r\n" +
+        "second line\r\n" +
+        "\r\n" +
+        "01/01/2020, 00:02 - Sam: <Media omitted>\r\n" +
+        "01/01/2020, 00:03 - Sam changed the subject from \"Plans\" to \"Plans: 2021\"\r\n" +
+        "after the subject\r" +
+        "01/01/2020, 00:04 - \u0417\u043e\u044f: <Media omitted>\n" +
+        "01/01/2020, 00:04 - Sam: <Media omitted>\n" +
+        "01/01/2020, 00:05 - Sam: one\n" +
+        "two\r\n" +
+        "01/01/2020, 00:06 - Sam changed the subject from \"Plans\" to \"Plans: 2022\"\n" +
+        "three";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lazyMatchesEager() throws IOException
+    {
+        byte[] text = CHAT.getBytes(StandardCharsets.UTF_8);
+        File file = write(text);
+
+        Chat eager = UtilChat.parseChat(file);
+        Chat lazy = UtilChat.parseChat(file, LAZY);
+
+        assertSameChat(eager, lazy);
+        assertSameChat(eager, UtilChat.parseChat(new ByteArrayInputStream(text), LAZY));
+        assertSameChat(eager, UtilChat.parseChat(new ByteArrayInputStream(zip(text)), LAZY));
+
+        List<ChatMessage> messages = lazy.getMessages();
+
+        assertEquals("caf\u00e9 \ud83d\ude00\nsecond line\n", messages.get(0).getContent());
+        assertEquals("<Media omitted>\nafter the subject", messages.get(1).getContent());
+        assertEquals("one\ntwo\nthree", messages.get(4).getContent());
+
+        // Content is left in the source, except across the skipped subject lines
+        assertTrue(messages.get(0).getClass() != ChatMessage.class);
+        assertSame(ChatMessage.class, messages.get(1).getClass());
+        assertSame(ChatMessage.class, messages.get(4).getClass());
+
+        // Decoded afresh each time
+        assertNotSame(messages.get(0).getContent(), messages.get(0).getContent());
+    }
+
+    @Test
+    public void generatedExportMatchesEager() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportGenerator.DEFAULT.withSize(256 << 10).withMultiLineRatio(0.3).write(out);
+
+        File file = write(out.toByteArray());
+
+        assertSameChat(UtilChat.parseChat(file), UtilChat.parseChat(file, LAZY));
+    }
+
+    @Test
+    public void mediaContentIsShared() throws IOException
+    {
+        File file = write(CHAT.getBytes(StandardCharsets.UTF_8));
+
+        for (ParseOptions options : new ParseOptions[] { ParseOptions.DEFAULT, LAZY })
+        {
+            Chat chat = UtilChat.parseChat(file, options);
+
+            ChatMessage first = chat.getMessages().get(2);
+            ChatMessage second = chat.getMessages().get(3);
+
+            assertTrue(first.isMediaMessage());
+            assertTrue(second.isMediaMessage());
+
+            assertSame(ChatMessage.MEDIA_CONTENT, first.getContent());
+            assertSame(ChatMessage.MEDIA_CONTENT, second.getContent());
+        }
+    }
+
+    private File write(byte[] text) throws IOException
+    {
+        File file = folder.newFile();
+        Files.write(file.toPath(), text);
+
+        return file;
+    }
+
+    private static byte[] zip(byte[] text) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(bytes))
+        {
+            zip.putNextEntry(new ZipEntry("_chat.txt"));
+            zip.write(text);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void assertSameChat(Chat expected, Chat actual)
+    {
+        List<ChatMessage> messages = expected.getMessages();
+
+        assertEquals(messages.size(), actual.getMessageCount());
+        assertEquals(expected.getMemberCount(), actual.getMemberCount());
+
+        for (int i = 0; i < messages.size(); i++)
+        {
+            ChatMessage message = actual.getMessages().get(i);
+
+            assertEquals(messages.get(i).getTime(), message.getTime());
+            assertEquals(messages.get(i).getSender().getName(), message.getSender().getName());
+            assertEquals(messages.get(i).getContent(), message.getContent());
+            assertEquals(messages.get(i).isMediaMessage(), message.isMediaMessage());
+            assertEquals(messages.get(i).getSender().getMessages().size(), message.getSender().getMessages().size());
+        }
+    }
+}
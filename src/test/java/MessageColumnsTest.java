@@ -0,0 +1,181 @@
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.chat.MessageColumns;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MessageColumnsTest
+{
+    private static final String[] CONTENTS = {
+        "",
+        "Hello",
+        "Caf\u00E9 \u20AC5",
+        "\uD83D\uDE00 non-BMP \uD83D\uDC68\u200D\uD83D\uDC69\u200D\uD83D\uDC67",
+        "unpaired high \uD800 end",
+        "unpaired low \uDC00",
+        "\uDBFF",
+        "reversed \uDC00\uD800 pair",
+        "replacement \uFFFD kept \uD800",
+        ChatMessage.MEDIA_CONTENT
+    };
+
+    @Test
+    public void contentRoundTrips()
+    {
+        MessageColumns columns = new MessageColumns();
+
+        for (int i = 0; i < CONTENTS.length; i++)
+        {
+            columns.add(i * 1000L, i % 3, CONTENTS[i]);
+        }
+
+        assertEquals(CONTENTS.length, columns.size());
+
+        for (int i = 0; i < CONTENTS.length; i++)
+        {
+            assertEquals(CONTENTS[i], columns.getContent(i));
+            assertEquals(i * 1000L, columns.getTime(i));
+            assertEquals(i % 3, columns.getSender(i));
+            assertEquals(i == CONTENTS.length - 1, columns.isMediaMessage(i));
+        }
+    }
+
+    @Test
+    public void encodedContentRoundTrips()
+    {
+        MessageColumns columns = new MessageColumns();
+        MessageColumns copy = new MessageColumns();
+
+        for (String content : CONTENTS)
+        {
+            columns.add(0, 0, content);
+        }
+
+        // Bytes copied out of one set of columns, as a snapshot does
+        for (int i = 0; i < columns.size(); i++)
+        {
+            copy.add(columns.getTime(i), columns.getSender(i), columns.getContentBytes(i));
+        }
+
+        MessageColumns merged = new MessageColumns();
+        merged.addAll(copy, new int[] { 0 });
+
+        for (int i = 0; i < CONTENTS.length; i++)
+        {
+            assertEquals(CONTENTS[i], copy.getContent(i));
+            assertEquals(CONTENTS[i], merged.getContent(i));
+        }
+
+        // Well formed content is plain UTF-8
+        assertEquals(ByteBuffer.wrap(CONTENTS[3].getBytes(StandardCharsets.UTF_8)), columns.getContentBytes(3));
+    }
+
+    @Test
+    public void messagesReadColumns()
+    {
+        ChatMember sam = new ChatMember(0, "Sam");
+        ChatMember alex = new ChatMember(1, "Alex");
+
+        MessageColumns columns = new MessageColumns();
+
+        for (int i = 0; i < CONTENTS.length; i++)
+        {
+            columns.add(i * 1000L, i % 2, CONTENTS[i]);
+        }
+
+        Chat chat = new Chat(new LinkedHashSet<>(Arrays.asList(sam, alex)), columns);
+        List<ChatMessage> messages = chat.getMessages();
+
+        // The chat holds its own copies of the members
+        assertEquals(0, sam.getMessageCount());
+
+        sam = chat.getMember(0);
+        alex = chat.getMember(1);
+
+        assertEquals("Sam", sam.getName());
+
+        assertEquals(CONTENTS.length, messages.size());
+
+        for (int i = 0; i < CONTENTS.length; i++)
+        {
+            ChatMessage message = messages.get(i);
+
+            assertEquals(new Date(i * 1000L), message.getTime());
+            assertSame(i % 2 == 0 ? sam : alex, message.getSender());
+            assertEquals(CONTENTS[i], message.getContent());
+            assertEquals(i == CONTENTS.length - 1, message.isMediaMessage());
+        }
+
+        // Each member's messages are the ordinals they sent
+        assertEquals((CONTENTS.length + 1) / 2, sam.getMessageCount());
+        assertEquals(CONTENTS.length / 2, alex.getMessages().size());
+
+        for (ChatMessage message : alex.getMessages())
+        {
+            assertSame(alex, message.getSender());
+        }
+
+        assertEquals(CONTENTS[1], alex.getMessages().get(0).getContent());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void messagesAreBounded()
+    {
+        MessageColumns columns = new MessageColumns();
+        columns.add(0, 0, "Hello");
+
+        new Chat(new LinkedHashSet<>(Collections.singleton(new ChatMember(0, "Sam"))), columns).getMessages().get(1);
+    }
+
+    @Test
+    public void columnarChatIsExtended()
+    {
+        ChatMember sam = new ChatMember(0, "Sam");
+
+        MessageColumns columns = new MessageColumns();
+        columns.add(0, 0, "Hello");
+
+        Chat chat = new Chat(new LinkedHashSet<>(Collections.singleton(sam)), columns);
+
+        sam = chat.getMember(0);
+        List<ChatMessage> samMessages = sam.getMessages();
+
+        ChatMember jo = new ChatMember(1, "Jo");
+
+        chat.extend(Collections.singletonList(jo), Arrays.asList(
+            new ChatMessage(new Date(1000), jo, "Hi \uD83D\uDE00"),
+            new ChatMessage(new Date(2000), sam, "Bye \uDC00")
+        ));
+
+        assertEquals(3, columns.size());
+        assertEquals(3, chat.getMessageCount());
+        assertEquals(0, jo.getMessageCount());
+
+        jo = chat.getMember(1);
+        assertEquals("Jo", jo.getName());
+
+        ChatMessage last = chat.getMessages().get(2);
+
+        assertEquals(new Date(2000), last.getTime());
+        assertSame(sam, last.getSender());
+        assertEquals("Bye \uDC00", last.getContent());
+
+        assertEquals(2, sam.getMessageCount());
+        assertEquals("Bye \uDC00", sam.getMessages().get(1).getContent());
+        assertEquals("Hi \uD83D\uDE00", jo.getMessages().get(0).getContent());
+
+        // Lists fetched before extending keep their messages
+        assertEquals(1, samMessages.size());
+    }
+}
@@ -0,0 +1,150 @@
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MessageHeaderTest
+{
+    @Test
+    public void timesMatchDateFormat() throws ParseException
+    {
+        List<String> times = new ArrayList<>();
+
+        // Every minute of 365 days, cycling through the
+        // first 28 days of each month, then the months
+        for (int day = 0; day < 365; day++)
+        {
+            for (int minute = 0; minute < 24 * 60; minute++)
+            {
+                times.add(String.format("%02d/%02d/2021, %02d:%02d", day % 28 + 1, day / 28 % 12 + 1, minute / 60, minute % 60));
+            }
+        }
+
+        // Out of range fields, resolved leniently
+        times.add("00/01/2021, 00:00");
+        times.add("31/02/2021, 12:00");
+        times.add("01/13/2021, 12:00");
+        times.add("01/01/2021, 24:60");
+        times.add("01/01/1900, 10:00");
+        times.add("01/01/2050, 10:00");
+
+        StringBuilder text = new StringBuilder();
+
+        for (String time : times)
+        {
+            text.append(time).append(" - Sam: message\n");
+        }
+
+        Chat chat = UtilChat.parseChat(new StringReader(text.toString()));
+        DateFormat format = new SimpleDateFormat("dd/MM/yyyy, HH:mm");
+
+        assertEquals(times.size(), chat.getMessageCount());
+
+        for (int i = 0; i < times.size(); i++)
+        {
+            assertEquals(times.get(i), format.parse(times.get(i)), chat.getMessages().get(i).getTime());
+        }
+    }
+
+    @Test
+    public void timesMatchDateFormatAcrossDaylightSaving() throws ParseException
+    {
+        TimeZone original = TimeZone.getDefault();
+
+        try
+        {
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+
+            List<String> times = new ArrayList<>();
+
+            // Every minute of the days the clocks go forward and back,
+            // including the skipped hour and the repeated one
+            for (String date : new String[] { "13/03/2021", "14/03/2021", "15/03/2021", "06/11/2021", "07/11/2021", "08/11/2021" })
+            {
+                for (int minute = 0; minute < 24 * 60; minute++)
+                {
+                    times.add(String.format("%s, %02d:%02d", date, minute / 60, minute % 60));
+                }
+            }
+
+            StringBuilder text = new StringBuilder();
+
+            for (String time : times)
+            {
+                text.append(time).append(" - Sam: message\n");
+            }
+
+            Chat chat = UtilChat.parseChat(new StringReader(text.toString()));
+            DateFormat format = new SimpleDateFormat("dd/MM/yyyy, HH:mm");
+
+            assertEquals(times.size(), chat.getMessageCount());
+
+            for (int i = 0; i < times.size(); i++)
+            {
+                assertEquals(times.get(i), format.parse(times.get(i)), chat.getMessages().get(i).getTime());
+            }
+        }
+        finally
+        {
+            TimeZone.setDefault(original);
+        }
+    }
+
+    @Test
+    public void headerLayout()
+    {
+        Chat chat = UtilChat.parseChat(new StringReader(
+            "01/01/2020, 00:00 - Sam: Hello: there\n" +
+            "01/01/2020, 00:00 - : No sender\n" +
+            "1/01/2020, 00:00 - Sam: Short day\n" +
+            "01/01/2020 00:00 - Sam: No comma\n" +
+            "01/01/2020, 00:00 - Sam added Alex\n" +
+            "01/01/2020, 00:00 - Sam:No space\n" +
+            "01/01/2020, 00:00 - Sam: Line\u2028separator\n"
+        ));
+
+        List<ChatMessage> messages = chat.getMessages();
+
+        assertEquals(2, messages.size());
+
+        assertEquals("Sam", messages.get(0).getSender().getName());
+        assertEquals("Hello: there", messages.get(0).getContent());
+
+        assertEquals("", messages.get(1).getSender().getName());
+        assertEquals(
+            "No sender\n" +
+            "1/01/2020, 00:00 - Sam: Short day\n" +
+            "01/01/2020 00:00 - Sam: No comma\n" +
+            "01/01/2020, 00:00 - Sam added Alex\n" +
+            "01/01/2020, 00:00 - Sam:No space\n" +
+            "01/01/2020, 00:00 - Sam: Line\u2028separator",
+            messages.get(1).getContent()
+        );
+    }
+
+    @Test
+    public void ignoredLines()
+    {
+        Chat chat = UtilChat.parseChat(new StringReader(
+            "01/01/2020, 00:00 - Sam created group \"Group: One\"\n" +
+            "01/01/2020, 00:01 - Sam: Hi\n" +
+            "01/01/2020, 00:02 - Alex changed the subject from \"A\" to \"B: C\"\n" +
+            "continued\n"
+        ));
+
+        assertEquals(1, chat.getMessageCount());
+        assertEquals("Hi\ncontinued", chat.getMessages().get(0).getContent());
+        assertNull(chat.getMembers().stream().filter(member -> member.getName().startsWith("Sam created")).findAny().orElse(null));
+    }
+}
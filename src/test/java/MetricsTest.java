@@ -0,0 +1,204 @@
+import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.metrics.AnalysisMetrics;
+import me.itsmas.whatsanalysis.metrics.Metrics;
+import me.itsmas.whatsanalysis.metrics.MetricsListener;
+import me.itsmas.whatsanalysis.metrics.ParseMetrics;
+import me.itsmas.whatsanalysis.util.IncrementalChat;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest
+{
+    private static final String CHAT =
+        "01/01/2020, 00:00 - Messages and calls are end-to-end encrypted.\n" +
+        "01/01/2020, 00:01 - Sam created group \"Plans: 2020\"\n" +
+        "01/01/2020, 00:02 - Sam: hello\n" +
+        "there\n" +
+        "01/01/2020, 00:03 - Alex: hi\n" +
+        "31/02/2020, 00:04 - Jo: leap\n" +
+        "01/01/2020, 00:05 - Sam changed the subject from \"Plans\" to \"Plans: 2021\"\n" +
+        "01/01/2020, 00:06 - Alex: one\n" +
+        "two\n" +
+        "three\n" +
+        "01/01/2040, 00:07 - Jo: later\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<ParseMetrics> parses = Collections.synchronizedList(new ArrayList<>());
+    private final Map<ChatAnalysis<?>, AnalysisMetrics> analyses = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private final MetricsListener listener = new MetricsListener()
+    {
+        @Override
+        public void onParse(ParseMetrics metrics)
+        {
+            parses.add(metrics);
+        }
+
+        @Override
+        public void onAnalysis(AnalysisMetrics metrics)
+        {
+            analyses.put(metrics.getAnalysis(), metrics);
+        }
+    };
+
+    @After
+    public void removeListener()
+    {
+        Metrics.setListener(null);
+    }
+
+    @Test
+    public void parseMetricsCountLines() throws IOException
+    {
+        File file = folder.newFile();
+        Files.write(file.toPath(), CHAT.getBytes(StandardCharsets.UTF_8));
+
+        UtilChat.parseChat(file);
+        assertTrue(parses.isEmpty());
+
+        Metrics.setListener(listener);
+
+        Chat chat = UtilChat.parseChat(file);
+
+        assertEquals(1, parses.size());
+        ParseMetrics metrics = parses.get(0);
+
+        assertEquals(file.length(), metrics.getBytes());
+        assertEquals(11, metrics.getLines());
+        assertEquals(5, metrics.getHeaders());
+        assertEquals(3, metrics.getContinuationLines());
+        assertEquals(2, metrics.getIgnoredLines());
+        assertEquals(2, metrics.getLenientDates());
+        assertEquals(1, metrics.getDateParseFailures());
+        assertEquals(3, metrics.getMembersCreated());
+        assertEquals(chat.getMessageCount(), metrics.getHeaders());
+
+        assertTrue(metrics.getIoNanos() > 0);
+        assertTrue(metrics.getParseNanos() > 0);
+        assertTrue(metrics.getBuildNanos() > 0);
+
+        UtilChat.parseChat(new StringReader(CHAT));
+
+        assertEquals(2, parses.size());
+        assertEquals(-1, parses.get(1).getBytes());
+        assertEquals(11, parses.get(1).getLines());
+    }
+
+    @Test
+    public void everyParsePublishesMetrics() throws IOException
+    {
+        File file = folder.newFile();
+        Files.write(file.toPath(), CHAT.getBytes(StandardCharsets.UTF_8));
+
+        Metrics.setListener(listener);
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+
+        try
+        {
+            UtilChat.parseChat(file);
+            UtilChat.parseChatParallel(file, pool);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        UtilChat.analyseChat(file, Collections.singletonList(new WordFrequencyAnalysis(10)));
+
+        IncrementalChat incremental = UtilChat.parseChatIncremental(file);
+
+        assertEquals(4, parses.size());
+
+        for (ParseMetrics metrics : parses)
+        {
+            assertEquals(file.length(), metrics.getBytes());
+            assertEquals(11, metrics.getLines());
+            assertEquals(5, metrics.getHeaders());
+            assertEquals(3, metrics.getContinuationLines());
+            assertEquals(2, metrics.getIgnoredLines());
+            assertEquals(1, metrics.getDateParseFailures());
+            assertEquals(3, metrics.getMembersCreated());
+            assertTrue(metrics.getParseNanos() > 0);
+        }
+
+        String appended = "01/01/2040, 00:08 - Kim: more\n";
+        Files.write(file.toPath(), appended.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        assertEquals(IncrementalChat.Refresh.EXTENDED, incremental.refresh());
+        assertEquals(5, parses.size());
+
+        // The last message is parsed again along with the new bytes
+        ParseMetrics refresh = parses.get(4);
+
+        assertEquals("01/01/2040, 00:07 - Jo: later\n".length() + appended.length(), refresh.getBytes());
+        assertEquals(2, refresh.getLines());
+        assertEquals(2, refresh.getHeaders());
+        assertEquals(1, refresh.getMembersCreated());
+    }
+
+    @Test
+    public void analysisMetricsCountMessages()
+    {
+        Chat chat = AnalysisExecutionTest.createChat();
+
+        WordFrequencyAnalysis wordFrequency = new WordFrequencyAnalysis(10);
+        MemberMessageCountAnalysis messageCount = new MemberMessageCountAnalysis();
+        ChatAnalysis<Integer> messageTotal = Chat::getMessageCount;
+
+        chat.executeAnalyses(wordFrequency, messageCount, messageTotal);
+        assertTrue(analyses.isEmpty());
+
+        Metrics.setListener(listener);
+
+        chat.executeAnalyses(wordFrequency, messageCount, messageTotal);
+
+        assertEquals(3, analyses.size());
+        assertEquals(chat.getMessageCount(), analyses.get(wordFrequency).getMessagesVisited());
+        assertEquals(chat.getMessageCount(), analyses.get(messageCount).getMessagesVisited());
+        assertEquals(-1, analyses.get(messageTotal).getMessagesVisited());
+        assertTrue(analyses.get(wordFrequency).getElapsedNanos() > 0);
+
+        analyses.clear();
+        WordFrequencyAnalysis single = new WordFrequencyAnalysis(20);
+
+        chat.executeAnalysis(messageCount);
+        chat.executeAnalysis(single);
+
+        assertEquals(-1, analyses.get(messageCount).getMessagesVisited());
+        assertEquals(chat.getMessageCount(), analyses.get(single).getMessagesVisited());
+
+        analyses.clear();
+        chat.executeAnalysesParallel(Arrays.asList(wordFrequency, messageTotal), new ForkJoinPool(2));
+
+        assertEquals(chat.getMessageCount(), analyses.get(wordFrequency).getMessagesVisited());
+        assertFalse(analyses.containsKey(messageCount));
+        assertTrue(analyses.containsKey(messageTotal));
+    }
+}
@@ -0,0 +1,148 @@
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.util.MessageStorage;
+import me.itsmas.whatsanalysis.util.ParseOptions;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class ParallelParseTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdownPool()
+    {
+        pool.shutdown();
+    }
+
+    @Test
+    public void parallelMatchesSequential() throws IOException
+    {
+        assertSameParse(writeChat("\n"));
+    }
+
+    @Test
+    public void parallelMatchesSequentialWithCarriageReturns() throws IOException
+    {
+        assertSameParse(writeChat("\r\n"));
+    }
+
+    @Test
+    public void columnarMatchesSequential() throws IOException
+    {
+        assertSameParse(writeChat("\n"), ParseOptions.DEFAULT.withStorage(MessageStorage.COLUMNAR));
+    }
+
+    private void assertSameParse(File file)
+    {
+        assertSameParse(file, ParseOptions.DEFAULT);
+    }
+
+    private void assertSameParse(File file, ParseOptions options)
+    {
+        Chat sequential = UtilChat.parseChat(file);
+        Chat parallel = UtilChat.parseChatParallel(file, pool, options);
+
+        assertNotNull(sequential);
+        assertNotNull(parallel);
+
+        List<ChatMessage> expected = sequential.getMessages();
+        List<ChatMessage> actual = parallel.getMessages();
+
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(expected.get(i).getTime(), actual.get(i).getTime());
+            assertEquals(expected.get(i).getSender().getName(), actual.get(i).getSender().getName());
+            assertEquals(expected.get(i).getContent(), actual.get(i).getContent());
+
+            // Built with the merged member as its sender
+            assertSame(parallel.getMember(actual.get(i).getSender().getId()), actual.get(i).getSender());
+        }
+
+        assertEquals(messageCounts(sequential), messageCounts(parallel));
+        assertEquals(sequential.getMemberCount(), parallel.getMemberCount());
+
+        for (int id = 0; id < sequential.getMemberCount(); id++)
+        {
+            assertEquals(sequential.getMember(id).getName(), parallel.getMember(id).getName());
+            assertEquals(contents(sequential.getMember(id).getMessages()), contents(parallel.getMember(id).getMessages()));
+        }
+    }
+
+    private List<String> contents(List<ChatMessage> messages)
+    {
+        return messages.stream().map(ChatMessage::getContent).collect(Collectors.toList());
+    }
+
+    private Map<String, Integer> messageCounts(Chat chat)
+    {
+        Map<String, Integer> counts = new TreeMap<>();
+
+        for (ChatMember member : chat.getMembers())
+        {
+            counts.put(member.getName(), member.getMessageCount());
+        }
+
+        return counts;
+    }
+
+    private File writeChat(String newLine) throws IOException
+    {
+        File file = folder.newFile();
+        Random random = new Random(0);
+
+        String[] names = {"Sam", "Alex Smith", "+44 7700 900123", "Chlo\u00e9"};
+
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name()))
+        {
+            writer.print("01/01/2020, 00:00 - Sam created group \"Test: Group\"" + newLine);
+
+            // Roughly 4MB, enough for several chunks
+            for (int i = 0; i < 80_000; i++)
+            {
+                String time = String.format("%02d/01/2020, %02d:%02d", 1 + i / 4000, (i / 60) % 24, i % 60);
+                String name = names[random.nextInt(names.length)];
+
+                writer.print(time + " - " + name + ": message number " + i + newLine);
+
+                if (random.nextInt(10) == 0)
+                {
+                    // Continuation lines, including ones resembling headers
+                    writer.print("01/01/2020, 00:00 - not: a new message".substring(random.nextInt(3)) + newLine);
+                    writer.print(newLine);
+                }
+
+                if (random.nextInt(50) == 0)
+                {
+                    writer.print(time + " - " + name + " added someone" + newLine);
+                }
+            }
+        }
+
+        return file;
+    }
+}
@@ -0,0 +1,241 @@
+import me.itsmas.whatsanalysis.analysis.AccumulatingAnalysis;
+import me.itsmas.whatsanalysis.analysis.AnalysisPipeline;
+import me.itsmas.whatsanalysis.analysis.AnalysisResults;
+import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
+import me.itsmas.whatsanalysis.analysis.PipelineOptions;
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.util.ExportGenerator;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipelineTest
+{
+    private static final PipelineOptions OPTIONS = PipelineOptions.DEFAULT
+        .withBatchSize(64)
+        .withQueueCapacity(1)
+        .withConsumers(2);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void pipelineMatchesParsedChat() throws IOException
+    {
+        File file = folder.newFile("export.txt");
+        ExportGenerator.DEFAULT.withSize(512 << 10).write(file);
+
+        File zip = folder.newFile("export.zip");
+
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip)))
+        {
+            out.putNextEntry(new ZipEntry("_chat.txt"));
+            ExportGenerator.DEFAULT.withSize(512 << 10).write(out);
+        }
+
+        WordFrequencyAnalysis exact = new WordFrequencyAnalysis();
+        WordFrequencyAnalysis approximate = new WordFrequencyAnalysis(100);
+        MemberMessageCountAnalysis messageCount = new MemberMessageCountAnalysis();
+
+        List<ChatAnalysis<?>> analyses = Arrays.asList(exact, approximate, messageCount);
+        AnalysisResults expected = UtilChat.parseChat(file).executeAnalyses(analyses);
+
+        for (File export : new File[] { file, zip })
+        {
+            AnalysisResults results = UtilChat.analyseChat(export, analyses, OPTIONS);
+
+            assertEquals(AnalysisExecutionTest.words(expected.get(exact)), AnalysisExecutionTest.words(results.get(exact)));
+            assertEquals(AnalysisExecutionTest.words(expected.get(approximate)), AnalysisExecutionTest.words(results.get(approximate)));
+            assertEquals(AnalysisExecutionTest.counts(expected.get(messageCount)), AnalysisExecutionTest.counts(results.get(messageCount)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wholeChatAnalysisIsRejected()
+    {
+        ChatAnalysis<Integer> messageTotal = Chat::getMessageCount;
+        new AnalysisPipeline(emptyChat(), Collections.singletonList(messageTotal), OPTIONS);
+    }
+
+    @Test
+    public void failureIsPassedOn() throws IOException
+    {
+        File file = folder.newFile();
+        ExportGenerator.DEFAULT.withSize(256 << 10).write(file);
+
+        CountingAnalysis failing = new CountingAnalysis()
+        {
+            @Override
+            public void accumulate(AtomicInteger accumulator, ChatMessage message)
+            {
+                throw new IllegalStateException("Failed");
+            }
+        };
+
+        try
+        {
+            UtilChat.analyseChat(file, Arrays.asList(new MemberMessageCountAnalysis(), failing), OPTIONS);
+            fail("Failure was not passed on");
+        }
+        catch (IllegalStateException ex)
+        {
+            assertEquals("Failed", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void publishingIsBoundedByConsumers() throws InterruptedException
+    {
+        CountDownLatch release = new CountDownLatch(1);
+
+        CountingAnalysis blocking = new CountingAnalysis()
+        {
+            @Override
+            public void accumulate(AtomicInteger accumulator, ChatMessage message)
+            {
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    throw new IllegalStateException(ex);
+                }
+
+                super.accumulate(accumulator, message);
+            }
+        };
+
+        PipelineOptions options = PipelineOptions.DEFAULT.withBatchSize(1).withQueueCapacity(1);
+        AnalysisPipeline pipeline = new AnalysisPipeline(emptyChat(), Collections.singletonList(blocking), options);
+
+        ChatMember member = new ChatMember(0, "Sam");
+        AtomicInteger published = new AtomicInteger();
+
+        Thread publisher = new Thread(() ->
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                pipeline.publish(new ChatMessage(new Date(i), member, "message " + i));
+                published.incrementAndGet();
+            }
+        });
+
+        publisher.start();
+        publisher.join(500);
+
+        // One batch being consumed and one queued
+        assertTrue(published.get() <= 2);
+
+        release.countDown();
+        publisher.join();
+
+        AnalysisResults results = pipeline.finish(Collections.singletonList(member));
+        assertEquals(100, (int) results.get(blocking));
+    }
+
+    @Test
+    public void cancelReleasesBlockedPublisher() throws InterruptedException
+    {
+        CountDownLatch never = new CountDownLatch(1);
+
+        CountingAnalysis blocking = new CountingAnalysis()
+        {
+            @Override
+            public void accumulate(AtomicInteger accumulator, ChatMessage message)
+            {
+                try
+                {
+                    never.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        };
+
+        PipelineOptions options = PipelineOptions.DEFAULT.withBatchSize(1).withQueueCapacity(1);
+        AnalysisPipeline pipeline = new AnalysisPipeline(emptyChat(), Collections.singletonList(blocking), options);
+
+        ChatMember member = new ChatMember(0, "Sam");
+        AtomicReference<RuntimeException> thrown = new AtomicReference<>();
+
+        Thread publisher = new Thread(() ->
+        {
+            try
+            {
+                for (int i = 0; i < 100; i++)
+                {
+                    pipeline.publish(new ChatMessage(new Date(i), member, "message " + i));
+                }
+            }
+            catch (RuntimeException ex)
+            {
+                thrown.set(ex);
+            }
+        });
+
+        publisher.start();
+        publisher.join(200);
+        assertTrue(publisher.isAlive());
+
+        pipeline.cancel();
+        publisher.join(5000);
+
+        assertFalse(publisher.isAlive());
+        assertTrue(thrown.get() instanceof CancellationException);
+    }
+
+    private static Chat emptyChat()
+    {
+        return new Chat(new LinkedHashSet<>(), new ArrayList<>());
+    }
+
+    private static class CountingAnalysis implements AccumulatingAnalysis<AtomicInteger, Integer>
+    {
+        @Override
+        public AtomicInteger createAccumulator(Chat chat)
+        {
+            return new AtomicInteger();
+        }
+
+        @Override
+        public void accumulate(AtomicInteger accumulator, ChatMessage message)
+        {
+            accumulator.incrementAndGet();
+        }
+
+        @Override
+        public Integer finish(Chat chat, AtomicInteger accumulator)
+        {
+            return accumulator.get();
+        }
+    }
+}
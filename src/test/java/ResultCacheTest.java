@@ -0,0 +1,228 @@
+import me.itsmas.whatsanalysis.analysis.AnalysisCache;
+import me.itsmas.whatsanalysis.analysis.ChatAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyOptions;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ResultCacheTest
+{
+    @Test
+    public void equalConfigurationsShareResults()
+    {
+        Chat chat = AnalysisExecutionTest.createChat();
+        AnalysisCache cache = chat.enableResultCache(16);
+
+        Object words = chat.executeAnalysis(new WordFrequencyAnalysis(10));
+
+        assertSame(words, chat.executeAnalysis(new WordFrequencyAnalysis(10)));
+        assertNotSame(words, chat.executeAnalysis(new WordFrequencyAnalysis(20)));
+
+        Object counts = chat.executeAnalysis(new MemberMessageCountAnalysis());
+        assertSame(counts, chat.executeAnalysis(new MemberMessageCountAnalysis()));
+
+        assertEquals(3, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void parallelResultsAreKeptApart()
+    {
+        Chat chat = AnalysisExecutionTest.createChat();
+        AnalysisCache cache = chat.enableResultCache(16);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ForkJoinPool other = new ForkJoinPool(2);
+
+        try
+        {
+            // Approximate counts merged from ranges
+            Object sequential = chat.executeAnalysis(new WordFrequencyAnalysis(WordFrequencyOptions.DEFAULT.withLimit(10).withCounters(50)));
+            Object parallel = chat.executeAnalysisParallel(new WordFrequencyAnalysis(WordFrequencyOptions.DEFAULT.withLimit(10).withCounters(50)), pool);
+
+            assertNotSame(sequential, parallel);
+            assertSame(parallel, chat.executeAnalysisParallel(new WordFrequencyAnalysis(WordFrequencyOptions.DEFAULT.withLimit(10).withCounters(50)), pool));
+            assertNotSame(parallel, chat.executeAnalysisParallel(new WordFrequencyAnalysis(WordFrequencyOptions.DEFAULT.withLimit(10).withCounters(50)), other));
+            assertSame(sequential, chat.executeAnalysis(new WordFrequencyAnalysis(WordFrequencyOptions.DEFAULT.withLimit(10).withCounters(50))));
+
+            assertEquals(3, cache.getMissCount());
+            assertEquals(2, cache.getHitCount());
+        }
+        finally
+        {
+            pool.shutdown();
+            other.shutdown();
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted()
+    {
+        Chat chat = AnalysisExecutionTest.createChat();
+        AnalysisCache cache = chat.enableResultCache(2);
+
+        Object first = chat.executeAnalysis(new WordFrequencyAnalysis(1));
+        chat.executeAnalysis(new WordFrequencyAnalysis(2));
+
+        // Used again, so the second is evicted instead
+        assertSame(first, chat.executeAnalysis(new WordFrequencyAnalysis(1)));
+        chat.executeAnalysis(new WordFrequencyAnalysis(3));
+
+        assertEquals(2, cache.size());
+        assertSame(first, chat.executeAnalysis(new WordFrequencyAnalysis(1)));
+
+        chat.executeAnalysis(new WordFrequencyAnalysis(2));
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void concurrentRequestsAreCoalesced() throws Exception
+    {
+        Chat chat = AnalysisExecutionTest.createChat();
+        chat.enableResultCache(4);
+
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try
+        {
+            List<Future<Object>> results = new ArrayList<>();
+
+            for (int i = 0; i < 4; i++)
+            {
+                results.add(executor.submit(() -> chat.executeAnalysis(new SlowAnalysis(executions, release))));
+            }
+
+            Thread.sleep(100);
+            release.countDown();
+
+            Object result = results.get(0).get(10, TimeUnit.SECONDS);
+
+            for (Future<Object> other : results)
+            {
+                assertSame(result, other.get(10, TimeUnit.SECONDS));
+            }
+
+            assertEquals(1, executions.get());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void extendingInvalidates()
+    {
+        ChatMember member = new ChatMember(0, "Sam");
+        Chat chat = new Chat(new LinkedHashSet<>(Collections.singleton(member)), new ArrayList<>());
+        AnalysisCache cache = chat.enableResultCache(4);
+
+        chat.extend(Collections.emptyList(), Collections.singletonList(new ChatMessage(new Date(0), member, "hello")));
+        assertEquals(1, chat.executeAnalysis(new WordFrequencyAnalysis(10)).wordAt(1).uses);
+
+        chat.extend(Collections.emptyList(), Collections.singletonList(new ChatMessage(new Date(1), member, "hello")));
+        assertEquals(0, cache.size());
+        assertEquals(2, chat.executeAnalysis(new WordFrequencyAnalysis(10)).wordAt(1).uses);
+    }
+
+    @Test
+    public void failuresAreNotCached()
+    {
+        Chat chat = AnalysisExecutionTest.createChat();
+        AnalysisCache cache = chat.enableResultCache(4);
+
+        AtomicInteger executions = new AtomicInteger();
+
+        ChatAnalysis<Object> failing = new ChatAnalysis<Object>()
+        {
+            @Override
+            public Object execute(Chat chat)
+            {
+                executions.incrementAndGet();
+                throw new IllegalStateException("Failed");
+            }
+
+            @Override
+            public Object getCacheKey()
+            {
+                return "failing";
+            }
+        };
+
+        for (int i = 0; i < 2; i++)
+        {
+            try
+            {
+                chat.executeAnalysis(failing);
+                fail();
+            }
+            catch (IllegalStateException expected)
+            {
+                // Thrown every time
+            }
+        }
+
+        assertEquals(2, executions.get());
+        assertEquals(0, cache.size());
+    }
+
+    private static final class SlowAnalysis implements ChatAnalysis<Object>
+    {
+        private final AtomicInteger executions;
+        private final CountDownLatch release;
+
+        private SlowAnalysis(AtomicInteger executions, CountDownLatch release)
+        {
+            this.executions = executions;
+            this.release = release;
+        }
+
+        @Override
+        public Object execute(Chat chat)
+        {
+            executions.incrementAndGet();
+
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            return new Object();
+        }
+
+        @Override
+        public Object getCacheKey()
+        {
+            return SlowAnalysis.class;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.util.ExportGenerator;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks parsing stays within its heap budget as exports
+ * grow, and within its throughput budget if asked to.
+ * Throughput depends on the machine and its load, so is
+ * only checked with -Dscaling.checkThroughput=true, as
+ * on a dedicated benchmark run. Sizes and budgets can be
+ * changed with system properties, e.g. to run over far
+ * larger exports than the default build does:
+ *
+ *   -Dscaling.checkThroughput=true -Dscaling.maxSize=4294967296 -Dscaling.minThroughput=20
+ */
+public class ScalingTest
+{
+    private static final long MIN_SIZE = 1 << 20;
+    private static final long MAX_SIZE = Long.getLong("scaling.maxSize", 16 << 20);
+
+    /**
+     * Whether to check throughput, which varies with wall time
+     */
+    private static final boolean CHECK_THROUGHPUT = Boolean.getBoolean("scaling.checkThroughput");
+
+    /**
+     * Megabytes parsed per second, kept low enough for slow build machines
+     */
+    private static final double MIN_THROUGHPUT = Double.parseDouble(System.getProperty("scaling.minThroughput", "2"));
+
+    /**
+     * Bytes of heap held by the parsed chat per message
+     */
+    private static final long MAX_HEAP_PER_MESSAGE = Long.getLong("scaling.maxHeapPerMessage", 512);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parsingScales() throws IOException
+    {
+        ExportGenerator generator = ExportGenerator.DEFAULT.withMembers(32);
+
+        // Warm up the parser
+        File warmUp = folder.newFile();
+        generator.withSize(MIN_SIZE).write(warmUp);
+
+        for (int i = 0; i < 3; i++)
+        {
+            UtilChat.parseChat(warmUp);
+        }
+
+        double smallestThroughput = 0;
+
+        for (long size = MIN_SIZE; size <= MAX_SIZE; size *= 4)
+        {
+            File file = folder.newFile();
+            long messages = generator.withSize(size).write(file);
+
+            long before = usedHeap();
+            long start = System.nanoTime();
+
+            Chat chat = UtilChat.parseChat(file);
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long heapPerMessage = (usedHeap() - before) / messages;
+
+            assertEquals(messages, chat.getMessageCount());
+
+            double throughput = file.length() / seconds / (1 << 20);
+            String figures = String.format("%,d bytes, %,d messages", file.length(), messages);
+
+            assertTrue("Heap " + heapPerMessage + " bytes per message for " + figures, heapPerMessage <= MAX_HEAP_PER_MESSAGE);
+
+            if (CHECK_THROUGHPUT)
+            {
+                assertTrue("Throughput " + throughput + " MB/s for " + figures, throughput >= MIN_THROUGHPUT);
+
+                if (size == MIN_SIZE)
+                {
+                    smallestThroughput = throughput;
+                }
+                else
+                {
+                    // Parsing is linear, so larger exports must not be much slower per byte
+                    assertTrue("Throughput fell from " + smallestThroughput + " to " + throughput + " MB/s for " + figures,
+                        throughput >= smallestThroughput / 3);
+                }
+            }
+
+            file.delete();
+        }
+    }
+
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
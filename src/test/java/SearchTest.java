@@ -0,0 +1,127 @@
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.search.ChatIndex;
+import me.itsmas.whatsanalysis.search.SearchQuery;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchTest
+{
+    private final Chat chat = AnalysisExecutionTest.createChat();
+
+    @Test
+    public void termsMatchScan()
+    {
+        assertSearch(SearchQuery.term("hello"), content -> words(content).contains("hello"));
+        assertSearch(SearchQuery.term("Don't!"), content -> words(content).contains("don't"));
+        assertSearch(SearchQuery.term("missing"), content -> false);
+    }
+
+    @Test
+    public void booleanQueriesMatchScan()
+    {
+        assertSearch(
+            SearchQuery.and(SearchQuery.term("hello"), SearchQuery.term("world")),
+            content -> words(content).contains("hello") && words(content).contains("world")
+        );
+
+        assertSearch(
+            SearchQuery.or(SearchQuery.term("lol"), SearchQuery.term("quoted")),
+            content -> words(content).contains("lol") || words(content).contains("quoted")
+        );
+    }
+
+    @Test
+    public void phrasesMatchScan()
+    {
+        assertSearch(SearchQuery.phrase("hello world"), content -> containsRun(words(content), "hello", "world"));
+        assertSearch(SearchQuery.phrase("ok, yes no"), content -> containsRun(words(content), "ok", "yes", "no"));
+    }
+
+    @Test
+    public void filtersMatchScan()
+    {
+        ChatMember sam = chat.getMembers().stream().filter(member -> member.getName().equals("Sam")).findFirst().get();
+
+        Date from = chat.getMessages().get(5000).getTime();
+        Date to = chat.getMessages().get(9000).getTime();
+
+        List<ChatMessage> expected = new ArrayList<>();
+
+        for (ChatMessage message : chat.getMessages())
+        {
+            if (!message.isMediaMessage() && words(message.getContent()).contains("hello") && message.getSender() == sam &&
+                !message.getTime().before(from) && message.getTime().before(to))
+            {
+                expected.add(message);
+            }
+        }
+
+        assertTrue(expected.size() > 0);
+        assertEquals(expected, chat.search(SearchQuery.term("hello").from(sam).between(from, to)));
+    }
+
+    @Test
+    public void parallelIndexMatchesSequential()
+    {
+        // A chat of its own, as the index reuses tokens already built
+        ChatIndex sequential = ChatIndex.build(chat);
+        ChatIndex parallel = ChatIndex.build(AnalysisExecutionTest.createChat(), new ForkJoinPool(4));
+
+        assertEquals(sequential.getWordCount(), parallel.getWordCount());
+
+        for (String word : Arrays.asList("hello", "world", "it's", "don't", "lol", "ok", "yes", "no", "maybe", "quoted", "wow"))
+        {
+            assertArrayEquals(sequential.getPostings(word), parallel.getPostings(word));
+        }
+    }
+
+    private void assertSearch(SearchQuery query, Predicate<String> matches)
+    {
+        List<ChatMessage> expected = new ArrayList<>();
+
+        for (ChatMessage message : chat.getMessages())
+        {
+            if (!message.isMediaMessage() && matches.test(message.getContent()))
+            {
+                expected.add(message);
+            }
+        }
+
+        assertEquals(expected, chat.search(query));
+    }
+
+    private static List<String> words(String content)
+    {
+        List<String> words = new ArrayList<>();
+
+        for (String piece : content.split("[ \n]"))
+        {
+            String word = piece.toLowerCase().replaceAll("^[^a-z']+|[^a-z']+$", "");
+
+            if (!word.isEmpty() && word.matches("[a-z']+"))
+            {
+                words.add(word);
+            }
+        }
+
+        return words;
+    }
+
+    private static boolean containsRun(List<String> words, String... run)
+    {
+        return Collections.indexOfSubList(words, Arrays.asList(run)) != -1;
+    }
+}
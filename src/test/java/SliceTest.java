@@ -0,0 +1,138 @@
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SliceTest
+{
+    private static final long MINUTE = 60_000;
+
+    @Test
+    public void sliceMatchesFilter()
+    {
+        Chat chat = AnalysisExecutionTest.createChat();
+        long start = chat.getMessages().get(0).getTime().getTime();
+
+        assertSlice(chat, new Date(start + 1000 * MINUTE), new Date(start + 5000 * MINUTE));
+        assertSlice(chat, new Date(start + 1000 * MINUTE + 1), new Date(start + 1001 * MINUTE));
+        assertSlice(chat, new Date(start - MINUTE), new Date(start));
+        assertSlice(chat, new Date(0), new Date(Long.MAX_VALUE));
+
+        // Slices of slices
+        Chat slice = chat.slice(new Date(start + 1000 * MINUTE), new Date(start + 5000 * MINUTE));
+
+        assertSlice(slice, new Date(start + 2000 * MINUTE), new Date(start + 9000 * MINUTE));
+    }
+
+    @Test
+    public void sliceOfUnorderedChatMatchesFilter()
+    {
+        Chat ordered = AnalysisExecutionTest.createChat();
+
+        List<ChatMessage> messages = new ArrayList<>(ordered.getMessages());
+        Collections.swap(messages, 100, 15_000);
+
+        Chat chat = new Chat(new LinkedHashSet<>(ordered.getMembers()), messages);
+        long start = messages.get(0).getTime().getTime();
+
+        assertSlice(chat, new Date(start), new Date(start + 1000 * MINUTE));
+        assertSlice(chat.slice(new Date(start), new Date(start + 1000 * MINUTE)), new Date(start + 50 * MINUTE), new Date(start + 200 * MINUTE));
+    }
+
+    @Test
+    public void sliceOfShuffledChatMatchesFilter()
+    {
+        Chat ordered = AnalysisExecutionTest.createChat();
+
+        List<ChatMessage> messages = new ArrayList<>(ordered.getMessages());
+        Collections.shuffle(messages, new Random(7));
+
+        Chat chat = new Chat(new LinkedHashSet<>(ordered.getMembers()), messages);
+        long start = ordered.getMessages().get(0).getTime().getTime();
+
+        assertSlice(chat, new Date(start + 1000 * MINUTE), new Date(start + 5000 * MINUTE));
+        assertSlice(chat, new Date(start - MINUTE), new Date(start));
+        assertSlice(chat, new Date(0), new Date(Long.MAX_VALUE));
+        assertSlice(chat, new Date(start + 5000 * MINUTE), new Date(start + 1000 * MINUTE));
+    }
+
+    @Test
+    public void extendingKeepsCallerMembers()
+    {
+        ChatMember sam = new ChatMember(0, "Sam");
+        Set<ChatMember> members = new LinkedHashSet<>(Collections.singleton(sam));
+
+        Chat chat = new Chat(members, new ArrayList<>(Collections.singletonList(new ChatMessage(new Date(0), sam, "Hi"))));
+        Chat slice = chat.slice(new Date(0), new Date(MINUTE));
+
+        ChatMember alex = new ChatMember(1, "Alex");
+        chat.extend(Collections.singletonList(alex), Collections.singletonList(new ChatMessage(new Date(1), alex, "Hello")));
+
+        assertEquals(1, members.size());
+        assertEquals(2, chat.getMembers().size());
+        assertSame(alex, chat.getMember(1));
+
+        // Slices share the members of their chat
+        assertTrue(slice.getMembers().contains(alex));
+    }
+
+    private void assertSlice(Chat chat, Date from, Date to)
+    {
+        List<ChatMessage> expected = new ArrayList<>();
+
+        for (ChatMessage message : chat.getMessages())
+        {
+            if (!message.getTime().before(from) && message.getTime().before(to))
+            {
+                expected.add(message);
+            }
+        }
+
+        Chat slice = chat.slice(from, to);
+
+        assertEquals(expected.size(), slice.getMessageCount());
+
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(expected.get(i).getTime(), slice.getMessages().get(i).getTime());
+            assertEquals(expected.get(i).getContent(), slice.getMessages().get(i).getContent());
+        }
+
+        Chat copy = new Chat(new LinkedHashSet<>(chat.getMembers()), expected);
+
+        for (ChatMember member : chat.getMembers())
+        {
+            long count = expected.stream().filter(message -> message.getSender() == member).count();
+            assertEquals(count, slice.getMessageCount(member));
+        }
+
+        MemberMessageCountAnalysis messageCount = new MemberMessageCountAnalysis();
+        WordFrequencyAnalysis wordFrequency = new WordFrequencyAnalysis();
+
+        assertEquals(
+            // The copy shares members with the whole chat, so is counted message by message
+            AnalysisExecutionTest.counts(copy.executeAnalyses(messageCount).get(messageCount)),
+            AnalysisExecutionTest.counts(slice.executeAnalysis(messageCount))
+        );
+
+        assertEquals(
+            new TreeMap<>(AnalysisExecutionTest.words(wordFrequency.execute(copy))),
+            new TreeMap<>(AnalysisExecutionTest.words(slice.executeAnalysis(wordFrequency)))
+        );
+    }
+}
@@ -0,0 +1,187 @@
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.util.MessageStorage;
+import me.itsmas.whatsanalysis.util.ParseOptions;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import me.itsmas.whatsanalysis.util.UtilSnapshot;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void snapshotMatchesParse() throws IOException
+    {
+        File file = writeChat();
+        File snapshot = new File(folder.getRoot(), "chat.snapshot");
+
+        Chat parsed = UtilChat.parseChat(file);
+
+        assertTrue(UtilSnapshot.writeSnapshot(parsed, file, snapshot));
+
+        assertSameChat(parsed, UtilSnapshot.readSnapshot(snapshot));
+        assertSameChat(parsed, UtilSnapshot.readSnapshot(snapshot, ParseOptions.DEFAULT.withStorage(MessageStorage.COLUMNAR)));
+
+        Chat columnar = UtilChat.parseChat(file, ParseOptions.DEFAULT.withStorage(MessageStorage.COLUMNAR));
+
+        assertTrue(UtilSnapshot.writeSnapshot(columnar, file, snapshot));
+        assertSameChat(parsed, UtilSnapshot.readSnapshot(snapshot));
+    }
+
+    @Test
+    public void cacheIsInvalidatedByChanges() throws IOException
+    {
+        File file = writeChat();
+        File cache = folder.newFolder();
+
+        Chat first = UtilSnapshot.parseChatCached(file, cache);
+
+        assertSameChat(UtilChat.parseChat(file), first);
+        assertEquals(1, cache.listFiles().length);
+
+        assertSameChat(first, UtilSnapshot.parseChatCached(file, cache));
+
+        Files.write(file.toPath(), "02/01/2020, 00:00 - Sam: appended\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        Chat changed = UtilSnapshot.parseChatCached(file, cache);
+
+        assertEquals(first.getMessageCount() + 1, changed.getMessageCount());
+        assertSameChat(UtilChat.parseChat(file), changed);
+        assertSameChat(changed, UtilSnapshot.parseChatCached(file, cache));
+    }
+
+    @Test
+    public void corruptSnapshotIsNotLoaded() throws IOException
+    {
+        File file = writeChat();
+        File snapshot = new File(folder.getRoot(), "chat.snapshot");
+
+        assertTrue(UtilSnapshot.writeSnapshot(UtilChat.parseChat(file), file, snapshot));
+
+        byte[] bytes = Files.readAllBytes(snapshot.toPath());
+        Files.write(snapshot.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertNull(UtilSnapshot.readSnapshot(snapshot));
+    }
+
+    @Test
+    public void hugeMessageCountIsNotLoaded() throws IOException
+    {
+        File file = writeChat();
+        File snapshot = new File(folder.getRoot(), "chat.snapshot");
+
+        assertTrue(UtilSnapshot.writeSnapshot(UtilChat.parseChat(file), file, snapshot));
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot.toPath()));
+
+        // Skip the magic, version and source, then each member
+        buffer.position(8);
+        skip(buffer, buffer.getInt() + 24);
+
+        for (int members = buffer.getInt(); members > 0; members--)
+        {
+            skip(buffer, buffer.getInt());
+        }
+
+        buffer.putInt(buffer.position(), Integer.MAX_VALUE);
+        Files.write(snapshot.toPath(), buffer.array());
+
+        assertNull(UtilSnapshot.readSnapshot(snapshot));
+    }
+
+    @Test
+    public void zippedExportIsCached() throws IOException
+    {
+        File file = writeChat();
+        File zip = folder.newFile("export.zip");
+
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip)))
+        {
+            out.putNextEntry(new ZipEntry("_chat.txt"));
+            out.write(Files.readAllBytes(file.toPath()));
+        }
+
+        File cache = folder.newFolder();
+        Chat expected = UtilChat.parseChat(file);
+
+        assertSameChat(expected, UtilSnapshot.parseChatCached(zip, cache));
+        assertEquals(1, cache.listFiles().length);
+
+        assertSameChat(expected, UtilSnapshot.parseChatCached(zip, cache, ParseOptions.DEFAULT.withStorage(MessageStorage.LAZY)));
+    }
+
+    private static void skip(ByteBuffer buffer, int bytes)
+    {
+        buffer.position(buffer.position() + bytes);
+    }
+
+    private void assertSameChat(Chat expected, Chat actual)
+    {
+        assertNotNull(actual);
+
+        List<ChatMessage> expectedMessages = expected.getMessages();
+        List<ChatMessage> actualMessages = actual.getMessages();
+
+        assertEquals(expectedMessages.size(), actualMessages.size());
+
+        for (int i = 0; i < expectedMessages.size(); i++)
+        {
+            assertEquals(expectedMessages.get(i).getTime(), actualMessages.get(i).getTime());
+            assertEquals(expectedMessages.get(i).getSender().getId(), actualMessages.get(i).getSender().getId());
+            assertEquals(expectedMessages.get(i).getContent(), actualMessages.get(i).getContent());
+        }
+
+        assertEquals(expected.getMemberCount(), actual.getMemberCount());
+
+        for (int id = 0; id < expected.getMemberCount(); id++)
+        {
+            assertEquals(expected.getMember(id).getName(), actual.getMember(id).getName());
+            assertEquals(expected.getMember(id).getMessageCount(), actual.getMember(id).getMessageCount());
+        }
+    }
+
+    private File writeChat() throws IOException
+    {
+        File file = folder.newFile();
+
+        String[] names = {"Sam", "Alex Smith", "Chlo\u00e9"};
+
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name()))
+        {
+            for (int i = 0; i < 5000; i++)
+            {
+                writer.print(String.format("01/01/2020, %02d:%02d", (i / 60) % 24, i % 60));
+                writer.print(" - " + names[i % names.length] + ": message \ud83d\ude00 " + i + "\n");
+
+                if (i % 7 == 0)
+                {
+                    writer.print("<Media omitted>\n");
+                }
+            }
+        }
+
+        return file;
+    }
+}
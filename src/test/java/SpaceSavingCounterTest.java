@@ -0,0 +1,155 @@
+import me.itsmas.whatsanalysis.analysis.text.SpaceSavingCounter;
+import me.itsmas.whatsanalysis.analysis.text.TopK;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyOptions;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis.WordFrequencyData;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpaceSavingCounterTest
+{
+    @Test
+    public void topKMatchesSort()
+    {
+        Random random = new Random(0);
+        int[] scores = random.ints(10_000, 0, 500).toArray();
+
+        int[] expected = IntStream.range(0, scores.length)
+            .filter(index -> index % 7 != 0)
+            .boxed()
+            .sorted(Comparator.comparing((Integer index) -> scores[index], Comparator.reverseOrder()))
+            .limit(100)
+            .mapToInt(Integer::intValue)
+            .toArray();
+
+        assertArrayEquals(expected, TopK.select(scores.length, index -> index % 7 != 0, index -> scores[index], 100));
+    }
+
+    @Test
+    public void limitBeyondCandidatesSelectsAll()
+    {
+        int[] scores = {3, 1, 2};
+
+        assertArrayEquals(new int[] {0, 2, 1}, TopK.select(scores.length, index -> true, index -> scores[index], Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void wordFrequencyBreaksTiesByWord()
+    {
+        ChatMember member = new ChatMember(0, "Sam");
+        Chat chat = new Chat(new LinkedHashSet<>(Collections.singleton(member)), new ArrayList<>());
+
+        chat.extend(Collections.emptyList(), Collections.singletonList(new ChatMessage(new Date(0), member, "pear apple fig apple pear fig kiwi")));
+
+        List<String> expected = Arrays.asList("apple", "fig", "pear", "kiwi");
+
+        assertEquals(expected, words(chat.executeAnalysis(new WordFrequencyAnalysis(Integer.MAX_VALUE))));
+        assertEquals(expected, words(chat.executeAnalysis(new WordFrequencyAnalysis(WordFrequencyOptions.DEFAULT.withLimit(Integer.MAX_VALUE).withCounters(16)))));
+        assertEquals(expected, words(chat.executeAnalysis(new WordFrequencyAnalysis(50_000_000))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeLimitIsRejected()
+    {
+        new WordFrequencyAnalysis(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void countersWithHeapBudgetAreRejected()
+    {
+        WordFrequencyOptions.DEFAULT.withCounters(16).withHeapBudget(4 << 10);
+    }
+
+    @Test
+    public void staysWithinBounds()
+    {
+        checkBounds(false);
+    }
+
+    @Test
+    public void mergedStaysWithinBounds()
+    {
+        checkBounds(true);
+    }
+
+    private void checkBounds(boolean merge)
+    {
+        Random random = new Random(0);
+        int capacity = 200;
+
+        SpaceSavingCounter counter = new SpaceSavingCounter(capacity);
+        SpaceSavingCounter other = new SpaceSavingCounter(capacity);
+        Map<String, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 100_000; i++)
+        {
+            // Skewed so some words are counted many times
+            String word = "w" + (int) Math.pow(random.nextInt(100), 3) / 1000;
+            char[] chars = word.toCharArray();
+
+            (merge && i % 3 == 0 ? other : counter).accept(chars, 0, chars.length);
+            expected.merge(word, 1, Integer::sum);
+        }
+
+        if (merge)
+        {
+            counter = SpaceSavingCounter.merge(counter, other);
+        }
+
+        long total = counter.total();
+        long bound = merge ? 2 * total / capacity : total / capacity;
+
+        assertEquals(100_000, total);
+
+        Map<String, Integer> tracked = new HashMap<>();
+
+        for (int i = 0; i < counter.size(); i++)
+        {
+            int trueCount = expected.get(counter.wordAt(i));
+
+            assertTrue(counter.countAt(i) >= trueCount);
+            assertTrue(counter.countAt(i) - counter.errorAt(i) <= trueCount);
+            assertTrue(counter.errorAt(i) <= bound);
+
+            tracked.put(counter.wordAt(i), counter.countAt(i));
+        }
+
+        expected.forEach((word, count) ->
+        {
+            if (count > bound)
+            {
+                assertTrue(word, tracked.containsKey(word));
+            }
+        });
+    }
+
+    private static List<String> words(WordFrequencyAnalysis.WordFrequencyResult result)
+    {
+        List<String> words = new ArrayList<>();
+
+        for (WordFrequencyData data : result.getSorted().values())
+        {
+            words.add(data.word);
+        }
+
+        return words;
+    }
+}
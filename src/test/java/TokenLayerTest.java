@@ -0,0 +1,161 @@
+import me.itsmas.whatsanalysis.analysis.AnalysisResults;
+import me.itsmas.whatsanalysis.analysis.text.TokenLayer;
+import me.itsmas.whatsanalysis.analysis.text.UnicodeTokenizer;
+import me.itsmas.whatsanalysis.analysis.text.WordTokenizer;
+import me.itsmas.whatsanalysis.analysis.types.MemberMessageCountAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyAnalysis;
+import me.itsmas.whatsanalysis.analysis.types.WordFrequencyOptions;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMember;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.search.SearchQuery;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TokenLayerTest
+{
+    @Test
+    public void layerMatchesTokenizer()
+    {
+        Chat chat = AnalysisExecutionTest.createChat();
+        TokenLayer tokens = chat.getTokens();
+
+        assertSame(tokens, chat.getTokens());
+        assertEquals(chat.getMessageCount(), tokens.getMessageCount());
+
+        WordTokenizer tokenizer = new WordTokenizer();
+        List<ChatMessage> messages = chat.getMessages();
+
+        for (int i = 0; i < messages.size(); i++)
+        {
+            List<String> expected = new ArrayList<>();
+
+            if (!messages.get(i).isMediaMessage())
+            {
+                tokenizer.tokenize(messages.get(i).getContent(), (chars, offset, length) -> expected.add(new String(chars, offset, length)));
+            }
+
+            List<String> actual = new ArrayList<>();
+
+            for (int id : tokens.getTokens(i))
+            {
+                actual.add(tokens.getDictionary().getWord(id));
+            }
+
+            assertEquals(expected, actual);
+            assertEquals(tokens.getEnd(i) - tokens.getStart(i), actual.size());
+        }
+    }
+
+    @Test
+    public void parallelLayerMatchesSequential()
+    {
+        List<ChatMessage> messages = AnalysisExecutionTest.createChat().getMessages();
+
+        TokenLayer sequential = TokenLayer.build(messages, WordTokenizer::new);
+        TokenLayer parallel = TokenLayer.build(messages, WordTokenizer::new, new ForkJoinPool(4));
+
+        assertEquals(sequential.getMessageCount(), parallel.getMessageCount());
+        assertEquals(sequential.getDictionary().size(), parallel.getDictionary().size());
+
+        for (int i = 0; i < messages.size(); i++)
+        {
+            assertEquals(sequential.getStart(i), parallel.getStart(i));
+            assertArrayEquals(sequential.getTokens(i), parallel.getTokens(i));
+        }
+    }
+
+    @Test
+    public void wordFrequencyCountsTokens()
+    {
+        Chat chat = AnalysisExecutionTest.createChat();
+        Map<String, Integer> expected = AnalysisExecutionTest.words(chat.executeAnalysis(new WordFrequencyAnalysis(100)));
+
+        WordFrequencyAnalysis words = new WordFrequencyAnalysis(WordFrequencyOptions.DEFAULT.withLimit(100).withFromTokens(true));
+        assertFalse(words.isFusible(chat));
+
+        assertEquals(expected, AnalysisExecutionTest.words(chat.executeAnalysis(words)));
+
+        AnalysisResults results = chat.executeAnalyses(words, new MemberMessageCountAnalysis());
+        assertEquals(expected, AnalysisExecutionTest.words(results.get(words)));
+
+        // Other analyses tokenize messages even once the layer is built
+        assertTrue(new WordFrequencyAnalysis(100).isFusible(chat));
+        assertTrue(new WordFrequencyAnalysis(WordFrequencyOptions.DEFAULT.withLimit(100).withCounters(50)).isFusible(chat));
+    }
+
+    @Test
+    public void extendingDropsTokens()
+    {
+        ChatMember member = new ChatMember(0, "Sam");
+        Chat chat = new Chat(new LinkedHashSet<>(Collections.singleton(member)), new ArrayList<>());
+
+        TokenLayer empty = chat.getTokens();
+        assertEquals(0, empty.getTokenCount());
+
+        chat.extend(Collections.emptyList(), Collections.singletonList(new ChatMessage(new Date(0), member, "Hello there hello")));
+
+        TokenLayer tokens = chat.getTokens();
+        assertNotSame(empty, tokens);
+
+        assertEquals(3, tokens.getTokenCount());
+        assertEquals(2, tokens.getDictionary().size());
+        assertEquals(2, tokens.countTokens()[tokens.getDictionary().get("hello")]);
+    }
+
+    @Test
+    public void unicodeTokenizerKeepsWordsAndEmoji()
+    {
+        String content = "Caf\u00E9 NA\u00CFVE don't, \u201Cquoted\u201D \u0928\u092E\u0938\u094D\u0924\u0947 42"
+            + " \uD83D\uDE00\uD83D\uDE00 \uD83D\uDC4D\uD83C\uDFFD"
+            + " \uD83D\uDC68\u200D\uD83D\uDC69\u200D\uD83D\uDC67 \uD83C\uDDEC\uD83C\uDDE7 'end'";
+
+        List<String> tokens = new ArrayList<>();
+        new UnicodeTokenizer().tokenize(content, (chars, offset, length) -> tokens.add(new String(chars, offset, length)));
+
+        assertEquals(Arrays.asList(
+            "caf\u00E9", "na\u00EFve", "don't", "quoted", "\u0928\u092E\u0938\u094D\u0924\u0947", "42",
+            "\uD83D\uDE00", "\uD83D\uDE00", "\uD83D\uDC4D\uD83C\uDFFD",
+            "\uD83D\uDC68\u200D\uD83D\uDC69\u200D\uD83D\uDC67", "\uD83C\uDDEC\uD83C\uDDE7", "end"
+        ), tokens);
+    }
+
+    @Test
+    public void pluggedTokenizerIsUsed()
+    {
+        ChatMember member = new ChatMember(0, "Sam");
+        Chat chat = new Chat(new LinkedHashSet<>(Collections.singleton(member)), new ArrayList<>());
+
+        chat.extend(Collections.emptyList(), Arrays.asList(
+            new ChatMessage(new Date(0), member, "\u00E9t\u00E9 \uD83D\uDE02"),
+            new ChatMessage(new Date(1), member, "\uD83D\uDE02\uD83D\uDE02")
+        ));
+
+        chat.buildTokens(UnicodeTokenizer::new);
+
+        WordFrequencyAnalysis.WordFrequencyResult result = chat.executeAnalysis(new WordFrequencyAnalysis(WordFrequencyOptions.DEFAULT.withLimit(10).withFromTokens(true)));
+
+        assertEquals("\uD83D\uDE02", result.wordAt(1).word);
+        assertEquals(3, result.wordAt(1).uses);
+        assertEquals("\u00E9t\u00E9", result.wordAt(2).word);
+
+        // Searches split queries the same way as the layer
+        assertEquals(chat.getMessages(), chat.search(SearchQuery.term("\uD83D\uDE02")));
+        assertEquals(1, chat.search(SearchQuery.phrase("\u00C9T\u00C9 \uD83D\uDE02")).size());
+    }
+}
@@ -0,0 +1,59 @@
+import me.itsmas.whatsanalysis.analysis.text.WordCounter;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class WordCounterTest
+{
+    @Test
+    public void matchesHashMap()
+    {
+        Random random = new Random(0);
+
+        WordCounter counter = new WordCounter();
+        WordCounter other = new WordCounter();
+        Map<String, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++)
+        {
+            // Skewed so some words are counted many times
+            String word = "w" + Integer.toString((int) Math.pow(random.nextInt(2000), 2), 36);
+            char[] chars = ("  " + word).toCharArray();
+
+            if (i % 3 == 0)
+            {
+                other.accept(chars, 2, word.length());
+            }
+            else
+            {
+                counter.accept(chars, 2, word.length());
+            }
+
+            expected.merge(word, 1, Integer::sum);
+        }
+
+        counter.addAll(other);
+
+        assertEquals(expected.size(), counter.size());
+        assertEquals(expected, toMap(counter));
+    }
+
+    private Map<String, Integer> toMap(WordCounter counter)
+    {
+        Map<String, Integer> map = new HashMap<>();
+
+        for (int slot = 0; slot < counter.capacity(); slot++)
+        {
+            if (counter.wordAt(slot) != null)
+            {
+                map.put(counter.wordAt(slot), counter.countAt(slot));
+            }
+        }
+
+        return map;
+    }
+}
@@ -0,0 +1,68 @@
+import me.itsmas.whatsanalysis.analysis.text.WordTokenizer;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class WordTokenizerTest
+{
+    private static final String[] PIECES = {
+        "hello", "World", "IT'S", "don't", "'quoted'", "\"double\"", "(brackets)", "wow!!", "a-b", "123", "x1y",
+        "caf\u00e9", "\u0130stanbul", "\u212aelvin", "\u03a3\u039f\u03a3", "smile\ud83d\ude00", "\ud83d\ude00smile",
+        "tab\tbed", "cr\r", "''", "-", "", "...and", "end...", "Mixed'Case'"
+    };
+
+    @Test
+    public void matchesRegexTokenizer()
+    {
+        Random random = new Random(0);
+
+        for (int round = 0; round < 2000; round++)
+        {
+            StringBuilder content = new StringBuilder();
+            int pieces = random.nextInt(10);
+
+            for (int i = 0; i < pieces; i++)
+            {
+                content.append(PIECES[random.nextInt(PIECES.length)]);
+                content.append(random.nextInt(4) == 0 ? '\n' : ' ');
+            }
+
+            assertEquals(content.toString(), regexCounts(content.toString()), tokenizerCounts(content.toString()));
+        }
+    }
+
+    private Map<String, Integer> tokenizerCounts(String content)
+    {
+        Map<String, Integer> counts = new TreeMap<>();
+
+        new WordTokenizer().tokenize(content, (chars, offset, length) ->
+            counts.merge(new String(chars, offset, length), 1, Integer::sum)
+        );
+
+        return counts;
+    }
+
+    /**
+     * The tokenizing WordFrequencyAnalysis did before WordTokenizer
+     */
+    private Map<String, Integer> regexCounts(String content)
+    {
+        Map<String, Integer> counts = new TreeMap<>();
+
+        for (String word : content.toLowerCase().split("[ \n]"))
+        {
+            String normalized = word.replaceAll("^[^a-zA-Z']+|[^a-zA-Z']+$", "");
+
+            if (!normalized.isEmpty() && normalized.matches("[a-zA-Z']+"))
+            {
+                counts.merge(normalized, 1, Integer::sum);
+            }
+        }
+
+        return counts;
+    }
+}
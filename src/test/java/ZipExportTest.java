@@ -0,0 +1,200 @@
+import me.itsmas.whatsanalysis.WhatsAnalysis;
+import me.itsmas.whatsanalysis.chat.Chat;
+import me.itsmas.whatsanalysis.chat.ChatMessage;
+import me.itsmas.whatsanalysis.util.ExportGenerator;
+import me.itsmas.whatsanalysis.util.UtilChat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ZipExportTest
+{
+    private static final int MEDIA_SIZE = 1 << 18;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] text = generate();
+    private final Chat expected = UtilChat.parseChat(new ByteArrayInputStream(text));
+
+    @Test
+    public void zipMatchesText() throws IOException
+    {
+        byte[] zip = zip(true);
+
+        File file = folder.newFile("export.zip");
+        Files.write(file.toPath(), zip);
+
+        assertSameChat(expected, WhatsAnalysis.parseChat(file).get());
+        assertSameChat(expected, WhatsAnalysis.parseChat(new ByteArrayInputStream(zip)).get());
+        assertSameChat(expected, WhatsAnalysis.parseChat(Channels.newChannel(new ByteArrayInputStream(zip))).get());
+    }
+
+    @Test
+    public void storedMediaIsSkipped() throws IOException
+    {
+        byte[] zip = zip(false);
+        CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(zip));
+
+        assertSameChat(expected, UtilChat.parseChat(in));
+
+        // The media bytes were skipped rather than read
+        assertTrue(in.read < MEDIA_SIZE);
+    }
+
+    @Test
+    public void zipWithoutChatIsNotParsed() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(bytes))
+        {
+            zip.putNextEntry(new ZipEntry("IMG-0001.jpg"));
+            zip.write(new byte[100]);
+            zip.putNextEntry(new ZipEntry("media/notes.txt"));
+            zip.write(text);
+        }
+
+        File file = folder.newFile("empty.zip");
+        Files.write(file.toPath(), bytes.toByteArray());
+
+        assertNull(UtilChat.parseChat(file));
+        assertNull(UtilChat.parseChat(new ByteArrayInputStream(bytes.toByteArray())));
+        assertFalse(WhatsAnalysis.parseChat(file).isPresent());
+    }
+
+    private byte[] zip(boolean deflatedMedia) throws IOException
+    {
+        Random random = new Random(0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(bytes))
+        {
+            for (int i = 0; i < 2; i++)
+            {
+                byte[] media = new byte[MEDIA_SIZE];
+                random.nextBytes(media);
+
+                zip.putNextEntry(storedEntry("IMG-000" + i + ".jpg", media));
+                zip.write(media);
+            }
+
+            if (deflatedMedia)
+            {
+                // Written with its sizes after the data
+                zip.putNextEntry(new ZipEntry("PTT-0001.opus"));
+                zip.write(new byte[MEDIA_SIZE]);
+            }
+
+            zip.putNextEntry(new ZipEntry("_chat.txt"));
+            zip.write(text);
+
+            zip.putNextEntry(new ZipEntry("IMG-0003.jpg"));
+            zip.write(new byte[100]);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static ZipEntry storedEntry(String name, byte[] data)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+
+        return entry;
+    }
+
+    private static byte[] generate()
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try
+        {
+            ExportGenerator.DEFAULT.withSize(64 << 10).write(out);
+        }
+        catch (IOException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static void assertSameChat(Chat expected, Chat actual)
+    {
+        List<ChatMessage> messages = expected.getMessages();
+
+        assertEquals(messages.size(), actual.getMessageCount());
+        assertEquals(expected.getMemberCount(), actual.getMemberCount());
+
+        for (int i = 0; i < messages.size(); i++)
+        {
+            ChatMessage message = actual.getMessages().get(i);
+
+            assertEquals(messages.get(i).getTime(), message.getTime());
+            assertEquals(messages.get(i).getSender().getName(), message.getSender().getName());
+            assertEquals(messages.get(i).getContent(), message.getContent());
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream
+    {
+        private long read = 0;
+
+        private CountingInputStream(InputStream in)
+        {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+
+            if (b != -1)
+            {
+                read++;
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException
+        {
+            int count = super.read(buffer, offset, length);
+
+            if (count != -1)
+            {
+                read += count;
+            }
+
+            return count;
+        }
+    }
+}